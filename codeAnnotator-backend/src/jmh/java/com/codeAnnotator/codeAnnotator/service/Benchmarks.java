@@ -0,0 +1,127 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+
+import java.util.Random;
+
+/** Synthetic inputs shared by the benchmarks. */
+final class Benchmarks {
+
+    private Benchmarks() {
+    }
+
+    /** A Java method of about {@code lines} lines, with strings, comments and magic numbers like real rows. */
+    static String javaCode(int lines) {
+        StringBuilder code = new StringBuilder("public BigDecimal total(Order order, boolean rounded) {\n");
+        code.append("    BigDecimal sum = BigDecimal.ZERO; // running total\n");
+        for (int i = 2; i < lines - 2; i++) {
+            code.append("    if (order.line(").append(i).append(").quantity() > 3) { sum = sum.add(order.line(")
+                    .append(i).append(").price().multiply(\"1.2\")); }\n");
+        }
+        code.append("    return rounded ? sum.setScale(2) : sum;\n}");
+        return code.toString();
+    }
+
+    private static final String[] WORDS = {
+            "order", "customer", "invoice", "line", "price", "tax", "discount", "account", "user", "session",
+            "request", "response", "cache", "entry", "key", "value", "node", "parent", "child", "index", "count",
+            "total", "limit", "offset", "page", "result", "error", "message", "status", "config", "timeout",
+            "retry", "queue", "task", "event", "handler", "buffer", "stream", "file", "path", "token", "score"};
+
+    private static final String[] TYPES = {
+            "int", "long", "double", "boolean", "String", "BigDecimal", "List<String>", "Map<String, Long>",
+            "Optional<User>", "Instant", "Duration", "byte[]"};
+
+    /**
+     * A Java method of about {@code lines} lines whose identifiers, literals, comments and nesting vary with
+     * {@code seed}, unlike {@link #javaCode}, which repeats one statement and so compresses far better than
+     * stored snippets do.
+     */
+    static String variedJavaCode(int lines, long seed) {
+        Random random = new Random(seed);
+        StringBuilder code = new StringBuilder("public ").append(pick(random, TYPES)).append(' ')
+                .append(identifier(random)).append('(').append(pick(random, TYPES)).append(' ')
+                .append(identifier(random)).append(", ").append(pick(random, TYPES)).append(' ')
+                .append(identifier(random)).append(") {\n");
+        int depth = 1;
+        for (int i = 2; i < lines - 1; i++) {
+            String indent = "    ".repeat(depth);
+            switch (random.nextInt(8)) {
+                case 0 -> code.append(indent).append("// ").append(pick(random, WORDS)).append(' ')
+                        .append(pick(random, WORDS)).append(" before ").append(pick(random, WORDS)).append('\n');
+                case 1 -> code.append(indent).append(pick(random, TYPES)).append(' ').append(identifier(random))
+                        .append(" = ").append(identifier(random)).append('.').append(identifier(random))
+                        .append("(").append(random.nextInt(10_000)).append(");\n");
+                case 2 -> code.append(indent).append("log.debug(\"").append(pick(random, WORDS)).append(' ')
+                        .append(pick(random, WORDS)).append(" {} of {}\", ").append(identifier(random))
+                        .append(", ").append(identifier(random)).append(");\n");
+                case 3 -> code.append(indent).append(identifier(random)).append(" += ").append(identifier(random))
+                        .append(" * ").append(random.nextInt(100)).append('.').append(random.nextInt(100))
+                        .append(";\n");
+                case 4 -> code.append(indent).append("throw new IllegalStateException(\"")
+                        .append(pick(random, WORDS)).append(" #").append(Long.toHexString(random.nextLong()))
+                        .append("\");\n");
+                case 5 -> {
+                    if (depth < 4 && i < lines - 3) {
+                        code.append(indent).append("if (").append(identifier(random)).append(" > ")
+                                .append(random.nextInt(1_000)).append(") {\n");
+                        depth++;
+                    } else {
+                        code.append(indent).append(identifier(random)).append("++;\n");
+                    }
+                }
+                case 6 -> {
+                    if (depth < 4 && i < lines - 3) {
+                        code.append(indent).append("for (").append(pick(random, TYPES)).append(' ')
+                                .append(identifier(random)).append(" : ").append(identifier(random)).append(") {\n");
+                        depth++;
+                    } else {
+                        code.append(indent).append("continue;\n");
+                    }
+                }
+                default -> {
+                    if (depth > 1) {
+                        depth--;
+                        code.append("    ".repeat(depth)).append("}\n");
+                    } else {
+                        code.append(indent).append(identifier(random)).append(".add(\"")
+                                .append(pick(random, WORDS)).append("\");\n");
+                    }
+                }
+            }
+        }
+        while (depth > 1) {
+            depth--;
+            code.append("    ".repeat(depth)).append("}\n");
+        }
+        code.append("    return ").append(identifier(random)).append(";\n}");
+        return code.toString();
+    }
+
+    private static String identifier(Random random) {
+        String head = pick(random, WORDS);
+        String tail = pick(random, WORDS);
+        return head + Character.toUpperCase(tail.charAt(0)) + tail.substring(1);
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    static CodeSnippet snippet(long id, int lines) {
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setId(id);
+        snippet.setCodeType("method");
+        snippet.setCodeName("total");
+        snippet.setRepository("acme/shop");
+        snippet.setCommitHash("3f2a9c1");
+        snippet.setPath("src/main/java/Order.java");
+        snippet.setStartLine(10);
+        snippet.setEndLine(10 + lines);
+        snippet.setLink("https://example.com/acme/shop/blob/3f2a9c1/Order.java");
+        snippet.setCode(javaCode(lines));
+        snippet.setLanguages("Java");
+        snippet.setType(CodeSnippet.CodeType.OPENSOURCE);
+        return snippet;
+    }
+}
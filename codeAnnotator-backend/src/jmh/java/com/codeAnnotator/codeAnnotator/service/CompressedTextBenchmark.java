@@ -0,0 +1,85 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the compressed Lob format on writes, entity reads and streamed export reads, by snippet size.
+ * {@link #encodeVaried} also reports the characters in and out as aux counters, over varied snippets, so the
+ * compression ratio in the results file is not the one of the repetitive input the timings use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedTextBenchmark {
+
+    @Param({"20", "200", "2000"})
+    private int lines;
+
+    private String code;
+    private String stored;
+    private final char[] buffer = new char[8192];
+    private String[] samples;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        code = Benchmarks.javaCode(lines);
+        stored = CompressedText.encode(code);
+        samples = new String[64];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = Benchmarks.variedJavaCode(lines, i);
+        }
+    }
+
+    @Benchmark
+    public String encode() {
+        return CompressedText.encode(code);
+    }
+
+    @Benchmark
+    public String encodeVaried(Sizes sizes) {
+        String sample = samples[next++ & (samples.length - 1)];
+        String encoded = CompressedText.encode(sample);
+        sizes.rawChars += sample.length();
+        sizes.storedChars += encoded.length();
+        return encoded;
+    }
+
+    @Benchmark
+    public String decode() {
+        return CompressedText.decode(stored);
+    }
+
+    @Benchmark
+    public long stream() throws IOException {
+        long chars = 0;
+        try (Reader reader = CompressedText.reader(stored)) {
+            for (int n; (n = reader.read(buffer)) != -1; ) {
+                chars += n;
+            }
+        }
+        return chars;
+    }
+
+    /** Characters encoded and stored per iteration; their quotient is the compression ratio. */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Sizes {
+        public long rawChars;
+        public long storedChars;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            rawChars = 0;
+            storedChars = 0;
+        }
+    }
+}
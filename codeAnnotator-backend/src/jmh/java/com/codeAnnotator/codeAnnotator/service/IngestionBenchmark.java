@@ -0,0 +1,57 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.opencsv.CSVReader;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The CPU side of a CSV upload: OpenCSV row parsing plus {@link SnippetIngestionService#toSnippet}, without the
+ * database writes. Reports rows per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class IngestionBenchmark {
+
+    private static final int ROWS = 1_000;
+
+    // Lines of code per snippet: typical method-sized rows and file-sized ones.
+    @Param({"20", "400"})
+    int codeLines;
+
+    private byte[] csv;
+
+    @Setup
+    public void setUp() {
+        StringBuilder out = new StringBuilder("codeType,codeName,repository,commitHash,path,startLine,endLine,link,code,languages\n");
+        for (int row = 0; row < ROWS; row++) {
+            out.append("method,process").append(row).append(",acme/shop,3f2a9c1,src/main/java/Order.java,")
+                    .append(row).append(',').append(row + codeLines)
+                    .append(",https://example.com/acme/shop/blob/3f2a9c1/Order.java,\"")
+                    .append(Benchmarks.javaCode(codeLines).replace("\"", "\"\""))
+                    .append("\",Java\n");
+        }
+        csv = out.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void parseAndMapRows(Blackhole blackhole) throws Exception {
+        try (CSVReader reader = new CSVReader(new InputStreamReader(new ByteArrayInputStream(csv), StandardCharsets.UTF_8))) {
+            reader.readNext();
+            String[] tokens;
+            while ((tokens = reader.readNext()) != null) {
+                blackhole.consume(SnippetIngestionService.toSnippet(tokens, CodeSnippet.CodeType.OPENSOURCE));
+            }
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Throughput of the local metrics engine on one thread, i.e. snippets per second per core. A model round trip takes
+ * seconds, so anything in the thousands per second makes the pre-filter free by comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MetricsAnalyzerBenchmark {
+
+    @Param({"20", "200", "2000"})
+    private int lines;
+
+    private final MetricsAnalyzer analyzer = new MetricsAnalyzer();
+    private String code;
+
+    @Setup
+    public void setUp() {
+        code = Benchmarks.javaCode(lines);
+    }
+
+    @Benchmark
+    public Optional<AnalysisReport> analyze() {
+        return analyzer.analyze(code, "java");
+    }
+}
@@ -0,0 +1,90 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okio.Buffer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Our side of an OpenAI round trip: building single and batch prompts, and parsing answers, both the whole
+ * Responses API body and the server-sent event stream. Network time is not included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OpenAIAgentBenchmark {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    // Smells in the model's answer.
+    @Param({"0", "3", "10"})
+    int smells;
+
+    private String code;
+    private List<CodeSnippet> batch;
+    private String responseBody;
+    private String eventStream;
+
+    @Setup
+    public void setUp() throws Exception {
+        code = Benchmarks.javaCode(60);
+        batch = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            batch.add(Benchmarks.snippet(id, 40));
+        }
+
+        List<Map<String, String>> answer = new ArrayList<>();
+        for (int i = 0; i < smells; i++) {
+            answer.add(Map.of("smellType", "Magic Numbers", "category", "Anti-pattern",
+                    "suggestion", "Extract the threshold " + i + " into a named constant.",
+                    "refactoredCode", "private static final int BULK_QUANTITY = 3;\n" + Benchmarks.javaCode(10)));
+        }
+        String text = smells == 0 ? "No" : mapper.writeValueAsString(answer);
+        responseBody = mapper.writeValueAsString(Map.of("id", "resp_1", "model", OpenAIAgent.MODEL,
+                "output", List.of(Map.of("type", "message", "content", List.of(Map.of("type", "output_text", "text", text))))));
+
+        // Deltas of a few characters, as the API streams them.
+        StringBuilder sse = new StringBuilder("event: response.created\ndata: {\"type\":\"response.created\",\"response\":{\"id\":\"resp_1\"}}\n\n");
+        for (int i = 0; i < text.length(); i += 8) {
+            sse.append("event: response.output_text.delta\ndata: ")
+                    .append(mapper.writeValueAsString(Map.of("type", "response.output_text.delta", "item_id", "msg_1",
+                            "delta", text.substring(i, Math.min(text.length(), i + 8)))))
+                    .append("\n\n");
+        }
+        sse.append("event: response.completed\ndata: {\"type\":\"response.completed\",\"response\":{\"id\":\"resp_1\"}}\n\n");
+        eventStream = sse.toString();
+    }
+
+    @Benchmark
+    public String buildPrompt() {
+        return OpenAIAgent.buildPrompt(code);
+    }
+
+    @Benchmark
+    public void packAndBuildBatchPrompts(Blackhole blackhole) {
+        for (List<CodeSnippet> packed : OpenAIAgent.packBatches(batch, 16_000)) {
+            blackhole.consume(OpenAIAgent.buildBatchPrompt(packed));
+        }
+    }
+
+    @Benchmark
+    public List<SmellAnnotationDTO> parseResponse() throws Exception {
+        return OpenAIAgent.parseAnswer(OpenAIAgent.outputText(responseBody));
+    }
+
+    @Benchmark
+    public Optional<List<SmellAnnotationDTO>> parseEventStream(Blackhole blackhole) {
+        return OpenAIAgent.readStream(new Buffer().writeUtf8(eventStream), new SmellStreamParser(blackhole::consume));
+    }
+}
@@ -0,0 +1,120 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.CodeAnnotatorApplication;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.SnippetLeaseRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Next-snippet selection ({@link SnippetLeaseService#claimNext}) against an H2 database in MySQL mode holding
+ * {@code corpusSize} snippets with between 0 and {@code maxAnnotations} annotations each, and
+ * {@code liveLeases} leases held for the whole trial on the least-annotated snippets, so every claim has to
+ * anti-join past them. Each invocation claims a snippet and releases the lease again, so the state stays the
+ * same throughout; {@link #claimAndReleaseContended} does so from several threads, which skip the rows the
+ * others have locked. Absolute numbers differ from MySQL; the trend with the parameters is what counts.
+ * <p>
+ * H2 applies the {@code limit} before skipping locked rows when the order comes from a secondary index, so under
+ * contention some of its claims come back empty where MySQL would return the next row. The contended benchmark
+ * reports them as the {@code empty} counter next to {@code claimed} instead of failing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SelectionBenchmark {
+
+    private static final int INSERT_BATCH = 1_000;
+
+    @Param({"1000", "10000", "100000"})
+    int corpusSize;
+
+    @Param({"0", "10"})
+    int maxAnnotations;
+
+    @Param({"0", "100", "500"})
+    int liveLeases;
+
+    private ConfigurableApplicationContext context;
+    private SnippetLeaseService leaseService;
+    private SnippetLeaseRepository leaseRepo;
+    private TransactionTemplate transactionTemplate;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(CodeAnnotatorApplication.class)
+                .profiles("test")
+                .web(WebApplicationType.NONE)
+                .properties("spring.main.banner-mode=off", "logging.level.root=WARN", "snippets.lease.ttl-minutes=1440")
+                .run();
+        leaseService = context.getBean(SnippetLeaseService.class);
+        leaseRepo = context.getBean(SnippetLeaseRepository.class);
+        transactionTemplate = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+        CodeSnippetBatchRepository batchRepo = context.getBean(CodeSnippetBatchRepository.class);
+        for (int inserted = 0; inserted < corpusSize; inserted += INSERT_BATCH) {
+            List<CodeSnippet> batch = new ArrayList<>(INSERT_BATCH);
+            for (int i = inserted; i < Math.min(corpusSize, inserted + INSERT_BATCH); i++) {
+                batch.add(Benchmarks.snippet(0, 20));
+            }
+            transactionTemplate.executeWithoutResult(status -> batchRepo.insertAll(batch));
+        }
+        // Spread the counts over the (annotation_count, id) index instead of leaving one flat run of zeros.
+        context.getBean(JdbcTemplate.class).update("update code_snippet set annotation_count = mod(id * 7919, ?)",
+                maxAnnotations + 1);
+        for (int i = 0; i < liveLeases; i++) {
+            leaseService.claimNext("holder-" + i, null).orElseThrow();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Long claimAndRelease() {
+        Long id = leaseService.claimNext(null, null).orElseThrow();
+        transactionTemplate.executeWithoutResult(status -> leaseRepo.release(id));
+        return id;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Long claimAndReleaseContended(Claims claims) {
+        Optional<Long> id = leaseService.claimNext(null, null);
+        if (id.isEmpty()) {
+            claims.empty++;
+            return null;
+        }
+        claims.claimed++;
+        transactionTemplate.executeWithoutResult(status -> leaseRepo.release(id.get()));
+        return id.get();
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Claims {
+        public long claimed;
+        public long empty;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            claimed = 0;
+            empty = 0;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.CodeSnippetResponseDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/** Entity to response DTO mapping done for every snippet served ({@code CodeSnippetService.toDto}). */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SnippetDtoBenchmark {
+
+    private final CodeSnippetService service = new CodeSnippetService();
+    private CodeSnippet snippet;
+
+    @Setup
+    public void setUp() {
+        snippet = Benchmarks.snippet(42L, 60);
+    }
+
+    @Benchmark
+    public CodeSnippetResponseDTO toDto() {
+        return service.withoutAiSuggestions(snippet);
+    }
+}
@@ -0,0 +1,293 @@
+package com.codeAnnotator.codeAnnotator.loadtest;
+
+import com.codeAnnotator.codeAnnotator.CodeAnnotatorApplication;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load test of the annotation flow: N simulated annotators each loop over {@code GET /snippets/next} and
+ * {@code POST /annotations} (submitting the AI suggestions, or "clean" when there are none) for a fixed time,
+ * then throughput, p50/p99 latency and errors per endpoint are reported.
+ * <p>
+ * By default the backend is started in process on an H2 database in MySQL mode, seeded with
+ * {@code --snippets} synthetic methods, and its OpenAI client is pointed at an {@link OpenAIStub}, so no network
+ * or credentials are needed. Every snippet is sent to the stub ({@code analysis.routing.mode=llm-only}) and the
+ * client-side quota limits are off. Spring properties can be overridden as {@code --name=value}, e.g.
+ * {@code --analysis.routing.mode=local-first} or {@code --openai.rate.tokens-per-minute=30000}.
+ * With {@code --target http://host:port} an already running backend is loaded instead, and its own OpenAI settings apply.
+ *
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dloadtest.args="--annotators 50 --duration-s 120 --llm-p99-ms 6000"
+ * </pre>
+ */
+public class LoadTest {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final int SEED_BATCH = 1_000;
+
+    private final String baseUrl;
+    private final HttpClient http = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+
+    private final Latencies next = new Latencies("GET /snippets/next");
+    private final Latencies submit = new Latencies("POST /annotations");
+    private final AtomicLong annotated = new AtomicLong();
+    private final AtomicLong aiUnavailable = new AtomicLong();
+    private final AtomicLong exhausted = new AtomicLong();
+
+    LoadTest(String baseUrl) {
+        this.baseUrl = baseUrl;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        int annotators = options.integer("annotators", 20);
+        int durationSeconds = options.integer("duration-s", 60);
+        int thinkMs = options.integer("think-ms", 0);
+        String target = options.string("target", null);
+
+        if (target != null) {
+            new LoadTest(target).run(annotators, durationSeconds, thinkMs).print(System.out);
+            return;
+        }
+        try (OpenAIStub stub = new OpenAIStub(0, OpenAIStub.Settings.from(options));
+             ConfigurableApplicationContext backend = startBackend(stub.url(), args)) {
+            seed(backend, options.integer("snippets", 5_000));
+            String url = "http://localhost:" + backend.getEnvironment().getProperty("local.server.port");
+            LoadTest test = new LoadTest(url);
+            Report report = test.run(annotators, durationSeconds, thinkMs);
+            report.print(System.out);
+            System.out.println(stub.summary());
+            System.out.println("llm client: " + test.get("/analysis/llm/stats"));
+        }
+    }
+
+    private static ConfigurableApplicationContext startBackend(String stubUrl, String[] args) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        properties.put("server.port", "0");
+        properties.put("openai.api.url", stubUrl);
+        properties.put("analysis.routing.mode", "llm-only");
+        // The stub has no quota; the bulkhead, retries and breaker stay on.
+        properties.put("openai.rate.requests-per-minute", "0");
+        properties.put("openai.rate.tokens-per-minute", "0");
+        properties.put("spring.main.banner-mode", "off");
+        properties.put("logging.level.root", "WARN");
+        // Injected stub errors would otherwise log a warning each
+        properties.put("logging.level.com.codeAnnotator.codeAnnotator.service.OpenAIAgent", "ERROR");
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (arg.startsWith("--") && equals > 2) {
+                properties.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        String[] springArgs = properties.entrySet().stream()
+                .map(property -> "--" + property.getKey() + "=" + property.getValue())
+                .toArray(String[]::new);
+        // The test profile supplies the embedded database; -Dspring.datasource.url=... points at a real one.
+        return new SpringApplicationBuilder(CodeAnnotatorApplication.class)
+                .profiles("test")
+                .run(springArgs);
+    }
+
+    private static void seed(ConfigurableApplicationContext backend, int snippets) {
+        CodeSnippetBatchRepository batchRepo = backend.getBean(CodeSnippetBatchRepository.class);
+        TransactionTemplate transactionTemplate = new TransactionTemplate(backend.getBean(PlatformTransactionManager.class));
+        for (int inserted = 0; inserted < snippets; inserted += SEED_BATCH) {
+            List<CodeSnippet> batch = new ArrayList<>(SEED_BATCH);
+            for (int i = inserted; i < Math.min(snippets, inserted + SEED_BATCH); i++) {
+                batch.add(snippet(i));
+            }
+            transactionTemplate.executeWithoutResult(status -> batchRepo.insertAll(batch));
+        }
+    }
+
+    /** A distinct method per index, so analyses are not served from the cache. */
+    private static CodeSnippet snippet(int index) {
+        int lines = 10 + index % 40;
+        StringBuilder code = new StringBuilder("public BigDecimal total").append(index).append("(Order order) {\n")
+                .append("    BigDecimal sum = BigDecimal.ZERO;\n");
+        for (int i = 0; i < lines; i++) {
+            code.append("    if (order.line(").append(i).append(").quantity() > ").append(index % 7 + 2)
+                    .append(") { sum = sum.add(order.line(").append(i).append(").price()); }\n");
+        }
+        code.append("    return sum;\n}");
+
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setCodeType("method");
+        snippet.setCodeName("total" + index);
+        snippet.setRepository("loadtest/shop");
+        snippet.setPath("src/main/java/Order.java");
+        snippet.setStartLine(1);
+        snippet.setEndLine(lines + 3);
+        snippet.setCode(code.toString());
+        snippet.setLanguages("Java");
+        snippet.setType(CodeSnippet.CodeType.OPENSOURCE);
+        return snippet;
+    }
+
+    Report run(int annotators, int durationSeconds, int thinkMs) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + Duration.ofSeconds(durationSeconds).toNanos();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < annotators; i++) {
+            String annotator = "annotator-" + i;
+            Thread thread = new Thread(() -> annotate(annotator, deadline, thinkMs), annotator);
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        return new Report(annotators, (System.nanoTime() - start) / 1e9, annotated.get(), aiUnavailable.get(),
+                exhausted.get(), List.of(next, submit));
+    }
+
+    private void annotate(String annotator, long deadline, int thinkMs) {
+        while (System.nanoTime() < deadline) {
+            try {
+                HttpResponse<String> snippet = next.time(() -> http.send(
+                        request("/snippets/next?annotator=" + annotator).GET().build(),
+                        HttpResponse.BodyHandlers.ofString()));
+                if (snippet == null || snippet.statusCode() != 200) {
+                    if (snippet != null && snippet.statusCode() == 204) {
+                        exhausted.incrementAndGet();
+                    }
+                    Thread.sleep(100);
+                    continue;
+                }
+                JsonNode dto = mapper.readTree(snippet.body());
+                if (dto.path("aiUnavailable").asBoolean()) {
+                    aiUnavailable.incrementAndGet();
+                }
+
+                ObjectNode annotation = mapper.createObjectNode()
+                        .put("annotator", annotator)
+                        .put("codeSnippetId", dto.path("id").asLong());
+                JsonNode suggestions = dto.path("aiSuggestions");
+                annotation.put("status", suggestions.isArray() && !suggestions.isEmpty() ? "submitted" : "clean");
+                annotation.set("annotations", suggestions.isArray() ? suggestions : mapper.createArrayNode());
+                HttpResponse<String> saved = submit.time(() -> http.send(
+                        request("/annotations")
+                                .header("Content-Type", "application/json")
+                                .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(annotation)))
+                                .build(),
+                        HttpResponse.BodyHandlers.ofString()));
+                if (saved != null && saved.statusCode() == 200) {
+                    annotated.incrementAndGet();
+                }
+                if (thinkMs > 0) {
+                    Thread.sleep(thinkMs);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                // Unreadable snippet body; the request itself was already counted.
+            }
+        }
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create(baseUrl + path)).timeout(Duration.ofMinutes(3));
+    }
+
+    String get(String path) throws IOException, InterruptedException {
+        return http.send(request(path).GET().build(), HttpResponse.BodyHandlers.ofString()).body();
+    }
+
+    @FunctionalInterface
+    interface Call {
+        HttpResponse<String> send() throws IOException, InterruptedException;
+    }
+
+    /** Latencies and outcomes of one endpoint. Any status other than 200 and 204 counts as an error. */
+    static final class Latencies {
+        private final String name;
+        private long[] nanos = new long[1024];
+        private int count;
+        private final ConcurrentMap<String, LongAdder> errors = new ConcurrentHashMap<>();
+
+        Latencies(String name) {
+            this.name = name;
+        }
+
+        /** Sends the request, recording its latency; returns null when it failed without a response. */
+        HttpResponse<String> time(Call call) throws InterruptedException {
+            long start = System.nanoTime();
+            try {
+                HttpResponse<String> response = call.send();
+                record(System.nanoTime() - start);
+                if (response.statusCode() != 200 && response.statusCode() != 204) {
+                    errors.computeIfAbsent(String.valueOf(response.statusCode()), status -> new LongAdder()).increment();
+                }
+                return response;
+            } catch (IOException e) {
+                record(System.nanoTime() - start);
+                errors.computeIfAbsent(e.getClass().getSimpleName(), type -> new LongAdder()).increment();
+                return null;
+            }
+        }
+
+        private synchronized void record(long latency) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = latency;
+        }
+
+        synchronized long[] sorted() {
+            long[] copy = Arrays.copyOf(nanos, count);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+
+    record Report(int annotators, double seconds, long annotated, long aiUnavailable, long exhausted,
+                  List<Latencies> endpoints) {
+
+        void print(java.io.PrintStream out) {
+            out.printf("%n%d annotators for %.1f s: %d annotations (%.1f/s), %d without AI analysis, %d empty /next answers%n",
+                    annotators, seconds, annotated, annotated / seconds, aiUnavailable, exhausted);
+            out.printf("%-20s %9s %9s %9s %9s %9s  %s%n", "endpoint", "requests", "req/s", "p50 ms", "p99 ms", "max ms", "errors");
+            for (Latencies endpoint : endpoints) {
+                long[] sorted = endpoint.sorted();
+                Map<String, Long> errors = new TreeMap<>();
+                endpoint.errors.forEach((kind, total) -> errors.put(kind, total.sum()));
+                out.printf("%-20s %9d %9.1f %9.1f %9.1f %9.1f  %s%n", endpoint.name, sorted.length, sorted.length / seconds,
+                        percentileMs(sorted, 0.50), percentileMs(sorted, 0.99),
+                        sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6, errors.isEmpty() ? "none" : errors);
+            }
+        }
+
+        // Nearest-rank percentile.
+        private static double percentileMs(long[] sorted, double q) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(q * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+}
@@ -0,0 +1,235 @@
+package com.codeAnnotator.codeAnnotator.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the OpenAI Responses API ({@code POST /v1/responses}), plain and streaming. Latency is
+ * log-normal with the configured median and p99, a share of requests fails with 429 or 500, and answers are
+ * picked from canned smell payloads: by prompt hash, so the same code always gets the same answer. Batch
+ * prompts get one answer per {@code ### Snippet id=} tag.
+ * <p>
+ * Runs on its own with {@code OpenAIStub --port 8089}; point the backend at it with
+ * {@code openai.api.url=http://localhost:8089/v1/responses}.
+ */
+public class OpenAIStub implements AutoCloseable {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private static final Pattern SNIPPET_ID = Pattern.compile("^### Snippet id=(\\d+)$", Pattern.MULTILINE);
+
+    // z-score of the 99th percentile of a standard normal distribution
+    private static final double Z_99 = 2.326;
+
+    private static final List<String> DEFAULT_PAYLOADS = List.of(
+            "No",
+            """
+            [{"smellType":"Long Method","category":"Code Smell","suggestion":"Extract the loop body into a helper.","refactoredCode":"total = lines.stream().map(this::price).reduce(ZERO, BigDecimal::add);"}]""",
+            """
+            [{"smellType":"Magic Numbers","category":"Anti-pattern","suggestion":"Name the threshold and the tax factor.","refactoredCode":"static final int BULK_QUANTITY = 3;"},
+             {"smellType":"Feature Envy","category":"Code Smell","suggestion":"Move the price calculation to Order.","refactoredCode":"order.total(rounded)"}]""",
+            "No",
+            """
+            [{"smellType":"Data Class","category":"Code Smell","suggestion":"Give the class behaviour or make it a record.","refactoredCode":"record Line(int quantity, BigDecimal price) {}"}]""");
+
+    /** Stub behaviour; a rate of 0 disables that error. */
+    public record Settings(double medianMs, double p99Ms, double rate429, double rate500, long retryAfterMs,
+                           List<String> payloads) {
+
+        static Settings from(Options options) throws IOException {
+            String payloadFile = options.string("payloads", null);
+            return new Settings(options.decimal("llm-median-ms", 800), options.decimal("llm-p99-ms", 4000),
+                    options.decimal("error-429", 0.02), options.decimal("error-500", 0.01),
+                    options.integer("retry-after-ms", 500),
+                    payloadFile == null ? DEFAULT_PAYLOADS : readPayloads(Path.of(payloadFile)));
+        }
+
+        /** A JSON array whose elements are answers: "No", or an array of smell objects. */
+        private static List<String> readPayloads(Path file) throws IOException {
+            List<String> payloads = new ArrayList<>();
+            for (JsonNode answer : mapper.readTree(Files.readString(file))) {
+                payloads.add(answer.isTextual() ? answer.asText() : mapper.writeValueAsString(answer));
+            }
+            if (payloads.isEmpty()) {
+                throw new IllegalArgumentException(file + " has no payloads");
+            }
+            return payloads;
+        }
+    }
+
+    private final Settings settings;
+    private final double sigma;
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public OpenAIStub(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.sigma = settings.p99Ms() > settings.medianMs() && settings.medianMs() > 0
+                ? Math.log(settings.p99Ms() / settings.medianMs()) / Z_99 : 0;
+        this.executor = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "openai-stub");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 200);
+        server.setExecutor(executor);
+        server.createContext("/v1/responses", this::handle);
+        server.start();
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options(args);
+        OpenAIStub stub = new OpenAIStub(options.integer("port", 8089), Settings.from(options));
+        System.out.println("OpenAI stub listening on " + stub.url());
+        Thread.currentThread().join();
+    }
+
+    public String url() {
+        return "http://localhost:" + server.getAddress().getPort() + "/v1/responses";
+    }
+
+    public String summary() {
+        return String.format("stub: %d requests, %d answered 429, %d answered 500", requests.get(), throttled.get(), failed.get());
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            JsonNode request = mapper.readTree(exchange.getRequestBody());
+            requests.incrementAndGet();
+            String prompt = request.path("input").asText();
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < settings.rate429()) {
+                throttled.incrementAndGet();
+                exchange.getResponseHeaders().add("retry-after-ms", String.valueOf(settings.retryAfterMs()));
+                sendJson(exchange, 429, "{\"error\":{\"type\":\"rate_limit_exceeded\",\"message\":\"stub throttling\"}}");
+                return;
+            }
+            long latencyMs = sampleLatencyMs();
+            if (roll < settings.rate429() + settings.rate500()) {
+                failed.incrementAndGet();
+                sleep(latencyMs / 2);
+                sendJson(exchange, 500, "{\"error\":{\"type\":\"server_error\",\"message\":\"stub failure\"}}");
+                return;
+            }
+
+            String answer = answer(prompt);
+            if (request.path("stream").asBoolean(false)) {
+                stream(exchange, answer, latencyMs);
+            } else {
+                sleep(latencyMs);
+                sendJson(exchange, 200, mapper.writeValueAsString(response(answer)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    long sampleLatencyMs() {
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.max(0, Math.round(settings.medianMs() * Math.exp(sigma * gaussian)));
+    }
+
+    String answer(String prompt) throws IOException {
+        Matcher ids = SNIPPET_ID.matcher(prompt);
+        if (!ids.find()) {
+            return payload(prompt.hashCode());
+        }
+        ObjectNode byId = mapper.createObjectNode();
+        do {
+            String payload = payload(prompt.hashCode() * 31 + ids.group(1).hashCode());
+            if (payload.trim().equalsIgnoreCase("No")) {
+                byId.put(ids.group(1), "No");
+            } else {
+                byId.set(ids.group(1), mapper.readTree(payload));
+            }
+        } while (ids.find());
+        return mapper.writeValueAsString(byId);
+    }
+
+    private String payload(int hash) {
+        return settings.payloads().get(Math.floorMod(hash, settings.payloads().size()));
+    }
+
+    private static ObjectNode response(String text) {
+        ObjectNode response = mapper.createObjectNode()
+                .put("id", "resp_stub")
+                .put("object", "response")
+                .put("status", "completed");
+        ArrayNode output = response.putArray("output");
+        output.addObject()
+                .put("type", "message")
+                .put("role", "assistant")
+                .putArray("content").addObject()
+                .put("type", "output_text")
+                .put("text", text);
+        return response;
+    }
+
+    // The answer goes out in small deltas spread over the sampled latency, like a model generating tokens.
+    private void stream(HttpExchange exchange, String answer, long latencyMs) throws IOException, InterruptedException {
+        exchange.getResponseHeaders().add("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        event(out, "response.created", mapper.createObjectNode());
+        int pieces = Math.max(1, (answer.length() + 39) / 40);
+        for (int i = 0; i < pieces; i++) {
+            sleep(latencyMs / pieces);
+            String delta = answer.substring(i * answer.length() / pieces, (i + 1) * answer.length() / pieces);
+            event(out, "response.output_text.delta", mapper.createObjectNode().put("delta", delta));
+        }
+        event(out, "response.completed", mapper.createObjectNode().set("response", response(answer)));
+    }
+
+    private static void event(OutputStream out, String type, ObjectNode payload) throws IOException {
+        payload.put("type", type);
+        out.write(("event: " + type + "\ndata: " + mapper.writeValueAsString(payload) + "\n\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+    }
+
+    private static void sendJson(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long ms) throws InterruptedException {
+        if (ms > 0) {
+            Thread.sleep(ms);
+        }
+    }
+}
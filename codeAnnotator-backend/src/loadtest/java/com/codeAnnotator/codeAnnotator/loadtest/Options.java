@@ -0,0 +1,30 @@
+package com.codeAnnotator.codeAnnotator.loadtest;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/** {@code --name value} command-line options; anything else (such as Spring's {@code --name=value}) is ignored. */
+final class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    Options(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].startsWith("--") && !args[i].contains("=") && i + 1 < args.length) {
+                values.put(args[i].substring(2), args[++i]);
+            }
+        }
+    }
+
+    String string(String name, String fallback) {
+        return values.getOrDefault(name, fallback);
+    }
+
+    int integer(String name, int fallback) {
+        return values.containsKey(name) ? Integer.parseInt(values.get(name)) : fallback;
+    }
+
+    double decimal(String name, double fallback) {
+        return values.containsKey(name) ? Double.parseDouble(values.get(name)) : fallback;
+    }
+}
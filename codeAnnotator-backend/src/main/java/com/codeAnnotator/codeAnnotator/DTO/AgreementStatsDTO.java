@@ -0,0 +1,12 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class AgreementStatsDTO {
+    private long ratedSnippets;
+    private long items;
+    private Double observedAgreement;
+    private Double expectedAgreement;
+    private Double fleissKappa;
+}
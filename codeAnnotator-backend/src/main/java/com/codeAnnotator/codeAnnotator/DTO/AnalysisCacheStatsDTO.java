@@ -0,0 +1,15 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class AnalysisCacheStatsDTO {
+    private long memoryHits;
+    private long persistentHits;
+    private long misses;
+    private long failures;
+    private long evictions;
+    private int memorySize;
+    private int maxEntries;
+    private double hitRatio;
+}
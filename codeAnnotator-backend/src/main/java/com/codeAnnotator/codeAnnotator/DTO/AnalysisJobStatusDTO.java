@@ -0,0 +1,26 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class AnalysisJobStatusDTO {
+    private Long id;
+    private String status;
+    // True while this instance is working on the job
+    private boolean active;
+    private String model;
+    private String promptVersion;
+    private long checkpointId;
+    private long analyzed;
+    private long alreadyCached;
+    private long decidedLocally;
+    private long failed;
+    private int workers;
+    private int requestsPerMinute;
+    private String error;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+}
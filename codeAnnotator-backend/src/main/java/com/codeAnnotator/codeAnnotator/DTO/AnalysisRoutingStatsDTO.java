@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class AnalysisRoutingStatsDTO {
+    private String mode;
+    private double minConfidence;
+    private long localDecisions;
+    private long llmRouted;
+    private long unsupportedLanguage;
+    private double localShare;
+}
@@ -0,0 +1,11 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import lombok.Data;
+
+@Data
+public class AnnotationBrowseFilterDTO {
+    private String annotator;
+    private Annotation.Status status;
+    private Long snippetId;
+}
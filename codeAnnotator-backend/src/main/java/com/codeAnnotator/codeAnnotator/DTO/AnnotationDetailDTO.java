@@ -0,0 +1,12 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class AnnotationDetailDTO extends AnnotationSummaryDTO {
+    private List<SmellAnnotationDTO> smells;
+}
@@ -0,0 +1,16 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnnotationResultDTO {
+    private int index;
+    private Long codeSnippetId;
+    private boolean success;
+    private Long annotationId;
+    private String error;
+}
@@ -0,0 +1,18 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+// Metadata columns only; suggestions and refactored code are served by the detail endpoint.
+@Data
+public class AnnotationSummaryDTO {
+    private Long id;
+    private Long snippetId;
+    private String annotator;
+    private String status;
+    private int startLine;
+    private int endLine;
+    private int smellCount;
+    private Instant createdAt;
+}
@@ -0,0 +1,20 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class AnnotatorStatsDTO {
+    private String annotator;
+    private long submitted;
+    private long skipped;
+    private long rejected;
+    private long clean;
+    private long total;
+    private long lastHour;
+    private long last24Hours;
+    private double averagePerHour;
+    private Instant firstAnnotationAt;
+    private Instant lastAnnotationAt;
+}
@@ -13,5 +13,7 @@ public class CodeSnippetResponseDTO {
     private String languages;
     private String type;
     private String aiComment;
+    // True when the analysis could not be run (e.g. the LLM is throttled or down), as opposed to finding no smells
+    private boolean aiUnavailable;
     private List<SmellAnnotationDTO> aiSuggestions;
 }
\ No newline at end of file
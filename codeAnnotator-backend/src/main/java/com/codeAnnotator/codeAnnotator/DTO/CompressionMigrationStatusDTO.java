@@ -0,0 +1,18 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class CompressionMigrationStatusDTO {
+    private boolean running;
+    private long rowsScanned;
+    private long rowsCompressed;
+    // Characters of the rewritten values before and after; rows left plain are not counted
+    private long charsBefore;
+    private long charsAfter;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
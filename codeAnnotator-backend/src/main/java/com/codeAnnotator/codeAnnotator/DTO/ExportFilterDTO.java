@@ -0,0 +1,16 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class ExportFilterDTO {
+    private CodeSnippet.CodeType codeType;
+    private Annotation.Status status;
+    private String annotator;
+    private Instant from;
+    private Instant to;
+}
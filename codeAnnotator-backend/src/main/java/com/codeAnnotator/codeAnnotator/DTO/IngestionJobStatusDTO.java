@@ -0,0 +1,21 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class IngestionJobStatusDTO {
+    private String jobId;
+    private String source;
+    private String state;
+    private long rowsRead;
+    private long rowsInserted;
+    private long rowsRejected;
+    private double rowsPerSecond;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+    private List<RejectedRowDTO> rejects;
+}
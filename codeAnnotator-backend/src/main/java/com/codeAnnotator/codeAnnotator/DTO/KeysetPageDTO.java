@@ -0,0 +1,12 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class KeysetPageDTO<T> {
+    private List<T> items;
+    // Pass as "after" to get the next page; null on the last page.
+    private Long nextAfter;
+}
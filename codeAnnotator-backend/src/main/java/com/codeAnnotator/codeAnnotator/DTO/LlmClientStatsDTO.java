@@ -0,0 +1,15 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class LlmClientStatsDTO {
+    private String circuitState;
+    private long calls;
+    private long retries;
+    private long failedAttempts;
+    private long rejectedCircuitOpen;
+    private long rejectedLimits;
+    private int inFlight;
+    private int maxConcurrent;
+}
@@ -0,0 +1,22 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class LlmRouteStatsDTO {
+    private String tier;
+    private String model;
+    private long timeoutMs;
+    private long calls;
+    // Over the latency window the hedge delay is taken from
+    private int latencySamples;
+    private long p50Ms;
+    private long p99Ms;
+    private long hedgeDelayMs;
+    // Interactive calls that outlived the hedge delay, and which request answered them
+    private long hedged;
+    private long primaryWins;
+    private long hedgeWins;
+    private long bothFailed;
+    private double hedgeWinRate;
+}
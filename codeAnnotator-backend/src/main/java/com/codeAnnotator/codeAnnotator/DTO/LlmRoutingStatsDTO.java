@@ -0,0 +1,12 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class LlmRoutingStatsDTO {
+    private boolean hedgeEnabled;
+    private double hedgePercentile;
+    private List<LlmRouteStatsDTO> routes;
+}
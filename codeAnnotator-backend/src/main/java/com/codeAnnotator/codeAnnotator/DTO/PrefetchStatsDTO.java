@@ -0,0 +1,15 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+@Data
+public class PrefetchStatsDTO {
+    private boolean enabled;
+    private int windowSize;
+    private int workers;
+    private int queueDepth;
+    private int activeWorkers;
+    private int warmedInWindow;
+    private long completed;
+    private long failed;
+}
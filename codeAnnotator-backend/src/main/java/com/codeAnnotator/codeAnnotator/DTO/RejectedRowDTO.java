@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RejectedRowDTO {
+    private long row;
+    private String reason;
+}
@@ -0,0 +1,15 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+@Data
+public class SearchIndexStatusDTO {
+    private boolean running;
+    private long snippetsIndexed;
+    private long postingsAdded;
+    private Instant startedAt;
+    private Instant finishedAt;
+    private String error;
+}
@@ -8,4 +8,10 @@ public class SmellAnnotationDTO {
     private String category;
     private String suggestion;
     private String refactoredCode;
-}
\ No newline at end of file
+    // Set by the local analyzer only; null for LLM suggestions.
+    private Double confidence;
+    // Lines of the snippet's code (1-based) the smell was found in. Only set when a large snippet was
+    // analyzed in chunks; null means the whole snippet.
+    private Integer startLine;
+    private Integer endLine;
+}
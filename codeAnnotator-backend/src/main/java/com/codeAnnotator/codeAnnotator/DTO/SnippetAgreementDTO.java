@@ -0,0 +1,14 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.util.Map;
+
+@Data
+public class SnippetAgreementDTO {
+    private Long snippetId;
+    private int raters;
+    private Map<String, Integer> votes;
+    private Double observedAgreement;
+    private Double kappa;
+}
@@ -0,0 +1,12 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import lombok.Data;
+
+@Data
+public class SnippetBrowseFilterDTO {
+    private String repository;
+    private CodeSnippet.CodeType type;
+    private Integer minAnnotations;
+    private Integer maxAnnotations;
+}
@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class SnippetClusterDTO {
+    private Long snippetId;
+    private Long representativeId;
+    private long size;
+    private List<Long> memberIds;
+}
@@ -0,0 +1,10 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class SnippetDetailDTO extends SnippetSummaryDTO {
+    private String code;
+}
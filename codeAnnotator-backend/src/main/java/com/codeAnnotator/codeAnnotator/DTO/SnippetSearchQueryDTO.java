@@ -0,0 +1,14 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+// Every given criterion must match; q matches words of the code, name, path and smell suggestions.
+@Data
+public class SnippetSearchQueryDTO {
+    private String q;
+    private String repository;
+    private String language;
+    private String codeType;
+    private String smellType;
+    private String category;
+}
@@ -0,0 +1,17 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+public class SnippetSearchResultDTO {
+    private List<SnippetSummaryDTO> items;
+    // Pass as "after" to get the next page; null on the last page.
+    private Long nextAfter;
+    // First page only: matches counted up to search.facet-sample, and value counts per facet over those matches
+    private Long total;
+    private Boolean totalExact;
+    private Map<String, Map<String, Long>> facets;
+}
@@ -0,0 +1,24 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+
+// Metadata columns only; the code is served by the detail endpoint.
+@Data
+public class SnippetSummaryDTO {
+    private Long id;
+    private String type;
+    private String codeType;
+    private String codeName;
+    private String repository;
+    private String commitHash;
+    private String path;
+    private int startLine;
+    private int endLine;
+    private String link;
+    private String languages;
+    private int annotationCount;
+    private Long clusterId;
+    private Instant createdAt;
+}
@@ -0,0 +1,27 @@
+package com.codeAnnotator.codeAnnotator.DTO;
+
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+public class StatsConsistencyReportDTO {
+    private Instant checkedAt;
+    private long durationMs;
+    private long annotationsScanned;
+    private long snippetsChecked;
+    private long snippetDrift;
+    private long smellVoteDrift;
+    private long annotatorDrift;
+    private long hourlyDrift;
+    private boolean totalsDrift;
+    private Double storedKappa;
+    private Double recomputedKappa;
+    private List<Long> sampleDriftingSnippetIds;
+    private boolean repaired;
+
+    public boolean hasDrift() {
+        return snippetDrift > 0 || smellVoteDrift > 0 || annotatorDrift > 0 || hourlyDrift > 0 || totalsDrift;
+    }
+}
@@ -0,0 +1,51 @@
+package com.codeAnnotator.codeAnnotator.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Executors for the asynchronous request handling in the controllers.
+ * <p>
+ * Tomcat threads hand the work off and return immediately. LLM waits run on {@code analysisExecutor}
+ * and annotation writes on {@code persistenceExecutor}, each with its own bounded pool and queue,
+ * so a burst of slow AI calls is rejected (503) instead of starving annotation writes.
+ */
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+    @Value("${web.async.timeout-ms:120000}")
+    private long asyncTimeoutMs;
+
+    @Bean
+    public ThreadPoolTaskExecutor analysisExecutor(@Value("${analysis.executor.threads:32}") int threads,
+                                                   @Value("${analysis.executor.queue-capacity:200}") int queueCapacity) {
+        return executor("analysis-", threads, queueCapacity);
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor persistenceExecutor(@Value("${persistence.executor.threads:16}") int threads,
+                                                      @Value("${persistence.executor.queue-capacity:1000}") int queueCapacity) {
+        return executor("persistence-", threads, queueCapacity);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+
+    private static ThreadPoolTaskExecutor executor(String prefix, int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setThreadNamePrefix(prefix);
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+}
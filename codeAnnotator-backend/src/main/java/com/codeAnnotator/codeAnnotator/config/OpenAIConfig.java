@@ -9,7 +9,218 @@ public class OpenAIConfig {
     @Value("${openai.api.key}")
     private String apiKey;
 
+    @Value("${openai.api.url:https://api.openai.com/v1/responses}")
+    private String apiUrl;
+
+    // Upper bound for the estimated prompt size of one multi-snippet batch request
+    @Value("${openai.batch.max-input-tokens:16000}")
+    private int batchMaxInputTokens;
+
+    // Prompts estimated above this are split into chunks analyzed in parallel
+    @Value("${openai.chunk.max-input-tokens:8000}")
+    private int chunkMaxInputTokens;
+
+    @Value("${openai.chunk.parallelism:4}")
+    private int chunkParallelism;
+
+    // Client-side limits matching the account's quota; 0 turns a limit off
+    @Value("${openai.rate.requests-per-minute:500}")
+    private int requestsPerMinute;
+
+    @Value("${openai.rate.tokens-per-minute:30000}")
+    private int tokensPerMinute;
+
+    // Longest a call waits for rate or concurrency capacity before it is reported unavailable
+    @Value("${openai.rate.max-wait-ms:10000}")
+    private long rateMaxWaitMs;
+
+    @Value("${openai.bulkhead.max-concurrent:8}")
+    private int maxConcurrentCalls;
+
+    // Attempts per call for 429, 5xx and network failures (1 = no retry)
+    @Value("${openai.retry.max-attempts:3}")
+    private int retryMaxAttempts;
+
+    @Value("${openai.retry.base-delay-ms:500}")
+    private long retryBaseDelayMs;
+
+    @Value("${openai.retry.max-delay-ms:8000}")
+    private long retryMaxDelayMs;
+
+    // Consecutive failed attempts that open the circuit, and how long it then fails fast
+    @Value("${openai.breaker.failure-threshold:5}")
+    private int breakerFailureThreshold;
+
+    @Value("${openai.breaker.open-ms:30000}")
+    private long breakerOpenMs;
+
+    // Share of calls whose prompt and response are logged at debug level
+    @Value("${openai.log.sample-rate:0.01}")
+    private double logSampleRate;
+
+    // Model and timeout by snippet size (see ModelRouter). The small tier is opt-in: with the small model blank
+    // (the default) every snippet goes to the default model, e.g. set it to gpt-4.1-mini.
+    @Value("${openai.routing.small-model:}")
+    private String smallModel;
+
+    @Value("${openai.routing.small-max-tokens:400}")
+    private int smallMaxTokens;
+
+    // Languages the small model is trusted with; snippets without a language count as Java
+    @Value("${openai.routing.small-languages:java}")
+    private String smallLanguages;
+
+    @Value("${openai.routing.small-timeout-ms:20000}")
+    private long smallTimeoutMs;
+
+    @Value("${openai.routing.default-timeout-ms:60000}")
+    private long defaultTimeoutMs;
+
+    @Value("${openai.routing.large-min-tokens:3000}")
+    private int largeMinTokens;
+
+    @Value("${openai.routing.large-timeout-ms:120000}")
+    private long largeTimeoutMs;
+
+    // Hedging of interactive calls, opt-in since every hedge is another request against the same quota: a duplicate
+    // request once the first has run longer than the percentile of recent calls of its tier. A blank hedge model or
+    // url reuses the first request's.
+    @Value("${openai.hedge.enabled:false}")
+    private boolean hedgeEnabled;
+
+    @Value("${openai.hedge.model:}")
+    private String hedgeModel;
+
+    @Value("${openai.hedge.url:}")
+    private String hedgeUrl;
+
+    @Value("${openai.hedge.percentile:0.95}")
+    private double hedgePercentile;
+
+    @Value("${openai.hedge.min-delay-ms:1000}")
+    private long hedgeMinDelayMs;
+
+    // Delay used until a tier has min-samples latencies to take the percentile from; above typical completions
+    // so calls are not all duplicated before the percentile is known
+    @Value("${openai.hedge.initial-delay-ms:30000}")
+    private long hedgeInitialDelayMs;
+
+    @Value("${openai.hedge.min-samples:20}")
+    private int hedgeMinSamples;
+
     public String getApiKey() {
         return apiKey;
     }
-}
\ No newline at end of file
+
+    public String getApiUrl() {
+        return apiUrl;
+    }
+
+    public int getBatchMaxInputTokens() {
+        return batchMaxInputTokens;
+    }
+
+    public int getChunkMaxInputTokens() {
+        return chunkMaxInputTokens;
+    }
+
+    public int getChunkParallelism() {
+        return chunkParallelism;
+    }
+
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public int getTokensPerMinute() {
+        return tokensPerMinute;
+    }
+
+    public long getRateMaxWaitMs() {
+        return rateMaxWaitMs;
+    }
+
+    public int getMaxConcurrentCalls() {
+        return maxConcurrentCalls;
+    }
+
+    public int getRetryMaxAttempts() {
+        return retryMaxAttempts;
+    }
+
+    public long getRetryBaseDelayMs() {
+        return retryBaseDelayMs;
+    }
+
+    public long getRetryMaxDelayMs() {
+        return retryMaxDelayMs;
+    }
+
+    public int getBreakerFailureThreshold() {
+        return breakerFailureThreshold;
+    }
+
+    public long getBreakerOpenMs() {
+        return breakerOpenMs;
+    }
+
+    public double getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    public String getSmallModel() {
+        return smallModel;
+    }
+
+    public int getSmallMaxTokens() {
+        return smallMaxTokens;
+    }
+
+    public String getSmallLanguages() {
+        return smallLanguages;
+    }
+
+    public long getSmallTimeoutMs() {
+        return smallTimeoutMs;
+    }
+
+    public long getDefaultTimeoutMs() {
+        return defaultTimeoutMs;
+    }
+
+    public int getLargeMinTokens() {
+        return largeMinTokens;
+    }
+
+    public long getLargeTimeoutMs() {
+        return largeTimeoutMs;
+    }
+
+    public boolean isHedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    public String getHedgeModel() {
+        return hedgeModel;
+    }
+
+    public String getHedgeUrl() {
+        return hedgeUrl;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public long getHedgeMinDelayMs() {
+        return hedgeMinDelayMs;
+    }
+
+    public long getHedgeInitialDelayMs() {
+        return hedgeInitialDelayMs;
+    }
+
+    public int getHedgeMinSamples() {
+        return hedgeMinSamples;
+    }
+}
@@ -0,0 +1,72 @@
+package com.codeAnnotator.codeAnnotator.config;
+
+import com.codeAnnotator.codeAnnotator.service.MetricsRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+
+/**
+ * Per-endpoint latency histogram ({@code http_server_requests_seconds}), labelled by method, route pattern and
+ * status. Async endpoints are timed until their response completes, not until the request thread is released;
+ * for the streaming endpoints that is the whole event stream.
+ */
+@Component
+public class RequestMetricsFilter extends OncePerRequestFilter {
+
+    private final MetricsRegistry metrics;
+
+    public RequestMetricsFilter(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, response, start);
+                    }
+
+                    // Timeouts and errors are followed by onComplete, which records them with their final status.
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, response, start);
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, HttpServletResponse response, long start) {
+        // The route pattern, not the raw path, so /snippets/next/42 and /snippets/next/43 share a series.
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        metrics.timer("http_server_requests_seconds", "HTTP request latency by endpoint",
+                        "method", request.getMethod(),
+                        "uri", pattern == null ? "UNMATCHED" : pattern.toString(),
+                        "status", String.valueOf(response.getStatus()))
+                .recordNanos(System.nanoTime() - start);
+    }
+}
@@ -0,0 +1,86 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisCacheStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisJobStatusDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisRoutingStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.LlmClientStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.LlmRoutingStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.PrefetchStatsDTO;
+import com.codeAnnotator.codeAnnotator.service.AnalysisCacheService;
+import com.codeAnnotator.codeAnnotator.service.AnalysisJobService;
+import com.codeAnnotator.codeAnnotator.service.AnalysisPrefetchService;
+import com.codeAnnotator.codeAnnotator.service.AnalysisRouter;
+import com.codeAnnotator.codeAnnotator.service.OpenAIAgent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("analysis")
+@CrossOrigin("*")
+public class AnalysisController {
+
+    @Autowired
+    private AnalysisCacheService analysisCache;
+
+    @Autowired
+    private AnalysisPrefetchService prefetchService;
+
+    @Autowired
+    private AnalysisRouter analysisRouter;
+
+    @Autowired
+    private OpenAIAgent openAIAgent;
+
+    @Autowired
+    private AnalysisJobService analysisJobs;
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<AnalysisCacheStatsDTO> getCacheStats() {
+        return ResponseEntity.ok(analysisCache.stats());
+    }
+
+    @GetMapping("/prefetch/stats")
+    public ResponseEntity<PrefetchStatsDTO> getPrefetchStats() {
+        return ResponseEntity.ok(prefetchService.stats());
+    }
+
+    @GetMapping("/routing/stats")
+    public ResponseEntity<AnalysisRoutingStatsDTO> getRoutingStats() {
+        return ResponseEntity.ok(analysisRouter.stats());
+    }
+
+    // Circuit state, retries and rejections of the OpenAI client
+    @GetMapping("/llm/stats")
+    public ResponseEntity<LlmClientStatsDTO> getLlmClientStats() {
+        return ResponseEntity.ok(openAIAgent.clientStats());
+    }
+
+    // Requests per model tier, tier latencies, hedge delays and how hedges ended
+    @GetMapping("/llm/routing/stats")
+    public ResponseEntity<LlmRoutingStatsDTO> getLlmRoutingStats() {
+        return ResponseEntity.ok(openAIAgent.routingStats());
+    }
+
+    // Corpus-wide analysis for the current model and prompt version; continues the latest unfinished run
+    @PostMapping("/jobs")
+    public ResponseEntity<?> startAnalysisJob() {
+        return analysisJobs.start()
+                .<ResponseEntity<?>>map(job -> ResponseEntity.accepted().body(job))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body("Analysis job already running"));
+    }
+
+    @PostMapping("/jobs/pause")
+    public ResponseEntity<String> pauseAnalysisJob() {
+        if (!analysisJobs.pause()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("No analysis job running");
+        }
+        return ResponseEntity.accepted().body("Analysis job pausing after its current page");
+    }
+
+    @GetMapping("/jobs/current")
+    public ResponseEntity<AnalysisJobStatusDTO> getAnalysisJob() {
+        return ResponseEntity.of(analysisJobs.status());
+    }
+}
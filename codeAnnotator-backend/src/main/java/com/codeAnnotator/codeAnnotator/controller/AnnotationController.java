@@ -1,12 +1,19 @@
 package com.codeAnnotator.codeAnnotator.controller;
 
 import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationResultDTO;
 import com.codeAnnotator.codeAnnotator.service.AnnotationService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
 @RestController
 @RequestMapping("annotations")
 @CrossOrigin("*")
@@ -16,9 +23,32 @@ public class AnnotationController {
     @Autowired
     private AnnotationService service;
 
+    // Writes never share a pool with LLM calls, so slow analyses can't queue annotation submissions.
+    @Autowired
+    @Qualifier("persistenceExecutor")
+    private Executor persistenceExecutor;
+
+    @Value("${annotations.batch.max-size:500}")
+    private int maxBatchSize;
+
     @PostMapping
-    public ResponseEntity<String> submitAnnotation(@RequestBody AnnotationRequestDTO dto) {
-        service.saveAnnotation(dto);
-        return ResponseEntity.ok("Annotation submitted successfully.");
+    public CompletableFuture<ResponseEntity<String>> submitAnnotation(@RequestBody AnnotationRequestDTO dto) {
+        return CompletableFuture.supplyAsync(() -> {
+            service.saveAnnotation(dto);
+            return ResponseEntity.ok("Annotation submitted successfully.");
+        }, persistenceExecutor);
+    }
+
+    // Bulk submission for annotators syncing offline work; returns one result per item, in order.
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<?>> submitAnnotations(@RequestBody List<AnnotationRequestDTO> dtos) {
+        if (dtos.size() > maxBatchSize) {
+            return CompletableFuture.completedFuture(
+                    ResponseEntity.badRequest().body("Batch too large: at most " + maxBatchSize + " annotations per request."));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            List<AnnotationResultDTO> results = service.saveAnnotations(dtos);
+            return ResponseEntity.ok(results);
+        }, persistenceExecutor);
     }
-}
\ No newline at end of file
+}
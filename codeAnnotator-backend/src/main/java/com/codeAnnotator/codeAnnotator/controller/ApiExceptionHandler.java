@@ -0,0 +1,20 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.concurrent.RejectedExecutionException;
+
+@RestControllerAdvice
+public class ApiExceptionHandler {
+
+    // A full analysis or persistence pool means the server is saturated; tell the client to retry.
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<String> handleSaturation(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header("Retry-After", "5")
+                .body("Server is busy, please retry shortly.");
+    }
+}
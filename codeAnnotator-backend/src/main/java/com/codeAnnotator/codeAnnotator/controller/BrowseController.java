@@ -0,0 +1,67 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationSummaryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.KeysetPageDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.service.BrowseService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Pages are requested with ?after=<nextAfter of the previous page>; no offset, so deep pages cost the same as the first.
+@RestController
+@RequestMapping("/browse")
+@CrossOrigin("*")
+public class BrowseController {
+
+    @Autowired
+    private BrowseService browseService;
+
+    @GetMapping("/snippets")
+    public ResponseEntity<KeysetPageDTO<SnippetSummaryDTO>> listSnippets(@RequestParam(required = false) Long after,
+                                                                         @RequestParam(defaultValue = "100") int limit,
+                                                                         @RequestParam(required = false) String repository,
+                                                                         @RequestParam(required = false) CodeSnippet.CodeType type,
+                                                                         @RequestParam(required = false) Integer minAnnotations,
+                                                                         @RequestParam(required = false) Integer maxAnnotations) {
+        SnippetBrowseFilterDTO filter = new SnippetBrowseFilterDTO();
+        filter.setRepository(repository);
+        filter.setType(type);
+        filter.setMinAnnotations(minAnnotations);
+        filter.setMaxAnnotations(maxAnnotations);
+        return ResponseEntity.ok(browseService.snippets(filter, after, limit));
+    }
+
+    @GetMapping("/snippets/{id}")
+    public ResponseEntity<SnippetDetailDTO> getSnippet(@PathVariable Long id) {
+        return browseService.snippet(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/annotations")
+    public ResponseEntity<KeysetPageDTO<AnnotationSummaryDTO>> listAnnotations(@RequestParam(required = false) Long after,
+                                                                               @RequestParam(defaultValue = "100") int limit,
+                                                                               @RequestParam(required = false) String annotator,
+                                                                               @RequestParam(required = false) Annotation.Status status,
+                                                                               @RequestParam(required = false) Long snippetId) {
+        AnnotationBrowseFilterDTO filter = new AnnotationBrowseFilterDTO();
+        filter.setAnnotator(annotator);
+        filter.setStatus(status);
+        filter.setSnippetId(snippetId);
+        return ResponseEntity.ok(browseService.annotations(filter, after, limit));
+    }
+
+    @GetMapping("/annotations/{id}")
+    public ResponseEntity<AnnotationDetailDTO> getAnnotation(@PathVariable Long id) {
+        return browseService.annotation(id)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+}
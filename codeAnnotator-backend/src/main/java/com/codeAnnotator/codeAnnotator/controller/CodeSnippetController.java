@@ -1,13 +1,33 @@
 package com.codeAnnotator.codeAnnotator.controller;
 
 import com.codeAnnotator.codeAnnotator.DTO.CodeSnippetResponseDTO;
+import com.codeAnnotator.codeAnnotator.DTO.IngestionJobStatusDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetClusterDTO;
 import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
 import com.codeAnnotator.codeAnnotator.service.CodeSnippetService;
+import com.codeAnnotator.codeAnnotator.service.GitIngestionService;
+import com.codeAnnotator.codeAnnotator.service.IngestionJob;
+import com.codeAnnotator.codeAnnotator.service.SimilarityIndexService;
+import com.codeAnnotator.codeAnnotator.service.SnippetIngestionService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 @RestController
 @CrossOrigin("*")
@@ -19,28 +39,138 @@ public class CodeSnippetController {
     @Autowired
     private CodeSnippetService service;
 
+    @Autowired
+    private SnippetIngestionService ingestionService;
+
+    @Autowired
+    private GitIngestionService gitIngestion;
+
+    @Autowired
+    private SimilarityIndexService similarityIndex;
+
+    @Autowired
+    @Qualifier("persistenceExecutor")
+    private Executor persistenceExecutor;
+
+    @Autowired
+    @Qualifier("analysisExecutor")
+    private Executor analysisExecutor;
+
+    @Value("${web.sse.timeout-ms:120000}")
+    private long sseTimeoutMs;
+
     @PostMapping("/upload")
     public ResponseEntity<?> uploadCSV(@RequestParam("file") MultipartFile file, @RequestParam("type") CodeSnippet.CodeType type) {
         try {
-            service.uploadCSV(file,type);
-            return ResponseEntity.ok("CSV uploaded successfully.");
+            IngestionJob job = ingestionService.startCsv(file, type);
+            return ResponseEntity.accepted().body(job.toStatus());
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Upload failed: " + e.getMessage());
         }
     }
 
-    @GetMapping("/next")
-    public ResponseEntity<CodeSnippetResponseDTO> getNextSnippet() {
-        return service.getNextSnippet()
+    // Classes and methods of a local git checkout, incrementally; progress under /upload/jobs/{jobId}
+    @PostMapping("/ingest/git")
+    public ResponseEntity<?> ingestGit(@RequestParam("directory") String directory,
+                                       @RequestParam(value = "commit", required = false) String commit,
+                                       @RequestParam(value = "repository", required = false) String repository,
+                                       @RequestParam("type") CodeSnippet.CodeType type,
+                                       @RequestParam(value = "link", required = false) String link) {
+        try {
+            return gitIngestion.start(directory, commit, repository, type, link)
+                    .<ResponseEntity<?>>map(job -> ResponseEntity.accepted().body(job.toStatus()))
+                    .orElseGet(() -> ResponseEntity.status(HttpStatus.CONFLICT).body("Repository already being ingested"));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body("Ingestion failed: " + e.getMessage());
+        }
+    }
+
+    @GetMapping("/upload/jobs/{jobId}")
+    public ResponseEntity<IngestionJobStatusDTO> getUploadJob(@PathVariable String jobId) {
+        return ingestionService.getJob(jobId)
+                .map(job -> ResponseEntity.ok(job.toStatus()))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{id}/cluster")
+    public ResponseEntity<SnippetClusterDTO> getCluster(@PathVariable Long id) {
+        return similarityIndex.getCluster(id)
                 .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/similarity/backfill")
+    public ResponseEntity<String> backfillSimilarityIndex() {
+        if (!similarityIndex.startBackfill()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Backfill already running");
+        }
+        return ResponseEntity.accepted().body("Backfill started");
+    }
+
+    // Selection runs on the persistence pool and the LLM call on the bounded analysis pool; no Tomcat thread waits on either.
+    @GetMapping("/next")
+    public CompletableFuture<ResponseEntity<CodeSnippetResponseDTO>> getNextSnippet(@RequestParam(required = false) String annotator) {
+        return withAiSuggestions(CompletableFuture.supplyAsync(() -> service.findNextSnippet(annotator), persistenceExecutor));
     }
 
     @GetMapping("/next/{currentId}")
-    public ResponseEntity<CodeSnippetResponseDTO> getNextExcludingCurrent(@PathVariable Long currentId) {
-        return service.getNextSnippetExcluding(currentId)
-                .map(ResponseEntity::ok)
-                .orElse(ResponseEntity.noContent().build());
+    public CompletableFuture<ResponseEntity<CodeSnippetResponseDTO>> getNextExcludingCurrent(@PathVariable Long currentId,
+                                                                                            @RequestParam(required = false) String annotator) {
+        return withAiSuggestions(CompletableFuture.supplyAsync(() -> service.findNextSnippetExcluding(currentId, annotator), persistenceExecutor));
+    }
+
+    /**
+     * Server-sent events variant of {@code /next}: a {@code snippet} event right after selection, one
+     * {@code suggestion} event per smell as the model produces it, then {@code done} (flagged {@code aiUnavailable}
+     * when the analysis could not be run). Sends a single
+     * {@code none} event when there is nothing left to annotate.
+     */
+    @GetMapping(value = "/next/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNextSnippet(@RequestParam(required = false) String annotator) {
+        return streamSuggestions(CompletableFuture.supplyAsync(() -> service.findNextSnippet(annotator), persistenceExecutor));
+    }
+
+    @GetMapping(value = "/next/{currentId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamNextExcludingCurrent(@PathVariable Long currentId,
+                                                 @RequestParam(required = false) String annotator) {
+        return streamSuggestions(CompletableFuture.supplyAsync(() -> service.findNextSnippetExcluding(currentId, annotator), persistenceExecutor));
+    }
+
+    private SseEmitter streamSuggestions(CompletableFuture<Optional<CodeSnippet>> next) {
+        SseEmitter emitter = new SseEmitter(sseTimeoutMs);
+        next.thenAcceptAsync(selected -> {
+                    if (selected.isEmpty()) {
+                        send(emitter, "none", "");
+                        emitter.complete();
+                        return;
+                    }
+                    CodeSnippet snippet = selected.get();
+                    send(emitter, "snippet", service.withoutAiSuggestions(snippet));
+                    Optional<List<SmellAnnotationDTO>> smells = service.streamAiSuggestions(snippet, smell -> send(emitter, "suggestion", smell));
+                    send(emitter, "done", smells.isEmpty()
+                            ? Map.of("count", 0, "aiComment", CodeSnippetService.ANALYSIS_UNAVAILABLE, "aiUnavailable", true)
+                            : smells.get().isEmpty() ? Map.of("count", 0, "aiComment", "No") : Map.of("count", smells.get().size()));
+                    emitter.complete();
+                }, analysisExecutor)
+                .exceptionally(e -> {
+                    emitter.completeWithError(e);
+                    return null;
+                });
+        return emitter;
+    }
+
+    private static void send(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            // The client went away; stop generating for it.
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private CompletableFuture<ResponseEntity<CodeSnippetResponseDTO>> withAiSuggestions(CompletableFuture<Optional<CodeSnippet>> next) {
+        return next.thenApplyAsync(snippet -> snippet.map(service::withAiSuggestions), analysisExecutor)
+                .thenApply(dto -> dto.map(ResponseEntity::ok).orElse(ResponseEntity.noContent().build()));
     }
 
 }
\ No newline at end of file
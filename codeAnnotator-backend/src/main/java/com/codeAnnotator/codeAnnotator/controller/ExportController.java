@@ -0,0 +1,46 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.ExportFilterDTO;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.service.AnnotationExportService;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.time.Instant;
+
+@RestController
+@RequestMapping("/export")
+@CrossOrigin("*")
+public class ExportController {
+
+    @Autowired
+    private AnnotationExportService exportService;
+
+    // Written straight to the servlet stream without a Content-Length, so the response is chunked. This runs on the
+    // request thread on purpose: the async request timeout would cut off large exports.
+    @GetMapping("/annotations")
+    public void exportAnnotations(@RequestParam(defaultValue = "jsonl") String format,
+                                  @RequestParam(required = false) CodeSnippet.CodeType codeType,
+                                  @RequestParam(required = false) Annotation.Status status,
+                                  @RequestParam(required = false) String annotator,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant to,
+                                  HttpServletResponse response) throws IOException {
+        AnnotationExportService.Format exportFormat = AnnotationExportService.Format.valueOf(format.toUpperCase());
+        ExportFilterDTO filter = new ExportFilterDTO();
+        filter.setCodeType(codeType);
+        filter.setStatus(status);
+        filter.setAnnotator(annotator);
+        filter.setFrom(from);
+        filter.setTo(to);
+
+        response.setContentType(exportFormat.contentType() + ";charset=UTF-8");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"annotations." + exportFormat.extension() + "\"");
+        exportService.export(filter, exportFormat, response.getOutputStream());
+    }
+}
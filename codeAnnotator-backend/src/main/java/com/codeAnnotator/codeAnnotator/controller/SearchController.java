@@ -0,0 +1,55 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.SearchIndexStatusDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSearchQueryDTO;
+import com.codeAnnotator.codeAnnotator.service.SearchIndexService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+// Pages are requested with ?after=<nextAfter of the previous page>, like /browse; totals and facets come with the first page.
+@RestController
+@RequestMapping("/search")
+@CrossOrigin("*")
+public class SearchController {
+
+    @Autowired
+    private SearchIndexService searchIndex;
+
+    @GetMapping("/snippets")
+    public ResponseEntity<?> searchSnippets(@RequestParam(required = false) String q,
+                                            @RequestParam(required = false) String repository,
+                                            @RequestParam(required = false) String language,
+                                            @RequestParam(required = false) String codeType,
+                                            @RequestParam(required = false) String smellType,
+                                            @RequestParam(required = false) String category,
+                                            @RequestParam(required = false) Long after,
+                                            @RequestParam(defaultValue = "20") int limit) {
+        SnippetSearchQueryDTO query = new SnippetSearchQueryDTO();
+        query.setQ(q);
+        query.setRepository(repository);
+        query.setLanguage(language);
+        query.setCodeType(codeType);
+        query.setSmellType(smellType);
+        query.setCategory(category);
+        try {
+            return ResponseEntity.ok(searchIndex.search(query, after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/index/rebuild")
+    public ResponseEntity<String> rebuildIndex() {
+        if (!searchIndex.startRebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Search index rebuild already running");
+        }
+        return ResponseEntity.accepted().body("Search index rebuild started");
+    }
+
+    @GetMapping("/index/rebuild")
+    public SearchIndexStatusDTO rebuildStatus() {
+        return searchIndex.status();
+    }
+}
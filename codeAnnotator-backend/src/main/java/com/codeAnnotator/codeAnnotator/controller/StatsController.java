@@ -0,0 +1,68 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.AgreementStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotatorStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetAgreementDTO;
+import com.codeAnnotator.codeAnnotator.DTO.StatsConsistencyReportDTO;
+import com.codeAnnotator.codeAnnotator.service.AnnotationStatsService;
+import com.codeAnnotator.codeAnnotator.service.StatsConsistencyService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("stats")
+@CrossOrigin("*")
+public class StatsController {
+
+    @Autowired
+    private AnnotationStatsService statsService;
+
+    @Autowired
+    private StatsConsistencyService consistencyService;
+
+    @GetMapping("/agreement")
+    public ResponseEntity<AgreementStatsDTO> getAgreement() {
+        return ResponseEntity.ok(statsService.agreement());
+    }
+
+    @GetMapping("/agreement/snippets/{snippetId}")
+    public ResponseEntity<SnippetAgreementDTO> getSnippetAgreement(@PathVariable Long snippetId) {
+        return statsService.snippetAgreement(snippetId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/annotators")
+    public ResponseEntity<List<AnnotatorStatsDTO>> getAnnotators() {
+        return ResponseEntity.ok(statsService.allAnnotatorStats());
+    }
+
+    @GetMapping("/annotators/{annotator}")
+    public ResponseEntity<AnnotatorStatsDTO> getAnnotator(@PathVariable String annotator) {
+        return statsService.annotatorStats(annotator)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/status")
+    public ResponseEntity<Map<String, Long>> getStatusDistribution() {
+        return ResponseEntity.ok(statsService.statusDistribution());
+    }
+
+    // Full recomputation; can take a while on a large dataset.
+    @PostMapping("/consistency-check")
+    public ResponseEntity<StatsConsistencyReportDTO> runConsistencyCheck(@RequestParam(defaultValue = "false") boolean repair) {
+        return ResponseEntity.ok(consistencyService.check(repair));
+    }
+
+    @GetMapping("/consistency-check")
+    public ResponseEntity<StatsConsistencyReportDTO> getLastConsistencyCheck() {
+        return consistencyService.lastReport()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.noContent().build());
+    }
+}
@@ -0,0 +1,32 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.CompressionMigrationStatusDTO;
+import com.codeAnnotator.codeAnnotator.service.LobCompressionService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/storage")
+public class StorageController {
+
+    @Autowired
+    private LobCompressionService compression;
+
+    @PostMapping("/compression/migration")
+    public ResponseEntity<String> startCompressionMigration() {
+        if (!compression.startMigration()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("Compression migration already running");
+        }
+        return ResponseEntity.accepted().body("Compression migration started");
+    }
+
+    @GetMapping("/compression/migration")
+    public CompressionMigrationStatusDTO compressionMigrationStatus() {
+        return compression.status();
+    }
+}
@@ -0,0 +1,34 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One stripe of the dataset-wide Fleiss' kappa sums over snippets with at least two raters. Writers update
+ * the stripe chosen by snippet id, so concurrent annotations don't queue on a single row; readers add up
+ * the stripes.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "agreement_totals")
+public class AgreementTotals {
+
+    @Id
+    private Integer stripe;
+
+    private long ratedSnippets;
+
+    private long items;
+
+    private double agreementSum;
+
+    private long positiveVotes;
+
+    private long itemRatings;
+}
@@ -0,0 +1,64 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.sql.Timestamp;
+
+/**
+ * One corpus-wide AI analysis run for a model and prompt version, and its checkpoint: every servable snippet with
+ * an id up to {@code checkpointId} has been handled, so a paused or interrupted run continues after it.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analysis_job", indexes = {
+        @Index(name = "idx_analysis_job_version", columnList = "model, promptVersion, status")
+})
+public class AnalysisJob {
+
+    public enum Status {
+        RUNNING,
+        PAUSED,
+        COMPLETED,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // The model tag of the routing the run fills the cache for (see ModelRouter#modelTag)
+    private String model;
+    private String promptVersion;
+
+    @Enumerated(EnumType.STRING)
+    private Status status;
+
+    // Instance running the job and when it last confirmed so; another instance takes over once the heartbeat is stale
+    private String owner;
+    private Timestamp heartbeatAt;
+
+    private long checkpointId;
+
+    // Snippets analyzed by the LLM in this run, found already analyzed, decided locally without an LLM call
+    // (never cached, so counted again by every run), and whose analysis failed (retried by the next run)
+    private long analyzed;
+    private long alreadyCached;
+    private long decidedLocally;
+    private long failed;
+
+    private String error;
+
+    @CreationTimestamp
+    private Timestamp createdAt;
+
+    private Timestamp updatedAt;
+    private Timestamp finishedAt;
+}
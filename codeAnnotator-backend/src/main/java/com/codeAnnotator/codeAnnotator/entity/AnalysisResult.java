@@ -0,0 +1,40 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.sql.Timestamp;
+
+/**
+ * Persisted tier of the AI analysis cache: the serialized {@code SmellAnnotationDTO} list
+ * for one content hash, so analyses survive restarts and are shared between instances.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "analysis_result")
+public class AnalysisResult {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // SHA-256 of normalized code + model tag (the routing) + prompt version; model is the one that answered
+    @Column(nullable = false, unique = true, length = 64)
+    private String cacheKey;
+
+    private String model;
+    private String promptVersion;
+
+    @Lob
+    private String resultJson;
+
+    @CreationTimestamp
+    private Timestamp createdAt;
+}
@@ -17,7 +17,9 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "annotation")
+@Table(name = "annotation", indexes = {
+        @Index(name = "idx_annotation_annotator", columnList = "annotator, id")
+})
 public class Annotation {
 
     @Id
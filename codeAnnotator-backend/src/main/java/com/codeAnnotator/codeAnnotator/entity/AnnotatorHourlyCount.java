@@ -0,0 +1,31 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/** Annotations stored by one annotator in one UTC hour, for throughput over recent windows. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "annotator_hourly_count", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_annotator_hourly_count", columnNames = {"annotator", "hour_start"})
+})
+public class AnnotatorHourlyCount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String annotator;
+
+    private Timestamp hourStart;
+
+    private long annotations;
+}
@@ -0,0 +1,30 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/** Per-annotator counts by {@link Annotation.Status}. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "annotator_stats")
+public class AnnotatorStats {
+
+    @Id
+    private String annotator;
+
+    private long submitted;
+    private long skipped;
+    private long rejected;
+    private long clean;
+
+    private Timestamp firstAnnotationAt;
+    private Timestamp lastAnnotationAt;
+}
@@ -16,7 +16,13 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
-@Table(name = "code_snippet")
+@Table(name = "code_snippet", indexes = {
+        @Index(name = "idx_code_snippet_annotation_count", columnList = "annotationCount, id"),
+        @Index(name = "idx_code_snippet_cluster_id", columnList = "clusterId"),
+        // Keyset browsing by repository or type walks these in id order
+        @Index(name = "idx_code_snippet_repository", columnList = "repository, id"),
+        @Index(name = "idx_code_snippet_type", columnList = "type, id")
+})
 public class CodeSnippet {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -32,6 +38,7 @@ public class CodeSnippet {
     private String link;
 
     @Lob
+    @Convert(converter = CompressedTextConverter.class)
     private String code;
 
     private String languages;
@@ -41,6 +48,9 @@ public class CodeSnippet {
 
     private int annotationCount = 0;
 
+    // Id of the near-duplicate cluster representative (equal to id for representatives, null if not indexed yet)
+    private Long clusterId;
+
     @CreationTimestamp
     private Timestamp createdAt;
 
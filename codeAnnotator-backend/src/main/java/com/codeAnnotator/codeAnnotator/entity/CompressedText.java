@@ -0,0 +1,163 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Storage format of the large text columns ({@code code_snippet.code}, {@code smell_annotation.suggestion} and
+ * {@code smell_annotation.refactored_code}).
+ * <p>
+ * A compressed value is a marker, a format version and the Base64 of its raw-deflated UTF-8 bytes. Version 1
+ * primes the deflater with a dictionary of common Java tokens, which matters for short snippets. Base64 lets
+ * the existing text columns hold the bytes, so no column changes type on a live table. Short values, values
+ * that would not shrink, and rows written before compression existed are stored as plain text. Anything
+ * without the marker is read as-is, so old and new rows can be mixed while the migration runs.
+ */
+public final class CompressedText {
+
+    // Start of heading + 'Z': never the start of source code or a suggestion.
+    public static final String MARKER = "\u0001Z";
+    static final char VERSION_1 = '1';
+    private static final int HEADER_LENGTH = MARKER.length() + 1;
+
+    // Below this many characters the header and Base64 outweigh what deflate saves.
+    static final int MIN_LENGTH = 64;
+
+    // Deflate finds matches against the end of the dictionary most cheaply, so the most common tokens come last.
+    // Changing it requires a new version, since rows written with it can only be read with the same bytes.
+    private static final byte[] DICTIONARY_V1 = String.join(" ",
+            "synchronized", "implements", "interface", "protected", "abstract", "Exception", "Override",
+            "instanceof", "BigDecimal", "StringBuilder", "ArrayList<>()", "HashMap<>()", "Optional<", "List<String>",
+            "Map<String, ", "throw new IllegalArgumentException(", "throw new IllegalStateException(",
+            "catch (Exception e) {", "} else if (", "} else {", "for (int i = 0; i < ", ".size(); i++) {",
+            "while (", "switch (", "case ", "break;", "continue;", "this.", "super(", "extends", "import java.util.",
+            "package ", "@Autowired", "private static final ", "public static ", "private final ", "public class ",
+            "static ", "final ", "boolean ", "double ", "long ", "int ", "void ", "null", "true", "false",
+            "new ", "String ", "return ", "if (", "private ", "public ", " = ", ") {\n", "();\n", ");\n",
+            "    }\n", "        ", "    ").getBytes(StandardCharsets.UTF_8);
+
+    private CompressedText() {
+    }
+
+    /** The stored form of {@code text}: compressed when that makes it smaller, otherwise unchanged. */
+    public static String encode(String text) {
+        if (text == null || (text.length() < MIN_LENGTH && !text.startsWith(MARKER))) {
+            return text;
+        }
+        byte[] utf8 = text.getBytes(StandardCharsets.UTF_8);
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setDictionary(DICTIONARY_V1);
+            deflater.setInput(utf8);
+            deflater.finish();
+            ByteArrayOutputStream compressed = new ByteArrayOutputStream(utf8.length / 3 + 64);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                compressed.write(buffer, 0, deflater.deflate(buffer));
+            }
+            String encoded = MARKER + VERSION_1 + Base64.getEncoder().encodeToString(compressed.toByteArray());
+            // A plain value that happens to start with the marker must be encoded to stay unambiguous.
+            return encoded.length() < text.length() || text.startsWith(MARKER) ? encoded : text;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public static boolean isEncoded(String stored) {
+        return stored != null && stored.startsWith(MARKER);
+    }
+
+    /** The original text of a stored value, compressed or not. */
+    public static String decode(String stored) {
+        if (!isEncoded(stored)) {
+            return stored;
+        }
+        checkVersion(stored);
+        byte[] compressed = Base64.getDecoder().decode(stored.substring(HEADER_LENGTH));
+        Inflater inflater = inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream utf8 = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(buffer);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalStateException("Truncated compressed text");
+                }
+                utf8.write(buffer, 0, n);
+            }
+            return utf8.toString(StandardCharsets.UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalStateException("Corrupt compressed text", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Reads a stored value as a stream, decompressing as the reader is drained. The Base64 and deflate stages work
+     * in small buffers, so a large body is never held decompressed in full.
+     */
+    public static Reader reader(String stored) {
+        if (!isEncoded(stored)) {
+            return new StringReader(stored == null ? "" : stored);
+        }
+        checkVersion(stored);
+        InputStream base64 = Base64.getDecoder().wrap(new AsciiStream(stored, HEADER_LENGTH));
+        Inflater inflater = inflater();
+        InputStream inflating = new InflaterInputStream(base64, inflater, 8192) {
+            @Override
+            public void close() throws IOException {
+                super.close();
+                inflater.end();
+            }
+        };
+        return new InputStreamReader(inflating, StandardCharsets.UTF_8);
+    }
+
+    private static void checkVersion(String stored) {
+        char version = stored.length() > MARKER.length() ? stored.charAt(MARKER.length()) : 0;
+        if (version != VERSION_1) {
+            throw new IllegalStateException("Unknown compressed text version " + (int) version);
+        }
+    }
+
+    private static Inflater inflater() {
+        Inflater inflater = new Inflater(true);
+        inflater.setDictionary(DICTIONARY_V1);
+        return inflater;
+    }
+
+    /** The Base64 characters of a stored value as bytes, without copying them out of the string. */
+    private static final class AsciiStream extends InputStream {
+        private final String text;
+        private int position;
+
+        AsciiStream(String text, int start) {
+            this.text = text;
+            this.position = start;
+        }
+
+        @Override
+        public int read() {
+            return position < text.length() ? text.charAt(position++) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(length, text.length() - position);
+            for (int i = 0; i < n; i++) {
+                buffer[offset + i] = (byte) text.charAt(position++);
+            }
+            return n;
+        }
+    }
+}
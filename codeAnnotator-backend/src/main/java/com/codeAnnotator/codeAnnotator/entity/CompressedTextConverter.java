@@ -0,0 +1,19 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/** Stores a text attribute in the {@link CompressedText} format; applied with {@code @Convert} per column. */
+@Converter
+public class CompressedTextConverter implements AttributeConverter<String, String> {
+
+    @Override
+    public String convertToDatabaseColumn(String attribute) {
+        return CompressedText.encode(attribute);
+    }
+
+    @Override
+    public String convertToEntityAttribute(String dbData) {
+        return CompressedText.decode(dbData);
+    }
+}
@@ -0,0 +1,27 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** One LSH band key of a snippet's signature; snippets sharing a band key are near-duplicate candidates. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snippet_lsh_bucket", indexes = {
+        @Index(name = "idx_snippet_lsh_bucket_band_key", columnList = "bandKey")
+})
+public class LshBucket {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private long bandKey;
+
+    private Long snippetId;
+}
@@ -0,0 +1,37 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Checkpoint of the ingestion of a local git checkout: the last commit whose snippets were all ingested, so the
+ * next ingestion of the repository only reads the files changed since.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "repository_ingestion", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_repository_ingestion_repository", columnNames = "repository")
+})
+public class RepositoryIngestion {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    // Matches CodeSnippet.repository
+    private String repository;
+    private String directory;
+    private String lastCommit;
+
+    // Snippets inserted over all ingestions of the repository
+    private long snippets;
+
+    private Timestamp ingestedAt;
+}
@@ -0,0 +1,32 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * One entry of the search index: the snippet contains the term (see {@code SearchTerms}). The unique index keeps each
+ * term's snippets contiguous and in id order, so a query walks its rarest term and probes the others by key.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "search_posting", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_search_posting", columnNames = {"term_key", "snippet_id"})
+}, indexes = {
+        @Index(name = "idx_search_posting_snippet_id", columnList = "snippetId")
+})
+public class SearchPosting {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private long termKey;
+
+    private Long snippetId;
+}
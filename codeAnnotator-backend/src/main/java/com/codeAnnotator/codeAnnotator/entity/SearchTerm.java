@@ -0,0 +1,25 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Number of snippets containing a search term. Only used to pick the rarest term of a query; a race between two
+ * writers may overcount it, which never changes results.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "search_term")
+public class SearchTerm {
+
+    @Id
+    private Long termKey;
+
+    private long docCount;
+}
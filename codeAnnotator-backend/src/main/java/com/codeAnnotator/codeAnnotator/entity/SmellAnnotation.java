@@ -23,9 +23,11 @@ public class SmellAnnotation {
     private String category;
 
     @Lob
+    @Convert(converter = CompressedTextConverter.class)
     private String suggestion;
 
     @Lob
+    @Convert(converter = CompressedTextConverter.class)
     private String refactoredCode;
 
     @ManyToOne
@@ -0,0 +1,32 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Running inter-annotator agreement inputs for one snippet. Each smell type flagged on the snippet is a
+ * present/absent item rated by every rating annotation (SUBMITTED or CLEAN); {@code voteSum} and
+ * {@code voteSquareSum} are the sum and sum of squares of the per-type vote counts.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snippet_agreement")
+public class SnippetAgreement {
+
+    @Id
+    private Long snippetId;
+
+    private int raters;
+
+    private int smellTypes;
+
+    private long voteSum;
+
+    private long voteSquareSum;
+}
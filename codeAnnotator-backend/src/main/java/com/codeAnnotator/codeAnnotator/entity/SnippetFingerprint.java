@@ -0,0 +1,26 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/**
+ * MinHash signature of a snippet's normalized code, used to verify LSH candidates
+ * (see {@code MinHasher}). Snippets too short to fingerprint have no row.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snippet_fingerprint")
+public class SnippetFingerprint {
+
+    @Id
+    private Long snippetId;
+
+    @Column(length = 512)
+    private byte[] signature;
+}
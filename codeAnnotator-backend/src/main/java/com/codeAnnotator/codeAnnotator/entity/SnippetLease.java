@@ -0,0 +1,32 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.sql.Timestamp;
+
+/**
+ * Reservation of a snippet for one annotator, so concurrent "next" requests (on any instance)
+ * hand out different snippets. A lease is only honoured until {@code expiresAt}.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snippet_lease", indexes = {
+        @Index(name = "idx_snippet_lease_annotator", columnList = "annotator, expiresAt"),
+        @Index(name = "idx_snippet_lease_expires_at", columnList = "expiresAt")
+})
+public class SnippetLease {
+
+    @Id
+    private Long snippetId;
+
+    private String annotator;
+
+    private Timestamp expiresAt;
+}
@@ -0,0 +1,29 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+/** Number of rating annotations of a snippet that flagged a given smell type. */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "snippet_smell_vote", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_snippet_smell_vote", columnNames = {"snippet_id", "smell_type"})
+})
+public class SnippetSmellVote {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long snippetId;
+
+    private String smellType;
+
+    private int votes;
+}
@@ -0,0 +1,15 @@
+package com.codeAnnotator.codeAnnotator.event;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Published by {@code AnnotationService} whenever an annotation is stored for a snippet.
+ * Listeners that need the committed state should use {@code @TransactionalEventListener}.
+ *
+ * @param smellTypes smell types flagged by the annotation, as submitted
+ * @param annotatedAt the annotation's {@code createdAt}
+ */
+public record AnnotationSavedEvent(Long codeSnippetId, String annotator, String status,
+                                   List<String> smellTypes, Instant annotatedAt) {
+}
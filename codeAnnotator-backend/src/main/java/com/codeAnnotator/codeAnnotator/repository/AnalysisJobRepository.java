@@ -0,0 +1,48 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.AnalysisJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AnalysisJobRepository extends JpaRepository<AnalysisJob, Long> {
+
+    Optional<AnalysisJob> findFirstByModelAndPromptVersionAndStatusInOrderByIdDesc(String model, String promptVersion,
+                                                                                  Collection<AnalysisJob.Status> statuses);
+
+    List<AnalysisJob> findByStatus(AnalysisJob.Status status);
+
+    Optional<AnalysisJob> findFirstByOrderByIdDesc();
+
+    /**
+     * Makes {@code owner} the runner of the job unless another instance holds it with a heartbeat after
+     * {@code staleBefore}. One conditional update, so of several instances racing for a run exactly one gets it.
+     * Transactional here because the job runner calls it outside any transaction.
+     */
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.owner = :owner, j.heartbeatAt = :now where j.id = :id"
+            + " and (j.owner is null or j.owner = :owner or j.heartbeatAt < :staleBefore)")
+    int claim(@Param("id") Long id, @Param("owner") String owner, @Param("now") Timestamp now,
+              @Param("staleBefore") Timestamp staleBefore);
+
+    // 0 when the job is no longer held by owner
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.heartbeatAt = :now where j.id = :id and j.owner = :owner")
+    int heartbeat(@Param("id") Long id, @Param("owner") String owner, @Param("now") Timestamp now);
+
+    @Transactional
+    @Modifying
+    @Query("update AnalysisJob j set j.owner = null where j.id = :id and j.owner = :owner")
+    int release(@Param("id") Long id, @Param("owner") String owner);
+}
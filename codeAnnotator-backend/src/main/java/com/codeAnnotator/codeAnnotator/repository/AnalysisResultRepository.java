@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.AnalysisResult;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface AnalysisResultRepository extends JpaRepository<AnalysisResult, Long> {
+
+    Optional<AnalysisResult> findByCacheKey(String cacheKey);
+}
@@ -0,0 +1,94 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk insert path for {@link Annotation}s and their smell rows. Like {@link CodeSnippetBatchRepository}
+ * it uses JDBC batches because Hibernate won't batch {@code IDENTITY} inserts; generated annotation ids are
+ * read back from the batch to link the children. Callers provide the transaction.
+ */
+@Repository
+public class AnnotationBatchRepository {
+
+    private static final String INSERT_ANNOTATION_SQL = """
+            insert into annotation (annotator, start_line, end_line, status, code_snippet_id, created_at)
+            values (:annotator, :startLine, :endLine, :status, :codeSnippetId, :createdAt)
+            """;
+
+    private static final String INSERT_SMELL_SQL = """
+            insert into smell_annotation (smell_type, category, suggestion, refactored_code, annotation_id)
+            values (?, ?, ?, ?, ?)
+            """;
+
+    private static final String INCREMENT_COUNT_SQL =
+            "update code_snippet set annotation_count = annotation_count + ? where id = ?";
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Inserts the annotations and returns their generated ids, in input order. */
+    public List<Long> insertAnnotations(List<AnnotationRequestDTO> annotations, List<Annotation.Status> statuses,
+                                        Timestamp createdAt) {
+        SqlParameterSource[] rows = new SqlParameterSource[annotations.size()];
+        for (int i = 0; i < rows.length; i++) {
+            AnnotationRequestDTO dto = annotations.get(i);
+            rows[i] = new MapSqlParameterSource()
+                    .addValue("annotator", dto.getAnnotator())
+                    .addValue("startLine", dto.getStartLine())
+                    .addValue("endLine", dto.getEndLine())
+                    .addValue("status", statuses.get(i).name())
+                    .addValue("codeSnippetId", dto.getCodeSnippetId())
+                    .addValue("createdAt", createdAt);
+        }
+
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        namedJdbcTemplate.batchUpdate(INSERT_ANNOTATION_SQL, rows, keys, new String[]{"id"});
+
+        List<Long> ids = new ArrayList<>(rows.length);
+        for (Map<String, Object> key : keys.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    public void insertSmells(List<Long> annotationIds, List<AnnotationRequestDTO> annotations) {
+        List<Object[]> rows = new ArrayList<>();
+        for (int i = 0; i < annotations.size(); i++) {
+            List<SmellAnnotationDTO> smells = annotations.get(i).getAnnotations();
+            if (smells == null) {
+                continue;
+            }
+            for (SmellAnnotationDTO smell : smells) {
+                rows.add(new Object[]{smell.getSmellType(), smell.getCategory(), CompressedText.encode(smell.getSuggestion()),
+                        CompressedText.encode(smell.getRefactoredCode()), annotationIds.get(i)});
+            }
+        }
+        if (!rows.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_SMELL_SQL, rows);
+        }
+    }
+
+    public void incrementAnnotationCounts(Map<Long, Integer> deltaBySnippetId) {
+        List<Object[]> rows = new ArrayList<>(deltaBySnippetId.size());
+        deltaBySnippetId.forEach((snippetId, delta) -> rows.add(new Object[]{delta, snippetId}));
+        jdbcTemplate.batchUpdate(INCREMENT_COUNT_SQL, rows);
+    }
+}
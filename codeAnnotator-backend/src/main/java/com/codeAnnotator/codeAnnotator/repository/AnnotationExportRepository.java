@@ -0,0 +1,75 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.DTO.ExportFilterDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+
+/**
+ * Forward-only read of the annotated dataset: one row per smell (or one row with null smell columns for
+ * annotations without smells), ordered by annotation so callers can group without buffering.
+ * <p>
+ * Rows are handed to the callback as they arrive. With MySQL Connector/J a fetch size of
+ * {@code Integer.MIN_VALUE} makes the driver stream rows instead of materializing the whole result set,
+ * which is what keeps an export's memory flat.
+ */
+@Repository
+public class AnnotationExportRepository {
+
+    private static final String SELECT_SQL = """
+            select a.id as annotation_id, a.annotator, a.status, a.start_line as annotation_start_line,
+                   a.end_line as annotation_end_line, a.created_at as annotated_at,
+                   cs.id as snippet_id, cs.type, cs.code_type, cs.code_name, cs.repository, cs.commit_hash,
+                   cs.path, cs.start_line, cs.end_line, cs.link, cs.languages, cs.code,
+                   sm.id as smell_id, sm.smell_type, sm.category, sm.suggestion, sm.refactored_code
+            from annotation a
+            join code_snippet cs on cs.id = a.code_snippet_id
+            left join smell_annotation sm on sm.annotation_id = a.id
+            where 1 = 1
+            """;
+
+    private final NamedParameterJdbcTemplate streamingTemplate;
+
+    @Autowired
+    public AnnotationExportRepository(DataSource dataSource,
+                                      @Value("${export.fetch-size:-2147483648}") int fetchSize) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(fetchSize);
+        this.streamingTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    public void stream(ExportFilterDTO filter, RowCallbackHandler handler) {
+        StringBuilder sql = new StringBuilder(SELECT_SQL);
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        if (filter.getCodeType() != null) {
+            sql.append(" and cs.type = :codeType");
+            params.addValue("codeType", filter.getCodeType().name());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" and a.status = :status");
+            params.addValue("status", filter.getStatus().name());
+        }
+        if (filter.getAnnotator() != null && !filter.getAnnotator().isBlank()) {
+            sql.append(" and a.annotator = :annotator");
+            params.addValue("annotator", filter.getAnnotator());
+        }
+        if (filter.getFrom() != null) {
+            sql.append(" and a.created_at >= :from");
+            params.addValue("from", Timestamp.from(filter.getFrom()));
+        }
+        if (filter.getTo() != null) {
+            sql.append(" and a.created_at < :to");
+            params.addValue("to", Timestamp.from(filter.getTo()));
+        }
+        sql.append(" order by a.id, sm.id");
+
+        streamingTemplate.query(sql.toString(), params, handler);
+    }
+}
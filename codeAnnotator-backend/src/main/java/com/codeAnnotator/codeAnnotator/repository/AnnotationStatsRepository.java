@@ -0,0 +1,268 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.AgreementTotals;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.AnnotatorHourlyCount;
+import com.codeAnnotator.codeAnnotator.entity.AnnotatorStats;
+import com.codeAnnotator.codeAnnotator.entity.SnippetAgreement;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * JDBC access to the statistics aggregate tables. Shared counters (annotators, hours, totals, votes) are
+ * single upserts ({@code insert ... on duplicate key update}), so concurrent annotations never lose
+ * increments. The per-snippet agreement row is rewritten by the caller, which already holds the snippet's
+ * row lock. Callers provide the transaction.
+ */
+@Repository
+public class AnnotationStatsRepository {
+
+    static final String RATING_STATUSES = "('SUBMITTED', 'CLEAN')";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // ---- per-snippet agreement ----
+
+    public Optional<SnippetAgreement> findSnippetAgreement(Long snippetId) {
+        return jdbcTemplate.query("""
+                        select snippet_id, raters, smell_types, vote_sum, vote_square_sum
+                        from snippet_agreement where snippet_id = ?
+                        """, (rs, row) -> snippetAgreement(rs), snippetId)
+                .stream().findFirst();
+    }
+
+    public void saveSnippetAgreement(SnippetAgreement agreement) {
+        jdbcTemplate.update("""
+                        insert into snippet_agreement (snippet_id, raters, smell_types, vote_sum, vote_square_sum)
+                        values (?, ?, ?, ?, ?)
+                        on duplicate key update raters = ?, smell_types = ?, vote_sum = ?, vote_square_sum = ?
+                        """,
+                agreement.getSnippetId(), agreement.getRaters(), agreement.getSmellTypes(),
+                agreement.getVoteSum(), agreement.getVoteSquareSum(),
+                agreement.getRaters(), agreement.getSmellTypes(), agreement.getVoteSum(), agreement.getVoteSquareSum());
+    }
+
+    /** Current vote counts of the given smell types on a snippet; types never flagged are absent. */
+    public Map<String, Integer> findVotes(Long snippetId, Collection<String> smellTypes) {
+        Map<String, Integer> votes = new HashMap<>();
+        if (smellTypes.isEmpty()) {
+            return votes;
+        }
+        namedJdbcTemplate.query("""
+                        select smell_type, votes from snippet_smell_vote
+                        where snippet_id = :snippetId and smell_type in (:types)
+                        """,
+                new MapSqlParameterSource("snippetId", snippetId).addValue("types", smellTypes),
+                rs -> {
+                    votes.put(rs.getString(1), rs.getInt(2));
+                });
+        return votes;
+    }
+
+    public Map<String, Integer> findAllVotes(Long snippetId) {
+        Map<String, Integer> votes = new TreeMap<>();
+        jdbcTemplate.query("select smell_type, votes from snippet_smell_vote where snippet_id = ?",
+                rs -> {
+                    votes.put(rs.getString(1), rs.getInt(2));
+                }, snippetId);
+        return votes;
+    }
+
+    public void incrementVotes(Long snippetId, Collection<String> smellTypes) {
+        List<Object[]> rows = smellTypes.stream().map(type -> new Object[]{snippetId, type}).toList();
+        jdbcTemplate.batchUpdate("""
+                insert into snippet_smell_vote (snippet_id, smell_type, votes) values (?, ?, 1)
+                on duplicate key update votes = votes + 1
+                """, rows);
+    }
+
+    // ---- dataset-wide totals ----
+
+    public void addToTotals(int stripe, long ratedSnippets, long items, double agreementSum,
+                            long positiveVotes, long itemRatings) {
+        jdbcTemplate.update("""
+                        insert into agreement_totals (stripe, rated_snippets, items, agreement_sum, positive_votes, item_ratings)
+                        values (?, ?, ?, ?, ?, ?)
+                        on duplicate key update rated_snippets = rated_snippets + ?, items = items + ?,
+                            agreement_sum = agreement_sum + ?, positive_votes = positive_votes + ?, item_ratings = item_ratings + ?
+                        """,
+                stripe, ratedSnippets, items, agreementSum, positiveVotes, itemRatings,
+                ratedSnippets, items, agreementSum, positiveVotes, itemRatings);
+    }
+
+    /** Sum of all stripes, returned as a single row with stripe {@code -1}. */
+    public AgreementTotals sumTotals() {
+        return jdbcTemplate.queryForObject("""
+                        select coalesce(sum(rated_snippets), 0), coalesce(sum(items), 0), coalesce(sum(agreement_sum), 0),
+                               coalesce(sum(positive_votes), 0), coalesce(sum(item_ratings), 0)
+                        from agreement_totals
+                        """,
+                (rs, row) -> new AgreementTotals(-1, rs.getLong(1), rs.getLong(2), rs.getDouble(3), rs.getLong(4), rs.getLong(5)));
+    }
+
+    // ---- annotators ----
+
+    public void recordAnnotatorStatus(String annotator, Annotation.Status status, Timestamp at) {
+        String column = status.name().toLowerCase(Locale.ROOT);
+        jdbcTemplate.update("""
+                        insert into annotator_stats (annotator, submitted, skipped, rejected, clean, first_annotation_at, last_annotation_at)
+                        values (?, ?, ?, ?, ?, ?, ?)
+                        on duplicate key update %1$s = %1$s + 1,
+                            first_annotation_at = least(first_annotation_at, ?), last_annotation_at = greatest(last_annotation_at, ?)
+                        """.formatted(column),
+                annotator,
+                status == Annotation.Status.SUBMITTED ? 1 : 0, status == Annotation.Status.SKIPPED ? 1 : 0,
+                status == Annotation.Status.REJECTED ? 1 : 0, status == Annotation.Status.CLEAN ? 1 : 0,
+                at, at, at, at);
+    }
+
+    public void incrementHourly(String annotator, Timestamp hourStart) {
+        jdbcTemplate.update("""
+                insert into annotator_hourly_count (annotator, hour_start, annotations) values (?, ?, 1)
+                on duplicate key update annotations = annotations + 1
+                """, annotator, hourStart);
+    }
+
+    public Optional<AnnotatorStats> findAnnotatorStats(String annotator) {
+        return jdbcTemplate.query("select * from annotator_stats where annotator = ?", (rs, row) -> annotatorStats(rs), annotator)
+                .stream().findFirst();
+    }
+
+    public List<AnnotatorStats> findAllAnnotatorStats() {
+        return jdbcTemplate.query("select * from annotator_stats order by annotator", (rs, row) -> annotatorStats(rs));
+    }
+
+    public List<AnnotatorHourlyCount> findHourlyCounts(String annotator, Timestamp since) {
+        return jdbcTemplate.query("""
+                        select id, annotator, hour_start, annotations from annotator_hourly_count
+                        where annotator = ? and hour_start >= ? order by hour_start
+                        """,
+                (rs, row) -> new AnnotatorHourlyCount(rs.getLong(1), rs.getString(2), rs.getTimestamp(3), rs.getLong(4)),
+                annotator, since);
+    }
+
+    public Map<String, Long> statusTotals() {
+        return jdbcTemplate.queryForObject("""
+                        select coalesce(sum(submitted), 0), coalesce(sum(skipped), 0),
+                               coalesce(sum(rejected), 0), coalesce(sum(clean), 0)
+                        from annotator_stats
+                        """,
+                (rs, row) -> {
+                    Map<String, Long> totals = new LinkedHashMap<>();
+                    totals.put("SUBMITTED", rs.getLong(1));
+                    totals.put("SKIPPED", rs.getLong(2));
+                    totals.put("REJECTED", rs.getLong(3));
+                    totals.put("CLEAN", rs.getLong(4));
+                    return totals;
+                });
+    }
+
+    // ---- full scans, used by the consistency check only ----
+
+    /** Every annotation as (id, snippet id, annotator, status, created_at), in id order. */
+    public void streamAnnotations(RowCallbackHandler handler) {
+        jdbcTemplate.query("select id, code_snippet_id, annotator, status, created_at from annotation order by id", handler);
+    }
+
+    /** Distinct (snippet id, trimmed smell type) votes of rating annotations, one row per annotation and type. */
+    public void streamRatingVotes(RowCallbackHandler handler) {
+        jdbcTemplate.query("""
+                select distinct a.id, a.code_snippet_id, trim(sm.smell_type)
+                from annotation a join smell_annotation sm on sm.annotation_id = a.id
+                where a.status in %s and sm.smell_type is not null and trim(sm.smell_type) <> ''
+                """.formatted(RATING_STATUSES), handler);
+    }
+
+    public void streamSnippetAgreements(RowCallbackHandler handler) {
+        jdbcTemplate.query("select snippet_id, raters, smell_types, vote_sum, vote_square_sum from snippet_agreement", handler);
+    }
+
+    public void streamVotes(RowCallbackHandler handler) {
+        jdbcTemplate.query("select snippet_id, smell_type, votes from snippet_smell_vote", handler);
+    }
+
+    public void streamHourlyCounts(RowCallbackHandler handler) {
+        jdbcTemplate.query("select annotator, hour_start, annotations from annotator_hourly_count", handler);
+    }
+
+    public void deleteAll() {
+        jdbcTemplate.update("delete from snippet_smell_vote");
+        jdbcTemplate.update("delete from snippet_agreement");
+        jdbcTemplate.update("delete from agreement_totals");
+        jdbcTemplate.update("delete from annotator_hourly_count");
+        jdbcTemplate.update("delete from annotator_stats");
+    }
+
+    public void insertSnippetAgreements(List<SnippetAgreement> agreements) {
+        jdbcTemplate.batchUpdate("""
+                        insert into snippet_agreement (snippet_id, raters, smell_types, vote_sum, vote_square_sum)
+                        values (?, ?, ?, ?, ?)
+                        """, agreements, 500,
+                (ps, a) -> {
+                    ps.setLong(1, a.getSnippetId());
+                    ps.setInt(2, a.getRaters());
+                    ps.setInt(3, a.getSmellTypes());
+                    ps.setLong(4, a.getVoteSum());
+                    ps.setLong(5, a.getVoteSquareSum());
+                });
+    }
+
+    public void insertVotes(List<Object[]> snippetIdTypeAndVotes) {
+        jdbcTemplate.batchUpdate("insert into snippet_smell_vote (snippet_id, smell_type, votes) values (?, ?, ?)",
+                snippetIdTypeAndVotes);
+    }
+
+    public void insertAnnotatorStats(List<AnnotatorStats> stats) {
+        jdbcTemplate.batchUpdate("""
+                        insert into annotator_stats (annotator, submitted, skipped, rejected, clean, first_annotation_at, last_annotation_at)
+                        values (?, ?, ?, ?, ?, ?, ?)
+                        """, stats, 500,
+                (ps, s) -> {
+                    ps.setString(1, s.getAnnotator());
+                    ps.setLong(2, s.getSubmitted());
+                    ps.setLong(3, s.getSkipped());
+                    ps.setLong(4, s.getRejected());
+                    ps.setLong(5, s.getClean());
+                    ps.setTimestamp(6, s.getFirstAnnotationAt());
+                    ps.setTimestamp(7, s.getLastAnnotationAt());
+                });
+    }
+
+    public void insertHourlyCounts(List<Object[]> annotatorHourAndCount) {
+        jdbcTemplate.batchUpdate("insert into annotator_hourly_count (annotator, hour_start, annotations) values (?, ?, ?)",
+                annotatorHourAndCount);
+    }
+
+    public boolean isEmpty() {
+        Integer rows = jdbcTemplate.queryForObject("select count(*) from (select 1 from annotator_stats limit 1) t", Integer.class);
+        return rows == null || rows == 0;
+    }
+
+    public boolean hasAnnotations() {
+        Integer rows = jdbcTemplate.queryForObject("select count(*) from (select 1 from annotation limit 1) t", Integer.class);
+        return rows != null && rows > 0;
+    }
+
+    public static SnippetAgreement snippetAgreement(ResultSet rs) throws SQLException {
+        return new SnippetAgreement(rs.getLong(1), rs.getInt(2), rs.getInt(3), rs.getLong(4), rs.getLong(5));
+    }
+
+    private static AnnotatorStats annotatorStats(ResultSet rs) throws SQLException {
+        return new AnnotatorStats(rs.getString("annotator"), rs.getLong("submitted"), rs.getLong("skipped"),
+                rs.getLong("rejected"), rs.getLong("clean"),
+                rs.getTimestamp("first_annotation_at"), rs.getTimestamp("last_annotation_at"));
+    }
+}
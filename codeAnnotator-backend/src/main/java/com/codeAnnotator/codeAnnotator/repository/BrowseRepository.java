@@ -0,0 +1,161 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationSummaryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Keyset-paginated listing of snippets and annotations for admin browsing. Pages are {@code id > :after order by id},
+ * so every page is an index range scan no matter how deep the client has paged, and the list queries name their
+ * columns instead of loading entities: the {@code code}, {@code suggestion} and {@code refactored_code} Lobs are only
+ * read by the single-row detail queries.
+ */
+@Repository
+public class BrowseRepository {
+
+    private static final String SNIPPET_COLUMNS = """
+            cs.id, cs.type, cs.code_type, cs.code_name, cs.repository, cs.commit_hash, cs.path, cs.start_line,
+            cs.end_line, cs.link, cs.languages, cs.annotation_count, cs.cluster_id, cs.created_at""";
+
+    private static final String ANNOTATION_COLUMNS = """
+            a.id, a.code_snippet_id, a.annotator, a.status, a.start_line, a.end_line, a.created_at,
+            (select count(*) from smell_annotation sm where sm.annotation_id = a.id) as smell_count""";
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /** Up to {@code limit} snippets with an id above {@code after}, in id order. */
+    public List<SnippetSummaryDTO> findSnippets(SnippetBrowseFilterDTO filter, long after, int limit) {
+        StringBuilder sql = new StringBuilder("select " + SNIPPET_COLUMNS + " from code_snippet cs where cs.id > :after");
+        MapSqlParameterSource params = new MapSqlParameterSource("after", after).addValue("limit", limit);
+        if (filter.getRepository() != null && !filter.getRepository().isBlank()) {
+            sql.append(" and cs.repository = :repository");
+            params.addValue("repository", filter.getRepository());
+        }
+        if (filter.getType() != null) {
+            sql.append(" and cs.type = :type");
+            params.addValue("type", filter.getType().name());
+        }
+        if (filter.getMinAnnotations() != null) {
+            sql.append(" and cs.annotation_count >= :minAnnotations");
+            params.addValue("minAnnotations", filter.getMinAnnotations());
+        }
+        if (filter.getMaxAnnotations() != null) {
+            sql.append(" and cs.annotation_count <= :maxAnnotations");
+            params.addValue("maxAnnotations", filter.getMaxAnnotations());
+        }
+        sql.append(" order by cs.id limit :limit");
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, row) -> snippet(rs, new SnippetSummaryDTO()));
+    }
+
+    /** The snippets with the given ids, in id order; used for pages of search results. */
+    public List<SnippetSummaryDTO> findSnippets(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        return namedJdbcTemplate.query("select " + SNIPPET_COLUMNS + " from code_snippet cs where cs.id in (:ids) order by cs.id",
+                new MapSqlParameterSource("ids", ids), (rs, row) -> snippet(rs, new SnippetSummaryDTO()));
+    }
+
+    public Optional<SnippetDetailDTO> findSnippet(long id) {
+        return namedJdbcTemplate.query("select " + SNIPPET_COLUMNS + ", cs.code from code_snippet cs where cs.id = :id",
+                        new MapSqlParameterSource("id", id),
+                        (rs, row) -> {
+                            SnippetDetailDTO dto = snippet(rs, new SnippetDetailDTO());
+                            dto.setCode(CompressedText.decode(rs.getString("code")));
+                            return dto;
+                        })
+                .stream().findFirst();
+    }
+
+    /** Up to {@code limit} annotations with an id above {@code after}, in id order. */
+    public List<AnnotationSummaryDTO> findAnnotations(AnnotationBrowseFilterDTO filter, long after, int limit) {
+        StringBuilder sql = new StringBuilder("select " + ANNOTATION_COLUMNS + " from annotation a where a.id > :after");
+        MapSqlParameterSource params = new MapSqlParameterSource("after", after).addValue("limit", limit);
+        if (filter.getAnnotator() != null && !filter.getAnnotator().isBlank()) {
+            sql.append(" and a.annotator = :annotator");
+            params.addValue("annotator", filter.getAnnotator());
+        }
+        if (filter.getStatus() != null) {
+            sql.append(" and a.status = :status");
+            params.addValue("status", filter.getStatus().name());
+        }
+        if (filter.getSnippetId() != null) {
+            sql.append(" and a.code_snippet_id = :snippetId");
+            params.addValue("snippetId", filter.getSnippetId());
+        }
+        sql.append(" order by a.id limit :limit");
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, row) -> annotation(rs, new AnnotationSummaryDTO()));
+    }
+
+    public Optional<AnnotationDetailDTO> findAnnotation(long id) {
+        MapSqlParameterSource params = new MapSqlParameterSource("id", id);
+        Optional<AnnotationDetailDTO> found = namedJdbcTemplate.query(
+                        "select " + ANNOTATION_COLUMNS + " from annotation a where a.id = :id",
+                        params, (rs, row) -> annotation(rs, new AnnotationDetailDTO()))
+                .stream().findFirst();
+        found.ifPresent(dto -> dto.setSmells(namedJdbcTemplate.query("""
+                        select smell_type, category, suggestion, refactored_code
+                        from smell_annotation where annotation_id = :id order by id
+                        """, params, (rs, row) -> {
+                    SmellAnnotationDTO smell = new SmellAnnotationDTO();
+                    smell.setSmellType(rs.getString("smell_type"));
+                    smell.setCategory(rs.getString("category"));
+                    smell.setSuggestion(CompressedText.decode(rs.getString("suggestion")));
+                    smell.setRefactoredCode(CompressedText.decode(rs.getString("refactored_code")));
+                    return smell;
+                })));
+        return found;
+    }
+
+    private static <T extends SnippetSummaryDTO> T snippet(ResultSet rs, T dto) throws SQLException {
+        dto.setId(rs.getLong("id"));
+        dto.setType(rs.getString("type"));
+        dto.setCodeType(rs.getString("code_type"));
+        dto.setCodeName(rs.getString("code_name"));
+        dto.setRepository(rs.getString("repository"));
+        dto.setCommitHash(rs.getString("commit_hash"));
+        dto.setPath(rs.getString("path"));
+        dto.setStartLine(rs.getInt("start_line"));
+        dto.setEndLine(rs.getInt("end_line"));
+        dto.setLink(rs.getString("link"));
+        dto.setLanguages(rs.getString("languages"));
+        dto.setAnnotationCount(rs.getInt("annotation_count"));
+        dto.setClusterId(rs.getObject("cluster_id", Long.class));
+        dto.setCreatedAt(instant(rs.getTimestamp("created_at")));
+        return dto;
+    }
+
+    private static <T extends AnnotationSummaryDTO> T annotation(ResultSet rs, T dto) throws SQLException {
+        dto.setId(rs.getLong("id"));
+        dto.setSnippetId(rs.getObject("code_snippet_id", Long.class));
+        dto.setAnnotator(rs.getString("annotator"));
+        dto.setStatus(rs.getString("status"));
+        dto.setStartLine(rs.getInt("start_line"));
+        dto.setEndLine(rs.getInt("end_line"));
+        dto.setSmellCount(rs.getInt("smell_count"));
+        dto.setCreatedAt(instant(rs.getTimestamp("created_at")));
+        return dto;
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+}
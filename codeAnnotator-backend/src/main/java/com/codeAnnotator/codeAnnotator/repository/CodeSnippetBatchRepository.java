@@ -0,0 +1,77 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bulk insert path for {@link CodeSnippet}s.
+ * <p>
+ * Hibernate cannot batch inserts for {@code GenerationType.IDENTITY} entities, so bulk loads go through
+ * plain JDBC batches and let the database assign ids. On MySQL set {@code rewriteBatchedStatements=true}
+ * on the JDBC URL so each batch becomes a single multi-row INSERT.
+ */
+@Repository
+public class CodeSnippetBatchRepository {
+
+    private static final String INSERT_SQL = """
+            insert into code_snippet (code_type, code_name, repository, commit_hash, path, start_line, end_line,
+                                      link, code, languages, type, annotation_count, created_at)
+            values (:codeType, :codeName, :repository, :commitHash, :path, :startLine, :endLine,
+                    :link, :code, :languages, :type, 0, :createdAt)
+            """;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Inserts the snippets and returns their generated ids, in input order. */
+    public List<Long> insertAll(List<CodeSnippet> snippets) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        SqlParameterSource[] rows = new SqlParameterSource[snippets.size()];
+        for (int i = 0; i < rows.length; i++) {
+            CodeSnippet snippet = snippets.get(i);
+            rows[i] = new MapSqlParameterSource()
+                    .addValue("codeType", snippet.getCodeType())
+                    .addValue("codeName", snippet.getCodeName())
+                    .addValue("repository", snippet.getRepository())
+                    .addValue("commitHash", snippet.getCommitHash())
+                    .addValue("path", snippet.getPath())
+                    .addValue("startLine", snippet.getStartLine())
+                    .addValue("endLine", snippet.getEndLine())
+                    .addValue("link", snippet.getLink())
+                    .addValue("code", CompressedText.encode(snippet.getCode()))
+                    .addValue("languages", snippet.getLanguages())
+                    .addValue("type", snippet.getType().name())
+                    .addValue("createdAt", now);
+        }
+
+        GeneratedKeyHolder keys = new GeneratedKeyHolder();
+        namedJdbcTemplate.batchUpdate(INSERT_SQL, rows, keys, new String[]{"id"});
+
+        List<Long> ids = new ArrayList<>(rows.length);
+        for (Map<String, Object> key : keys.getKeyList()) {
+            ids.add(((Number) key.values().iterator().next()).longValue());
+        }
+        return ids;
+    }
+
+    public void updateClusterIds(Map<Long, Long> clusterIdBySnippetId) {
+        List<Object[]> rows = new ArrayList<>(clusterIdBySnippetId.size());
+        clusterIdBySnippetId.forEach((snippetId, clusterId) -> rows.add(new Object[]{clusterId, snippetId}));
+        jdbcTemplate.batchUpdate("update code_snippet set cluster_id = ? where id = ?", rows);
+    }
+}
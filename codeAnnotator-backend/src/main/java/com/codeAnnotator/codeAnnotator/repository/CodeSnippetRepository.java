@@ -1,8 +1,55 @@
 package com.codeAnnotator.codeAnnotator.repository;
 
 import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
 @Repository
-public interface CodeSnippetRepository extends JpaRepository<CodeSnippet, Long> {}
+public interface CodeSnippetRepository extends JpaRepository<CodeSnippet, Long> {
+
+    // Id-only selections walk the (annotation_count, id) index and never read the code Lob.
+    // Only cluster representatives (or not yet indexed snippets) are served; near-duplicates are skipped.
+    // Leased snippets are skipped like SnippetLeaseRepository#lockNextUnleasedId does, so this is the order
+    // in which /snippets/next hands snippets out.
+    @Query("select s.id from CodeSnippet s where (s.clusterId is null or s.clusterId = s.id)"
+            + " and not exists (select 1 from SnippetLease l where l.snippetId = s.id and l.expiresAt > :now)"
+            + " order by s.annotationCount asc, s.id asc")
+    List<Long> findUnleasedIdsByLeastAnnotated(@Param("now") Timestamp now, Pageable pageable);
+
+    @Query("select s.code from CodeSnippet s where s.id = :id")
+    Optional<String> findCodeById(@Param("id") Long id);
+
+    // Keyset page of the snippets whose analysis is served, i.e. the same set the selection queries draw from.
+    @Query("select s.id as id, s.code as code, s.languages as languages from CodeSnippet s"
+            + " where s.id > :afterId and (s.clusterId is null or s.clusterId = s.id) order by s.id asc")
+    List<AnalysisSource> findAnalysisSources(@Param("afterId") long afterId, Pageable pageable);
+
+    @Query("select s.id from CodeSnippet s where s.id in :ids")
+    List<Long> findExistingIds(@Param("ids") Collection<Long> ids);
+
+    // Files of a commit that already have snippets, for resuming an interrupted git ingestion
+    @Query("select distinct s.path from CodeSnippet s where s.repository = :repository and s.commitHash = :commitHash")
+    List<String> findIngestedPaths(@Param("repository") String repository, @Param("commitHash") String commitHash);
+
+    // Single-statement increment: no lost updates under concurrent submissions and no Lob in the UPDATE.
+    @Modifying
+    @Query("update CodeSnippet s set s.annotationCount = s.annotationCount + :delta where s.id = :id")
+    int incrementAnnotationCount(@Param("id") Long id, @Param("delta") int delta);
+
+    interface AnalysisSource {
+        Long getId();
+
+        String getCode();
+
+        String getLanguages();
+    }
+}
@@ -0,0 +1,52 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Row access for rewriting the large text columns into the {@link CompressedText} format. Pages are keyset
+ * scans over the primary key that skip values already carrying the marker, so an interrupted migration
+ * resumes where it stopped. Callers provide the transaction.
+ */
+@Repository
+public class LobCompressionRepository {
+
+    public enum Column {
+        SNIPPET_CODE("code_snippet", "code"),
+        SMELL_SUGGESTION("smell_annotation", "suggestion"),
+        SMELL_REFACTORED_CODE("smell_annotation", "refactored_code");
+
+        private final String table;
+        private final String column;
+
+        Column(String table, String column) {
+            this.table = table;
+            this.column = column;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Up to {@code limit} plain (not yet compressed) values with an id above {@code afterId}, in id order. */
+    public List<StoredValue> findPlain(Column column, long afterId, int limit) {
+        return jdbcTemplate.query("select id, " + column.column + " from " + column.table
+                        + " where id > ? and " + column.column + " is not null and left(" + column.column + ", 2) <> ?"
+                        + " order by id limit ?",
+                (rs, row) -> new StoredValue(rs.getLong(1), rs.getString(2)),
+                afterId, CompressedText.MARKER, limit);
+    }
+
+    public void update(Column column, List<StoredValue> values) {
+        List<Object[]> rows = new ArrayList<>(values.size());
+        values.forEach(value -> rows.add(new Object[]{value.value(), value.id()}));
+        jdbcTemplate.batchUpdate("update " + column.table + " set " + column.column + " = ? where id = ?", rows);
+    }
+
+    public record StoredValue(long id, String value) {}
+}
@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.RepositoryIngestion;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface RepositoryIngestionRepository extends JpaRepository<RepositoryIngestion, Long> {
+
+    Optional<RepositoryIngestion> findByRepository(String repository);
+}
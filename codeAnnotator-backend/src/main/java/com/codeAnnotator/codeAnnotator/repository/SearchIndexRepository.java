@@ -0,0 +1,209 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * JDBC access to the snippet search index ({@code search_posting}, {@code search_term}).
+ * <p>
+ * A query is the intersection of its terms: the postings of the rarest term are walked in snippet id order from the
+ * keyset cursor, and every other term is probed on the {@code (term_key, snippet_id)} unique index, so a page costs a
+ * short index range scan plus a few point lookups per candidate however large the corpus is. Totals and facets are
+ * computed over a bounded sample of the matches.
+ */
+@Repository
+public class SearchIndexRepository {
+
+    private static final int IN_CHUNK = 500;
+
+    public enum Facet {
+        REPOSITORY("""
+                select cs.repository as facet_value, count(*) as hits
+                from (%s) m join code_snippet cs on cs.id = m.snippet_id
+                where cs.repository is not null group by cs.repository"""),
+        LANGUAGE("""
+                select cs.languages as facet_value, count(*) as hits
+                from (%s) m join code_snippet cs on cs.id = m.snippet_id
+                where cs.languages is not null group by cs.languages"""),
+        CODE_TYPE("""
+                select cs.code_type as facet_value, count(*) as hits
+                from (%s) m join code_snippet cs on cs.id = m.snippet_id
+                where cs.code_type is not null group by cs.code_type"""),
+        SMELL_TYPE("""
+                select sm.smell_type as facet_value, count(distinct m.snippet_id) as hits
+                from (%s) m join annotation a on a.code_snippet_id = m.snippet_id
+                join smell_annotation sm on sm.annotation_id = a.id
+                where sm.smell_type is not null group by sm.smell_type"""),
+        CATEGORY("""
+                select sm.category as facet_value, count(distinct m.snippet_id) as hits
+                from (%s) m join annotation a on a.code_snippet_id = m.snippet_id
+                join smell_annotation sm on sm.annotation_id = a.id
+                where sm.category is not null group by sm.category""");
+
+        private final String sql;
+
+        Facet(String sql) {
+            this.sql = sql;
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    // ---- writes ----
+
+    /** Term keys already indexed for the given snippets. */
+    public Map<Long, Set<Long>> findTermKeys(Collection<Long> snippetIds) {
+        Map<Long, Set<Long>> bySnippet = new HashMap<>();
+        for (List<Long> chunk : chunks(snippetIds)) {
+            namedJdbcTemplate.query("select snippet_id, term_key from search_posting where snippet_id in (:ids)",
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        bySnippet.computeIfAbsent(rs.getLong(1), id -> new HashSet<>()).add(rs.getLong(2));
+                    });
+        }
+        return bySnippet;
+    }
+
+    // "insert ignore": a posting written concurrently by an annotation and a rebuild is simply kept once
+    public void insertPostings(List<Object[]> termKeyAndSnippetId) {
+        jdbcTemplate.batchUpdate("insert ignore into search_posting (term_key, snippet_id) values (?, ?)", termKeyAndSnippetId);
+    }
+
+    public void addDocCounts(Map<Long, Integer> docsByTermKey) {
+        List<Object[]> rows = new ArrayList<>(docsByTermKey.size());
+        docsByTermKey.forEach((termKey, docs) -> rows.add(new Object[]{termKey, docs, docs}));
+        jdbcTemplate.batchUpdate("""
+                insert into search_term (term_key, doc_count) values (?, ?)
+                on duplicate key update doc_count = doc_count + ?
+                """, rows);
+    }
+
+    /** Empties the index; used before a rebuild. */
+    public void clear() {
+        jdbcTemplate.execute("truncate table search_posting");
+        jdbcTemplate.execute("truncate table search_term");
+    }
+
+    // ---- rebuild sources ----
+
+    public long maxSnippetId() {
+        Long max = jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+        return max == null ? 0 : max;
+    }
+
+    /** Indexed columns of up to {@code limit} snippets with an id in {@code (afterId, upToId]}, in id order. */
+    public List<CodeSnippet> findSources(long afterId, long upToId, int limit) {
+        return jdbcTemplate.query("""
+                        select id, code_type, code_name, repository, path, languages, code from code_snippet
+                        where id > ? and id <= ? order by id limit ?
+                        """,
+                (rs, row) -> {
+                    CodeSnippet snippet = new CodeSnippet();
+                    snippet.setId(rs.getLong("id"));
+                    snippet.setCodeType(rs.getString("code_type"));
+                    snippet.setCodeName(rs.getString("code_name"));
+                    snippet.setRepository(rs.getString("repository"));
+                    snippet.setPath(rs.getString("path"));
+                    snippet.setLanguages(rs.getString("languages"));
+                    snippet.setCode(CompressedText.decode(rs.getString("code")));
+                    return snippet;
+                }, afterId, upToId, limit);
+    }
+
+    /** Smell annotations of the given snippets, over all their annotations. */
+    public Map<Long, List<SmellText>> findSmells(Collection<Long> snippetIds) {
+        Map<Long, List<SmellText>> bySnippet = new HashMap<>();
+        for (List<Long> chunk : chunks(snippetIds)) {
+            namedJdbcTemplate.query("""
+                            select a.code_snippet_id, sm.smell_type, sm.category, sm.suggestion
+                            from annotation a join smell_annotation sm on sm.annotation_id = a.id
+                            where a.code_snippet_id in (:ids)
+                            """,
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        bySnippet.computeIfAbsent(rs.getLong(1), id -> new ArrayList<>()).add(new SmellText(
+                                rs.getString(2), rs.getString(3), CompressedText.decode(rs.getString(4))));
+                    });
+        }
+        return bySnippet;
+    }
+
+    // ---- queries ----
+
+    public Map<Long, Long> findDocCounts(Collection<Long> termKeys) {
+        Map<Long, Long> counts = new HashMap<>();
+        namedJdbcTemplate.query("select term_key, doc_count from search_term where term_key in (:keys)",
+                new MapSqlParameterSource("keys", termKeys),
+                rs -> {
+                    counts.put(rs.getLong(1), rs.getLong(2));
+                });
+        return counts;
+    }
+
+    /**
+     * Up to {@code limit} ids of snippets containing every term, above {@code after} and in id order.
+     *
+     * @param termKeys rarest first; the first term drives the scan
+     */
+    public List<Long> findMatches(List<Long> termKeys, long after, int limit) {
+        return namedJdbcTemplate.queryForList(matchSql(termKeys.size()), matchParams(termKeys, after, limit), Long.class);
+    }
+
+    /** Number of matches, counting at most {@code cap}. */
+    public long countMatches(List<Long> termKeys, int cap) {
+        Long count = namedJdbcTemplate.queryForObject("select count(*) from (" + matchSql(termKeys.size()) + ") m",
+                matchParams(termKeys, 0, cap), Long.class);
+        return count == null ? 0 : count;
+    }
+
+    /** The {@code size} most frequent values of a facet among the first {@code sample} matches, most frequent first. */
+    public Map<String, Long> findFacet(Facet facet, List<Long> termKeys, int sample, int size) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        String sql = facet.sql.formatted(matchSql(termKeys.size())) + " order by hits desc, facet_value limit :size";
+        namedJdbcTemplate.query(sql, matchParams(termKeys, 0, sample).addValue("size", size),
+                rs -> {
+                    counts.put(rs.getString("facet_value"), rs.getLong("hits"));
+                });
+        return counts;
+    }
+
+    private static String matchSql(int terms) {
+        StringBuilder sql = new StringBuilder(
+                "select p0.snippet_id from search_posting p0 where p0.term_key = :t0 and p0.snippet_id > :after");
+        for (int i = 1; i < terms; i++) {
+            sql.append(" and exists (select 1 from search_posting p%1$d where p%1$d.term_key = :t%1$d and p%1$d.snippet_id = p0.snippet_id)"
+                    .formatted(i));
+        }
+        return sql.append(" order by p0.snippet_id limit :limit").toString();
+    }
+
+    private static MapSqlParameterSource matchParams(List<Long> termKeys, long after, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource("after", after).addValue("limit", limit);
+        for (int i = 0; i < termKeys.size(); i++) {
+            params.addValue("t" + i, termKeys.get(i));
+        }
+        return params;
+    }
+
+    private static <T> List<List<T>> chunks(Collection<T> values) {
+        List<T> list = new ArrayList<>(values);
+        List<List<T>> chunks = new ArrayList<>();
+        for (int i = 0; i < list.size(); i += IN_CHUNK) {
+            chunks.add(list.subList(i, Math.min(list.size(), i + IN_CHUNK)));
+        }
+        return chunks;
+    }
+
+    public record SmellText(String smellType, String category, String suggestion) {}
+}
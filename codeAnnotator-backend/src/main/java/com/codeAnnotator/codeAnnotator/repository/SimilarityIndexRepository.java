@@ -0,0 +1,109 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.*;
+
+/**
+ * JDBC access to the near-duplicate index tables ({@code snippet_fingerprint}, {@code snippet_lsh_bucket}).
+ * Lookups are chunked so IN lists stay small, and never read the code Lob.
+ */
+@Repository
+public class SimilarityIndexRepository {
+
+    private static final int IN_CHUNK = 500;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /** Snippet ids per band key, at most {@code maxPerKey} per key so boilerplate buckets stay cheap. */
+    public Map<Long, List<Long>> findSnippetIdsByBandKeys(Collection<Long> bandKeys, int maxPerKey) {
+        Map<Long, List<Long>> byKey = new HashMap<>();
+        for (List<Long> chunk : chunks(bandKeys)) {
+            namedJdbcTemplate.query("select band_key, snippet_id from snippet_lsh_bucket where band_key in (:keys)",
+                    new MapSqlParameterSource("keys", chunk),
+                    rs -> {
+                        List<Long> ids = byKey.computeIfAbsent(rs.getLong(1), key -> new ArrayList<>());
+                        if (ids.size() < maxPerKey) {
+                            ids.add(rs.getLong(2));
+                        }
+                    });
+        }
+        return byKey;
+    }
+
+    /** Signatures and current cluster ids of the given snippets. */
+    public Map<Long, IndexedSnippet> findFingerprints(Collection<Long> snippetIds) {
+        Map<Long, IndexedSnippet> found = new HashMap<>();
+        for (List<Long> chunk : chunks(snippetIds)) {
+            namedJdbcTemplate.query("""
+                            select f.snippet_id, f.signature, s.cluster_id
+                            from snippet_fingerprint f join code_snippet s on s.id = f.snippet_id
+                            where f.snippet_id in (:ids)
+                            """,
+                    new MapSqlParameterSource("ids", chunk),
+                    rs -> {
+                        long clusterId = rs.getLong(3);
+                        found.put(rs.getLong(1), new IndexedSnippet(rs.getLong(1), rs.getBytes(2),
+                                rs.wasNull() ? rs.getLong(1) : clusterId));
+                    });
+        }
+        return found;
+    }
+
+    public void insertFingerprints(Map<Long, byte[]> signatureBySnippetId) {
+        List<Object[]> rows = new ArrayList<>(signatureBySnippetId.size());
+        signatureBySnippetId.forEach((snippetId, signature) -> rows.add(new Object[]{snippetId, signature}));
+        jdbcTemplate.batchUpdate("insert into snippet_fingerprint (snippet_id, signature) values (?, ?)", rows);
+    }
+
+    public void insertBuckets(List<Object[]> bandKeyAndSnippetId) {
+        jdbcTemplate.batchUpdate("insert into snippet_lsh_bucket (band_key, snippet_id) values (?, ?)", bandKeyAndSnippetId);
+    }
+
+    public List<Long> findClusterMembers(Long clusterId, int limit) {
+        return jdbcTemplate.queryForList("select id from code_snippet where cluster_id = ? order by id limit ?",
+                Long.class, clusterId, limit);
+    }
+
+    public long countClusterMembers(Long clusterId) {
+        Long count = jdbcTemplate.queryForObject("select count(*) from code_snippet where cluster_id = ?", Long.class, clusterId);
+        return count == null ? 0 : count;
+    }
+
+    public Optional<Long> findClusterId(Long snippetId) {
+        List<Long> ids = jdbcTemplate.query("select id, cluster_id from code_snippet where id = ?",
+                (rs, row) -> {
+                    long clusterId = rs.getLong(2);
+                    return rs.wasNull() ? rs.getLong(1) : clusterId;
+                }, snippetId);
+        return ids.stream().findFirst();
+    }
+
+    /** Keyset page of snippets that have not been assigned to a cluster yet. */
+    public List<UnindexedSnippet> findUnindexed(long afterId, int limit) {
+        return jdbcTemplate.query("select id, code from code_snippet where cluster_id is null and id > ? order by id limit ?",
+                (rs, row) -> new UnindexedSnippet(rs.getLong(1), CompressedText.decode(rs.getString(2))), afterId, limit);
+    }
+
+    private static List<List<Long>> chunks(Collection<Long> values) {
+        List<Long> all = new ArrayList<>(values);
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += IN_CHUNK) {
+            chunks.add(all.subList(i, Math.min(all.size(), i + IN_CHUNK)));
+        }
+        return chunks;
+    }
+
+    public record IndexedSnippet(long snippetId, byte[] signature, long clusterId) {}
+
+    public record UnindexedSnippet(long id, String code) {}
+}
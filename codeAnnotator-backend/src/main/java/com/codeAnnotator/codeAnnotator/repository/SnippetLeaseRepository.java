@@ -0,0 +1,68 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import com.codeAnnotator.codeAnnotator.entity.SnippetLease;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface SnippetLeaseRepository extends JpaRepository<SnippetLease, Long> {
+
+    /**
+     * Locks the least-annotated cluster representative that has no live lease. Rows another transaction is
+     * claiming right now are skipped instead of waited on, so concurrent claims fan out. The lease check is a
+     * snapshot read, so it can return a snippet leased after the snapshot; callers pass such ids back in
+     * {@code skippedIds} to move past them.
+     */
+    @Query(nativeQuery = true, value = """
+            select cs.id from code_snippet cs
+            where cs.id not in (:skippedIds)
+              and (cs.cluster_id is null or cs.cluster_id = cs.id)
+              and not exists (select 1 from snippet_lease l where l.snippet_id = cs.id and l.expires_at > :now)
+            order by cs.annotation_count, cs.id
+            limit 1
+            for update skip locked
+            """)
+    List<Long> lockNextUnleasedId(@Param("skippedIds") Collection<Long> skippedIds, @Param("now") Timestamp now);
+
+    // Locking read: sees leases committed after this transaction's snapshot was taken.
+    @Query(nativeQuery = true, value = "select expires_at from snippet_lease where snippet_id = :snippetId for update")
+    List<Timestamp> lockLeaseExpiry(@Param("snippetId") Long snippetId);
+
+    @Query(nativeQuery = true, value = """
+            select snippet_id from snippet_lease
+            where annotator = :annotator and expires_at > :now and snippet_id <> :excludedId
+            order by expires_at desc
+            limit 1
+            """)
+    Optional<Long> findLiveLeaseOf(@Param("annotator") String annotator,
+                                   @Param("excludedId") long excludedId,
+                                   @Param("now") Timestamp now);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "insert into snippet_lease (snippet_id, annotator, expires_at) values (:snippetId, :annotator, :expiresAt)")
+    void insertLease(@Param("snippetId") Long snippetId, @Param("annotator") String annotator, @Param("expiresAt") Timestamp expiresAt);
+
+    @Modifying
+    @Query("update SnippetLease l set l.annotator = :annotator, l.expiresAt = :expiresAt where l.snippetId = :snippetId")
+    int updateLease(@Param("snippetId") Long snippetId, @Param("annotator") String annotator, @Param("expiresAt") Timestamp expiresAt);
+
+    @Modifying
+    @Query("delete from SnippetLease l where l.snippetId = :snippetId")
+    int release(@Param("snippetId") Long snippetId);
+
+    @Modifying
+    @Query("delete from SnippetLease l where l.snippetId = :snippetId and l.annotator = :annotator")
+    int release(@Param("snippetId") Long snippetId, @Param("annotator") String annotator);
+
+    @Modifying
+    @Query("delete from SnippetLease l where l.expiresAt <= :now")
+    int deleteExpired(@Param("now") Timestamp now);
+}
@@ -0,0 +1,257 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisCacheStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.entity.AnalysisResult;
+import com.codeAnnotator.codeAnnotator.repository.AnalysisResultRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Content-addressed cache in front of {@link OpenAIAgent#analyzeCode(String)}.
+ * <p>
+ * Lookups go memory (bounded LRU with TTL) → {@code analysis_result} table → LLM. Concurrent misses
+ * for the same key share one LLM call. Failed calls are not cached. Keys include {@link OpenAIAgent#modelTag()},
+ * and each stored row records the model that actually answered.
+ */
+@Service
+public class AnalysisCacheService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisCacheService.class);
+    private static final TypeReference<List<SmellAnnotationDTO>> SMELL_LIST = new TypeReference<>() {};
+
+    private final OpenAIAgent openAIAgent;
+    private final AnalysisResultRepository analysisResultRepo;
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final Map<String, CachedAnalysis> memory;
+    private final Map<String, CompletableFuture<Optional<List<SmellAnnotationDTO>>>> inFlight = new ConcurrentHashMap<>();
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    @Autowired
+    public AnalysisCacheService(OpenAIAgent openAIAgent,
+                                AnalysisResultRepository analysisResultRepo,
+                                @Value("${analysis.cache.max-entries:10000}") int maxEntries,
+                                @Value("${analysis.cache.ttl-minutes:1440}") long ttlMinutes) {
+        this.openAIAgent = openAIAgent;
+        this.analysisResultRepo = analysisResultRepo;
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMinutes * 60_000L;
+        this.memory = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedAnalysis> eldest) {
+                boolean evict = size() > AnalysisCacheService.this.maxEntries;
+                if (evict) {
+                    evictions.incrementAndGet();
+                }
+                return evict;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached analysis for this code, calling the LLM on a miss.
+     * An empty list means either "no smells" or an analysis failure, matching {@link OpenAIAgent#analyzeCode(String)}.
+     */
+    public List<SmellAnnotationDTO> analyze(String code) {
+        return tryAnalyze(code).orElse(List.of());
+    }
+
+    public Optional<List<SmellAnnotationDTO>> tryAnalyze(String code) {
+        return analyze(code, missed -> openAIAgent.analyze(missed, null, false), smell -> {});
+    }
+
+    /**
+     * Like {@link #tryAnalyze(String)}, with the snippet's {@code languages} for model routing. On a miss for an
+     * {@code interactive} caller a slow LLM request is hedged; see {@link OpenAIAgent#tryAnalyzeCode(String, String, boolean)}.
+     */
+    public Optional<List<SmellAnnotationDTO>> tryAnalyze(String code, String languages, boolean interactive) {
+        return analyze(code, missed -> openAIAgent.analyze(missed, languages, interactive), smell -> {});
+    }
+
+    /**
+     * Like {@link #tryAnalyze(String)}, but hands each smell to {@code onSmell} as soon as it is known:
+     * all at once for a cached analysis, one by one while the model generates on a miss.
+     */
+    public Optional<List<SmellAnnotationDTO>> streamAnalyze(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        return analyze(code, missed -> openAIAgent.streamAnalyze(missed, languages, onSmell), onSmell);
+    }
+
+    private Optional<List<SmellAnnotationDTO>> analyze(String code,
+                                                       Function<String, Optional<LlmAnswer>> llmCall,
+                                                       Consumer<SmellAnnotationDTO> onKnownSmell) {
+        String key = cacheKey(code, openAIAgent.modelTag());
+
+        Optional<List<SmellAnnotationDTO>> cached = lookup(key);
+        if (cached.isPresent()) {
+            cached.get().forEach(onKnownSmell);
+            return cached;
+        }
+
+        CompletableFuture<Optional<List<SmellAnnotationDTO>>> call = new CompletableFuture<>();
+        CompletableFuture<Optional<List<SmellAnnotationDTO>>> existing = inFlight.putIfAbsent(key, call);
+        if (existing != null) {
+            Optional<List<SmellAnnotationDTO>> shared = existing.join();
+            shared.ifPresent(smells -> smells.forEach(onKnownSmell));
+            return shared;
+        }
+
+        try {
+            misses.incrementAndGet();
+            Optional<LlmAnswer> answer = llmCall.apply(code);
+            if (answer.isPresent()) {
+                store(key, answer.get());
+            } else {
+                failures.incrementAndGet();
+            }
+            Optional<List<SmellAnnotationDTO>> result = answer.map(LlmAnswer::smells);
+            call.complete(result);
+            return result;
+        } catch (RuntimeException e) {
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    /** True when an analysis for this code is already available without calling the LLM. */
+    public boolean isCached(String code) {
+        return lookup(cacheKey(code, openAIAgent.modelTag())).isPresent();
+    }
+
+    /** How many LLM requests a miss for this code costs; see {@link OpenAIAgent#requestCount(String)}. */
+    public int requestCount(String code) {
+        return openAIAgent.requestCount(code);
+    }
+
+    /** The routing the cached analyses belong to; see {@link ModelRouter#modelTag()}. */
+    public String modelTag() {
+        return openAIAgent.modelTag();
+    }
+
+    public AnalysisCacheStatsDTO stats() {
+        AnalysisCacheStatsDTO dto = new AnalysisCacheStatsDTO();
+        dto.setMemoryHits(memoryHits.get());
+        dto.setPersistentHits(persistentHits.get());
+        dto.setMisses(misses.get());
+        dto.setFailures(failures.get());
+        dto.setEvictions(evictions.get());
+        synchronized (memory) {
+            dto.setMemorySize(memory.size());
+        }
+        dto.setMaxEntries(maxEntries);
+        long hits = dto.getMemoryHits() + dto.getPersistentHits();
+        long total = hits + dto.getMisses();
+        dto.setHitRatio(total == 0 ? 0.0 : (double) hits / total);
+        return dto;
+    }
+
+    private Optional<List<SmellAnnotationDTO>> lookup(String key) {
+        synchronized (memory) {
+            CachedAnalysis entry = memory.get(key);
+            if (entry != null) {
+                if (entry.expiresAt() > System.currentTimeMillis()) {
+                    memoryHits.incrementAndGet();
+                    return Optional.of(entry.smells());
+                }
+                memory.remove(key);
+                evictions.incrementAndGet();
+            }
+        }
+
+        Optional<List<SmellAnnotationDTO>> persisted = analysisResultRepo.findByCacheKey(key)
+                .flatMap(this::deserialize);
+        persisted.ifPresent(smells -> {
+            persistentHits.incrementAndGet();
+            remember(key, smells);
+        });
+        return persisted;
+    }
+
+    private void store(String key, LlmAnswer answer) {
+        remember(key, answer.smells());
+        try {
+            AnalysisResult row = new AnalysisResult();
+            row.setCacheKey(key);
+            row.setModel(answer.model());
+            row.setPromptVersion(OpenAIAgent.PROMPT_VERSION);
+            row.setResultJson(mapper.writeValueAsString(answer.smells()));
+            analysisResultRepo.save(row);
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the same analysis first; either copy is valid.
+        } catch (JsonProcessingException e) {
+            log.warn("Could not serialize analysis for cache key {}", key, e);
+        }
+    }
+
+    private void remember(String key, List<SmellAnnotationDTO> smells) {
+        synchronized (memory) {
+            memory.put(key, new CachedAnalysis(List.copyOf(smells), System.currentTimeMillis() + ttlMillis));
+        }
+    }
+
+    private Optional<List<SmellAnnotationDTO>> deserialize(AnalysisResult row) {
+        try {
+            return Optional.of(mapper.readValue(row.getResultJson(), SMELL_LIST));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable cached analysis {}", row.getCacheKey(), e);
+            return Optional.empty();
+        }
+    }
+
+    static String cacheKey(String code, String modelTag) {
+        String material = normalize(code) + "\n" + modelTag + "\n" + OpenAIAgent.PROMPT_VERSION;
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(material.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Line endings and trailing whitespace don't change what the model sees as code,
+     * so they are normalized away before hashing.
+     */
+    static String normalize(String code) {
+        if (code == null) {
+            return "";
+        }
+        StringBuilder normalized = new StringBuilder(code.length());
+        for (String line : code.replace("\r\n", "\n").replace('\r', '\n').split("\n")) {
+            normalized.append(line.stripTrailing()).append('\n');
+        }
+        return normalized.toString().strip();
+    }
+
+    private record CachedAnalysis(List<SmellAnnotationDTO> smells, long expiresAt) {}
+}
@@ -0,0 +1,350 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisJobStatusDTO;
+import com.codeAnnotator.codeAnnotator.entity.AnalysisJob;
+import com.codeAnnotator.codeAnnotator.repository.AnalysisJobRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository.AnalysisSource;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Analyzes the whole corpus ahead of annotators, e.g. after {@link OpenAIAgent#PROMPT_VERSION} or the model routing changed.
+ * <p>
+ * A run walks the servable snippets (cluster representatives) by keyset, one page at a time, and fans each page out
+ * over {@code analysis.job.workers} threads. Every snippet goes through {@link AnalysisRouter#warm}, so results land in
+ * the {@code analysis_result} table keyed by code, model tag and prompt version, exactly where {@code /snippets/next}
+ * looks them up. Snippets already analyzed for this version are skipped and snippets the router decides locally cost
+ * no request; only the LLM requests themselves, one per chunk, are paced to {@code analysis.job.requests-per-minute}
+ * so annotators keep most of the quota.
+ * <p>
+ * After each page the run's checkpoint and counters are saved in {@code analysis_job}. Pausing stops after the
+ * current page; starting again continues the latest unfinished run of the current version. Snippets whose analysis
+ * failed are counted and simply analyzed by the next run, since they are still missing from the cache.
+ * <p>
+ * With several instances, a run is claimed in {@code analysis_job} before it is launched and its owner heartbeats
+ * every {@code analysis.job.heartbeat-ms}. A RUNNING run is resumed, at startup or by any idle instance later, only
+ * once its owner released it on shutdown or stopped heartbeating for {@code analysis.job.stale-after-ms}; an owner
+ * that finds its run taken over stops without saving.
+ */
+@Service
+public class AnalysisJobService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisJobService.class);
+
+    private enum Outcome { ANALYZED, CACHED, LOCAL, FAILED }
+
+    private final AnalysisJobRepository jobRepo;
+    private final CodeSnippetRepository codeSnippetRepo;
+    private final AnalysisRouter analysisRouter;
+    private final AnalysisCacheService analysisCache;
+
+    private final int workers;
+    private final int pageSize;
+    private final int requestsPerMinute;
+    private final boolean resumeOnStartup;
+    private final long staleAfterMs;
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(daemon("analysis-job"));
+    private final ExecutorService workerPool;
+    private final LlmCallGuard.TokenBucket pacer;
+
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile boolean pauseRequested;
+    private volatile AnalysisJob active;
+
+    @Autowired
+    public AnalysisJobService(AnalysisJobRepository jobRepo,
+                              CodeSnippetRepository codeSnippetRepo,
+                              AnalysisRouter analysisRouter,
+                              AnalysisCacheService analysisCache,
+                              @Value("${analysis.job.workers:8}") int workers,
+                              @Value("${analysis.job.page-size:200}") int pageSize,
+                              @Value("${analysis.job.requests-per-minute:300}") int requestsPerMinute,
+                              @Value("${analysis.job.resume-on-startup:true}") boolean resumeOnStartup,
+                              @Value("${analysis.job.stale-after-ms:120000}") long staleAfterMs) {
+        this.jobRepo = jobRepo;
+        this.codeSnippetRepo = codeSnippetRepo;
+        this.analysisRouter = analysisRouter;
+        this.analysisCache = analysisCache;
+        this.workers = Math.max(1, workers);
+        this.pageSize = Math.max(1, pageSize);
+        this.requestsPerMinute = requestsPerMinute;
+        this.resumeOnStartup = resumeOnStartup;
+        this.staleAfterMs = staleAfterMs;
+        this.workerPool = Executors.newFixedThreadPool(this.workers, daemon("analysis-job-worker"));
+        // Separate from LlmCallGuard's limits, which cover all callers: this keeps the job to its own share.
+        this.pacer = requestsPerMinute > 0 ? new LlmCallGuard.TokenBucket(requestsPerMinute, System::nanoTime) : null;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeInterrupted() {
+        for (AnalysisJob job : jobRepo.findByStatus(AnalysisJob.Status.RUNNING)) {
+            if (!isCurrentVersion(job)) {
+                if (claim(job)) {
+                    finish(job, AnalysisJob.Status.FAILED, "superseded by model " + analysisCache.modelTag()
+                            + " prompt version " + OpenAIAgent.PROMPT_VERSION);
+                }
+            } else if (resumeOnStartup && running.compareAndSet(false, true)) {
+                if (!claim(job)) {
+                    running.set(false);
+                    continue; // another instance is running it
+                }
+                log.info("Resuming analysis job {} after snippet {}", job.getId(), job.getCheckpointId());
+                launch(job);
+            }
+        }
+    }
+
+    /**
+     * Keeps this instance's claim on its run fresh and, while idle, takes over runs whose owner stopped
+     * heartbeating, e.g. because its instance was killed.
+     */
+    @Scheduled(fixedDelayString = "${analysis.job.heartbeat-ms:30000}")
+    public void heartbeat() {
+        AnalysisJob job = active;
+        if (job != null) {
+            jobRepo.heartbeat(job.getId(), instanceId, now());
+        } else if (!running.get()) {
+            resumeInterrupted();
+        }
+    }
+
+    /**
+     * Starts a run for the current model tag and prompt version, or continues the latest unfinished one.
+     *
+     * @return empty if a run is already active on this or another instance
+     */
+    public Optional<AnalysisJobStatusDTO> start() {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        AnalysisJob job;
+        try {
+            job = jobRepo.findFirstByModelAndPromptVersionAndStatusInOrderByIdDesc(analysisCache.modelTag(), OpenAIAgent.PROMPT_VERSION,
+                            List.of(AnalysisJob.Status.RUNNING, AnalysisJob.Status.PAUSED))
+                    .orElseGet(() -> {
+                        AnalysisJob created = new AnalysisJob();
+                        created.setModel(analysisCache.modelTag());
+                        created.setPromptVersion(OpenAIAgent.PROMPT_VERSION);
+                        return created;
+                    });
+            if (job.getId() != null && !claim(job)) {
+                running.set(false);
+                return Optional.empty();
+            }
+            job.setOwner(instanceId);
+            job.setHeartbeatAt(now());
+            job.setStatus(AnalysisJob.Status.RUNNING);
+            job.setError(null);
+            job.setUpdatedAt(now());
+            job = jobRepo.save(job);
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+        launch(job);
+        return Optional.of(toDto(job, true));
+    }
+
+    /** Asks the active run to stop after its current page; false if no run is active. */
+    public boolean pause() {
+        if (!running.get()) {
+            return false;
+        }
+        pauseRequested = true;
+        return true;
+    }
+
+    /** The latest run, whether or not it is active. */
+    public Optional<AnalysisJobStatusDTO> status() {
+        return jobRepo.findFirstByOrderByIdDesc().map(job -> toDto(job, running.get() && job.getStatus() == AnalysisJob.Status.RUNNING));
+    }
+
+    private void launch(AnalysisJob job) {
+        pauseRequested = false;
+        active = job;
+        coordinator.execute(() -> {
+            try {
+                run(job);
+            } finally {
+                active = null;
+                running.set(false);
+            }
+        });
+    }
+
+    // Runs on the caller's thread until the corpus is done, the run is paused or it fails.
+    void run(AnalysisJob job) {
+        long afterId = job.getCheckpointId();
+        if (!claim(job)) {
+            log.info("Analysis job {} is running on another instance", job.getId());
+            return;
+        }
+        try {
+            while (!pauseRequested) {
+                List<AnalysisSource> page = codeSnippetRepo.findAnalysisSources(afterId, PageRequest.of(0, pageSize));
+                if (page.isEmpty()) {
+                    finish(job, AnalysisJob.Status.COMPLETED, null);
+                    log.info("Analysis job {} completed: {} analyzed, {} already cached, {} decided locally, {} failed",
+                            job.getId(), job.getAnalyzed(), job.getAlreadyCached(), job.getDecidedLocally(), job.getFailed());
+                    return;
+                }
+                analyzePage(job, page);
+                if (jobRepo.heartbeat(job.getId(), instanceId, now()) == 0) {
+                    log.warn("Analysis job {} was taken over by another instance; stopping without saving page after {}",
+                            job.getId(), afterId);
+                    return;
+                }
+                afterId = page.get(page.size() - 1).getId();
+                job.setCheckpointId(afterId);
+                job.setHeartbeatAt(now());
+                job.setUpdatedAt(job.getHeartbeatAt());
+                jobRepo.save(job);
+            }
+            job.setStatus(AnalysisJob.Status.PAUSED);
+            job.setOwner(null);
+            job.setUpdatedAt(now());
+            jobRepo.save(job);
+            log.info("Analysis job {} paused after snippet {}", job.getId(), afterId);
+        } catch (InterruptedException e) {
+            // Shutdown: the job stays RUNNING and is resumed from its checkpoint by the next instance to claim it.
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Analysis job {} stopped after snippet {}", job.getId(), afterId, e);
+            finish(job, AnalysisJob.Status.FAILED, e.getMessage());
+        }
+    }
+
+    // The whole page completes before the checkpoint moves past it, so a restart never skips a snippet.
+    private void analyzePage(AnalysisJob job, List<AnalysisSource> page) throws InterruptedException {
+        List<Future<Outcome>> outcomes = new ArrayList<>(page.size());
+        for (AnalysisSource snippet : page) {
+            outcomes.add(workerPool.submit(() -> analyze(snippet)));
+        }
+        for (Future<Outcome> outcome : outcomes) {
+            Outcome result;
+            try {
+                result = outcome.get();
+            } catch (ExecutionException e) {
+                log.warn("Analysis job {} could not analyze a snippet", job.getId(), e.getCause());
+                result = Outcome.FAILED;
+            }
+            switch (result) {
+                case ANALYZED -> job.setAnalyzed(job.getAnalyzed() + 1);
+                case CACHED -> job.setAlreadyCached(job.getAlreadyCached() + 1);
+                case LOCAL -> job.setDecidedLocally(job.getDecidedLocally() + 1);
+                case FAILED -> job.setFailed(job.getFailed() + 1);
+            }
+        }
+    }
+
+    private Outcome analyze(AnalysisSource snippet) throws InterruptedException {
+        if (analysisCache.isCached(snippet.getCode())) {
+            return Outcome.CACHED;
+        }
+        return switch (analysisRouter.warm(snippet.getCode(), snippet.getLanguages(), () -> pace(snippet.getCode()))) {
+            case LOCAL -> Outcome.LOCAL;
+            case LLM -> Outcome.ANALYZED;
+            case FAILED -> Outcome.FAILED;
+        };
+    }
+
+    // Each chunk of a large snippet is its own request, so it takes its own share of the quota.
+    private void pace(String code) throws InterruptedException {
+        if (pacer != null) {
+            TimeUnit.NANOSECONDS.sleep(pacer.reserve(analysisCache.requestCount(code), Long.MAX_VALUE));
+        }
+    }
+
+    private boolean claim(AnalysisJob job) {
+        Timestamp now = now();
+        if (jobRepo.claim(job.getId(), instanceId, now, new Timestamp(now.getTime() - staleAfterMs)) == 0) {
+            return false;
+        }
+        job.setOwner(instanceId);
+        job.setHeartbeatAt(now);
+        return true;
+    }
+
+    private void finish(AnalysisJob job, AnalysisJob.Status status, String error) {
+        job.setStatus(status);
+        job.setOwner(null);
+        job.setError(error);
+        job.setUpdatedAt(now());
+        job.setFinishedAt(job.getUpdatedAt());
+        jobRepo.save(job);
+    }
+
+    private boolean isCurrentVersion(AnalysisJob job) {
+        return analysisCache.modelTag().equals(job.getModel()) && OpenAIAgent.PROMPT_VERSION.equals(job.getPromptVersion());
+    }
+
+    private AnalysisJobStatusDTO toDto(AnalysisJob job, boolean active) {
+        AnalysisJobStatusDTO dto = new AnalysisJobStatusDTO();
+        dto.setId(job.getId());
+        dto.setStatus(job.getStatus().name());
+        dto.setActive(active);
+        dto.setModel(job.getModel());
+        dto.setPromptVersion(job.getPromptVersion());
+        dto.setCheckpointId(job.getCheckpointId());
+        dto.setAnalyzed(job.getAnalyzed());
+        dto.setAlreadyCached(job.getAlreadyCached());
+        dto.setDecidedLocally(job.getDecidedLocally());
+        dto.setFailed(job.getFailed());
+        dto.setWorkers(workers);
+        dto.setRequestsPerMinute(requestsPerMinute);
+        dto.setError(job.getError());
+        dto.setCreatedAt(instant(job.getCreatedAt()));
+        dto.setUpdatedAt(instant(job.getUpdatedAt()));
+        dto.setFinishedAt(instant(job.getFinishedAt()));
+        return dto;
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private static Instant instant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant();
+    }
+
+    @PreDestroy
+    void shutdown() throws InterruptedException {
+        AnalysisJob job = active;
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+        if (job != null && coordinator.awaitTermination(5, TimeUnit.SECONDS)) {
+            // Lets the next instance resume the run right away instead of waiting for the heartbeat to go stale.
+            jobRepo.release(job.getId(), instanceId);
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
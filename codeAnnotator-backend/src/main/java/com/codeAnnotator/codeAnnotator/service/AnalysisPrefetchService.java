@@ -0,0 +1,167 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.PrefetchStatsDTO;
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.Timestamp;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps the AI analysis of the next {@code analysis.prefetch.window-size} least-annotated unleased snippets
+ * warm in {@link AnalysisCacheService}, so {@code /snippets/next} rarely waits on the LLM. Snippets the
+ * {@link AnalysisRouter} decides locally need no warming.
+ * <p>
+ * The window is refilled periodically and after every committed annotation, since that is what
+ * moves snippets out of the window.
+ */
+@Service
+public class AnalysisPrefetchService {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalysisPrefetchService.class);
+
+    private final CodeSnippetRepository codeSnippetRepo;
+    private final AnalysisRouter analysisRouter;
+
+    private final boolean enabled;
+    private final int windowSize;
+    private final int workers;
+
+    private final ThreadPoolExecutor workerPool;
+    private final ExecutorService coordinator = Executors.newSingleThreadExecutor(daemon("analysis-prefetch-refill"));
+    private final AtomicBoolean refillRequested = new AtomicBoolean();
+
+    // Snippet ids queued/running, and ids already warm in the current window; guarded by "this".
+    private final Set<Long> pending = new HashSet<>();
+    private final Set<Long> warmed = new HashSet<>();
+
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    @Autowired
+    public AnalysisPrefetchService(CodeSnippetRepository codeSnippetRepo,
+                                   AnalysisRouter analysisRouter,
+                                   @Value("${analysis.prefetch.enabled:true}") boolean enabled,
+                                   @Value("${analysis.prefetch.window-size:20}") int windowSize,
+                                   @Value("${analysis.prefetch.workers:4}") int workers) {
+        this.codeSnippetRepo = codeSnippetRepo;
+        this.analysisRouter = analysisRouter;
+        this.enabled = enabled;
+        this.windowSize = windowSize;
+        this.workers = workers;
+        // The queue never needs more than one window of work; anything beyond it is stale by the next refill.
+        this.workerPool = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, windowSize)), daemon("analysis-prefetch-worker"),
+                new ThreadPoolExecutor.AbortPolicy());
+    }
+
+    @Scheduled(fixedDelayString = "${analysis.prefetch.interval-ms:30000}")
+    public void scheduledRefill() {
+        requestRefill();
+    }
+
+    @TransactionalEventListener
+    public void onAnnotationSaved(AnnotationSavedEvent event) {
+        requestRefill();
+    }
+
+    /** Coalesces refill requests; at most one refill is queued behind the one running. */
+    public void requestRefill() {
+        if (enabled && refillRequested.compareAndSet(false, true)) {
+            coordinator.execute(() -> {
+                refillRequested.set(false);
+                try {
+                    refill();
+                } catch (RuntimeException e) {
+                    log.warn("Prefetch refill failed", e);
+                }
+            });
+        }
+    }
+
+    void refill() {
+        List<Long> window = codeSnippetRepo.findUnleasedIdsByLeastAnnotated(
+                new Timestamp(System.currentTimeMillis()), PageRequest.of(0, windowSize));
+        synchronized (this) {
+            warmed.retainAll(window);
+        }
+        for (Long id : window) {
+            synchronized (this) {
+                if (warmed.contains(id) || !pending.add(id)) {
+                    continue;
+                }
+            }
+            try {
+                workerPool.execute(() -> warm(id));
+            } catch (RejectedExecutionException e) {
+                synchronized (this) {
+                    pending.remove(id);
+                }
+                return; // workers are saturated; the next refill picks up the rest
+            }
+        }
+    }
+
+    private void warm(Long id) {
+        boolean ok = false;
+        try {
+            ok = codeSnippetRepo.findById(id)
+                    .map(snippet -> analysisRouter.warm(snippet.getCode(), snippet.getLanguages()))
+                    .orElse(false);
+        } catch (RuntimeException e) {
+            log.warn("Prefetch of snippet {} failed", id, e);
+        } finally {
+            (ok ? completed : failed).incrementAndGet();
+            synchronized (this) {
+                pending.remove(id);
+                if (ok) {
+                    warmed.add(id);
+                }
+            }
+        }
+    }
+
+    public PrefetchStatsDTO stats() {
+        PrefetchStatsDTO dto = new PrefetchStatsDTO();
+        dto.setEnabled(enabled);
+        dto.setWindowSize(windowSize);
+        dto.setWorkers(workers);
+        dto.setQueueDepth(workerPool.getQueue().size());
+        dto.setActiveWorkers(workerPool.getActiveCount());
+        synchronized (this) {
+            dto.setWarmedInWindow(warmed.size());
+        }
+        dto.setCompleted(completed.get());
+        dto.setFailed(failed.get());
+        return dto;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        coordinator.shutdownNow();
+        workerPool.shutdownNow();
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicLong counter = new AtomicLong();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,14 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+
+import java.util.List;
+
+/**
+ * One analyzer's answer for a snippet.
+ *
+ * @param smells     the smells found; empty means "no smells"
+ * @param confidence how likely the whole answer is right, for every smell in the prompt whether reported or
+ *                   ruled out, from 0 to 1; the LLM's answers are taken as authoritative and report 1
+ */
+public record AnalysisReport(String analyzer, List<SmellAnnotationDTO> smells, double confidence) {}
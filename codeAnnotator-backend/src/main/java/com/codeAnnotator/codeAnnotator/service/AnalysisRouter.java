@@ -0,0 +1,129 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnalysisRoutingStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Decides which {@link Analyzer} answers for a snippet. In the default {@code local-first} mode the in-process
+ * analyzer runs first and its answer is used when it is at least {@code analysis.routing.min-confidence} sure;
+ * otherwise, or for languages it doesn't support, the LLM is asked. {@code llm-only} and {@code local-only}
+ * skip one side entirely.
+ */
+@Service
+public class AnalysisRouter {
+
+    public enum Mode { LOCAL_FIRST, LLM_ONLY, LOCAL_ONLY }
+
+    /** How {@link #warm(String, String, LlmGate)} handled a snippet. */
+    public enum Warmed { LOCAL, LLM, FAILED }
+
+    /** Runs just before the LLM is asked about a snippet, e.g. to pace background requests. */
+    @FunctionalInterface
+    public interface LlmGate {
+        void await() throws InterruptedException;
+    }
+
+    private final Analyzer local;
+    private final Analyzer llm;
+    private final Mode mode;
+    private final double minConfidence;
+
+    private final AtomicLong localDecisions = new AtomicLong();
+    private final AtomicLong llmRouted = new AtomicLong();
+    private final AtomicLong unsupportedLanguage = new AtomicLong();
+
+    @Autowired
+    public AnalysisRouter(@Qualifier("metricsAnalyzer") Analyzer local,
+                          @Qualifier("llmAnalyzer") Analyzer llm,
+                          @Value("${analysis.routing.mode:local-first}") String mode,
+                          @Value("${analysis.routing.min-confidence:0.8}") double minConfidence) {
+        this.local = local;
+        this.llm = llm;
+        this.mode = Mode.valueOf(mode.trim().replace('-', '_').toUpperCase(Locale.ROOT));
+        this.minConfidence = minConfidence;
+    }
+
+    /** The snippet's smells; empty when the analysis failed. */
+    public Optional<List<SmellAnnotationDTO>> analyze(String code, String languages) {
+        Optional<AnalysisReport> decided = decideLocally(code, languages);
+        if (decided.isPresent() || mode == Mode.LOCAL_ONLY) {
+            return decided.map(AnalysisReport::smells);
+        }
+        llmRouted.incrementAndGet();
+        return llm.analyze(code, languages).map(AnalysisReport::smells);
+    }
+
+    /** Like {@link #analyze(String, String)}, passing each smell to {@code onSmell} as soon as it is known. */
+    public Optional<List<SmellAnnotationDTO>> streamAnalyze(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        Optional<AnalysisReport> decided = decideLocally(code, languages);
+        if (decided.isPresent() || mode == Mode.LOCAL_ONLY) {
+            decided.ifPresent(report -> report.smells().forEach(onSmell));
+            return decided.map(AnalysisReport::smells);
+        }
+        llmRouted.incrementAndGet();
+        return llm.analyze(code, languages, onSmell).map(AnalysisReport::smells);
+    }
+
+    /**
+     * Makes a later {@link #analyze(String, String)} of this snippet fast: snippets decided locally need nothing,
+     * the rest get their LLM analysis cached. Returns false if that LLM call failed.
+     */
+    public boolean warm(String code, String languages) {
+        return mode == Mode.LOCAL_ONLY || decideLocally(code, languages).isPresent() || warmWithLlm(code, languages);
+    }
+
+    /**
+     * Like {@link #warm(String, String)}, telling whether the snippet was decided locally. {@code beforeLlm} runs
+     * only when the LLM is about to be asked; if it is interrupted the LLM is not asked.
+     */
+    public Warmed warm(String code, String languages, LlmGate beforeLlm) throws InterruptedException {
+        if (mode == Mode.LOCAL_ONLY || decideLocally(code, languages).isPresent()) {
+            return Warmed.LOCAL;
+        }
+        beforeLlm.await();
+        return warmWithLlm(code, languages) ? Warmed.LLM : Warmed.FAILED;
+    }
+
+    private boolean warmWithLlm(String code, String languages) {
+        llmRouted.incrementAndGet();
+        return llm.analyzeInBackground(code, languages).isPresent();
+    }
+
+    private Optional<AnalysisReport> decideLocally(String code, String languages) {
+        if (mode == Mode.LLM_ONLY) {
+            return Optional.empty();
+        }
+        Optional<AnalysisReport> report = local.analyze(code, languages);
+        if (report.isEmpty()) {
+            unsupportedLanguage.incrementAndGet();
+            return report;
+        }
+        if (mode == Mode.LOCAL_ONLY || report.get().confidence() >= minConfidence) {
+            localDecisions.incrementAndGet();
+            return report;
+        }
+        return Optional.empty();
+    }
+
+    public AnalysisRoutingStatsDTO stats() {
+        AnalysisRoutingStatsDTO dto = new AnalysisRoutingStatsDTO();
+        dto.setMode(mode.name().toLowerCase(Locale.ROOT).replace('_', '-'));
+        dto.setMinConfidence(minConfidence);
+        dto.setLocalDecisions(localDecisions.get());
+        dto.setLlmRouted(llmRouted.get());
+        dto.setUnsupportedLanguage(unsupportedLanguage.get());
+        long total = dto.getLocalDecisions() + dto.getLlmRouted();
+        dto.setLocalShare(total == 0 ? 0.0 : (double) dto.getLocalDecisions() / total);
+        return dto;
+    }
+}
@@ -0,0 +1,38 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * A source of smell annotations for one snippet. {@link AnalysisRouter} decides which analyzer answers.
+ */
+public interface Analyzer {
+
+    String name();
+
+    /**
+     * @param languages the snippet's {@code languages} value; may be null
+     * @return empty when this analyzer cannot handle the snippet or the analysis failed
+     */
+    Optional<AnalysisReport> analyze(String code, String languages);
+
+    /**
+     * Like {@link #analyze(String, String)} for work nobody is waiting on, such as prefetching. Analyzers that
+     * spend extra resources on latency (hedged requests) skip that here.
+     */
+    default Optional<AnalysisReport> analyzeInBackground(String code, String languages) {
+        return analyze(code, languages);
+    }
+
+    /**
+     * Like {@link #analyze(String, String)}, but hands each smell to {@code onSmell} as soon as it is known.
+     * Analyzers that produce their answer in one piece keep this default.
+     */
+    default Optional<AnalysisReport> analyze(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        Optional<AnalysisReport> report = analyze(code, languages);
+        report.ifPresent(r -> r.smells().forEach(onSmell));
+        return report;
+    }
+}
@@ -0,0 +1,196 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.ExportFilterDTO;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationExportRepository;
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.opencsv.CSVWriter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Exports the annotated dataset for model training. Rows go straight from the database cursor to the
+ * output stream, so memory use does not depend on the size of the export.
+ * <p>
+ * CSV has one line per smell (annotations without smells get one line with empty smell columns).
+ * JSONL has one object per annotation, with its snippet and a {@code smells} array.
+ */
+@Service
+public class AnnotationExportService {
+
+    private static final int FLUSH_EVERY = 500;
+
+    private static final String[] CSV_HEADER = {
+            "annotationId", "annotator", "status", "annotationStartLine", "annotationEndLine", "annotatedAt",
+            "snippetId", "type", "codeType", "codeName", "repository", "commitHash", "path", "startLine", "endLine",
+            "link", "languages", "code", "smellType", "category", "suggestion", "refactoredCode"
+    };
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        JSONL("application/x-ndjson", "jsonl");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String contentType() {
+            return contentType;
+        }
+
+        public String extension() {
+            return extension;
+        }
+    }
+
+    @Autowired
+    private AnnotationExportRepository exportRepo;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /** Writes the matching rows to {@code out} and returns the number of records written. */
+    public long export(ExportFilterDTO filter, Format format, OutputStream out) throws IOException {
+        try {
+            return format == Format.CSV ? exportCsv(filter, out) : exportJsonl(filter, out);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private long exportCsv(ExportFilterDTO filter, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        CSVWriter csv = new CSVWriter(writer);
+        csv.writeNext(CSV_HEADER, false);
+
+        long[] written = {0};
+        exportRepo.stream(filter, rs -> {
+            csv.writeNext(new String[]{
+                    rs.getString("annotation_id"), rs.getString("annotator"), rs.getString("status"),
+                    rs.getString("annotation_start_line"), rs.getString("annotation_end_line"),
+                    instant(rs.getTimestamp("annotated_at")),
+                    rs.getString("snippet_id"), rs.getString("type"), rs.getString("code_type"),
+                    rs.getString("code_name"), rs.getString("repository"), rs.getString("commit_hash"),
+                    rs.getString("path"), rs.getString("start_line"), rs.getString("end_line"),
+                    rs.getString("link"), rs.getString("languages"), CompressedText.decode(rs.getString("code")),
+                    rs.getString("smell_type"), rs.getString("category"), CompressedText.decode(rs.getString("suggestion")),
+                    CompressedText.decode(rs.getString("refactored_code"))
+            }, true);
+            if (++written[0] % FLUSH_EVERY == 0) {
+                flush(csv);
+            }
+        });
+        csv.flush();
+        return written[0];
+    }
+
+    private long exportJsonl(ExportFilterDTO filter, OutputStream out) throws IOException {
+        JsonGenerator json = objectMapper.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        json.setRootValueSeparator(null); // records are separated by the newline written in endAnnotation
+
+        // Rows arrive ordered by annotation id; an annotation's object is closed when the next one starts.
+        long[] state = {0, -1}; // written, current annotation id
+        exportRepo.stream(filter, rs -> {
+            try {
+                long annotationId = rs.getLong("annotation_id");
+                if (annotationId != state[1]) {
+                    if (state[1] != -1) {
+                        endAnnotation(json);
+                        if (state[0] % FLUSH_EVERY == 0) {
+                            json.flush();
+                        }
+                    }
+                    startAnnotation(json, rs, annotationId);
+                    state[0]++;
+                    state[1] = annotationId;
+                }
+                rs.getLong("smell_id");
+                if (!rs.wasNull()) {
+                    json.writeStartObject();
+                    json.writeStringField("smellType", rs.getString("smell_type"));
+                    json.writeStringField("category", rs.getString("category"));
+                    writeText(json, "suggestion", rs.getString("suggestion"));
+                    writeText(json, "refactoredCode", rs.getString("refactored_code"));
+                    json.writeEndObject();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (state[1] != -1) {
+            endAnnotation(json);
+        }
+        json.flush();
+        return state[0];
+    }
+
+    private static void startAnnotation(JsonGenerator json, ResultSet rs, long annotationId) throws IOException, SQLException {
+        json.writeStartObject();
+        json.writeNumberField("annotationId", annotationId);
+        json.writeStringField("annotator", rs.getString("annotator"));
+        json.writeStringField("status", rs.getString("status"));
+        json.writeNumberField("startLine", rs.getInt("annotation_start_line"));
+        json.writeNumberField("endLine", rs.getInt("annotation_end_line"));
+        json.writeStringField("annotatedAt", instant(rs.getTimestamp("annotated_at")));
+
+        json.writeObjectFieldStart("snippet");
+        json.writeNumberField("id", rs.getLong("snippet_id"));
+        json.writeStringField("type", rs.getString("type"));
+        json.writeStringField("codeType", rs.getString("code_type"));
+        json.writeStringField("codeName", rs.getString("code_name"));
+        json.writeStringField("repository", rs.getString("repository"));
+        json.writeStringField("commitHash", rs.getString("commit_hash"));
+        json.writeStringField("path", rs.getString("path"));
+        json.writeNumberField("startLine", rs.getInt("start_line"));
+        json.writeNumberField("endLine", rs.getInt("end_line"));
+        json.writeStringField("link", rs.getString("link"));
+        json.writeStringField("languages", rs.getString("languages"));
+        writeText(json, "code", rs.getString("code"));
+        json.writeEndObject();
+
+        json.writeArrayFieldStart("smells");
+    }
+
+    // Compressed values are inflated straight into the output instead of being decoded into a String first.
+    private static void writeText(JsonGenerator json, String field, String stored) throws IOException {
+        if (stored == null) {
+            json.writeNullField(field);
+            return;
+        }
+        json.writeFieldName(field);
+        try (Reader text = CompressedText.reader(stored)) {
+            json.writeString(text, -1);
+        }
+    }
+
+    private static void endAnnotation(JsonGenerator json) throws IOException {
+        json.writeEndArray();
+        json.writeEndObject();
+        json.writeRaw('\n');
+    }
+
+    private static void flush(Flushable target) {
+        try {
+            target.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String instant(Timestamp timestamp) {
+        return timestamp == null ? null : timestamp.toInstant().toString();
+    }
+}
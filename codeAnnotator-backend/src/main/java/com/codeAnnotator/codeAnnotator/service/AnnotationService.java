@@ -1,17 +1,25 @@
 package com.codeAnnotator.codeAnnotator.service;
 
 import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationResultDTO;
 import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
 import com.codeAnnotator.codeAnnotator.entity.Annotation;
 import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
 import com.codeAnnotator.codeAnnotator.entity.SmellAnnotation;
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
 import com.codeAnnotator.codeAnnotator.repository.AnnotationRepository;
 import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.stream.Collectors;
+
 @Service
 @RequiredArgsConstructor
 public class AnnotationService {
@@ -22,16 +30,31 @@ public class AnnotationService {
     @Autowired
     private CodeSnippetRepository codeSnippetRepo;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private AnnotationBatchRepository annotationBatchRepo;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
     @Transactional
     public void saveAnnotation(AnnotationRequestDTO dto) {
-        CodeSnippet snippet = codeSnippetRepo.findById(dto.getCodeSnippetId())
-                .orElseThrow(() -> new RuntimeException("CodeSnippet not found"));
+        Annotation.Status status = Annotation.Status.valueOf(dto.getStatus().toUpperCase());
+
+        // The counter is bumped in the database; the snippet itself (and its code Lob) is never loaded.
+        if (metrics.timeQuery("annotations", "incrementAnnotationCount",
+                () -> codeSnippetRepo.incrementAnnotationCount(dto.getCodeSnippetId(), 1)) == 0) {
+            throw new RuntimeException("CodeSnippet not found");
+        }
+        CodeSnippet snippet = codeSnippetRepo.getReferenceById(dto.getCodeSnippetId());
 
         Annotation annotation = new Annotation();
         annotation.setAnnotator(dto.getAnnotator());
         annotation.setStartLine(dto.getStartLine());
         annotation.setEndLine(dto.getEndLine());
-        annotation.setStatus(Annotation.Status.valueOf(dto.getStatus().toUpperCase()));
+        annotation.setStatus(status);
         annotation.setCodeSnippet(snippet);
 
         for (SmellAnnotationDTO smellDto : dto.getAnnotations()) {
@@ -44,8 +67,76 @@ public class AnnotationService {
             annotation.getAnnotations().add(smell);
         }
 
-        annotationRepo.save(annotation);
-        snippet.setAnnotationCount(snippet.getAnnotationCount() + 1);
-        codeSnippetRepo.save(snippet);
+        metrics.timeQuery("annotations", "save", () -> annotationRepo.save(annotation));
+
+        eventPublisher.publishEvent(new AnnotationSavedEvent(dto.getCodeSnippetId(), annotation.getAnnotator(), status.name(),
+                smellTypes(dto), annotation.getCreatedAt().toInstant()));
+    }
+
+    /**
+     * Persists a batch of submissions in one transaction using batched inserts. Invalid items
+     * (unknown snippet, bad status) are reported in their result and don't prevent the others from being saved.
+     */
+    @Transactional
+    public List<AnnotationResultDTO> saveAnnotations(List<AnnotationRequestDTO> dtos) {
+        List<AnnotationResultDTO> results = new ArrayList<>(dtos.size());
+        Set<Long> requestedIds = dtos.stream()
+                .map(AnnotationRequestDTO::getCodeSnippetId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        Set<Long> existingIds = requestedIds.isEmpty() ? Set.of() : new HashSet<>(metrics.timeQuery("annotations", "findExistingIds", () -> codeSnippetRepo.findExistingIds(requestedIds)));
+
+        List<AnnotationRequestDTO> valid = new ArrayList<>();
+        List<Annotation.Status> statuses = new ArrayList<>();
+        List<AnnotationResultDTO> validResults = new ArrayList<>();
+        for (int i = 0; i < dtos.size(); i++) {
+            AnnotationRequestDTO dto = dtos.get(i);
+            AnnotationResultDTO result = new AnnotationResultDTO(i, dto.getCodeSnippetId(), false, null, null);
+            results.add(result);
+
+            if (dto.getCodeSnippetId() == null || !existingIds.contains(dto.getCodeSnippetId())) {
+                result.setError("CodeSnippet not found");
+                continue;
+            }
+            try {
+                statuses.add(Annotation.Status.valueOf(dto.getStatus().toUpperCase()));
+            } catch (RuntimeException e) {
+                result.setError("Invalid status: " + dto.getStatus());
+                continue;
+            }
+            valid.add(dto);
+            validResults.add(result);
+        }
+
+        if (valid.isEmpty()) {
+            return results;
+        }
+
+        Timestamp createdAt = new Timestamp(System.currentTimeMillis());
+        List<Long> annotationIds = metrics.timeQuery("annotations", "insertAnnotations",
+                () -> annotationBatchRepo.insertAnnotations(valid, statuses, createdAt));
+        metrics.timeUpdate("annotations", "insertSmells", () -> annotationBatchRepo.insertSmells(annotationIds, valid));
+
+        Map<Long, Integer> deltaBySnippetId = new HashMap<>();
+        for (AnnotationRequestDTO dto : valid) {
+            deltaBySnippetId.merge(dto.getCodeSnippetId(), 1, Integer::sum);
+        }
+        metrics.timeUpdate("annotations", "incrementAnnotationCounts", () -> annotationBatchRepo.incrementAnnotationCounts(deltaBySnippetId));
+
+        for (int i = 0; i < valid.size(); i++) {
+            AnnotationResultDTO result = validResults.get(i);
+            result.setSuccess(true);
+            result.setAnnotationId(annotationIds.get(i));
+            eventPublisher.publishEvent(new AnnotationSavedEvent(valid.get(i).getCodeSnippetId(),
+                    valid.get(i).getAnnotator(), statuses.get(i).name(), smellTypes(valid.get(i)), createdAt.toInstant()));
+        }
+        return results;
+    }
+
+    private static List<String> smellTypes(AnnotationRequestDTO dto) {
+        if (dto.getAnnotations() == null) {
+            return List.of();
+        }
+        return dto.getAnnotations().stream().map(SmellAnnotationDTO::getSmellType).toList();
     }
 }
\ No newline at end of file
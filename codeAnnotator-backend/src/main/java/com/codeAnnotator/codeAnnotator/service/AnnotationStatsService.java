@@ -0,0 +1,231 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AgreementStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotatorStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetAgreementDTO;
+import com.codeAnnotator.codeAnnotator.entity.AgreementTotals;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.AnnotatorHourlyCount;
+import com.codeAnnotator.codeAnnotator.entity.AnnotatorStats;
+import com.codeAnnotator.codeAnnotator.entity.SnippetAgreement;
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationStatsRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Inter-annotator agreement and progress statistics, maintained incrementally in aggregate tables as
+ * annotations are saved, so reads never scan {@code annotation} or {@code smell_annotation}.
+ * <p>
+ * Agreement is Fleiss' kappa with each (snippet, smell type) pair as a present/absent item: every rating
+ * annotation (SUBMITTED or CLEAN) of the snippet counts as one rater, and it votes "present" if it flagged
+ * that smell type. Only types flagged by at least one rater become items. Snippets with fewer than two
+ * raters don't contribute.
+ */
+@Service
+public class AnnotationStatsService {
+
+    static final long HOUR_MS = 3_600_000L;
+
+    @Autowired
+    private AnnotationStatsRepository statsRepo;
+
+    @Value("${stats.agreement.stripes:16}")
+    private int stripes;
+
+    // Runs inside the annotation's transaction, so the aggregates commit or roll back with the annotation.
+    // The annotation count increment has already locked the snippet row, which serializes updates per snippet.
+    @EventListener
+    public void onAnnotationSaved(AnnotationSavedEvent event) {
+        Annotation.Status status = Annotation.Status.valueOf(event.status());
+        String annotator = annotatorKey(event.annotator());
+        Timestamp at = Timestamp.from(event.annotatedAt());
+
+        statsRepo.recordAnnotatorStatus(annotator, status, at);
+        statsRepo.incrementHourly(annotator, hourStart(at.getTime()));
+        if (isRating(status)) {
+            recordRating(event.codeSnippetId(), smellTypes(event.smellTypes()));
+        }
+    }
+
+    private void recordRating(Long snippetId, Set<String> smellTypes) {
+        SnippetAgreement before = statsRepo.findSnippetAgreement(snippetId)
+                .orElse(new SnippetAgreement(snippetId, 0, 0, 0, 0));
+        Map<String, Integer> votes = statsRepo.findVotes(snippetId, smellTypes);
+
+        SnippetAgreement after = new SnippetAgreement(snippetId, before.getRaters() + 1, before.getSmellTypes(),
+                before.getVoteSum(), before.getVoteSquareSum());
+        for (String type : smellTypes) {
+            int previous = votes.getOrDefault(type, 0);
+            if (previous == 0) {
+                after.setSmellTypes(after.getSmellTypes() + 1);
+            }
+            after.setVoteSum(after.getVoteSum() + 1);
+            after.setVoteSquareSum(after.getVoteSquareSum() + 2L * previous + 1);
+        }
+
+        if (!smellTypes.isEmpty()) {
+            statsRepo.incrementVotes(snippetId, smellTypes);
+        }
+        statsRepo.saveSnippetAgreement(after);
+
+        Contribution delta = Contribution.of(after).minus(Contribution.of(before));
+        if (!delta.isZero()) {
+            statsRepo.addToTotals(stripe(snippetId), delta.ratedSnippets(), delta.items(), delta.agreementSum(),
+                    delta.positiveVotes(), delta.itemRatings());
+        }
+    }
+
+    public AgreementStatsDTO agreement() {
+        return toAgreementDto(statsRepo.sumTotals());
+    }
+
+    public Optional<SnippetAgreementDTO> snippetAgreement(Long snippetId) {
+        return statsRepo.findSnippetAgreement(snippetId).map(agreement -> {
+            SnippetAgreementDTO dto = new SnippetAgreementDTO();
+            dto.setSnippetId(snippetId);
+            dto.setRaters(agreement.getRaters());
+            dto.setVotes(statsRepo.findAllVotes(snippetId));
+
+            Contribution contribution = Contribution.of(agreement);
+            if (contribution.items() > 0) {
+                double observed = contribution.agreementSum() / contribution.items();
+                dto.setObservedAgreement(observed);
+                // Chance agreement comes from the dataset-wide prevalence; a single snippet has too few items for its own.
+                Double expected = expectedAgreement(statsRepo.sumTotals());
+                dto.setKappa(kappa(observed, expected));
+            }
+            return dto;
+        });
+    }
+
+    public Optional<AnnotatorStatsDTO> annotatorStats(String annotator) {
+        return statsRepo.findAnnotatorStats(annotatorKey(annotator)).map(this::toAnnotatorDto);
+    }
+
+    public List<AnnotatorStatsDTO> allAnnotatorStats() {
+        return statsRepo.findAllAnnotatorStats().stream().map(this::toAnnotatorDto).toList();
+    }
+
+    public Map<String, Long> statusDistribution() {
+        return statsRepo.statusTotals();
+    }
+
+    private AnnotatorStatsDTO toAnnotatorDto(AnnotatorStats stats) {
+        AnnotatorStatsDTO dto = new AnnotatorStatsDTO();
+        dto.setAnnotator(stats.getAnnotator());
+        dto.setSubmitted(stats.getSubmitted());
+        dto.setSkipped(stats.getSkipped());
+        dto.setRejected(stats.getRejected());
+        dto.setClean(stats.getClean());
+        long total = stats.getSubmitted() + stats.getSkipped() + stats.getRejected() + stats.getClean();
+        dto.setTotal(total);
+
+        long currentHour = hourStart(System.currentTimeMillis()).getTime();
+        for (AnnotatorHourlyCount hour : statsRepo.findHourlyCounts(stats.getAnnotator(), new Timestamp(currentHour - 23 * HOUR_MS))) {
+            dto.setLast24Hours(dto.getLast24Hours() + hour.getAnnotations());
+            if (hour.getHourStart().getTime() == currentHour) {
+                dto.setLastHour(hour.getAnnotations());
+            }
+        }
+
+        if (stats.getFirstAnnotationAt() != null) {
+            dto.setFirstAnnotationAt(stats.getFirstAnnotationAt().toInstant());
+            dto.setLastAnnotationAt(stats.getLastAnnotationAt().toInstant());
+            long spanMs = stats.getLastAnnotationAt().getTime() - stats.getFirstAnnotationAt().getTime();
+            dto.setAveragePerHour(total / Math.max(1.0, (double) spanMs / HOUR_MS));
+        }
+        return dto;
+    }
+
+    static AgreementStatsDTO toAgreementDto(AgreementTotals totals) {
+        AgreementStatsDTO dto = new AgreementStatsDTO();
+        dto.setRatedSnippets(totals.getRatedSnippets());
+        dto.setItems(totals.getItems());
+        if (totals.getItems() > 0) {
+            double observed = totals.getAgreementSum() / totals.getItems();
+            Double expected = expectedAgreement(totals);
+            dto.setObservedAgreement(observed);
+            dto.setExpectedAgreement(expected);
+            dto.setFleissKappa(kappa(observed, expected));
+        }
+        return dto;
+    }
+
+    private static Double expectedAgreement(AgreementTotals totals) {
+        if (totals.getItemRatings() == 0) {
+            return null;
+        }
+        double present = (double) totals.getPositiveVotes() / totals.getItemRatings();
+        return present * present + (1 - present) * (1 - present);
+    }
+
+    private static Double kappa(double observed, Double expected) {
+        if (expected == null || expected >= 1.0) {
+            return null;
+        }
+        return (observed - expected) / (1 - expected);
+    }
+
+    int stripe(Long snippetId) {
+        return (int) Math.floorMod(snippetId, (long) stripes);
+    }
+
+    static boolean isRating(Annotation.Status status) {
+        return status == Annotation.Status.SUBMITTED || status == Annotation.Status.CLEAN;
+    }
+
+    static String annotatorKey(String annotator) {
+        return annotator == null || annotator.isBlank() ? SnippetLeaseService.ANONYMOUS : annotator;
+    }
+
+    static Set<String> smellTypes(Collection<String> raw) {
+        Set<String> types = new TreeSet<>();
+        if (raw != null) {
+            for (String type : raw) {
+                if (type != null && !type.isBlank()) {
+                    types.add(type.trim());
+                }
+            }
+        }
+        return types;
+    }
+
+    static Timestamp hourStart(long epochMillis) {
+        return new Timestamp(epochMillis - Math.floorMod(epochMillis, HOUR_MS));
+    }
+
+    /** What one snippet adds to the dataset-wide Fleiss sums. */
+    record Contribution(long ratedSnippets, long items, double agreementSum, long positiveVotes, long itemRatings) {
+
+        static Contribution of(SnippetAgreement a) {
+            long n = a.getRaters();
+            if (n < 2) {
+                return new Contribution(0, 0, 0, 0, 0);
+            }
+            long k = a.getSmellTypes();
+            // Sum over items of P_i = [n_k(n_k-1) + (n-n_k)(n-n_k-1)] / n(n-1), in terms of the running sums.
+            double agreementSum = (2.0 * a.getVoteSquareSum() - 2.0 * n * a.getVoteSum() + k * (n * n - n)) / (n * (n - 1));
+            return new Contribution(1, k, agreementSum, a.getVoteSum(), n * k);
+        }
+
+        Contribution plus(Contribution other) {
+            return new Contribution(ratedSnippets + other.ratedSnippets, items + other.items,
+                    agreementSum + other.agreementSum, positiveVotes + other.positiveVotes, itemRatings + other.itemRatings);
+        }
+
+        Contribution minus(Contribution other) {
+            return new Contribution(ratedSnippets - other.ratedSnippets, items - other.items,
+                    agreementSum - other.agreementSum, positiveVotes - other.positiveVotes, itemRatings - other.itemRatings);
+        }
+
+        boolean isZero() {
+            return ratedSnippets == 0 && items == 0 && agreementSum == 0 && positiveVotes == 0 && itemRatings == 0;
+        }
+    }
+}
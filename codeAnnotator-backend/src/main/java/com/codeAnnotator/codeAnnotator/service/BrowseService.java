@@ -0,0 +1,69 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationSummaryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.KeysetPageDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Function;
+
+/**
+ * Admin browsing of the corpus. Lists are keyset-paginated metadata; a snippet's code and an annotation's
+ * suggestions are only loaded when a single record is opened.
+ */
+@Service
+public class BrowseService {
+
+    @Autowired
+    private BrowseRepository browseRepo;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @Value("${browse.page.max-size:500}")
+    private int maxPageSize;
+
+    public KeysetPageDTO<SnippetSummaryDTO> snippets(SnippetBrowseFilterDTO filter, Long after, int limit) {
+        int size = pageSize(limit);
+        List<SnippetSummaryDTO> rows = metrics.timeQuery("browse", "findSnippets",
+                () -> browseRepo.findSnippets(filter, after == null ? 0 : after, size + 1));
+        return page(rows, size, SnippetSummaryDTO::getId);
+    }
+
+    public Optional<SnippetDetailDTO> snippet(long id) {
+        return metrics.timeQuery("browse", "findSnippet", () -> browseRepo.findSnippet(id));
+    }
+
+    public KeysetPageDTO<AnnotationSummaryDTO> annotations(AnnotationBrowseFilterDTO filter, Long after, int limit) {
+        int size = pageSize(limit);
+        List<AnnotationSummaryDTO> rows = metrics.timeQuery("browse", "findAnnotations",
+                () -> browseRepo.findAnnotations(filter, after == null ? 0 : after, size + 1));
+        return page(rows, size, AnnotationSummaryDTO::getId);
+    }
+
+    public Optional<AnnotationDetailDTO> annotation(long id) {
+        return metrics.timeQuery("browse", "findAnnotation", () -> browseRepo.findAnnotation(id));
+    }
+
+    private int pageSize(int limit) {
+        return Math.max(1, Math.min(limit, maxPageSize));
+    }
+
+    // One extra row is fetched to tell whether another page follows, without a count query.
+    private static <T> KeysetPageDTO<T> page(List<T> rows, int size, Function<T, Long> id) {
+        KeysetPageDTO<T> page = new KeysetPageDTO<>();
+        List<T> items = rows.size() > size ? rows.subList(0, size) : rows;
+        page.setItems(items);
+        page.setNextAfter(rows.size() > size ? id.apply(items.get(size - 1)) : null);
+        return page;
+    }
+}
@@ -0,0 +1,979 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import java.util.*;
+import java.util.function.ToIntFunction;
+
+/**
+ * Size and structure metrics for a code snippet, computed from a lexer and a block-structure walk rather
+ * than a full parser, so any snippet (a whole class, a lone method, a few statements) can be measured
+ * without compiling it.
+ * <p>
+ * Two block models are supported: brace-delimited languages (Java and the C family) and
+ * indentation-delimited Python. Comments and string contents never count towards any metric.
+ */
+public final class CodeMetrics {
+
+    public enum Syntax { BRACES, INDENTATION }
+
+    /**
+     * Metrics of one method. Accesses count {@code receiver.member} expressions and, in brace languages,
+     * unqualified calls: own accesses go to {@code this}/{@code self} or a field of the enclosing type,
+     * foreign ones to anything else (parameters, locals).
+     */
+    public record Method(String name, int loc, int complexity, int maxNesting, int params, int flagParams,
+                         int switchCases, int ownAccesses, int foreignAccesses, int topReceiverAccesses,
+                         boolean accessor, boolean constructor) {}
+
+    public record Type(String name, int loc, int fields, List<Method> methods) {
+
+        public int totalComplexity() {
+            return methods.stream().mapToInt(Method::complexity).sum();
+        }
+
+        public long accessors() {
+            return methods.stream().filter(Method::accessor).count();
+        }
+
+        /** Methods that are neither constructors nor accessors. */
+        public long behaviorMethods() {
+            return methods.stream().filter(m -> !m.accessor() && !m.constructor()).count();
+        }
+    }
+
+    /**
+     * @param methods every method of the snippet, including those of its types; a snippet without any
+     *                method declaration is measured as one method spanning its top-level statements
+     */
+    public record Metrics(int loc, int magicNumbers, List<Type> types, List<Method> methods) {
+
+        /** The largest type, or null for a snippet that declares none. */
+        public Type mainType() {
+            return types.stream().max(Comparator.comparingInt(Type::loc)).orElse(null);
+        }
+
+        public Method longestMethod() {
+            return methods.stream().max(Comparator.comparingInt(Method::loc)).orElse(null);
+        }
+
+        public int max(ToIntFunction<Method> metric) {
+            return methods.stream().mapToInt(metric).max().orElse(0);
+        }
+    }
+
+    private static final Set<String> BRACE_LANGUAGES = Set.of(
+            "java", "javascript", "js", "jsx", "typescript", "ts", "tsx", "c", "c++", "cpp", "c#", "csharp", "cs",
+            "go", "golang", "kotlin", "kt", "scala", "swift", "php", "dart", "groovy");
+    private static final Set<String> INDENTATION_LANGUAGES = Set.of("python", "python3", "py");
+
+    private static final Set<String> TYPE_KEYWORDS = Set.of("class", "interface", "enum", "record", "struct");
+    private static final Set<String> NOT_METHOD_NAMES = Set.of(
+            "if", "for", "while", "switch", "catch", "synchronized", "foreach", "using", "lock", "with", "when",
+            "return", "new", "else", "do", "try", "fixed", "unchecked", "throw", "await", "yield");
+    private static final Set<String> CONSTANT_MODIFIERS = Set.of("final", "const", "constexpr", "readonly");
+    private static final Set<String> BRACE_DECISIONS = Set.of("if", "for", "foreach", "while", "case", "catch", "&&", "||");
+    private static final Set<String> PYTHON_DECISIONS = Set.of("if", "elif", "for", "while", "except", "and", "or");
+    private static final Set<String> PYTHON_BLOCKS = Set.of(
+            "if", "elif", "else", "for", "while", "try", "except", "finally", "with", "match", "case");
+    private static final Set<String> CONSTRUCTOR_NAMES = Set.of("constructor", "__construct", "init", "__init__");
+    private static final Set<String> SELF = Set.of("this", "self", "super", "cls");
+    private static final Set<String> TWO_CHAR_OPERATORS = Set.of(
+            "&&", "||", "->", "=>", "==", "!=", "<=", ">=", "::", "?.", "++", "--", "+=", "-=", "*=", "/=");
+    private static final Set<String> NEUTRAL_NUMBERS = Set.of("0", "1", "2", "0.0", "1.0", "0.5", "2.0");
+
+    private CodeMetrics() {
+    }
+
+    /**
+     * Maps a snippet's {@code languages} value ("java", "Java, Kotlin", "[\"Python\"]", ...) to the block model
+     * of its first recognised language. Snippets without a language are measured as Java, which is also
+     * what the LLM prompt assumes.
+     *
+     * @return empty when none of the languages is supported
+     */
+    public static Optional<Syntax> syntaxOf(String languages) {
+        if (languages == null || languages.isBlank()) {
+            return Optional.of(Syntax.BRACES);
+        }
+        for (String language : languages.toLowerCase(Locale.ROOT).split("[\\s,;|/\\[\\]\"']+")) {
+            if (BRACE_LANGUAGES.contains(language)) {
+                return Optional.of(Syntax.BRACES);
+            }
+            if (INDENTATION_LANGUAGES.contains(language)) {
+                return Optional.of(Syntax.INDENTATION);
+            }
+        }
+        return Optional.empty();
+    }
+
+    public static Metrics measure(String code, Syntax syntax) {
+        Source source = lex(code == null ? "" : code, syntax);
+        return syntax == Syntax.BRACES ? new BraceWalker(source).walk() : new IndentationWalker(source).walk();
+    }
+
+    /**
+     * A named type or a method with a body. The lines cover its annotations, modifiers or decorators and end
+     * with its closing brace (last statement in Python); comments before it are not part of it.
+     *
+     * @param kind "class" for every type keyword, or "method"
+     */
+    public record Declaration(String kind, String name, int startLine, int endLine) {}
+
+    /**
+     * The declarations of a source file in order of their first line, enclosing ones first. Anonymous classes and
+     * functions are left out, and so are the members of anonymous classes.
+     */
+    public static List<Declaration> declarations(String code, Syntax syntax) {
+        Source source = lex(code == null ? "" : code, syntax);
+        List<TypeBuilder> types;
+        List<MethodBuilder> topLevel;
+        if (syntax == Syntax.BRACES) {
+            BraceWalker walker = new BraceWalker(source);
+            walker.walk();
+            types = walker.types;
+            topLevel = walker.topLevel;
+        } else {
+            IndentationWalker walker = new IndentationWalker(source);
+            walker.walk();
+            types = walker.types;
+            topLevel = walker.topLevel;
+        }
+
+        List<Declaration> declarations = new ArrayList<>();
+        for (TypeBuilder type : types) {
+            if (type.name.startsWith("<")) {
+                continue;
+            }
+            declarations.add(new Declaration("class", type.name, type.firstLine, type.endLine));
+            type.methods.stream().filter(m -> m.hasBody).forEach(m -> declarations.add(m.declaration()));
+        }
+        topLevel.stream().filter(m -> !m.name.startsWith("<")).forEach(m -> declarations.add(m.declaration()));
+        declarations.sort(Comparator.comparingInt(Declaration::startLine).thenComparing(d -> -d.endLine()));
+        return declarations;
+    }
+
+    /**
+     * Block depth at the start of every line (index 1..lines), for finding places where code can be split:
+     * brace plus bracket depth in brace languages, indentation width in Python (lines inside brackets rank
+     * below every real indentation). Lines where no token starts, i.e. blank, comment and string continuation
+     * lines, are -1.
+     */
+    static int[] lineDepths(String code, Syntax syntax) {
+        Source source = lex(code, syntax);
+        int[] depths = new int[source.lastLine() + 1];
+        Arrays.fill(depths, -1);
+        int depth = 0;
+        int previousLine = 0;
+        for (Token token : source.tokens()) {
+            if (token.line() != previousLine) {
+                previousLine = token.line();
+                int indent = source.indent()[token.line()];
+                depths[token.line()] = syntax == Syntax.BRACES ? depth : depth > 0 ? PYTHON_CONTINUATION + indent : indent;
+            }
+            if (token.is("(") || token.is("[") || token.is("{")) {
+                depth++;
+            } else if (token.is(")") || token.is("]") || token.is("}")) {
+                depth = Math.max(0, depth - 1);
+            }
+        }
+        return depths;
+    }
+
+    private static final int PYTHON_CONTINUATION = 100_000;
+
+    // ---------------------------------------------------------------------------------------------- lexer
+
+    enum Kind { IDENT, NUMBER, STRING, OP }
+
+    record Token(Kind kind, String text, int line) {
+
+        boolean is(String s) {
+            return kind != Kind.STRING && text.equals(s);
+        }
+    }
+
+    /** Tokens plus per-line layout: indentation of the first token and a running count of lines holding code. */
+    record Source(List<Token> tokens, int[] indent, int[] codeLinesUpTo) {
+
+        int loc(int fromLine, int toLine) {
+            int last = codeLinesUpTo.length - 1;
+            return codeLinesUpTo[Math.min(toLine, last)] - codeLinesUpTo[Math.max(fromLine, 1) - 1];
+        }
+
+        int lastLine() {
+            return codeLinesUpTo.length - 1;
+        }
+    }
+
+    static Source lex(String code, Syntax syntax) {
+        int n = code.length();
+        int lines = 1;
+        for (int i = 0; i < n; i++) {
+            if (code.charAt(i) == '\n') {
+                lines++;
+            }
+        }
+        int[] indent = new int[lines + 1];
+        Arrays.fill(indent, -1);
+        boolean[] hasCode = new boolean[lines + 1];
+        List<Token> tokens = new ArrayList<>(n / 4);
+
+        int line = 1;
+        int lineStart = 0;
+        int i = 0;
+        while (i < n) {
+            char c = code.charAt(i);
+            if (c == '\n') {
+                line++;
+                lineStart = ++i;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+
+            boolean firstOnLine = indent[line] < 0;
+            if (syntax == Syntax.BRACES && c == '/' && i + 1 < n && code.charAt(i + 1) == '/'
+                    || c == '#' && (syntax == Syntax.INDENTATION || firstOnLine)) {
+                while (i < n && code.charAt(i) != '\n') {
+                    i++;
+                }
+                continue;
+            }
+            if (syntax == Syntax.BRACES && c == '/' && i + 1 < n && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                end = end < 0 ? n : end + 2;
+                for (int k = i; k < end; k++) {
+                    if (code.charAt(k) == '\n') {
+                        line++;
+                        lineStart = k + 1;
+                    }
+                }
+                i = end;
+                continue;
+            }
+
+            if (firstOnLine) {
+                indent[line] = width(code, lineStart, i);
+            }
+            int start = i;
+            int startLine = line;
+            Kind kind;
+            if (c == '"' || c == '\'' || c == '`') {
+                kind = Kind.STRING;
+                String triple = String.valueOf(c).repeat(3);
+                if (c != '`' && code.startsWith(triple, i)) {
+                    int end = code.indexOf(triple, i + 3);
+                    i = end < 0 ? n : end + 3;
+                } else {
+                    int j = i + 1;
+                    while (j < n && code.charAt(j) != c && (c == '`' || code.charAt(j) != '\n')) {
+                        j += code.charAt(j) == '\\' ? 2 : 1;
+                    }
+                    i = Math.min(n, j + 1);
+                }
+                for (int k = start; k < i; k++) {
+                    if (code.charAt(k) == '\n') {
+                        line++;
+                        lineStart = k + 1;
+                        hasCode[line] = true;
+                    }
+                }
+            } else if (Character.isJavaIdentifierStart(c)) {
+                kind = Kind.IDENT;
+                while (i < n && Character.isJavaIdentifierPart(code.charAt(i))) {
+                    i++;
+                }
+            } else if (Character.isDigit(c) || c == '.' && i + 1 < n && Character.isDigit(code.charAt(i + 1))) {
+                kind = Kind.NUMBER;
+                i = endOfNumber(code, i);
+            } else {
+                kind = Kind.OP;
+                i += i + 1 < n && TWO_CHAR_OPERATORS.contains(code.substring(i, i + 2)) ? 2 : 1;
+            }
+            hasCode[startLine] = true;
+            tokens.add(new Token(kind, kind == Kind.STRING ? "\"\"" : code.substring(start, i), startLine));
+        }
+
+        int[] codeLinesUpTo = new int[lines + 1];
+        for (int l = 1; l <= lines; l++) {
+            codeLinesUpTo[l] = codeLinesUpTo[l - 1] + (hasCode[l] ? 1 : 0);
+        }
+        return new Source(tokens, indent, codeLinesUpTo);
+    }
+
+    private static int width(String code, int from, int to) {
+        int width = 0;
+        for (int k = from; k < to; k++) {
+            width += code.charAt(k) == '\t' ? 4 : 1;
+        }
+        return width;
+    }
+
+    private static int endOfNumber(String code, int i) {
+        int n = code.length();
+        boolean hex = code.startsWith("0x", i) || code.startsWith("0X", i);
+        while (i < n) {
+            char c = code.charAt(i);
+            char prev = code.charAt(i - 1);
+            if (Character.isLetterOrDigit(c) || c == '_'
+                    || c == '.' && i + 1 < n && Character.isDigit(code.charAt(i + 1))
+                    || (c == '+' || c == '-') && !hex && (prev == 'e' || prev == 'E')) {
+                i++;
+            } else {
+                break;
+            }
+        }
+        return i;
+    }
+
+    static boolean isMagic(String number) {
+        String normalized = number.replace("_", "").toLowerCase(Locale.ROOT);
+        if (!normalized.startsWith("0x")) {
+            normalized = normalized.replaceAll("[lfdmun]+$", "");
+        }
+        return !NEUTRAL_NUMBERS.contains(normalized);
+    }
+
+    // ----------------------------------------------------------------------------------- shared builders
+
+    private static final class MethodBuilder {
+        final String name;
+        final int startLine;
+        int firstLine;
+        int endLine;
+        boolean hasBody = true;
+        int complexity = 1;
+        int maxNesting;
+        int params;
+        int flagParams;
+        int switchCases;
+        int own;
+        final Map<String, Integer> receivers = new HashMap<>();
+        boolean constructor;
+        boolean property;
+
+        MethodBuilder(String name, int startLine) {
+            this.name = name;
+            this.startLine = startLine;
+            this.firstLine = startLine;
+            this.endLine = startLine;
+        }
+
+        Declaration declaration() {
+            return new Declaration("method", name, firstLine, endLine);
+        }
+
+        void nest(int depth) {
+            maxNesting = Math.max(maxNesting, depth);
+        }
+
+        Method build(Source source, Set<String> fields, int maxAccessorLoc) {
+            int loc = source.loc(startLine, endLine);
+            int ownAccesses = own;
+            int foreign = 0;
+            int top = 0;
+            for (Map.Entry<String, Integer> receiver : receivers.entrySet()) {
+                if (fields.contains(receiver.getKey())) {
+                    ownAccesses += receiver.getValue();
+                } else {
+                    foreign += receiver.getValue();
+                    top = Math.max(top, receiver.getValue());
+                }
+            }
+            boolean accessor = !constructor && complexity == 1 && loc <= maxAccessorLoc
+                    && (property || name.matches("(get|is|has|set)([A-Z_].*)?") && name.length() > 3);
+            return new Method(name, loc, complexity, maxNesting, params, flagParams, switchCases,
+                    ownAccesses, foreign, top, accessor, constructor);
+        }
+    }
+
+    private static final class TypeBuilder {
+        final String name;
+        final String keyword;
+        final int startLine;
+        int firstLine;
+        int endLine;
+        final Set<String> fields = new LinkedHashSet<>();
+        final List<MethodBuilder> methods = new ArrayList<>();
+        boolean awaitingEnumConstants;
+
+        TypeBuilder(String name, String keyword, int startLine) {
+            this.name = name;
+            this.keyword = keyword;
+            this.startLine = startLine;
+            this.firstLine = startLine;
+            this.endLine = startLine;
+            this.awaitingEnumConstants = "enum".equals(keyword);
+        }
+
+        Type build(Source source, int maxAccessorLoc) {
+            List<Method> built = methods.stream().map(m -> m.build(source, fields, maxAccessorLoc)).toList();
+            return new Type(name, source.loc(startLine, endLine), fields.size(), built);
+        }
+    }
+
+    private enum FrameKind { ROOT, TYPE, METHOD, BLOCK, INITIALIZER }
+
+    /** One open block; {@code type} and {@code method} are the innermost enclosing ones (or its own). */
+    private record Frame(FrameKind kind, int indent, TypeBuilder type, MethodBuilder method, int nesting) {}
+
+    private static Metrics result(Source source, List<TypeBuilder> types, List<MethodBuilder> topLevel,
+                                  MethodBuilder root, int magicNumbers, int maxAccessorLoc) {
+        List<Type> builtTypes = types.stream().map(t -> t.build(source, maxAccessorLoc)).toList();
+        List<Method> methods = new ArrayList<>();
+        builtTypes.forEach(t -> methods.addAll(t.methods()));
+        topLevel.forEach(m -> methods.add(m.build(source, Set.of(), maxAccessorLoc)));
+        if (methods.isEmpty() && builtTypes.isEmpty() && !source.tokens().isEmpty()) {
+            root.endLine = source.lastLine();
+            methods.add(root.build(source, Set.of(), maxAccessorLoc));
+        }
+        return new Metrics(source.loc(1, source.lastLine()), magicNumbers, builtTypes, methods);
+    }
+
+    private static int matchOpen(List<Token> t, int close) {
+        int depth = 0;
+        for (int k = close; k >= 0; k--) {
+            if (t.get(k).is(")")) {
+                depth++;
+            } else if (t.get(k).is("(") && --depth == 0) {
+                return k;
+            }
+        }
+        return -1;
+    }
+
+    private static int matchClose(List<Token> t, int open) {
+        int depth = 0;
+        for (int k = open; k < t.size(); k++) {
+            if (t.get(k).is("(")) {
+                depth++;
+            } else if (t.get(k).is(")") && --depth == 0) {
+                return k;
+            }
+        }
+        return t.size() - 1;
+    }
+
+    /** Parameter count and boolean-flag parameter count of the list between {@code open} and its ')'. */
+    private static int[] parameters(List<Token> t, int open, Set<String> ignored) {
+        int close = matchClose(t, open);
+        int params = 0;
+        int flags = 0;
+        int depth = 0;
+        boolean segmentHasName = false;
+        boolean segmentIsFlag = false;
+        for (int k = open + 1; k <= close; k++) {
+            Token s = t.get(k);
+            boolean end = k == close || depth == 0 && s.is(",");
+            if (end) {
+                if (segmentHasName) {
+                    params++;
+                    flags += segmentIsFlag ? 1 : 0;
+                }
+                segmentHasName = false;
+                segmentIsFlag = false;
+            } else if (s.is("(") || s.is("[") || s.is("<") || s.is("{")) {
+                depth++;
+            } else if (s.is(")") || s.is("]") || s.is(">") || s.is("}")) {
+                depth--;
+            } else if (s.kind() == Kind.IDENT) {
+                if (!ignored.contains(s.text())) {
+                    segmentHasName = true;
+                }
+                if (s.text().equalsIgnoreCase("boolean") || s.is("bool") || s.is("True") || s.is("False")) {
+                    segmentIsFlag = true;
+                }
+            }
+        }
+        return new int[]{params, flags};
+    }
+
+    private static boolean startsLowercase(String name) {
+        return Character.isLowerCase(name.charAt(0)) || name.charAt(0) == '_';
+    }
+
+    // ------------------------------------------------------------------------------------ brace languages
+
+    private static final class BraceWalker {
+        private final Source source;
+        private final List<Token> t;
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private final List<TypeBuilder> types = new ArrayList<>();
+        private final List<MethodBuilder> topLevel = new ArrayList<>();
+        private final MethodBuilder root = new MethodBuilder("<snippet>", 1);
+
+        private int magicNumbers;
+        private int statementStart;
+        private boolean constantStatement;
+        private String pendingTypeName;
+        private String pendingTypeKeyword;
+        private int pendingTypeIndex;
+
+        BraceWalker(Source source) {
+            this.source = source;
+            this.t = source.tokens();
+            frames.push(new Frame(FrameKind.ROOT, -1, null, root, 0));
+        }
+
+        Metrics walk() {
+            for (int i = 0; i < t.size(); i++) {
+                Token token = t.get(i);
+                Frame frame = frames.peek();
+
+                if (token.is("@") && i + 1 < t.size() && t.get(i + 1).kind() == Kind.IDENT && !t.get(i + 1).is("interface")) {
+                    i = skipAnnotation(i);
+                    continue;
+                }
+                if (token.is("{")) {
+                    open(i, frame);
+                    continue;
+                }
+                if (token.is("}")) {
+                    close(i);
+                    continue;
+                }
+                if (token.is(";")) {
+                    if (frame.kind() == FrameKind.TYPE) {
+                        typeStatement(statementStart, i, frame.type());
+                    }
+                    pendingTypeName = null;
+                    resetStatement(i + 1);
+                    continue;
+                }
+
+                if (token.kind() == Kind.NUMBER) {
+                    if (!constantStatement && isMagic(token.text())) {
+                        magicNumbers++;
+                    }
+                    continue;
+                }
+                if (token.kind() == Kind.IDENT) {
+                    if (CONSTANT_MODIFIERS.contains(token.text())) {
+                        constantStatement = true;
+                    } else if (TYPE_KEYWORDS.contains(token.text()) && i + 1 < t.size()
+                            && t.get(i + 1).kind() == Kind.IDENT && (i == 0 || !t.get(i - 1).is("."))) {
+                        pendingTypeKeyword = token.text();
+                        pendingTypeName = t.get(i + 1).text();
+                        pendingTypeIndex = i;
+                    }
+                }
+                if (frame.method() != null && frame.kind() != FrameKind.TYPE) {
+                    measureInMethod(i, token, frame.method());
+                }
+            }
+            while (frames.size() > 1) {
+                close(t.size() - 1);
+            }
+            return result(source, types, topLevel, root, magicNumbers, 4);
+        }
+
+        private void measureInMethod(int i, Token token, MethodBuilder method) {
+            String text = token.text();
+            if (token.kind() == Kind.STRING || token.kind() == Kind.NUMBER) {
+                return;
+            }
+            if (BRACE_DECISIONS.contains(text) || token.is("?") && isTernary(i)) {
+                method.complexity++;
+                if (token.is("case")) {
+                    method.switchCases++;
+                }
+                return;
+            }
+            if (token.kind() != Kind.IDENT || i + 1 >= t.size()) {
+                return;
+            }
+            Token previous = i > 0 ? t.get(i - 1) : null;
+            boolean qualified = previous != null && (previous.is(".") || previous.is("?.") || previous.is("::") || previous.is("->"));
+            if (qualified) {
+                return;
+            }
+            Token next = t.get(i + 1);
+            if ((next.is(".") || next.is("?.")) && i + 2 < t.size() && t.get(i + 2).kind() == Kind.IDENT) {
+                if (SELF.contains(text)) {
+                    method.own++;
+                } else if (startsLowercase(text)) {
+                    method.receivers.merge(text, 1, Integer::sum);
+                }
+            } else if (next.is("(") && !NOT_METHOD_NAMES.contains(text)
+                    && (previous == null || previous.kind() != Kind.IDENT || NOT_METHOD_NAMES.contains(previous.text()))) {
+                method.own++;
+            }
+        }
+
+        private boolean isTernary(int i) {
+            Token previous = i > 0 ? t.get(i - 1) : null;
+            Token next = i + 1 < t.size() ? t.get(i + 1) : null;
+            return (previous == null || !previous.is("<") && !previous.is(","))
+                    && (next == null || !next.is(">") && !next.is(",") && !next.is("extends") && !next.is("super"));
+        }
+
+        private void open(int brace, Frame parent) {
+            Token token = t.get(brace);
+            Token previous = brace > 0 ? t.get(brace - 1) : null;
+
+            if (pendingTypeName != null) {
+                TypeBuilder type = new TypeBuilder(pendingTypeName, pendingTypeKeyword, t.get(pendingTypeIndex).line());
+                type.firstLine = t.get(Math.min(statementStart, pendingTypeIndex)).line();
+                if ("record".equals(pendingTypeKeyword) && pendingTypeIndex + 2 < brace && t.get(pendingTypeIndex + 2).is("(")) {
+                    addRecordComponents(type, pendingTypeIndex + 2);
+                }
+                types.add(type);
+                frames.push(new Frame(FrameKind.TYPE, -1, type, null, 0));
+                pendingTypeName = null;
+                resetStatement(brace + 1);
+                return;
+            }
+            if (previous != null && previous.is(")")) {
+                int open = matchOpen(t, brace - 1);
+                if (open >= 2 && t.get(open - 2).is("new") && t.get(open - 1).kind() == Kind.IDENT) {
+                    TypeBuilder anonymous = new TypeBuilder("<anonymous " + t.get(open - 1).text() + ">", "class", token.line());
+                    types.add(anonymous);
+                    frames.push(new Frame(FrameKind.TYPE, -1, anonymous, null, 0));
+                    resetStatement(brace + 1);
+                    return;
+                }
+            }
+            if (parent.kind() == FrameKind.INITIALIZER || previous == null || previous.is("=") || previous.is(",")
+                    || previous.is("[") || previous.is("]") || previous.is("(") || previous.is("{") || previous.is("return")) {
+                frames.push(new Frame(FrameKind.INITIALIZER, -1, parent.type(), parent.method(), parent.nesting()));
+                return;
+            }
+            if (parent.kind() == FrameKind.TYPE || parent.kind() == FrameKind.ROOT) {
+                int name = methodName(brace);
+                if (name >= 0) {
+                    Token nameToken = t.get(name);
+                    MethodBuilder method = new MethodBuilder(nameToken.is("function") ? "<anonymous>" : nameToken.text(), nameToken.line());
+                    method.firstLine = t.get(Math.min(statementStart, name)).line();
+                    int[] params = parameters(t, name + 1, Set.of());
+                    method.params = params[0];
+                    method.flagParams = params[1];
+                    method.constructor = parent.type() != null && nameToken.text().equals(parent.type().name)
+                            || CONSTRUCTOR_NAMES.contains(nameToken.text());
+                    if (parent.kind() == FrameKind.TYPE) {
+                        parent.type().methods.add(method);
+                    } else {
+                        topLevel.add(method);
+                    }
+                    frames.push(new Frame(FrameKind.METHOD, -1, parent.type(), method, 0));
+                    resetStatement(brace + 1);
+                    return;
+                }
+            }
+            int nesting = parent.nesting() + 1;
+            if (parent.method() != null && parent.kind() != FrameKind.TYPE) {
+                parent.method().nest(nesting);
+            }
+            frames.push(new Frame(FrameKind.BLOCK, -1, parent.type(), parent.method(), nesting));
+            resetStatement(brace + 1);
+        }
+
+        private void close(int brace) {
+            if (frames.size() == 1) {
+                return;
+            }
+            Frame closed = frames.pop();
+            int line = t.get(brace).line();
+            switch (closed.kind()) {
+                case METHOD -> closed.method().endLine = line;
+                case TYPE -> closed.type().endLine = line;
+                default -> {
+                }
+            }
+            if (closed.kind() != FrameKind.INITIALIZER) {
+                resetStatement(brace + 1);
+            }
+        }
+
+        private void resetStatement(int next) {
+            statementStart = next;
+            constantStatement = false;
+        }
+
+        /**
+         * Finds the name of a method whose body opens at {@code brace}: {@code name(params) {}, optionally with a
+         * throws clause or return type annotation between ')' and '{'. Returns -1 when the brace opens anything else.
+         */
+        private int methodName(int brace) {
+            int j = brace - 1;
+            int skipped = 0;
+            while (j >= 0 && !t.get(j).is(")")) {
+                Token s = t.get(j);
+                if (s.kind() == Kind.OP && !(s.is(",") || s.is(".") || s.is(":") || s.is("<") || s.is(">")
+                        || s.is("?") || s.is("[") || s.is("]") || s.is("*") || s.is("&"))
+                        || s.kind() != Kind.OP && s.kind() != Kind.IDENT || ++skipped > 12) {
+                    return -1;
+                }
+                j--;
+            }
+            if (j < 0) {
+                return -1;
+            }
+            int open = matchOpen(t, j);
+            if (open > 0 && t.get(open - 1).is(")")) {
+                // Go: func (r T) name(args) (results) {
+                open = matchOpen(t, open - 1);
+            }
+            if (open <= 0) {
+                return -1;
+            }
+            Token name = t.get(open - 1);
+            if (name.kind() != Kind.IDENT || NOT_METHOD_NAMES.contains(name.text()) || open >= 2 && t.get(open - 2).is("new")) {
+                return -1;
+            }
+            return open - 1;
+        }
+
+        private void addRecordComponents(TypeBuilder type, int open) {
+            int close = matchClose(t, open);
+            for (int k = open + 1; k <= close; k++) {
+                if ((t.get(k).is(",") || k == close) && t.get(k - 1).kind() == Kind.IDENT) {
+                    type.fields.add(t.get(k - 1).text());
+                }
+            }
+        }
+
+        /** A statement directly in a type body: a field declaration, or a method declaration without a body. */
+        private void typeStatement(int from, int to, TypeBuilder type) {
+            if (type.awaitingEnumConstants) {
+                type.awaitingEnumConstants = false;
+                return;
+            }
+            int depth = 0;
+            int angle = 0;
+            boolean declaring = true;
+            String last = null;
+            for (int k = from; k <= to; k++) {
+                Token s = t.get(k);
+                if (s.is("@") && k + 1 < to && t.get(k + 1).kind() == Kind.IDENT) {
+                    k = skipAnnotation(k);
+                    continue;
+                }
+                if (s.is("(") || s.is("[") || s.is("{")) {
+                    if (declaring && depth == 0 && angle == 0 && s.is("(") && last != null) {
+                        MethodBuilder method = new MethodBuilder(last, s.line());
+                        method.hasBody = false;
+                        int[] params = parameters(t, k, Set.of());
+                        method.params = params[0];
+                        method.flagParams = params[1];
+                        type.methods.add(method);
+                        return;
+                    }
+                    depth++;
+                } else if (s.is(")") || s.is("]") || s.is("}")) {
+                    depth--;
+                } else if (depth == 0) {
+                    if (declaring && s.is("<")) {
+                        angle++;
+                    } else if (declaring && s.is(">")) {
+                        angle--;
+                    } else if (angle == 0 && (s.is("=") || s.is(",") || s.is(";"))) {
+                        if (declaring && last != null) {
+                            type.fields.add(last);
+                        }
+                        declaring = !s.is("=");
+                        last = null;
+                    } else if (declaring && angle == 0 && s.kind() == Kind.IDENT) {
+                        last = s.text();
+                    }
+                }
+            }
+        }
+
+        private int skipAnnotation(int at) {
+            int k = at + 1;
+            while (k + 2 < t.size() && t.get(k + 1).is(".") && t.get(k + 2).kind() == Kind.IDENT) {
+                k += 2;
+            }
+            if (k + 1 < t.size() && t.get(k + 1).is("(")) {
+                k = matchClose(t, k + 1);
+            }
+            return k;
+        }
+    }
+
+    // ---------------------------------------------------------------------------------------------- Python
+
+    private static final class IndentationWalker {
+        private final Source source;
+        private final List<Token> t;
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        private final List<TypeBuilder> types = new ArrayList<>();
+        private final List<MethodBuilder> topLevel = new ArrayList<>();
+        private final MethodBuilder root = new MethodBuilder("<snippet>", 1);
+        private final Set<String> imported = new HashSet<>();
+        private final List<String> decorators = new ArrayList<>();
+        private int magicNumbers;
+        private int previousEndLine;
+        private int decoratorLine;
+
+        IndentationWalker(Source source) {
+            this.source = source;
+            this.t = source.tokens();
+            frames.push(new Frame(FrameKind.ROOT, -1, null, root, 0));
+        }
+
+        Metrics walk() {
+            int depth = 0;
+            int from = 0;
+            for (int k = 0; k < t.size(); k++) {
+                Token s = t.get(k);
+                if (s.is("(") || s.is("[") || s.is("{")) {
+                    depth++;
+                } else if (s.is(")") || s.is("]") || s.is("}")) {
+                    depth = Math.max(0, depth - 1);
+                }
+                boolean lastOnLine = k + 1 == t.size() || t.get(k + 1).line() != s.line();
+                if (lastOnLine && depth == 0 && !s.is("\\")) {
+                    logicalLine(from, k + 1);
+                    from = k + 1;
+                }
+            }
+            if (from < t.size()) {
+                logicalLine(from, t.size());
+            }
+            while (frames.size() > 1) {
+                pop();
+            }
+            return result(source, types, topLevel, root, magicNumbers, 3);
+        }
+
+        private void logicalLine(int from, int to) {
+            Token first = t.get(from);
+            int indent = Math.max(0, source.indent()[first.line()]);
+            while (frames.peek().indent() >= indent) {
+                pop();
+            }
+            previousEndLine = t.get(to - 1).line();
+            Frame frame = frames.peek();
+
+            if (first.is("@")) {
+                if (decorators.isEmpty()) {
+                    decoratorLine = first.line();
+                }
+                for (int k = from + 1; k < to && !t.get(k).is("("); k++) {
+                    if (t.get(k).kind() == Kind.IDENT) {
+                        decorators.add(t.get(k).text());
+                    }
+                }
+                return;
+            }
+            if (first.is("import") || first.is("from")) {
+                recordImports(from, to);
+                return;
+            }
+
+            int k = first.is("async") ? from + 1 : from;
+            boolean opensBlock = t.get(to - 1).is(":");
+            if (k + 1 < to && t.get(k).is("class") && t.get(k + 1).kind() == Kind.IDENT && frame.kind() != FrameKind.METHOD) {
+                TypeBuilder type = new TypeBuilder(t.get(k + 1).text(), "class", first.line());
+                type.firstLine = decorators.isEmpty() ? first.line() : decoratorLine;
+                types.add(type);
+                frames.push(new Frame(FrameKind.TYPE, indent, type, null, 0));
+                decorators.clear();
+                return;
+            }
+            if (k + 2 < to && t.get(k).is("def") && t.get(k + 1).kind() == Kind.IDENT && t.get(k + 2).is("(")
+                    && frame.kind() != FrameKind.METHOD && frame.kind() != FrameKind.BLOCK) {
+                openMethod(frame, indent, k, to);
+                return;
+            }
+            decorators.clear();
+
+            MethodBuilder method = frame.kind() == FrameKind.TYPE ? null : frame.method();
+            if (frame.kind() == FrameKind.TYPE && first.kind() == Kind.IDENT && from + 1 < to
+                    && (t.get(from + 1).is("=") || t.get(from + 1).is(":"))) {
+                frame.type().fields.add(first.text());
+            }
+            boolean constant = first.kind() == Kind.IDENT && from + 1 < to && t.get(from + 1).is("=")
+                    && first.text().equals(first.text().toUpperCase(Locale.ROOT));
+            for (int i = from; i < to; i++) {
+                measure(i, to, t.get(i), frame, method, constant, opensBlock && i == from);
+            }
+
+            if (opensBlock && PYTHON_BLOCKS.contains(first.text())) {
+                int nesting = frame.nesting() + 1;
+                if (method != null) {
+                    method.nest(nesting);
+                }
+                frames.push(new Frame(FrameKind.BLOCK, indent, frame.type(), frame.method(), nesting));
+            }
+        }
+
+        private void measure(int i, int to, Token token, Frame frame, MethodBuilder method, boolean constant, boolean blockHead) {
+            if (token.kind() == Kind.NUMBER) {
+                if (!constant && isMagic(token.text())) {
+                    magicNumbers++;
+                }
+                return;
+            }
+            if (method == null || token.kind() != Kind.IDENT) {
+                return;
+            }
+            if (PYTHON_DECISIONS.contains(token.text()) || token.is("case") && blockHead) {
+                method.complexity++;
+                if (token.is("case")) {
+                    method.switchCases++;
+                }
+                return;
+            }
+            boolean qualified = i > 0 && t.get(i - 1).is(".");
+            if (qualified || i + 2 >= to || !t.get(i + 1).is(".") || t.get(i + 2).kind() != Kind.IDENT) {
+                return;
+            }
+            if (SELF.contains(token.text())) {
+                method.own++;
+                if (i + 3 < to && t.get(i + 3).is("=") && frame.type() != null) {
+                    frame.type().fields.add(t.get(i + 2).text());
+                }
+            } else if (startsLowercase(token.text()) && !imported.contains(token.text())) {
+                method.receivers.merge(token.text(), 1, Integer::sum);
+            }
+        }
+
+        private void openMethod(Frame parent, int indent, int def, int to) {
+            Token name = t.get(def + 1);
+            MethodBuilder method = new MethodBuilder(name.text(), t.get(def).line());
+            int[] params = parameters(t, def + 2, SELF);
+            method.params = params[0];
+            method.flagParams = params[1];
+            method.constructor = CONSTRUCTOR_NAMES.contains(name.text());
+            method.firstLine = decorators.isEmpty() ? method.startLine : decoratorLine;
+            method.property = decorators.stream().anyMatch(d -> d.equals("property") || d.equals("setter"));
+            decorators.clear();
+            for (int k = def + 2; k < to; k++) {
+                if (t.get(k).kind() == Kind.NUMBER && isMagic(t.get(k).text())) {
+                    magicNumbers++;
+                }
+            }
+            if (parent.kind() == FrameKind.TYPE) {
+                parent.type().methods.add(method);
+            } else {
+                topLevel.add(method);
+            }
+            frames.push(new Frame(FrameKind.METHOD, indent, parent.type(), method, 0));
+        }
+
+        private void pop() {
+            Frame closed = frames.pop();
+            if (closed.kind() == FrameKind.METHOD) {
+                closed.method().endLine = previousEndLine;
+            } else if (closed.kind() == FrameKind.TYPE) {
+                closed.type().endLine = previousEndLine;
+            }
+        }
+
+        private void recordImports(int from, int to) {
+            boolean names = t.get(from).is("import");
+            for (int k = from + 1; k < to; k++) {
+                Token s = t.get(k);
+                if (s.is("import")) {
+                    names = true;
+                } else if (names && s.kind() == Kind.IDENT && !s.is("as")
+                        && (k + 1 >= to || !t.get(k + 1).is("as")) && !t.get(k - 1).is(".")) {
+                    imported.add(s.text());
+                }
+            }
+        }
+    }
+}
@@ -4,102 +4,92 @@ import com.codeAnnotator.codeAnnotator.DTO.CodeSnippetResponseDTO;
 import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
 import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
 import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
-import com.opencsv.CSVReader;
-import com.opencsv.exceptions.CsvValidationException;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
-import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 @Service
 @RequiredArgsConstructor
 public class CodeSnippetService {
 
+    public static final String ANALYSIS_UNAVAILABLE = "AI analysis unavailable";
 
     @Autowired
     private CodeSnippetRepository codeSnippetRepo;
 
-    public void uploadCSV(MultipartFile file, CodeSnippet.CodeType type) throws Exception {
-        try (
-                BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()));
-                CSVReader csvReader = new CSVReader(reader)
-        ) {
-            String[] headers = csvReader.readNext(); // skip header row
-            String[] tokens;
-
-            while ((tokens = csvReader.readNext()) != null) {
-                if (tokens.length < 10) {
-                    System.out.println("Skipping invalid row: " + String.join(" | ", tokens));
-                    continue;
-                }
-
-                CodeSnippet snippet = new CodeSnippet();
-                snippet.setCodeType(tokens[0]);
-                snippet.setCodeName(tokens[1].isBlank() ? null : tokens[1]);
-                snippet.setRepository(tokens[2]);
-                snippet.setCommitHash(tokens[3]);
-                snippet.setPath(tokens[4]);
-                snippet.setStartLine(Integer.parseInt(tokens[5]));
-                snippet.setEndLine(Integer.parseInt(tokens[6]));
-                snippet.setLink(tokens[7]);
-                snippet.setCode(tokens[8]);
-                snippet.setLanguages(tokens[9]);
-                snippet.setType(type);
-
-                codeSnippetRepo.save(snippet);
-            }
-        } catch (CsvValidationException e) {
-            throw new RuntimeException("CSV parsing failed: " + e.getMessage());
+    @Autowired
+    private AnalysisRouter analysisRouter;
+
+    @Autowired
+    private SnippetLeaseService leaseService;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    /**
+     * Database half of serving the next snippet; {@link #withAiSuggestions(CodeSnippet)} is the LLM half, so
+     * callers can run the two on separate pools. The returned snippet is leased to the annotator so concurrent callers receive different snippets.
+     */
+    public Optional<CodeSnippet> findNextSnippet(String annotator) {
+        return metrics.timeQuery("snippets", "claimNext", () -> leaseService.claimNext(annotator, null))
+                .flatMap(this::findById);
+    }
+
+    public Optional<CodeSnippet> findNextSnippetExcluding(Long currentId, String annotator) {
+        return metrics.timeQuery("snippets", "claimNext", () -> leaseService.claimNext(annotator, currentId))
+                .flatMap(this::findById);
+    }
+
+    private Optional<CodeSnippet> findById(Long id) {
+        return metrics.timeQuery("snippets", "findById", () -> codeSnippetRepo.findById(id));
+    }
+
+    public CodeSnippetResponseDTO withAiSuggestions(CodeSnippet snippet) {
+        // Convert snippet to DTO
+        CodeSnippetResponseDTO dto = toDto(snippet);
+
+        // Analyze locally or with OpenAI (or reuse a cached analysis) and attach suggestions
+        Optional<List<SmellAnnotationDTO>> analysis = analysisRouter.analyze(analyzedCode(snippet), snippet.getLanguages());
+        if (analysis.isEmpty()) {
+            dto.setAiUnavailable(true);
+            dto.setAiComment(ANALYSIS_UNAVAILABLE);
+            return dto;
+        }
+
+        List<SmellAnnotationDTO> smells = analysis.get();
+        if (smells.isEmpty()) {
+            dto.setAiComment("No");
+        } else {
+            dto.setAiSuggestions(smells);
         }
+        return dto;
     }
 
-    public Optional<CodeSnippetResponseDTO> getNextSnippet() {
-        return codeSnippetRepo.findAll().stream()// Skip current
-                .sorted(Comparator.comparingInt(CodeSnippet::getAnnotationCount))
-                .findFirst()
-                .map(snippet -> {
-                    // Convert snippet to DTO
-                    CodeSnippetResponseDTO dto = toDto(snippet);
-
-                    // Analyze with OpenAI and attach suggestions
-                    List<SmellAnnotationDTO> smells = OpenAIAgent.analyzeCode(snippet.getCode());
-
-                    if (smells.isEmpty()) {
-                        dto.setAiComment("No");
-                    } else {
-                        dto.setAiSuggestions(smells);
-                    }
-                    return dto;
-                });
+    /** The snippet without AI fields, sent first by the streaming endpoint. */
+    public CodeSnippetResponseDTO withoutAiSuggestions(CodeSnippet snippet) {
+        return toDto(snippet);
     }
 
-    public Optional<CodeSnippetResponseDTO> getNextSnippetExcluding(Long currentId) {
-        return codeSnippetRepo.findAll().stream()
-                .filter(snippet -> !snippet.getId().equals(currentId)) // exclude current
-                .sorted(Comparator.comparingInt(CodeSnippet::getAnnotationCount)) // by annotationCount ascending
-                .findFirst()
-                .map(snippet -> {
-                    // Convert snippet to DTO
-                    CodeSnippetResponseDTO dto = toDto(snippet);
-
-                    // Analyze with OpenAI and attach suggestions
-                    List<SmellAnnotationDTO> smells = OpenAIAgent.analyzeCode(snippet.getCode());
-
-                    if (smells.isEmpty()) {
-                        dto.setAiComment("No");
-                    } else {
-                        dto.setAiSuggestions(smells);
-                    }
-                    return dto;
-                });
+    /**
+     * Runs (or reuses) the analysis and passes each suggestion to {@code onSuggestion} as soon as it is parsed.
+     * Returns all suggestions (an empty list when there are none), or empty when the analysis is unavailable.
+     */
+    public Optional<List<SmellAnnotationDTO>> streamAiSuggestions(CodeSnippet snippet, Consumer<SmellAnnotationDTO> onSuggestion) {
+        return analysisRouter.streamAnalyze(analyzedCode(snippet), snippet.getLanguages(), onSuggestion);
     }
 
+    // Near-duplicates share their cluster representative's analysis.
+    private String analyzedCode(CodeSnippet snippet) {
+        if (snippet.getClusterId() != null && !snippet.getClusterId().equals(snippet.getId())) {
+            return metrics.timeQuery("snippets", "findCodeById", () -> codeSnippetRepo.findCodeById(snippet.getClusterId()))
+                    .orElse(snippet.getCode());
+        }
+        return snippet.getCode();
+    }
 
     private CodeSnippetResponseDTO toDto(CodeSnippet codeSnippet) {
         CodeSnippetResponseDTO dto = new CodeSnippetResponseDTO();
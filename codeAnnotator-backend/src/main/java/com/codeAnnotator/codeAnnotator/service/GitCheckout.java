@@ -0,0 +1,113 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read-only queries against a local git repository through the {@code git} command line. Output goes to temporary
+ * files rather than pipes, so a large listing can never block the process and the timeout always applies.
+ */
+final class GitCheckout {
+
+    private final Path directory;
+    private final long timeoutMs;
+
+    GitCheckout(Path directory, long timeoutMs) {
+        this.directory = directory;
+        this.timeoutMs = timeoutMs;
+    }
+
+    Path directory() {
+        return directory;
+    }
+
+    /** Full hash of the commit {@code revision} names, e.g. a branch, tag, abbreviated hash or HEAD. */
+    String resolve(String revision) {
+        Result result = run("rev-parse", "--verify", "--quiet", "--end-of-options", revision + "^{commit}");
+        if (result.exitCode() != 0 || result.output().isBlank()) {
+            throw new IllegalArgumentException("Unknown commit '" + revision + "' in " + directory);
+        }
+        return result.output().trim();
+    }
+
+    boolean hasCommit(String hash) {
+        return run("cat-file", "-e", hash + "^{commit}").exitCode() == 0;
+    }
+
+    /** True when no tracked file differs from HEAD, i.e. the files on disk are those of the checked out commit. */
+    boolean isClean() {
+        return check("status", "--porcelain", "--untracked-files=no").isBlank();
+    }
+
+    /** Every file path of the commit's tree, relative to the repository root. */
+    List<String> files(String commit) {
+        return paths(check("ls-tree", "-r", "-z", "--name-only", "--full-tree", commit));
+    }
+
+    /** Paths added, modified or renamed (new name) from {@code from} to {@code to}; deleted paths are left out. */
+    List<String> changedFiles(String from, String to) {
+        return paths(check("diff", "--name-only", "-z", "--diff-filter=AMR", from, to));
+    }
+
+    private String check(String... args) {
+        Result result = run(args);
+        if (result.exitCode() != 0) {
+            throw new IllegalStateException("git " + args[0] + " failed in " + directory + ": " + result.error().trim());
+        }
+        return result.output();
+    }
+
+    private Result run(String... args) {
+        List<String> command = new ArrayList<>(List.of("git", "-C", directory.toString()));
+        command.addAll(Arrays.asList(args));
+        Path out = null;
+        Path err = null;
+        try {
+            out = Files.createTempFile("git-", ".out");
+            err = Files.createTempFile("git-", ".err");
+            ProcessBuilder builder = new ProcessBuilder(command)
+                    .redirectOutput(out.toFile())
+                    .redirectError(err.toFile());
+            builder.environment().put("GIT_TERMINAL_PROMPT", "0");
+            Process process = builder.start();
+            process.getOutputStream().close();
+            if (!process.waitFor(timeoutMs, TimeUnit.MILLISECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("git " + args[0] + " timed out after " + timeoutMs + " ms in " + directory);
+            }
+            return new Result(process.exitValue(), Files.readString(out, StandardCharsets.UTF_8),
+                    Files.readString(err, StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not run git in " + directory + ": " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while running git in " + directory, e);
+        } finally {
+            deleteQuietly(out);
+            deleteQuietly(err);
+        }
+    }
+
+    private static List<String> paths(String nulSeparated) {
+        return Arrays.stream(nulSeparated.split("\0")).filter(path -> !path.isEmpty()).toList();
+    }
+
+    private static void deleteQuietly(Path file) {
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ignored) {
+            // a leftover temporary file is harmless
+        }
+    }
+
+    private record Result(int exitCode, String output, String error) {}
+}
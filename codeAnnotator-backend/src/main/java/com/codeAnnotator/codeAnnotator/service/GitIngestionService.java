@@ -0,0 +1,314 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.entity.RepositoryIngestion;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import com.codeAnnotator.codeAnnotator.repository.RepositoryIngestionRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Ingests the classes and methods of a local git checkout as snippets. Files are read in windows, each window
+ * memory-mapped and parsed in parallel on a fork/join pool, and its snippets written through the same batched,
+ * chunk-committed path as CSV uploads.
+ * <p>
+ * Ingestion is incremental per repository: after a completed run the commit is recorded, and the next run only
+ * reads the files added, modified or renamed since. Chunks are committed on file boundaries and files of the commit
+ * that already have snippets are skipped, so an interrupted run can simply be started again. Snippets of older commits are never touched, since
+ * annotations refer to them.
+ */
+@Service
+public class GitIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(GitIngestionService.class);
+
+    // Files parsed between two writes; bounds the snippets held in memory
+    private static final int WALK_WINDOW = 256;
+
+    private static final Map<String, String> LANGUAGES = Map.ofEntries(
+            Map.entry("java", "java"), Map.entry("kt", "kotlin"), Map.entry("scala", "scala"),
+            Map.entry("groovy", "groovy"), Map.entry("js", "javascript"), Map.entry("jsx", "javascript"),
+            Map.entry("mjs", "javascript"), Map.entry("ts", "typescript"), Map.entry("tsx", "typescript"),
+            Map.entry("c", "c"), Map.entry("h", "c"), Map.entry("cc", "c++"), Map.entry("cpp", "c++"),
+            Map.entry("hpp", "c++"), Map.entry("cs", "c#"), Map.entry("go", "go"), Map.entry("swift", "swift"),
+            Map.entry("php", "php"), Map.entry("dart", "dart"), Map.entry("py", "python"));
+
+    private final SnippetIngestionService ingestion;
+    private final RepositoryIngestionRepository checkpoints;
+    private final CodeSnippetRepository snippetRepo;
+    private final MetricsRegistry metrics;
+    private final ForkJoinPool walkers;
+    private final int minLines;
+    private final long maxFileBytes;
+    private final long gitTimeoutMs;
+
+    // Repositories with a queued or running ingestion
+    private final Set<String> active = ConcurrentHashMap.newKeySet();
+
+    public GitIngestionService(SnippetIngestionService ingestion,
+                               RepositoryIngestionRepository checkpoints,
+                               CodeSnippetRepository snippetRepo,
+                               MetricsRegistry metrics,
+                               @Value("${ingestion.git.parallelism:0}") int parallelism,
+                               @Value("${ingestion.git.min-lines:3}") int minLines,
+                               @Value("${ingestion.git.max-file-bytes:1048576}") long maxFileBytes,
+                               @Value("${ingestion.git.timeout-ms:60000}") long gitTimeoutMs) {
+        this.ingestion = ingestion;
+        this.checkpoints = checkpoints;
+        this.snippetRepo = snippetRepo;
+        this.metrics = metrics;
+        this.walkers = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.minLines = minLines;
+        this.maxFileBytes = maxFileBytes;
+        this.gitTimeoutMs = gitTimeoutMs;
+    }
+
+    /**
+     * Checks the checkout and queues its ingestion. The files on disk are what gets parsed, so {@code commit} must be
+     * the checked out one and the working tree must not have changes to tracked files.
+     *
+     * @param commit     any revision git resolves, HEAD when blank
+     * @param repository name stored on the snippets and keying the checkpoint; the directory name when blank
+     * @param linkBase   web URL of the repository, e.g. {@code https://github.com/owner/name}; snippets link to their
+     *                   lines under {@code /blob/<commit>/} when set
+     * @return empty when the repository is already being ingested
+     * @throws IllegalArgumentException if the directory is not a clean checkout of the commit
+     */
+    public Optional<IngestionJob> start(String directory, String commit, String repository, CodeSnippet.CodeType type,
+                              String linkBase) {
+        Path root = Path.of(directory).toAbsolutePath().normalize();
+        if (!Files.isDirectory(root)) {
+            throw new IllegalArgumentException("Not a directory: " + root);
+        }
+        GitCheckout checkout = new GitCheckout(root, gitTimeoutMs);
+        String hash = checkout.resolve(commit == null || commit.isBlank() ? "HEAD" : commit);
+        String head = checkout.resolve("HEAD");
+        if (!head.equals(hash)) {
+            throw new IllegalArgumentException(root + " has " + head + " checked out, not " + hash);
+        }
+        if (!checkout.isClean()) {
+            throw new IllegalArgumentException(root + " has uncommitted changes to tracked files");
+        }
+
+        String name = repository == null || repository.isBlank() ? String.valueOf(root.getFileName()) : repository;
+        if (!active.add(name)) {
+            return Optional.empty();
+        }
+        GitSource source = new GitSource(checkout, name, hash, type, linkBase == null || linkBase.isBlank() ? null : linkBase);
+        try {
+            return Optional.of(ingestion.submit("git:" + name + "@" + hash, job -> {
+                try {
+                    run(job, source);
+                } finally {
+                    active.remove(name);
+                }
+            }));
+        } catch (RuntimeException e) {
+            active.remove(name);
+            throw e;
+        }
+    }
+
+    /**
+     * Rows of the job are snippets, numbered in file order; a file that cannot be read is reported as row 0 with
+     * its path in the reason.
+     */
+    void run(IngestionJob job, GitSource source) {
+        job.start();
+        try {
+            Optional<RepositoryIngestion> checkpoint = checkpoints.findByRepository(source.repository());
+            Set<String> done = new HashSet<>(snippetRepo.findIngestedPaths(source.repository(), source.commit()));
+            List<String> paths = changedPaths(source, checkpoint).stream()
+                    .filter(path -> languageOf(path) != null && !done.contains(path))
+                    .toList();
+            log.info("Ingesting {} files of {} at {}", paths.size(), source.repository(), source.commit());
+
+            int batchSize = ingestion.batchSize();
+            long row = 0;
+            long inserted = 0;
+            for (int from = 0; from < paths.size(); from += WALK_WINDOW) {
+                List<Callable<List<CodeSnippet>>> window = new ArrayList<>();
+                for (String path : paths.subList(from, Math.min(paths.size(), from + WALK_WINDOW))) {
+                    window.add(() -> extract(job, source, path));
+                }
+                // Chunks end on file boundaries: a restart skips every file with snippets at this commit, so a
+                // file must never be committed in part.
+                List<List<SnippetIngestionService.PendingRow>> chunk = new ArrayList<>();
+                int chunkRows = 0;
+                for (Future<List<CodeSnippet>> file : walkers.invokeAll(window)) {
+                    List<SnippetIngestionService.PendingRow> rows = new ArrayList<>();
+                    for (CodeSnippet snippet : file.get()) {
+                        job.rowRead();
+                        rows.add(new SnippetIngestionService.PendingRow(++row, snippet));
+                    }
+                    chunk.add(rows);
+                    chunkRows += rows.size();
+                    if (chunkRows >= batchSize) {
+                        inserted += write(job, chunk);
+                        chunkRows = 0;
+                    }
+                }
+                inserted += write(job, chunk);
+            }
+
+            RepositoryIngestion state = checkpoint.orElseGet(RepositoryIngestion::new);
+            state.setRepository(source.repository());
+            state.setDirectory(source.checkout().directory().toString());
+            state.setLastCommit(source.commit());
+            state.setSnippets(state.getSnippets() + inserted);
+            state.setIngestedAt(new Timestamp(System.currentTimeMillis()));
+            checkpoints.save(state);
+            job.complete();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.fail("Interrupted");
+        } catch (Exception e) {
+            log.error("Git ingestion job {} failed", job.getId(), e);
+            job.fail("Git ingestion failed: " + e.getMessage());
+        }
+    }
+
+    private List<String> changedPaths(GitSource source, Optional<RepositoryIngestion> checkpoint) {
+        if (checkpoint.isPresent()) {
+            String last = checkpoint.get().getLastCommit();
+            if (source.commit().equals(last)) {
+                return List.of();
+            }
+            if (source.checkout().hasCommit(last)) {
+                return source.checkout().changedFiles(last, source.commit());
+            }
+            log.warn("Last ingested commit {} of {} is gone, reading every file", last, source.repository());
+        }
+        return source.checkout().files(source.commit());
+    }
+
+    private long write(IngestionJob job, List<List<SnippetIngestionService.PendingRow>> chunk) {
+        long before = job.rowsInserted();
+        ingestion.writeFiles(job, chunk);
+        chunk.clear();
+        return job.rowsInserted() - before;
+    }
+
+    private List<CodeSnippet> extract(IngestionJob job, GitSource source, String path) {
+        Path file = source.checkout().directory().resolve(path);
+        try {
+            // Symlinks and submodules are not source files of this repository
+            if (!Files.isRegularFile(file, LinkOption.NOFOLLOW_LINKS) || Files.size(file) > maxFileBytes) {
+                files("skipped").increment();
+                return List.of();
+            }
+            String code = read(file);
+            if (code.indexOf('\0') >= 0) {
+                files("skipped").increment();
+                return List.of();
+            }
+            List<CodeSnippet> snippets = snippets(code, path, languageOf(path), source);
+            files("read").increment();
+            return snippets;
+        } catch (IOException | RuntimeException e) {
+            files("failed").increment();
+            job.reject(0, path + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    private MetricsRegistry.Counter files(String outcome) {
+        return metrics.counter("ingestion_git_files_total", "Files of git checkouts read, skipped or failed",
+                "outcome", outcome);
+    }
+
+    /** Class and method snippets of one file; their code is exactly their lines of the file. */
+    List<CodeSnippet> snippets(String code, String path, String language, GitSource source) {
+        CodeMetrics.Syntax syntax = CodeMetrics.syntaxOf(language).orElseThrow();
+        List<Integer> lineStarts = new ArrayList<>();
+        lineStarts.add(0);
+        for (int i = 0; i < code.length(); i++) {
+            if (code.charAt(i) == '\n') {
+                lineStarts.add(i + 1);
+            }
+        }
+
+        List<CodeSnippet> snippets = new ArrayList<>();
+        for (CodeMetrics.Declaration declaration : CodeMetrics.declarations(code, syntax)) {
+            int start = declaration.startLine();
+            int end = Math.min(declaration.endLine(), lineStarts.size());
+            if (end - start + 1 < minLines) {
+                continue;
+            }
+            int endOffset = end < lineStarts.size() ? lineStarts.get(end) - 1 : code.length();
+            String text = code.substring(lineStarts.get(start - 1), endOffset).stripTrailing();
+
+            CodeSnippet snippet = new CodeSnippet();
+            snippet.setCodeType(declaration.kind());
+            snippet.setCodeName(declaration.name());
+            snippet.setRepository(source.repository());
+            snippet.setCommitHash(source.commit());
+            snippet.setPath(path);
+            snippet.setStartLine(start);
+            snippet.setEndLine(end);
+            if (source.linkBase() != null) {
+                snippet.setLink(source.linkBase().replaceAll("/+$", "") + "/blob/" + source.commit() + "/" + path
+                        + "#L" + start + "-L" + end);
+            }
+            snippet.setCode(text);
+            snippet.setLanguages(language);
+            snippet.setType(source.type());
+            snippets.add(snippet);
+        }
+        return snippets;
+    }
+
+    static String languageOf(String path) {
+        int dot = path.lastIndexOf('.');
+        if (dot < 0 || dot < path.lastIndexOf('/')) {
+            return null;
+        }
+        return LANGUAGES.get(path.substring(dot + 1).toLowerCase(Locale.ROOT));
+    }
+
+    /** Decodes the file straight from a read-only mapping, without copying it into a heap buffer first. */
+    static String read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            String code = StandardCharsets.UTF_8.newDecoder()
+                    .onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                    .decode(mapped)
+                    .toString();
+            return code.startsWith("\uFEFF") ? code.substring(1) : code;
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        walkers.shutdownNow();
+    }
+
+    record GitSource(GitCheckout checkout, String repository, String commit, CodeSnippet.CodeType type,
+                     String linkBase) {}
+}
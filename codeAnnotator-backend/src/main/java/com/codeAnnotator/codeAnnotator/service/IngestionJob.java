@@ -0,0 +1,112 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.IngestionJobStatusDTO;
+import com.codeAnnotator.codeAnnotator.DTO.RejectedRowDTO;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Progress of one asynchronous snippet ingestion. Counters are updated by the ingesting thread
+ * and read concurrently by the status endpoint.
+ */
+public class IngestionJob {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    private final String id = UUID.randomUUID().toString();
+    private final String source;
+    private final int maxReportedRejects;
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsInserted = new AtomicLong();
+    private final AtomicLong rowsRejected = new AtomicLong();
+    private final List<RejectedRowDTO> rejects = new ArrayList<>();
+
+    public IngestionJob(String source, int maxReportedRejects) {
+        this.source = source;
+        this.maxReportedRejects = maxReportedRejects;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    void start() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+    }
+
+    void complete() {
+        finishedAt = Instant.now();
+        state = State.COMPLETED;
+    }
+
+    void fail(String message) {
+        error = message;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+    }
+
+    void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    void inserted(int rows) {
+        rowsInserted.addAndGet(rows);
+    }
+
+    long rowsInserted() {
+        return rowsInserted.get();
+    }
+
+    /** Records a row that could not be ingested; only the first rejects are kept for the report. */
+    void reject(long row, String reason) {
+        rowsRejected.incrementAndGet();
+        synchronized (rejects) {
+            if (rejects.size() < maxReportedRejects) {
+                rejects.add(new RejectedRowDTO(row, reason));
+            }
+        }
+    }
+
+    public IngestionJobStatusDTO toStatus() {
+        IngestionJobStatusDTO dto = new IngestionJobStatusDTO();
+        dto.setJobId(id);
+        dto.setSource(source);
+        dto.setState(state.name());
+        dto.setRowsRead(rowsRead.get());
+        dto.setRowsInserted(rowsInserted.get());
+        dto.setRowsRejected(rowsRejected.get());
+        dto.setStartedAt(startedAt);
+        dto.setFinishedAt(finishedAt);
+        dto.setError(error);
+        if (startedAt != null) {
+            Instant end = finishedAt != null ? finishedAt : Instant.now();
+            long millis = Math.max(1, Duration.between(startedAt, end).toMillis());
+            dto.setRowsPerSecond(rowsRead.get() * 1000.0 / millis);
+        }
+        synchronized (rejects) {
+            dto.setRejects(List.copyOf(rejects));
+        }
+        return dto;
+    }
+}
@@ -0,0 +1,45 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * The OpenAI model as an {@link Analyzer}, behind {@link AnalysisCacheService}. The prompt ignores the language, but
+ * the model it is sent to depends on it. Direct analyses are treated as interactive and may be hedged.
+ */
+@Service
+public class LlmAnalyzer implements Analyzer {
+
+    public static final String NAME = "llm";
+
+    private final AnalysisCacheService analysisCache;
+
+    @Autowired
+    public LlmAnalyzer(AnalysisCacheService analysisCache) {
+        this.analysisCache = analysisCache;
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<AnalysisReport> analyze(String code, String languages) {
+        return analysisCache.tryAnalyze(code, languages, true).map(smells -> new AnalysisReport(NAME, smells, 1.0));
+    }
+
+    @Override
+    public Optional<AnalysisReport> analyzeInBackground(String code, String languages) {
+        return analysisCache.tryAnalyze(code, languages, false).map(smells -> new AnalysisReport(NAME, smells, 1.0));
+    }
+
+    @Override
+    public Optional<AnalysisReport> analyze(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        return analysisCache.streamAnalyze(code, languages, onSmell).map(smells -> new AnalysisReport(NAME, smells, 1.0));
+    }
+}
@@ -0,0 +1,13 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+
+import java.util.List;
+
+/**
+ * The LLM's analysis of a snippet and the model that gave it.
+ *
+ * @param model the routed model, the hedge model if the hedge answered first, or the distinct models of a chunked
+ *              analysis joined by commas
+ */
+public record LlmAnswer(List<SmellAnnotationDTO> smells, String model) {}
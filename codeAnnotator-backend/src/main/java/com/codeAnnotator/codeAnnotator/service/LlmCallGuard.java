@@ -0,0 +1,328 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.LlmClientStatsDTO;
+import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Protects the provider quota and our callers around every OpenAI request:
+ * <ul>
+ *     <li>token buckets for requests/min and tokens/min, waiting up to {@code openai.rate.max-wait-ms} for capacity,</li>
+ *     <li>a bulkhead of {@code openai.bulkhead.max-concurrent} calls in flight,</li>
+ *     <li>retries of 429, 5xx and I/O failures with full-jitter exponential backoff (honouring Retry-After),</li>
+ *     <li>a circuit breaker that opens after {@code openai.breaker.failure-threshold} consecutive failures and
+ *     then fails fast for {@code openai.breaker.open-ms}, letting one trial call through afterwards.</li>
+ * </ul>
+ * When a call cannot be made or keeps failing, {@link UnavailableException} is thrown instead of an answer,
+ * so callers can tell "not analyzed" apart from "no smells". Setting a limit to 0 disables it.
+ */
+public class LlmCallGuard {
+
+    // Room left in the tokens/min budget for the model's answer, on top of the prompt estimate.
+    static final int OUTPUT_TOKEN_RESERVE = 800;
+
+    @FunctionalInterface
+    public interface Attempt<T> {
+        T run() throws IOException;
+    }
+
+    /** The call was not made, or failed on every attempt. */
+    public static class UnavailableException extends IOException {
+        public UnavailableException(String message) {
+            super(message);
+        }
+    }
+
+    /** Thrown by an attempt for a response worth retrying (429 or 5xx). */
+    public static class RetryableResponseException extends IOException {
+        private final long retryAfterMs;
+
+        public RetryableResponseException(int status, long retryAfterMs) {
+            super("HTTP " + status);
+            this.retryAfterMs = retryAfterMs;
+        }
+    }
+
+    private final TokenBucket requests;
+    private final TokenBucket tokens;
+    private final Semaphore bulkhead;
+    private final CircuitBreaker breaker;
+    private final int maxAttempts;
+    private final long baseDelayMs;
+    private final long maxDelayMs;
+    private final long maxWaitMs;
+    private final int maxConcurrent;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejectedOpen = new AtomicLong();
+    private final AtomicLong rejectedBusy = new AtomicLong();
+
+    public LlmCallGuard(OpenAIConfig config) {
+        this(config, System::nanoTime);
+    }
+
+    LlmCallGuard(OpenAIConfig config, LongSupplier nanoClock) {
+        this.requests = config.getRequestsPerMinute() > 0 ? new TokenBucket(config.getRequestsPerMinute(), nanoClock) : null;
+        this.tokens = config.getTokensPerMinute() > 0 ? new TokenBucket(config.getTokensPerMinute(), nanoClock) : null;
+        this.maxConcurrent = config.getMaxConcurrentCalls();
+        this.bulkhead = maxConcurrent > 0 ? new Semaphore(maxConcurrent, true) : null;
+        this.breaker = config.getBreakerFailureThreshold() > 0
+                ? new CircuitBreaker(config.getBreakerFailureThreshold(), config.getBreakerOpenMs(), nanoClock) : null;
+        this.maxAttempts = Math.max(1, config.getRetryMaxAttempts());
+        this.baseDelayMs = config.getRetryBaseDelayMs();
+        this.maxDelayMs = config.getRetryMaxDelayMs();
+        this.maxWaitMs = config.getRateMaxWaitMs();
+    }
+
+    /** Throws {@link RetryableResponseException} for a throttled or server-error response. */
+    public static void throwIfRetryable(Response response) throws RetryableResponseException {
+        int status = response.code();
+        if (status == 429 || status >= 500) {
+            throw new RetryableResponseException(status, retryAfterMs(response));
+        }
+    }
+
+    /**
+     * Runs {@code attempt} under the limits, retrying it on {@link IOException}s.
+     *
+     * @param estimatedPromptTokens charged against the tokens/min budget
+     */
+    public <T> T call(int estimatedPromptTokens, Attempt<T> attempt) throws UnavailableException {
+        calls.incrementAndGet();
+        String lastFailure = null;
+        for (int n = 1; n <= maxAttempts; n++) {
+            if (breaker != null && !breaker.allow()) {
+                rejectedOpen.incrementAndGet();
+                throw new UnavailableException("circuit open" + (lastFailure == null ? "" : " after " + lastFailure));
+            }
+            boolean permitted = false;
+            long retryAfterMs;
+            try {
+                if (!reserveRate(estimatedPromptTokens + OUTPUT_TOKEN_RESERVE) || !(permitted = enterBulkhead())) {
+                    rejectedBusy.incrementAndGet();
+                    if (breaker != null) {
+                        breaker.abandon();
+                    }
+                    throw new UnavailableException("client limits exhausted (rate limit or concurrency)");
+                }
+                T result = attempt.run();
+                if (breaker != null) {
+                    breaker.onSuccess();
+                }
+                return result;
+            } catch (UnavailableException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                // A bug on our side handling the answer says nothing about the provider's health.
+                if (breaker != null) {
+                    breaker.abandon();
+                }
+                throw e;
+            } catch (IOException e) {
+                failures.incrementAndGet();
+                if (breaker != null) {
+                    breaker.onFailure();
+                }
+                lastFailure = e.getMessage();
+                retryAfterMs = e instanceof RetryableResponseException r ? r.retryAfterMs : 0;
+                if (retryAfterMs > maxDelayMs) {
+                    // The provider asks for a longer pause than a caller should be kept waiting.
+                    break;
+                }
+            } finally {
+                if (permitted && bulkhead != null) {
+                    bulkhead.release();
+                }
+            }
+            // Back off without holding a bulkhead slot.
+            if (n < maxAttempts) {
+                retries.incrementAndGet();
+                sleep(backoffMs(n, retryAfterMs));
+            }
+        }
+        throw new UnavailableException("gave up after " + lastFailure);
+    }
+
+    private boolean reserveRate(int estimatedTokens) throws UnavailableException {
+        long waitNanos = 0;
+        if (requests != null) {
+            long wait = requests.reserve(1, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            if (wait < 0) {
+                return false;
+            }
+            waitNanos = wait;
+        }
+        if (tokens != null) {
+            long wait = tokens.reserve(estimatedTokens, TimeUnit.MILLISECONDS.toNanos(maxWaitMs));
+            if (wait < 0) {
+                return false;
+            }
+            waitNanos = Math.max(waitNanos, wait);
+        }
+        sleep(TimeUnit.NANOSECONDS.toMillis(waitNanos));
+        return true;
+    }
+
+    private boolean enterBulkhead() throws UnavailableException {
+        if (bulkhead == null) {
+            return true;
+        }
+        try {
+            return bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnavailableException("interrupted");
+        }
+    }
+
+    /** Full jitter: uniform in [0, min(max, base * 2^(attempt-1))], but never before Retry-After. */
+    long backoffMs(int attempt, long retryAfterMs) {
+        long ceiling = Math.min(maxDelayMs, baseDelayMs << Math.min(attempt - 1, 20));
+        long jittered = ceiling <= 0 ? 0 : ThreadLocalRandom.current().nextLong(ceiling + 1);
+        return Math.max(jittered, retryAfterMs);
+    }
+
+    private static long retryAfterMs(Response response) {
+        try {
+            String ms = response.header("retry-after-ms");
+            if (ms != null) {
+                return (long) Double.parseDouble(ms.trim());
+            }
+            String seconds = response.header("Retry-After");
+            if (seconds != null) {
+                return (long) (Double.parseDouble(seconds.trim()) * 1000);
+            }
+        } catch (NumberFormatException e) {
+            // An HTTP-date Retry-After is rare for this API; fall back to plain backoff.
+        }
+        return 0;
+    }
+
+    private static void sleep(long ms) throws UnavailableException {
+        if (ms <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(ms);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UnavailableException("interrupted");
+        }
+    }
+
+    public LlmClientStatsDTO stats() {
+        LlmClientStatsDTO dto = new LlmClientStatsDTO();
+        dto.setCircuitState(breaker == null ? "DISABLED" : breaker.state().name());
+        dto.setCalls(calls.get());
+        dto.setRetries(retries.get());
+        dto.setFailedAttempts(failures.get());
+        dto.setRejectedCircuitOpen(rejectedOpen.get());
+        dto.setRejectedLimits(rejectedBusy.get());
+        dto.setInFlight(bulkhead == null ? 0 : maxConcurrent - bulkhead.availablePermits());
+        dto.setMaxConcurrent(maxConcurrent);
+        return dto;
+    }
+
+    /**
+     * Token bucket holding one minute's quota, refilled continuously. Reservations may run the bucket into debt,
+     * which later callers wait out, so a burst is spread over time instead of being sent at once.
+     */
+    static final class TokenBucket {
+        private final double capacity;
+        private final double perNano;
+        private final LongSupplier clock;
+        private double available;
+        private long last;
+
+        TokenBucket(long perMinute, LongSupplier clock) {
+            this.capacity = perMinute;
+            this.perNano = perMinute / (double) TimeUnit.MINUTES.toNanos(1);
+            this.clock = clock;
+            this.available = perMinute;
+            this.last = clock.getAsLong();
+        }
+
+        /**
+         * Takes {@code amount} (at most the capacity) and returns how long the caller must wait before using it,
+         * or -1 without taking anything if that would be longer than {@code maxWaitNanos}.
+         */
+        synchronized long reserve(double amount, long maxWaitNanos) {
+            long now = clock.getAsLong();
+            available = Math.min(capacity, available + (now - last) * perNano);
+            last = now;
+            double after = available - Math.min(amount, capacity);
+            long wait = after >= 0 ? 0 : (long) Math.ceil(-after / perNano);
+            if (wait > maxWaitNanos) {
+                return -1;
+            }
+            available = after;
+            return wait;
+        }
+    }
+
+    enum State { CLOSED, OPEN, HALF_OPEN }
+
+    /** Consecutive-failure circuit breaker; in HALF_OPEN exactly one trial call is let through at a time. */
+    static final class CircuitBreaker {
+        private final int threshold;
+        private final long openNanos;
+        private final LongSupplier clock;
+        private State state = State.CLOSED;
+        private int consecutiveFailures;
+        private long openedAt;
+        private boolean trialInFlight;
+
+        CircuitBreaker(int threshold, long openMs, LongSupplier clock) {
+            this.threshold = threshold;
+            this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+            this.clock = clock;
+        }
+
+        synchronized boolean allow() {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+                state = State.HALF_OPEN;
+            }
+            return switch (state) {
+                case CLOSED -> true;
+                case OPEN -> false;
+                case HALF_OPEN -> !trialInFlight && (trialInFlight = true);
+            };
+        }
+
+        synchronized void onSuccess() {
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            trialInFlight = false;
+        }
+
+        synchronized void onFailure() {
+            consecutiveFailures++;
+            if (state == State.HALF_OPEN || consecutiveFailures >= threshold) {
+                state = State.OPEN;
+                openedAt = clock.getAsLong();
+            }
+            trialInFlight = false;
+        }
+
+        /** The permitted call was never made; a half-open trial slot becomes free again. */
+        synchronized void abandon() {
+            trialInFlight = false;
+        }
+
+        synchronized State state() {
+            if (state == State.OPEN && clock.getAsLong() - openedAt >= openNanos) {
+                return State.HALF_OPEN;
+            }
+            return state;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.CompressionMigrationStatusDTO;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import com.codeAnnotator.codeAnnotator.repository.LobCompressionRepository;
+import com.codeAnnotator.codeAnnotator.repository.LobCompressionRepository.Column;
+import com.codeAnnotator.codeAnnotator.repository.LobCompressionRepository.StoredValue;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Rewrites rows stored before compression existed into the {@link CompressedText} format. Each page is one
+ * short transaction, so the migration can run against a live database; values that would not shrink are left
+ * plain and simply scanned again by the next run.
+ */
+@Service
+public class LobCompressionService {
+
+    private static final Logger log = LoggerFactory.getLogger(LobCompressionService.class);
+
+    @Autowired
+    private LobCompressionRepository lobRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${storage.compression.migration-page-size:200}")
+    private int pageSize;
+
+    private final ExecutorService migrationExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private final AtomicLong rowsScanned = new AtomicLong();
+    private final AtomicLong rowsCompressed = new AtomicLong();
+    private final AtomicLong charsBefore = new AtomicLong();
+    private final AtomicLong charsAfter = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    /**
+     * Compresses the stored snippet code and smell texts page by page in the background.
+     *
+     * @return false if a migration is already running
+     */
+    public boolean startMigration() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        migrationExecutor.execute(this::migrate);
+        return true;
+    }
+
+    public CompressionMigrationStatusDTO status() {
+        CompressionMigrationStatusDTO dto = new CompressionMigrationStatusDTO();
+        dto.setRunning(running.get());
+        dto.setRowsScanned(rowsScanned.get());
+        dto.setRowsCompressed(rowsCompressed.get());
+        dto.setCharsBefore(charsBefore.get());
+        dto.setCharsAfter(charsAfter.get());
+        dto.setStartedAt(startedAt);
+        dto.setFinishedAt(finishedAt);
+        dto.setError(error);
+        return dto;
+    }
+
+    // Runs on the caller's thread; startMigration() has already claimed the running flag.
+    void migrate() {
+        rowsScanned.set(0);
+        rowsCompressed.set(0);
+        charsBefore.set(0);
+        charsAfter.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            for (Column column : Column.values()) {
+                migrate(tx, column);
+            }
+            log.info("Compression migration rewrote {} of {} rows, {} -> {} chars",
+                    rowsCompressed.get(), rowsScanned.get(), charsBefore.get(), charsAfter.get());
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            log.error("Compression migration stopped after {} rows", rowsScanned.get(), e);
+        } finally {
+            finishedAt = Instant.now();
+            running.set(false);
+        }
+    }
+
+    private void migrate(TransactionTemplate tx, Column column) {
+        long afterId = 0;
+        while (true) {
+            long after = afterId;
+            List<StoredValue> page = tx.execute(status -> {
+                List<StoredValue> plain = lobRepo.findPlain(column, after, pageSize);
+                List<StoredValue> encoded = new ArrayList<>(plain.size());
+                for (StoredValue value : plain) {
+                    String stored = CompressedText.encode(value.value());
+                    if (CompressedText.isEncoded(stored)) {
+                        encoded.add(new StoredValue(value.id(), stored));
+                        charsBefore.addAndGet(value.value().length());
+                        charsAfter.addAndGet(stored.length());
+                    }
+                }
+                if (!encoded.isEmpty()) {
+                    lobRepo.update(column, encoded);
+                }
+                rowsScanned.addAndGet(plain.size());
+                rowsCompressed.addAndGet(encoded.size());
+                return plain;
+            });
+            if (page == null || page.isEmpty()) {
+                return;
+            }
+            afterId = page.get(page.size() - 1).id();
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        migrationExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,180 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Method;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Metrics;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Type;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-process analyzer that decides the prompt's smells from {@link CodeMetrics}. Every smell gets a verdict,
+ * present or absent, with the probability that the verdict is right; the report's confidence is the lowest
+ * of them, so one undecided smell is enough to send the snippet to the LLM.
+ * <p>
+ * Metrics settle size and literal smells (Long Method, Magic Numbers, Data Class, God Class) in both
+ * directions. Feature Envy, Blob, Spaghetti Code and Swiss Army Knife are judgement calls: small,
+ * simple code rules them out, but anything suspicious is left undecided rather than reported.
+ * Local suggestions carry no refactored code.
+ */
+@Service
+public class MetricsAnalyzer implements Analyzer {
+
+    public static final String NAME = "local-metrics";
+
+    static final String CODE_SMELL = "Code Smell";
+    static final String ANTI_PATTERN = "Anti-pattern";
+
+    // The answer for a verdict the metrics can't make; always below any sensible routing threshold.
+    static final double UNDECIDED = 0.5;
+
+    /** One smell's decision; {@code reason} becomes the suggestion when the smell is present. */
+    record Verdict(String smellType, String category, boolean present, double confidence, String reason) {
+
+        static Verdict present(String smellType, String category, double confidence, String reason) {
+            return new Verdict(smellType, category, true, confidence, reason);
+        }
+
+        static Verdict absent(String smellType, String category, double confidence) {
+            return new Verdict(smellType, category, false, confidence, null);
+        }
+
+        static Verdict undecided(String smellType, String category) {
+            return new Verdict(smellType, category, false, UNDECIDED, null);
+        }
+    }
+
+    @Override
+    public String name() {
+        return NAME;
+    }
+
+    @Override
+    public Optional<AnalysisReport> analyze(String code, String languages) {
+        return CodeMetrics.syntaxOf(languages).map(syntax -> report(CodeMetrics.measure(code, syntax)));
+    }
+
+    static AnalysisReport report(Metrics metrics) {
+        List<Verdict> verdicts = verdicts(metrics);
+        List<SmellAnnotationDTO> smells = new ArrayList<>();
+        double confidence = 1.0;
+        for (Verdict verdict : verdicts) {
+            confidence = Math.min(confidence, verdict.confidence());
+            if (verdict.present()) {
+                SmellAnnotationDTO smell = new SmellAnnotationDTO();
+                smell.setSmellType(verdict.smellType());
+                smell.setCategory(verdict.category());
+                smell.setSuggestion(verdict.reason());
+                smell.setConfidence(verdict.confidence());
+                smells.add(smell);
+            }
+        }
+        return new AnalysisReport(NAME, smells, confidence);
+    }
+
+    static List<Verdict> verdicts(Metrics metrics) {
+        return List.of(
+                longMethod(metrics),
+                magicNumbers(metrics),
+                dataClass(metrics.mainType()),
+                godClass(metrics.mainType()),
+                blob(metrics.mainType()),
+                featureEnvy(metrics),
+                spaghettiCode(metrics),
+                swissArmyKnife(metrics));
+    }
+
+    private static Verdict longMethod(Metrics metrics) {
+        String smell = "Long Method";
+        Method longest = metrics.longestMethod();
+        int loc = longest == null ? 0 : longest.loc();
+        if (loc >= 30) {
+            return Verdict.present(smell, CODE_SMELL, loc >= 50 ? 0.95 : 0.85,
+                    "Method '" + longest.name() + "' has " + loc + " lines of code; extract its steps into smaller, named methods.");
+        }
+        return loc <= 20 ? Verdict.absent(smell, CODE_SMELL, 0.9) : Verdict.undecided(smell, CODE_SMELL);
+    }
+
+    private static Verdict magicNumbers(Metrics metrics) {
+        String smell = "Magic Numbers";
+        int count = metrics.magicNumbers();
+        if (count == 0) {
+            return Verdict.absent(smell, ANTI_PATTERN, 0.95);
+        }
+        // The prompt asks for slight cases to be reported too, but a single literal is often self-explanatory.
+        double confidence = count >= 3 ? 0.9 : count == 2 ? 0.8 : 0.6;
+        return Verdict.present(smell, ANTI_PATTERN, confidence,
+                count + " unexplained numeric literal" + (count == 1 ? "" : "s") + "; replace them with named constants.");
+    }
+
+    private static Verdict dataClass(Type type) {
+        String smell = "Data Class";
+        if (type == null) {
+            return Verdict.absent(smell, CODE_SMELL, 0.95);
+        }
+        long behavior = type.behaviorMethods();
+        if (type.fields() >= 2 && behavior == 0) {
+            return Verdict.present(smell, CODE_SMELL, 0.9, "'" + type.name() + "' holds " + type.fields()
+                    + " fields but only accessors; move the behaviour that uses this data into the class.");
+        }
+        if (type.fields() < 2 || behavior >= 2) {
+            return Verdict.absent(smell, CODE_SMELL, 0.9);
+        }
+        return Verdict.undecided(smell, CODE_SMELL);
+    }
+
+    private static Verdict godClass(Type type) {
+        String smell = "God Class";
+        if (type == null) {
+            return Verdict.absent(smell, ANTI_PATTERN, 0.95);
+        }
+        int methods = type.methods().size();
+        boolean large = methods >= 20 || type.fields() >= 15 || type.loc() >= 400;
+        if (large && type.totalComplexity() >= 40) {
+            return Verdict.present(smell, ANTI_PATTERN, 0.85, "'" + type.name() + "' has " + methods + " methods, "
+                    + type.fields() + " fields and " + type.loc() + " lines; split its responsibilities into separate classes.");
+        }
+        if (methods <= 10 && type.fields() <= 10 && type.loc() <= 200) {
+            return Verdict.absent(smell, ANTI_PATTERN, 0.9);
+        }
+        return Verdict.undecided(smell, ANTI_PATTERN);
+    }
+
+    private static Verdict blob(Type type) {
+        String smell = "Blob";
+        if (type == null || type.fields() < 8) {
+            return Verdict.absent(smell, CODE_SMELL, 0.9);
+        }
+        return Verdict.undecided(smell, CODE_SMELL);
+    }
+
+    private static Verdict featureEnvy(Metrics metrics) {
+        String smell = "Feature Envy";
+        int foreign = metrics.max(Method::foreignAccesses);
+        if (foreign <= 3) {
+            return Verdict.absent(smell, CODE_SMELL, 0.95);
+        }
+        boolean envious = metrics.methods().stream().anyMatch(m ->
+                m.topReceiverAccesses() >= 4 && m.foreignAccesses() > 2 * (m.ownAccesses() + 1));
+        return envious ? Verdict.undecided(smell, CODE_SMELL) : Verdict.absent(smell, CODE_SMELL, 0.85);
+    }
+
+    private static Verdict spaghettiCode(Metrics metrics) {
+        String smell = "Spaghetti Code";
+        if (metrics.max(Method::complexity) <= 10 && metrics.max(Method::maxNesting) <= 3) {
+            return Verdict.absent(smell, ANTI_PATTERN, 0.9);
+        }
+        return Verdict.undecided(smell, ANTI_PATTERN);
+    }
+
+    private static Verdict swissArmyKnife(Metrics metrics) {
+        String smell = "Swiss Army Knife";
+        if (metrics.max(Method::switchCases) <= 6 && metrics.max(Method::flagParams) <= 1 && metrics.max(Method::params) <= 5) {
+            return Verdict.absent(smell, ANTI_PATTERN, 0.9);
+        }
+        return Verdict.undecided(smell, ANTI_PATTERN);
+    }
+}
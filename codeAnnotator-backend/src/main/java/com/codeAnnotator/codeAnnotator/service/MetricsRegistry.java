@@ -0,0 +1,267 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * In-process metrics in the Prometheus text format, served at {@code GET /metrics}: cumulative histograms
+ * (latencies in seconds, sizes), counters and gauges, each family keyed by name and label values.
+ * Percentiles are computed by Prometheus from the buckets ({@code histogram_quantile}); {@link Histogram#quantile}
+ * gives the same estimate in process. Recording is lock-free, so it is cheap enough for every request.
+ */
+@Component
+public class MetricsRegistry {
+
+    /** Latency buckets in seconds, from a 1 ms query to a two-minute LLM call. */
+    public static final double[] SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 120};
+
+    /** Size buckets (characters, tokens or rows), powers of four up to a million. */
+    public static final double[] SIZES = {16, 64, 256, 1024, 4096, 16384, 65536, 262144, 1048576};
+
+    private final ConcurrentMap<String, Family> families = new ConcurrentHashMap<>();
+
+    public Histogram timer(String name, String help, String... labels) {
+        return histogram(name, help, SECONDS, labels);
+    }
+
+    public Histogram histogram(String name, String help, double[] buckets, String... labels) {
+        return (Histogram) family(name, help, "histogram").child(labels, () -> new Histogram(buckets));
+    }
+
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").child(labels, Counter::new);
+    }
+
+    /** Registers (or replaces) a gauge read at scrape time. */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        family(name, help, "gauge").put(labels, new Sampled(value));
+    }
+
+    /** Registers (or replaces) a counter whose running total is kept elsewhere and read at scrape time. */
+    public void counter(String name, String help, DoubleSupplier total, String... labels) {
+        family(name, help, "counter").put(labels, new Sampled(total));
+    }
+
+    /** Runs {@code call}, recording its duration in {@code timer} even if it throws. */
+    public static <T> T time(Histogram timer, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            timer.recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /** Times a repository call made while serving a request, labelled by the calling service. */
+    public <T> T timeQuery(String service, String call, Supplier<T> query) {
+        return time(timer("db_call_seconds", "Repository calls made on request paths", "service", service, "call", call), query);
+    }
+
+    /** {@link #timeQuery} for calls without a result. */
+    public void timeUpdate(String service, String call, Runnable update) {
+        timeQuery(service, call, () -> {
+            update.run();
+            return null;
+        });
+    }
+
+    private Family family(String name, String help, String type) {
+        Family family = families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException(name + " is already registered as a " + family.type);
+        }
+        return family;
+    }
+
+    /** Writes every metric in the Prometheus text exposition format (version 0.0.4). */
+    public void writePrometheus(Writer out) {
+        try {
+            for (Family family : new TreeMap<>(families).values()) {
+                family.write(out);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public String scrape() {
+        StringWriter out = new StringWriter();
+        writePrometheus(out);
+        return out.toString();
+    }
+
+    private static final class Family {
+        final String name;
+        final String help;
+        final String type;
+        final ConcurrentMap<List<String>, Object> children = new ConcurrentHashMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+
+        Object child(String[] labels, Supplier<?> create) {
+            return children.computeIfAbsent(key(labels), k -> create.get());
+        }
+
+        void put(String[] labels, Object metric) {
+            children.put(key(labels), metric);
+        }
+
+        private static List<String> key(String[] labels) {
+            if (labels.length % 2 != 0) {
+                throw new IllegalArgumentException("Labels must be name/value pairs");
+            }
+            return List.of(labels);
+        }
+
+        void write(Writer out) throws IOException {
+            out.write("# HELP " + name + " " + help + "\n");
+            out.write("# TYPE " + name + " " + type + "\n");
+            Map<String, Object> sorted = new TreeMap<>();
+            children.forEach((labels, metric) -> sorted.put(String.join("\u0000", labels), metric));
+            for (Map.Entry<String, Object> child : sorted.entrySet()) {
+                String[] labels = child.getKey().isEmpty() ? new String[0] : child.getKey().split("\u0000", -1);
+                Object metric = child.getValue();
+                if (metric instanceof Histogram histogram) {
+                    histogram.write(out, name, labels);
+                } else if (metric instanceof Counter counter) {
+                    out.write(name + labels(labels, null) + " " + format(counter.get()) + "\n");
+                } else if (metric instanceof Sampled sampled) {
+                    out.write(name + labels(labels, null) + " " + format(sampled.value.getAsDouble()) + "\n");
+                }
+            }
+        }
+    }
+
+    static String labels(String[] labels, String le) {
+        if (labels.length == 0 && le == null) {
+            return "";
+        }
+        StringJoiner joined = new StringJoiner(",", "{", "}");
+        for (int i = 0; i < labels.length; i += 2) {
+            joined.add(labels[i] + "=\"" + escape(labels[i + 1]) + "\"");
+        }
+        if (le != null) {
+            joined.add("le=\"" + le + "\"");
+        }
+        return joined.toString();
+    }
+
+    private static String escape(String value) {
+        return String.valueOf(value).replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String format(double value) {
+        if (Double.isInfinite(value)) {
+            return value > 0 ? "+Inf" : "-Inf";
+        }
+        return value == Math.rint(value) && Math.abs(value) < 1e15 ? String.valueOf((long) value) : String.valueOf(value);
+    }
+
+    public static final class Counter {
+        private final DoubleAdder value = new DoubleAdder();
+
+        public void increment() {
+            value.add(1);
+        }
+
+        public void increment(double amount) {
+            value.add(amount);
+        }
+
+        public double get() {
+            return value.sum();
+        }
+    }
+
+    private record Sampled(DoubleSupplier value) {}
+
+    /** Fixed-bucket histogram; an observation lands in the first bucket whose upper bound it does not exceed. */
+    public static final class Histogram {
+        private final double[] bounds;
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        Histogram(double[] bounds) {
+            this.bounds = bounds.clone();
+            this.counts = new LongAdder[bounds.length + 1];
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = new LongAdder();
+            }
+        }
+
+        public void record(double value) {
+            int bucket = Arrays.binarySearch(bounds, value);
+            counts[bucket >= 0 ? bucket : -bucket - 1].increment();
+            sum.add(value);
+        }
+
+        public void recordNanos(long nanos) {
+            record(nanos / 1e9);
+        }
+
+        public long count() {
+            long total = 0;
+            for (LongAdder count : counts) {
+                total += count.sum();
+            }
+            return total;
+        }
+
+        public double sum() {
+            return sum.sum();
+        }
+
+        /**
+         * Estimates the {@code q}-quantile by linear interpolation inside its bucket, as Prometheus'
+         * {@code histogram_quantile} does. Observations above the last bound are reported as that bound.
+         */
+        public double quantile(double q) {
+            long[] snapshot = new long[counts.length];
+            long total = 0;
+            for (int i = 0; i < counts.length; i++) {
+                snapshot[i] = counts[i].sum();
+                total += snapshot[i];
+            }
+            if (total == 0) {
+                return Double.NaN;
+            }
+            double rank = q * total;
+            long below = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                if (below + snapshot[i] >= rank) {
+                    double lower = i == 0 ? 0 : bounds[i - 1];
+                    return snapshot[i] == 0 ? lower : lower + (bounds[i] - lower) * (rank - below) / snapshot[i];
+                }
+                below += snapshot[i];
+            }
+            return bounds[bounds.length - 1];
+        }
+
+        void write(Writer out, String name, String[] labels) throws IOException {
+            long cumulative = 0;
+            for (int i = 0; i < bounds.length; i++) {
+                cumulative += counts[i].sum();
+                out.write(name + "_bucket" + labels(labels, format(bounds[i])) + " " + cumulative + "\n");
+            }
+            cumulative += counts[bounds.length].sum();
+            out.write(name + "_bucket" + labels(labels, "+Inf") + " " + cumulative + "\n");
+            out.write(name + "_sum" + labels(labels, null) + " " + format(sum.sum()) + "\n");
+            out.write(name + "_count" + labels(labels, null) + " " + cumulative + "\n");
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+/**
+ * MinHash signatures and LSH band keys for near-duplicate code detection.
+ * <p>
+ * Code is reduced to a token stream in which identifiers, numbers and strings are replaced by
+ * placeholders (keywords and punctuation are kept), so copies that differ only in whitespace,
+ * comments or renames produce the same shingles.
+ */
+public final class MinHasher {
+
+    public static final int NUM_HASHES = 128;
+    public static final int BANDS = 16;
+    public static final int ROWS_PER_BAND = NUM_HASHES / BANDS;
+    static final int SHINGLE_SIZE = 5;
+
+    private static final long[] SEEDS = new SplittableRandom(0x5EEDL).longs(NUM_HASHES).toArray();
+
+    private static final Set<String> KEYWORDS = Set.of(
+            "abstract", "async", "await", "break", "case", "catch", "class", "const", "continue", "def", "default",
+            "do", "elif", "else", "enum", "extends", "final", "finally", "for", "func", "function", "if", "implements",
+            "import", "in", "interface", "lambda", "let", "new", "package", "private", "protected", "public", "return",
+            "static", "struct", "super", "switch", "synchronized", "this", "throw", "throws", "try", "var", "void",
+            "while", "with", "yield", "null", "true", "false", "None", "True", "False");
+
+    private MinHasher() {
+    }
+
+    /** Returns the signature, or null when the code has fewer than {@code minTokens} tokens. */
+    public static int[] signature(String code, int minTokens) {
+        List<String> tokens = tokens(code);
+        if (tokens.size() < Math.max(minTokens, SHINGLE_SIZE)) {
+            return null;
+        }
+
+        long[] mins = new long[NUM_HASHES];
+        Arrays.fill(mins, Long.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_SIZE <= tokens.size(); start++) {
+            long shingle = 0xcbf29ce484222325L;
+            for (int i = start; i < start + SHINGLE_SIZE; i++) {
+                shingle = (shingle ^ tokens.get(i).hashCode()) * 0x100000001b3L;
+            }
+            for (int h = 0; h < NUM_HASHES; h++) {
+                long value = mix(shingle ^ SEEDS[h]);
+                if (value < mins[h]) {
+                    mins[h] = value;
+                }
+            }
+        }
+
+        int[] signature = new int[NUM_HASHES];
+        for (int h = 0; h < NUM_HASHES; h++) {
+            signature[h] = (int) (mins[h] >>> 32);
+        }
+        return signature;
+    }
+
+    /** Estimated Jaccard similarity of the shingle sets behind two signatures. */
+    public static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < NUM_HASHES; i++) {
+            if (a[i] == b[i]) {
+                same++;
+            }
+        }
+        return (double) same / NUM_HASHES;
+    }
+
+    /** One key per band; snippets sharing any band key are candidate duplicates. */
+    public static long[] bandKeys(int[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            long key = band;
+            for (int row = 0; row < ROWS_PER_BAND; row++) {
+                key = key * 0x9E3779B97F4A7C15L + signature[band * ROWS_PER_BAND + row];
+            }
+            keys[band] = mix(key);
+        }
+        return keys;
+    }
+
+    public static byte[] toBytes(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        buffer.asIntBuffer().put(signature);
+        return buffer.array();
+    }
+
+    public static int[] fromBytes(byte[] bytes) {
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        ByteBuffer.wrap(bytes).asIntBuffer().get(signature);
+        return signature;
+    }
+
+    static List<String> tokens(String code) {
+        List<String> tokens = new ArrayList<>();
+        if (code == null) {
+            return tokens;
+        }
+        int i = 0;
+        int n = code.length();
+        while (i < n) {
+            char c = code.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+            } else if (c == '/' && i + 1 < n && code.charAt(i + 1) == '/') {
+                i = skipLine(code, i);
+            } else if (c == '#') {
+                i = skipLine(code, i);
+            } else if (c == '/' && i + 1 < n && code.charAt(i + 1) == '*') {
+                int end = code.indexOf("*/", i + 2);
+                i = end < 0 ? n : end + 2;
+            } else if (c == '"' || c == '\'' || c == '`') {
+                i = skipString(code, i, c);
+                tokens.add("STR");
+            } else if (Character.isDigit(c)) {
+                while (i < n && (Character.isLetterOrDigit(code.charAt(i)) || code.charAt(i) == '.' || code.charAt(i) == '_')) {
+                    i++;
+                }
+                tokens.add("NUM");
+            } else if (Character.isJavaIdentifierStart(c)) {
+                int start = i;
+                while (i < n && Character.isJavaIdentifierPart(code.charAt(i))) {
+                    i++;
+                }
+                String word = code.substring(start, i);
+                tokens.add(KEYWORDS.contains(word) ? word : "ID");
+            } else {
+                tokens.add(String.valueOf(c));
+                i++;
+            }
+        }
+        return tokens;
+    }
+
+    private static int skipLine(String code, int i) {
+        int end = code.indexOf('\n', i);
+        return end < 0 ? code.length() : end + 1;
+    }
+
+    private static int skipString(String code, int i, char quote) {
+        i++;
+        while (i < code.length()) {
+            char c = code.charAt(i);
+            if (c == '\\') {
+                i += 2;
+            } else if (c == quote || (c == '\n' && quote != '`')) {
+                return i + 1;
+            } else {
+                i++;
+            }
+        }
+        return code.length();
+    }
+
+    // SplitMix64 finalizer
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
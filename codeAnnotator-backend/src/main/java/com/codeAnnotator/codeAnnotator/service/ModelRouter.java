@@ -0,0 +1,240 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.LlmRouteStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.LlmRoutingStatsDTO;
+import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Picks the model, endpoint and call timeout of an OpenAI request from the estimated size and the language
+ * of its code:
+ * <ul>
+ *     <li>{@code SMALL}: at most {@code openai.routing.small-max-tokens} of code in one of
+ *     {@code openai.routing.small-languages}, sent to the small model with a short timeout,</li>
+ *     <li>{@code LARGE}: more than {@code openai.routing.large-min-tokens}, the default model with a long timeout,</li>
+ *     <li>{@code DEFAULT}: everything else.</li>
+ * </ul>
+ * It also keeps the recent latencies of each tier, from which the delay before an interactive call is hedged
+ * is taken, and counts how hedges end so the percentile can be tuned.
+ */
+public class ModelRouter {
+
+    public enum Tier { SMALL, DEFAULT, LARGE }
+
+    public enum HedgeOutcome { PRIMARY_WON, HEDGE_WON, BOTH_FAILED }
+
+    public record Route(Tier tier, String model, String url, long timeoutMs) {}
+
+    // Latencies kept per tier; enough for a stable p95 while still following a provider slowdown within minutes.
+    private static final int WINDOW = 512;
+
+    private final Map<Tier, Route> routes = new EnumMap<>(Tier.class);
+    private final Map<Tier, TierState> states = new EnumMap<>(Tier.class);
+    private final Set<String> smallLanguages;
+    private final int smallMaxTokens;
+    private final int largeMinTokens;
+
+    private final boolean hedgeEnabled;
+    private final String hedgeModel;
+    private final String hedgeUrl;
+    private final double hedgePercentile;
+    private final long hedgeMinDelayMs;
+    private final long hedgeInitialDelayMs;
+    private final int hedgeMinSamples;
+
+    private final String modelTag;
+
+    private final MetricsRegistry metrics;
+
+    public ModelRouter(OpenAIConfig config, MetricsRegistry metrics) {
+        this.metrics = metrics;
+        long defaultTimeoutMs = config.getDefaultTimeoutMs() > 0 ? config.getDefaultTimeoutMs() : 60_000;
+        boolean smallTier = config.getSmallModel() != null && !config.getSmallModel().isBlank();
+        routes.put(Tier.SMALL, new Route(Tier.SMALL, smallTier ? config.getSmallModel().trim() : OpenAIAgent.MODEL,
+                config.getApiUrl(), config.getSmallTimeoutMs() > 0 ? config.getSmallTimeoutMs() : defaultTimeoutMs));
+        routes.put(Tier.DEFAULT, new Route(Tier.DEFAULT, OpenAIAgent.MODEL, config.getApiUrl(), defaultTimeoutMs));
+        routes.put(Tier.LARGE, new Route(Tier.LARGE, OpenAIAgent.MODEL, config.getApiUrl(),
+                Math.max(defaultTimeoutMs, config.getLargeTimeoutMs())));
+        for (Tier tier : Tier.values()) {
+            states.put(tier, new TierState());
+        }
+        this.smallMaxTokens = smallTier ? config.getSmallMaxTokens() : -1;
+        this.largeMinTokens = config.getLargeMinTokens() > 0 ? config.getLargeMinTokens() : Integer.MAX_VALUE;
+        this.smallLanguages = new HashSet<>();
+        if (config.getSmallLanguages() != null) {
+            for (String language : languageTokens(config.getSmallLanguages())) {
+                smallLanguages.add(language);
+            }
+        }
+
+        this.hedgeEnabled = config.isHedgeEnabled();
+        this.hedgeModel = blankToNull(config.getHedgeModel());
+        this.hedgeUrl = blankToNull(config.getHedgeUrl());
+        this.hedgePercentile = config.getHedgePercentile() > 0 && config.getHedgePercentile() < 1 ? config.getHedgePercentile() : 0.95;
+        this.hedgeMinDelayMs = Math.max(0, config.getHedgeMinDelayMs());
+        this.hedgeInitialDelayMs = Math.max(hedgeMinDelayMs, config.getHedgeInitialDelayMs());
+        this.hedgeMinSamples = Math.max(1, config.getHedgeMinSamples());
+
+        StringBuilder tag = new StringBuilder(OpenAIAgent.MODEL);
+        String smallModel = routes.get(Tier.SMALL).model();
+        if (!smallModel.equals(OpenAIAgent.MODEL)) {
+            tag.append(";small=").append(smallModel).append("<=").append(smallMaxTokens)
+                    .append(':').append(String.join(",", new TreeSet<>(smallLanguages)));
+        }
+        if (hedgeEnabled && hedgeModel != null && !hedgeModel.equals(OpenAIAgent.MODEL)) {
+            tag.append(";hedge=").append(hedgeModel);
+        }
+        this.modelTag = tag.toString();
+    }
+
+    /**
+     * Which models may answer, and for which snippets: the default model, plus the small tier and the hedge model
+     * when they use another one. Cached analyses are keyed by it, so changing the routing starts a new cache rather
+     * than serving one model's answers as another's. Without either it is just {@link OpenAIAgent#MODEL}.
+     */
+    public String modelTag() {
+        return modelTag;
+    }
+
+    /** The route for {@code codeTokens} estimated tokens of code in {@code languages} (may be null). */
+    public Route route(int codeTokens, String languages) {
+        Tier tier = codeTokens > largeMinTokens ? Tier.LARGE
+                : codeTokens <= smallMaxTokens && smallLanguage(languages) ? Tier.SMALL
+                : Tier.DEFAULT;
+        Route route = routes.get(tier);
+        metrics.counter("llm_route_total", "OpenAI requests by routing tier and model",
+                "tier", tier.name().toLowerCase(Locale.ROOT), "model", route.model()).increment();
+        states.get(tier).calls.incrementAndGet();
+        return route;
+    }
+
+    public boolean hedgeEnabled() {
+        return hedgeEnabled;
+    }
+
+    /** Where the duplicate of a slow request on {@code primary} goes; the same tier, so it has the same timeout. */
+    public Route hedgeOf(Route primary) {
+        return new Route(primary.tier(), hedgeModel != null ? hedgeModel : primary.model(),
+                hedgeUrl != null ? hedgeUrl : primary.url(), primary.timeoutMs());
+    }
+
+    /**
+     * How long an interactive call on this tier runs before it is hedged: the configured percentile of the tier's
+     * recent latencies, but never below {@code openai.hedge.min-delay-ms}. So at p95 about one call in twenty is
+     * duplicated, however fast or slow the provider currently is.
+     */
+    public long hedgeDelayMs(Tier tier) {
+        long[] window = states.get(tier).snapshot();
+        if (window.length < hedgeMinSamples) {
+            return hedgeInitialDelayMs;
+        }
+        return Math.max(hedgeMinDelayMs, TimeUnit.NANOSECONDS.toMillis(percentile(window, hedgePercentile)));
+    }
+
+    /**
+     * Adds a latency to the tier's window. A hedged call is recorded once, from its first request's start to the
+     * answer it used, whichever request gave it: the hedge's own shorter time, or leaving the slow call out, would
+     * pull the percentile, and with it the hedge delay, down after every hedge.
+     */
+    public void recordLatency(Tier tier, long nanos) {
+        states.get(tier).record(nanos);
+    }
+
+    public void recordHedge(Tier tier, HedgeOutcome outcome) {
+        TierState state = states.get(tier);
+        state.hedged.incrementAndGet();
+        switch (outcome) {
+            case PRIMARY_WON -> state.primaryWins.incrementAndGet();
+            case HEDGE_WON -> state.hedgeWins.incrementAndGet();
+            case BOTH_FAILED -> state.bothFailed.incrementAndGet();
+        }
+        metrics.counter("llm_hedge_total", "Interactive OpenAI calls hedged, by which request answered",
+                "tier", tier.name().toLowerCase(Locale.ROOT), "outcome", outcome.name().toLowerCase(Locale.ROOT)).increment();
+    }
+
+    public LlmRoutingStatsDTO stats() {
+        LlmRoutingStatsDTO dto = new LlmRoutingStatsDTO();
+        dto.setHedgeEnabled(hedgeEnabled);
+        dto.setHedgePercentile(hedgePercentile);
+        List<LlmRouteStatsDTO> tiers = new ArrayList<>();
+        for (Tier tier : Tier.values()) {
+            Route route = routes.get(tier);
+            TierState state = states.get(tier);
+            long[] window = state.snapshot();
+            LlmRouteStatsDTO stats = new LlmRouteStatsDTO();
+            stats.setTier(tier.name().toLowerCase(Locale.ROOT));
+            stats.setModel(route.model());
+            stats.setTimeoutMs(route.timeoutMs());
+            stats.setCalls(state.calls.get());
+            stats.setLatencySamples(window.length);
+            stats.setP50Ms(TimeUnit.NANOSECONDS.toMillis(percentile(window, 0.5)));
+            stats.setP99Ms(TimeUnit.NANOSECONDS.toMillis(percentile(window, 0.99)));
+            stats.setHedgeDelayMs(hedgeDelayMs(tier));
+            stats.setHedged(state.hedged.get());
+            stats.setPrimaryWins(state.primaryWins.get());
+            stats.setHedgeWins(state.hedgeWins.get());
+            stats.setBothFailed(state.bothFailed.get());
+            stats.setHedgeWinRate(stats.getHedged() == 0 ? 0.0 : (double) stats.getHedgeWins() / stats.getHedged());
+            tiers.add(stats);
+        }
+        dto.setRoutes(tiers);
+        return dto;
+    }
+
+    // A snippet without a language is treated as Java, as CodeMetrics does.
+    private boolean smallLanguage(String languages) {
+        if (languages == null || languages.isBlank()) {
+            return smallLanguages.contains("java");
+        }
+        for (String language : languageTokens(languages)) {
+            if (smallLanguages.contains(language)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String[] languageTokens(String languages) {
+        return languages.toLowerCase(Locale.ROOT).split("[\\s,;|/\\[\\]\"']+");
+    }
+
+    /** Nearest-rank percentile of a sorted array; 0 for an empty one. */
+    static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(q * sorted.length);
+        return sorted[Math.min(sorted.length, Math.max(1, rank)) - 1];
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    private static final class TierState {
+        private final long[] latencies = new long[WINDOW];
+        private int size;
+        private int next;
+        private final AtomicLong calls = new AtomicLong();
+        private final AtomicLong hedged = new AtomicLong();
+        private final AtomicLong primaryWins = new AtomicLong();
+        private final AtomicLong hedgeWins = new AtomicLong();
+        private final AtomicLong bothFailed = new AtomicLong();
+
+        synchronized void record(long nanos) {
+            latencies[next] = nanos;
+            next = (next + 1) % WINDOW;
+            size = Math.min(size + 1, WINDOW);
+        }
+
+        // Sorting 512 longs is far below the cost of the LLM call it precedes.
+        synchronized long[] snapshot() {
+            long[] copy = Arrays.copyOf(latencies, size);
+            Arrays.sort(copy);
+            return copy;
+        }
+    }
+}
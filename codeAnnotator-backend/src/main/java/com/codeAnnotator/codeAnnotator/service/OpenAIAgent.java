@@ -1,99 +1,758 @@
 package com.codeAnnotator.codeAnnotator.service;
 
+import com.codeAnnotator.codeAnnotator.DTO.LlmClientStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.LlmRoutingStatsDTO;
 import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
 import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import okhttp3.*;
+import jakarta.annotation.PreDestroy;
+import okio.BufferedSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
+@Component
 public class OpenAIAgent {
 
-    private static final String OPENAI_API_URL = "https://api.openai.com/v1/responses"; // as per your request
+    private static final Logger log = LoggerFactory.getLogger(OpenAIAgent.class);
+
     private static final MediaType JSON = MediaType.parse("application/json");
 
-    private static OpenAIConfig openAIConfig;
+    public static final String MODEL = "gpt-4.1";
+
+    // Bump whenever buildPrompt changes so cached analyses from the old prompt are not reused.
+    public static final String PROMPT_VERSION = "1";
+
+    private final OpenAIConfig openAIConfig;
+
+    // Runs the requests for the chunks of large snippets.
+    private final ExecutorService chunkPool;
+
+    // Rate limits, bulkhead, retries and circuit breaker around every request.
+    private final LlmCallGuard guard;
+
+    // Model and timeout per request, and the hedge delay of interactive calls.
+    private final ModelRouter routing;
+
+    // Runs both sides of hedged calls while the caller waits for the first valid answer.
+    private final ExecutorService hedgePool;
+
+    private final OkHttpClient client;
+
+    private final MetricsRegistry metrics;
 
-    @Autowired
     public OpenAIAgent(OpenAIConfig openAIConfig) {
+        this(openAIConfig, new MetricsRegistry());
+    }
+
+    @Autowired
+    public OpenAIAgent(OpenAIConfig openAIConfig, MetricsRegistry metrics) {
         this.openAIConfig = openAIConfig;
+        this.metrics = metrics;
+        AtomicLong threads = new AtomicLong();
+        this.chunkPool = Executors.newFixedThreadPool(Math.max(1, openAIConfig.getChunkParallelism()), runnable -> {
+            Thread thread = new Thread(runnable, "openai-chunk-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.guard = new LlmCallGuard(openAIConfig);
+        this.routing = new ModelRouter(openAIConfig, metrics);
+        AtomicLong hedgeThreads = new AtomicLong();
+        this.hedgePool = Executors.newCachedThreadPool(runnable -> {
+            Thread thread = new Thread(runnable, "openai-hedge-" + hedgeThreads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        // Keep a pooled connection for every call the bulkhead lets through; retries are LlmCallGuard's job.
+        this.client = new OkHttpClient.Builder()
+                .connectTimeout(30, TimeUnit.SECONDS)
+                .readTimeout(60, TimeUnit.SECONDS)
+                .writeTimeout(60, TimeUnit.SECONDS)
+                .connectionPool(new ConnectionPool(Math.max(5, openAIConfig.getMaxConcurrentCalls()), 5, TimeUnit.MINUTES))
+                .retryOnConnectionFailure(false)
+                .build();
+
+        metrics.gauge("llm_client_in_flight", "OpenAI calls holding a bulkhead slot", () -> guard.stats().getInFlight());
+        metrics.gauge("llm_circuit_open", "1 while the OpenAI circuit breaker fails calls fast",
+                () -> "OPEN".equals(guard.stats().getCircuitState()) ? 1 : 0);
+        metrics.counter("llm_client_retries_total", "OpenAI attempts retried after 429, 5xx or I/O errors",
+                () -> guard.stats().getRetries());
+        metrics.counter("llm_client_rejected_total", "OpenAI calls rejected without being sent",
+                () -> guard.stats().getRejectedCircuitOpen(), "reason", "circuit_open");
+        metrics.counter("llm_client_rejected_total", "OpenAI calls rejected without being sent",
+                () -> guard.stats().getRejectedLimits(), "reason", "limits");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        chunkPool.shutdownNow();
+        hedgePool.shutdownNow();
     }
 
     private static final ObjectMapper mapper = new ObjectMapper();
 
-    private static final OkHttpClient client = new OkHttpClient.Builder()
-            .connectTimeout(30, TimeUnit.SECONDS)
-            .readTimeout(60, TimeUnit.SECONDS)
-            .writeTimeout(60, TimeUnit.SECONDS)
-            .build();
+    public LlmClientStatsDTO clientStats() {
+        return guard.stats();
+    }
+
+    public LlmRoutingStatsDTO routingStats() {
+        return routing.stats();
+    }
 
-    public static List<SmellAnnotationDTO> analyzeCode(String code) {
+    /** See {@link ModelRouter#modelTag()}. */
+    public String modelTag() {
+        return routing.modelTag();
+    }
+
+    public List<SmellAnnotationDTO> analyzeCode(String code) {
+        return tryAnalyzeCode(code).orElse(List.of());
+    }
+
+    /** A background analysis of code in an unknown language; see {@link #tryAnalyzeCode(String, String, boolean)}. */
+    public Optional<List<SmellAnnotationDTO>> tryAnalyzeCode(String code) {
+        return tryAnalyzeCode(code, null, false);
+    }
+
+    /**
+     * Same as {@link #analyzeCode(String)} but distinguishes a failed call (empty Optional)
+     * from a successful analysis that found no smells (empty list), so failures are never cached.
+     * Snippets whose prompt would exceed {@code openai.chunk.max-input-tokens} are analyzed in chunks.
+     * The model and timeout are picked by {@link ModelRouter} from the size of the code and its {@code languages}.
+     *
+     * @param interactive someone is waiting for this answer, so a slow request is hedged (single prompts only:
+     *                    the chunks of a large snippet already run in parallel)
+     */
+    public Optional<List<SmellAnnotationDTO>> tryAnalyzeCode(String code, String languages, boolean interactive) {
+        return analyze(code, languages, interactive).map(LlmAnswer::smells);
+    }
+
+    /** Like {@link #tryAnalyzeCode(String, String, boolean)}, also telling which model answered. */
+    public Optional<LlmAnswer> analyze(String code, String languages, boolean interactive) {
+        long start = System.nanoTime();
+        List<SnippetChunker.Chunk> chunks = chunk(code);
+        Optional<LlmAnswer> result;
+        if (chunks.size() > 1) {
+            result = analyzeChunks(chunks, languages, smell -> {});
+        } else {
+            ModelRouter.Route route = routing.route(estimateTokens(code), languages);
+            result = interactive && routing.hedgeEnabled()
+                    ? hedgedPrompt(buildPrompt(code), route)
+                    : analyzePrompt(buildPrompt(code), "single", route, null, true);
+        }
+        recordAnalysis(chunks.size() > 1 ? "chunked" : "single", result, start);
+        return result;
+    }
+
+    /**
+     * Sends the prompt on {@code route} and, if it has not answered within the tier's hedge delay, the same prompt
+     * on the hedge route as well. The first valid answer is used and the other request is cancelled; a request that
+     * fails or answers malformed leaves the race to the other. Hedges go through the guard like any request, so
+     * they count against the rate limits and the bulkhead. The tier's latency window gets the call's end-to-end
+     * time once, never the hedge's own shorter time, which would pull the hedge delay down after every hedge.
+     */
+    private Optional<LlmAnswer> hedgedPrompt(String prompt, ModelRouter.Route route) {
+        long start = System.nanoTime();
+        Cancellation primaryCancellation = new Cancellation();
+        CompletableFuture<Optional<LlmAnswer>> primary = CompletableFuture.supplyAsync(
+                () -> analyzePrompt(prompt, "single", route, primaryCancellation, false), hedgePool);
+        try {
+            Optional<LlmAnswer> answer = primary.get(routing.hedgeDelayMs(route.tier()), TimeUnit.MILLISECONDS);
+            answer.ifPresent(found -> routing.recordLatency(route.tier(), System.nanoTime() - start));
+            return answer;
+        } catch (TimeoutException e) {
+            // Slower than the tier's percentile: hedge.
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            primaryCancellation.cancel();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            log.warn("Analysis failed", e.getCause());
+            return Optional.empty();
+        }
+
+        Cancellation hedgeCancellation = new Cancellation();
+        CompletableFuture<Optional<LlmAnswer>> hedge = CompletableFuture.supplyAsync(
+                () -> analyzePrompt(prompt, "hedge", routing.hedgeOf(route), hedgeCancellation, false), hedgePool);
+        CompletableFuture<ModelRouter.HedgeOutcome> winner = new CompletableFuture<>();
+        primary.thenAccept(result -> result.ifPresent(answer -> winner.complete(ModelRouter.HedgeOutcome.PRIMARY_WON)));
+        hedge.thenAccept(result -> result.ifPresent(answer -> winner.complete(ModelRouter.HedgeOutcome.HEDGE_WON)));
+        CompletableFuture.allOf(primary, hedge).whenComplete((ignored, error) -> winner.complete(
+                isValid(primary) ? ModelRouter.HedgeOutcome.PRIMARY_WON
+                        : isValid(hedge) ? ModelRouter.HedgeOutcome.HEDGE_WON
+                        : ModelRouter.HedgeOutcome.BOTH_FAILED));
+
+        ModelRouter.HedgeOutcome outcome = winner.join();
+        routing.recordHedge(route.tier(), outcome);
+        if (outcome != ModelRouter.HedgeOutcome.BOTH_FAILED) {
+            routing.recordLatency(route.tier(), System.nanoTime() - start);
+        }
+        return switch (outcome) {
+            case PRIMARY_WON -> {
+                hedgeCancellation.cancel();
+                yield primary.join();
+            }
+            case HEDGE_WON -> {
+                primaryCancellation.cancel();
+                yield hedge.join();
+            }
+            case BOTH_FAILED -> Optional.empty();
+        };
+    }
+
+    private static boolean isValid(CompletableFuture<Optional<LlmAnswer>> call) {
+        return call.isDone() && !call.isCompletedExceptionally() && call.join().isPresent();
+    }
+
+    // Hedged calls pass recordLatency false: hedgedPrompt records their end-to-end time instead.
+    private Optional<LlmAnswer> analyzePrompt(String prompt, String kind, ModelRouter.Route route,
+                                              Cancellation cancellation, boolean recordLatency) {
+        long start = System.nanoTime();
         try {
-            // Construct the input message
-            String prompt = buildPrompt(code);
+            Optional<String> text = requestText(prompt, kind, route, cancellation);
+            if (text.isEmpty()) {
+                return Optional.empty();
+            }
+            List<SmellAnnotationDTO> smells = parseAnswer(text.get());
+            if (recordLatency) {
+                routing.recordLatency(route.tier(), System.nanoTime() - start);
+            }
+            return Optional.of(new LlmAnswer(smells, route.model()));
+        } catch (CancelledException e) {
+            return Optional.empty();
+        } catch (LlmCallGuard.UnavailableException e) {
+            log.warn("Analysis unavailable: {}", e.getMessage());
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("Analysis failed", e);
+            return Optional.empty();
+        }
+    }
 
-            System.out.println("prommot is "+prompt);
+    // Outcome "failed" covers both unavailable and malformed answers; llm_request_seconds tells them apart.
+    private void recordAnalysis(String mode, Optional<LlmAnswer> result, long start) {
+        String outcome = result.isEmpty() ? "failed" : result.get().smells().isEmpty() ? "no_smells" : "smells";
+        metrics.timer("llm_analysis_seconds", "Snippet analyses by the LLM, end to end", "mode", mode, "outcome", outcome)
+                .recordNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Streaming variant of {@link #tryAnalyzeCode(String)}: requests server-sent events and parses the output
+     * text as it arrives, handing each smell to {@code onSmell} as soon as its JSON object is complete.
+     *
+     * @return the full analysis once the stream ends, or empty if the call or the answer failed
+     */
+    public Optional<List<SmellAnnotationDTO>> streamAnalyzeCode(String code, Consumer<SmellAnnotationDTO> onSmell) {
+        return streamAnalyzeCode(code, null, onSmell);
+    }
 
+    /**
+     * Streaming analysis routed by the size and {@code languages} of the code. Streams are not hedged: once smells
+     * have been passed on they cannot be taken back if the other request answered differently.
+     */
+    public Optional<List<SmellAnnotationDTO>> streamAnalyzeCode(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        return streamAnalyze(code, languages, onSmell).map(LlmAnswer::smells);
+    }
+
+    /** Like {@link #streamAnalyzeCode(String, String, Consumer)}, also telling which model answered. */
+    public Optional<LlmAnswer> streamAnalyze(String code, String languages, Consumer<SmellAnnotationDTO> onSmell) {
+        long start = System.nanoTime();
+        List<SnippetChunker.Chunk> chunks = chunk(code);
+        // Each chunk's smells are passed on as soon as that chunk's request completes.
+        Optional<LlmAnswer> result = chunks.size() > 1
+                ? analyzeChunks(chunks, languages, onSmell)
+                : streamPrompt(buildPrompt(code), routing.route(estimateTokens(code), languages), onSmell);
+        recordAnalysis(chunks.size() > 1 ? "chunked" : "stream", result, start);
+        return result;
+    }
+
+    private Optional<LlmAnswer> streamPrompt(String prompt, ModelRouter.Route route, Consumer<SmellAnnotationDTO> onSmell) {
+        try {
             Map<String, Object> requestBody = new HashMap<>();
-            requestBody.put("model", "gpt-4.1");
+            requestBody.put("model", route.model());
             requestBody.put("input", prompt);
+            requestBody.put("stream", true);
 
-            String jsonRequest = mapper.writeValueAsString(requestBody);
-
-            // Build request
             Request request = new Request.Builder()
-                    .url(OPENAI_API_URL)
+                    .url(route.url())
                     .addHeader("Authorization", "Bearer " + openAIConfig.getApiKey())
-                    .addHeader("Content-Type", "application/json")
-                    .post(RequestBody.create(jsonRequest, JSON))
+                    .addHeader("Accept", "text/event-stream")
+                    .post(RequestBody.create(mapper.writeValueAsString(requestBody), JSON))
                     .build();
 
-            // Send request and process response
-            try (Response response = client.newCall(request).execute()) {
+            boolean sampled = logSampled("stream", route.model(), prompt);
+            return guardedCall("stream", prompt, () -> execute("stream", request, route.timeoutMs(), null, response -> {
                 if (!response.isSuccessful() || response.body() == null) {
-                    System.err.println("API error: " + response.code() + " - " + response.message());
-                    return List.of();
+                    LlmCallGuard.throwIfRetryable(response);
+                    log.warn("API error: {} - {}", response.code(), response.message());
+                    return Optional.<List<SmellAnnotationDTO>>empty();
+                }
+                Optional<List<SmellAnnotationDTO>> smells = readStream(response.body().source(), new SmellStreamParser(onSmell));
+                if (sampled) {
+                    log.debug("openai response kind=stream status={} smells={}", response.code(), smells.map(List::size).orElse(-1));
                 }
+                return smells;
+            })).map(smells -> new LlmAnswer(smells, route.model()));
+        } catch (LlmCallGuard.UnavailableException e) {
+            log.warn("Analysis unavailable: {}", e.getMessage());
+            return Optional.empty();
+        } catch (Exception e) {
+            log.warn("Streaming analysis failed", e);
+            return Optional.empty();
+        }
+    }
 
-                String responseBody = response.body().string();
-                System.out.println("Raw Response:\n" + responseBody);
+    /**
+     * Feeds the event stream to the parser. A stream that breaks off is not retried, since some of its smells
+     * may already have been passed on; the analysis just fails.
+     */
+    static Optional<List<SmellAnnotationDTO>> readStream(BufferedSource source, SmellStreamParser parser) {
+        try {
+            String line;
+            while ((line = source.readUtf8Line()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue; // "event:" names are repeated in the payload's "type"; blank lines end an event
+                }
+                StreamEvent event = parseEvent(line.substring(5).trim());
+                if (event.type() == null) {
+                    continue;
+                }
+                switch (event.type()) {
+                    case "response.output_text.delta" -> parser.feed(event.delta());
+                    case "response.completed" -> {
+                        return parser.finish();
+                    }
+                    case "response.failed", "response.incomplete", "error" -> {
+                        log.warn("Streaming analysis ended with {}", event.type());
+                        return Optional.empty();
+                    }
+                    default -> {
+                        // created / in_progress / content_part events carry nothing we need
+                    }
+                }
+            }
+            return parser.finish();
+        } catch (IOException e) {
+            log.warn("Streaming analysis broke off: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /** Reads only the top-level "type" and "delta" of an SSE payload, skipping everything else unparsed. */
+    static StreamEvent parseEvent(String data) throws IOException {
+        if (data.isEmpty() || data.equals("[DONE]")) {
+            return new StreamEvent(data.isEmpty() ? null : "response.completed", "");
+        }
+        String type = null;
+        String delta = "";
+        try (JsonParser parser = mapper.getFactory().createParser(data)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return new StreamEvent(null, "");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("type".equals(name) && value == JsonToken.VALUE_STRING) {
+                    type = parser.getText();
+                } else if ("delta".equals(name) && value == JsonToken.VALUE_STRING) {
+                    delta = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return new StreamEvent(type, delta);
+    }
+
+    record StreamEvent(String type, String delta) {}
 
-                // Assume full response is the JSON array we expect
-                JsonNode root = mapper.readTree(responseBody);
-                String text = root.path("output").get(0)
-                        .path("content").get(0)
-                        .path("text").asText();
+    /** How many requests an analysis of this code sends: one per chunk. */
+    public int requestCount(String code) {
+        return chunk(code).size();
+    }
 
-                if (text.trim().equalsIgnoreCase("No")) {
-                    return List.of(); // No issues found
+    /** The code as one chunk when its prompt fits {@code openai.chunk.max-input-tokens} (or chunking is off). */
+    List<SnippetChunker.Chunk> chunk(String code) {
+        int maxInputTokens = openAIConfig.getChunkMaxInputTokens();
+        if (maxInputTokens <= 0 || estimateTokens(buildPrompt(code)) <= maxInputTokens) {
+            return SnippetChunker.split(code, Integer.MAX_VALUE);
+        }
+        int codeBudget = maxInputTokens - estimateTokens(SMELL_GUIDE) - estimateTokens(SINGLE_OUTPUT_FORMAT) - CHUNK_CONTEXT_TOKENS;
+        return SnippetChunker.split(code, Math.max(codeBudget, CHUNK_CONTEXT_TOKENS));
+    }
+
+    /**
+     * Analyzes each chunk with its own request, at most {@code openai.chunk.parallelism} at a time, so a large
+     * snippet takes about as long as its slowest chunk rather than the whole file. If any chunk fails the
+     * whole analysis fails, so a partial answer is never cached as complete.
+     */
+    private Optional<LlmAnswer> analyzeChunks(List<SnippetChunker.Chunk> chunks, String languages,
+                                              Consumer<SmellAnnotationDTO> onSmell) {
+        SnippetChunker.Merger merger = new SnippetChunker.Merger();
+        // Chunks of different sizes may be routed to different models.
+        Set<String> models = new ConcurrentSkipListSet<>();
+        List<CompletableFuture<Boolean>> calls = chunks.stream()
+                .map(chunk -> CompletableFuture.supplyAsync(() -> analyzePrompt(buildChunkPrompt(chunk), "chunk",
+                                routing.route(estimateTokens(chunk.code()), languages), null, true), chunkPool)
+                        .thenApply(answer -> {
+                            answer.ifPresent(found -> {
+                                merger.add(chunk, found.smells(), onSmell);
+                                models.add(found.model());
+                            });
+                            return answer.isPresent();
+                        }))
+                .toList();
+        try {
+            for (CompletableFuture<Boolean> call : calls) {
+                if (!call.join()) {
+                    // Requests already sent still complete; their answers are dropped.
+                    calls.forEach(pending -> pending.cancel(false));
+                    return Optional.empty();
                 }
+            }
+        } catch (CompletionException e) {
+            log.warn("Chunked analysis failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+        return Optional.of(new LlmAnswer(merger.result(), String.join(",", models)));
+    }
 
-// Now parse the embedded JSON array string
-                JsonNode annotationArray = mapper.readTree(text);
-                List<SmellAnnotationDTO> result = new ArrayList<>();
-
-                for (JsonNode node : annotationArray) {
-                    SmellAnnotationDTO dto = new SmellAnnotationDTO();
-                    dto.setSmellType(node.path("smellType").asText());
-                    dto.setCategory(node.path("category").asText());
-                    dto.setSuggestion(node.path("suggestion").asText());
-                    dto.setRefactoredCode(node.path("refactoredCode").asText());
-                    result.add(dto);
+    /**
+     * Analyzes several snippets with as few requests as possible: snippets are packed into one prompt
+     * up to {@code openai.batch.max-input-tokens}, tagged by id, and the JSON object answer is split back
+     * per snippet. Items the model answered malformed (or whole batches that failed) fall back to
+     * {@link #tryAnalyzeCode(String)}. Snippets whose analysis failed either way are absent from the result.
+     */
+    public Map<Long, List<SmellAnnotationDTO>> analyzeBatch(List<CodeSnippet> snippets) {
+        Map<Long, List<SmellAnnotationDTO>> results = new LinkedHashMap<>();
+        for (List<CodeSnippet> batch : packBatches(snippets, openAIConfig.getBatchMaxInputTokens())) {
+            Map<Long, List<SmellAnnotationDTO>> answered = batch.size() == 1 ? Map.of() : requestBatch(batch);
+            for (CodeSnippet snippet : batch) {
+                List<SmellAnnotationDTO> smells = answered.get(snippet.getId());
+                if (smells != null) {
+                    results.put(snippet.getId(), smells);
+                } else {
+                    tryAnalyzeCode(snippet.getCode(), snippet.getLanguages(), false)
+                            .ifPresent(single -> results.put(snippet.getId(), single));
                 }
-                return result;
+            }
+        }
+        return results;
+    }
+
+    private Map<Long, List<SmellAnnotationDTO>> requestBatch(List<CodeSnippet> batch) {
+        Map<Long, List<SmellAnnotationDTO>> answered = new HashMap<>();
+        try {
+            int codeTokens = batch.stream().mapToInt(snippet -> estimateTokens(snippet.getCode())).sum();
+            Optional<String> text = requestText(buildBatchPrompt(batch), "batch", routing.route(codeTokens, commonLanguages(batch)), null);
+            if (text.isEmpty()) {
+                return answered;
             }
 
+            JsonNode byId = mapper.readTree(stripCodeFence(text.get()));
+            if (!byId.isObject()) {
+                log.warn("Batch analysis returned {} instead of an object", byId.getNodeType());
+                return answered;
+            }
+
+            for (CodeSnippet snippet : batch) {
+                JsonNode item = byId.get(String.valueOf(snippet.getId()));
+                if (item == null) {
+                    continue;
+                }
+                if (item.isTextual() && item.asText().trim().equalsIgnoreCase("No")) {
+                    answered.put(snippet.getId(), List.of());
+                } else if (item.isArray() && isWellFormed(item)) {
+                    answered.put(snippet.getId(), toSmells(item));
+                }
+            }
         } catch (Exception e) {
-            e.printStackTrace();
-            return List.of();
+            log.warn("Batch analysis failed, falling back to single requests: {}", e.getMessage());
+        }
+        return answered;
+    }
+
+    // The languages shared by the whole batch, or a value no language matches if they differ.
+    private static String commonLanguages(List<CodeSnippet> batch) {
+        String languages = batch.get(0).getLanguages();
+        for (CodeSnippet snippet : batch) {
+            if (!Objects.equals(languages, snippet.getLanguages())) {
+                return "mixed";
+            }
+        }
+        return languages;
+    }
+
+    /**
+     * Sends the prompt through the {@link LlmCallGuard} and returns the model's output text, or empty if the
+     * request was rejected as invalid.
+     *
+     * @throws LlmCallGuard.UnavailableException if the limits, retries or circuit breaker gave up on the call
+     * @throws CancelledException if {@code cancellation} (may be null) was cancelled by the hedge of this call
+     */
+    private Optional<String> requestText(String prompt, String kind, ModelRouter.Route route, Cancellation cancellation) throws IOException {
+        Map<String, Object> requestBody = new HashMap<>();
+        requestBody.put("model", route.model());
+        requestBody.put("input", prompt);
+
+        String jsonRequest = mapper.writeValueAsString(requestBody);
+
+        // Build request
+        Request request = new Request.Builder()
+                .url(route.url())
+                .addHeader("Authorization", "Bearer " + openAIConfig.getApiKey())
+                .addHeader("Content-Type", "application/json")
+                .post(RequestBody.create(jsonRequest, JSON))
+                .build();
+
+        // Send request and process response
+        boolean sampled = logSampled(kind, route.model(), prompt);
+        return guardedCall(kind, prompt, () -> execute(kind, request, route.timeoutMs(), cancellation, response -> {
+            if (!response.isSuccessful() || response.body() == null) {
+                LlmCallGuard.throwIfRetryable(response);
+                log.warn("API error: {} - {}", response.code(), response.message());
+                return Optional.<String>empty();
+            }
+
+            String responseBody = response.body().string();
+            metrics.histogram("llm_response_chars", "Size of OpenAI response bodies", MetricsRegistry.SIZES, "kind", kind)
+                    .record(responseBody.length());
+            if (sampled) {
+                log.debug("openai response kind={} status={} chars={} body={}", kind, response.code(), responseBody.length(), responseBody);
+            }
+            return Optional.of(outputText(responseBody));
+        }));
+    }
+
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
+    }
+
+    /**
+     * One HTTP attempt, timed by status so provider latency can be told apart from time spent queueing
+     * and backing off in the guard. {@code timeoutMs} bounds the whole attempt, body included.
+     */
+    private <T> T execute(String kind, Request request, long timeoutMs, Cancellation cancellation,
+                          ResponseHandler<T> handler) throws IOException {
+        Call call = client.newCall(request);
+        call.timeout().timeout(timeoutMs, TimeUnit.MILLISECONDS);
+        if (cancellation != null && !cancellation.register(call)) {
+            throw new CancelledException();
+        }
+        long start = System.nanoTime();
+        String status = "io_error";
+        try (Response response = call.execute()) {
+            status = String.valueOf(response.code());
+            return handler.handle(response);
+        } catch (IOException e) {
+            if (cancellation != null && cancellation.isCancelled()) {
+                status = "cancelled";
+                throw new CancelledException();
+            }
+            throw e;
+        } finally {
+            metrics.timer("llm_http_seconds", "Single HTTP attempts against the OpenAI API", "kind", kind, "status", status)
+                    .recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /** A guarded call, timed by outcome including rate-limit waits, retries and backoff. */
+    private <T> Optional<T> guardedCall(String kind, String prompt, LlmCallGuard.Attempt<Optional<T>> attempt) throws IOException {
+        metrics.histogram("llm_prompt_chars", "Size of prompts sent to OpenAI", MetricsRegistry.SIZES, "kind", kind)
+                .record(prompt.length());
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Optional<T> result = guard.call(estimateTokens(prompt), attempt);
+            outcome = result.isPresent() ? "ok" : "rejected";
+            return result;
+        } catch (LlmCallGuard.UnavailableException e) {
+            outcome = "unavailable";
+            throw e;
+        } catch (CancelledException e) {
+            outcome = "cancelled";
+            throw e;
+        } finally {
+            metrics.timer("llm_request_seconds", "OpenAI calls including limits, retries and backoff", "kind", kind, "outcome", outcome)
+                    .recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Decides whether this call's prompt and response are logged. Bodies are large, so only a sample of
+     * {@code openai.log.sample-rate} of the calls is logged, at debug level.
+     */
+    private boolean logSampled(String kind, String model, String prompt) {
+        boolean sampled = log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < openAIConfig.getLogSampleRate();
+        if (sampled) {
+            log.debug("openai request kind={} model={} promptChars={} promptTokens~={} prompt={}",
+                    kind, model, prompt.length(), estimateTokens(prompt), prompt);
+        }
+        return sampled;
+    }
+
+    /** Lets one side of a hedged call abort the other's request once it has answered. */
+    static final class Cancellation {
+        private boolean cancelled;
+        private Call call;
+
+        /** Tracks the attempt about to be sent; false if the call was cancelled already. */
+        synchronized boolean register(Call next) {
+            if (!cancelled) {
+                call = next;
+            }
+            return !cancelled;
+        }
+
+        synchronized void cancel() {
+            cancelled = true;
+            if (call != null) {
+                call.cancel();
+            }
+        }
+
+        synchronized boolean isCancelled() {
+            return cancelled;
         }
     }
 
-    private static String buildPrompt(String code) {
-        return """
+    /**
+     * Ends a request whose hedge answered first. It is a runtime exception so the guard neither retries it nor
+     * counts it against the circuit breaker.
+     */
+    static final class CancelledException extends RuntimeException {
+        CancelledException() {
+            super("cancelled by hedge", null, false, false);
+        }
+    }
+
+    /** The model's output text from a Responses API body. */
+    static String outputText(String responseBody) throws IOException {
+        JsonNode root = mapper.readTree(responseBody);
+        return root.path("output").get(0)
+                .path("content").get(0)
+                .path("text").asText();
+    }
+
+    /** The smells of a single-snippet answer: a JSON array, or "No" when there are none. */
+    static List<SmellAnnotationDTO> parseAnswer(String text) throws IOException {
+        if (text.trim().equalsIgnoreCase("No")) {
+            return List.of(); // No issues found
+        }
+        // Now parse the embedded JSON array string
+        return toSmells(mapper.readTree(text));
+    }
+
+    private static List<SmellAnnotationDTO> toSmells(JsonNode annotationArray) {
+        List<SmellAnnotationDTO> result = new ArrayList<>();
+        for (JsonNode node : annotationArray) {
+            SmellAnnotationDTO dto = new SmellAnnotationDTO();
+            dto.setSmellType(node.path("smellType").asText());
+            dto.setCategory(node.path("category").asText());
+            dto.setSuggestion(node.path("suggestion").asText());
+            dto.setRefactoredCode(node.path("refactoredCode").asText());
+            result.add(dto);
+        }
+        return result;
+    }
+
+    private static boolean isWellFormed(JsonNode annotationArray) {
+        for (JsonNode node : annotationArray) {
+            if (!node.isObject() || !node.path("smellType").isTextual()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String stripCodeFence(String text) {
+        String trimmed = text.trim();
+        if (trimmed.startsWith("```")) {
+            int firstNewline = trimmed.indexOf('\n');
+            int closingFence = trimmed.lastIndexOf("```");
+            if (firstNewline > 0 && closingFence > firstNewline) {
+                return trimmed.substring(firstNewline + 1, closingFence);
+            }
+        }
+        return trimmed;
+    }
+
+    /** Groups snippets in order so each group's estimated prompt stays within the token budget. */
+    static List<List<CodeSnippet>> packBatches(List<CodeSnippet> snippets, int maxInputTokens) {
+        List<List<CodeSnippet>> batches = new ArrayList<>();
+        List<CodeSnippet> current = new ArrayList<>();
+        int budget = maxInputTokens - estimateTokens(SMELL_GUIDE) - estimateTokens(BATCH_OUTPUT_FORMAT);
+        int used = 0;
+        for (CodeSnippet snippet : snippets) {
+            int cost = estimateTokens(snippet.getCode()) + SNIPPET_TAG_TOKENS;
+            if (!current.isEmpty() && used + cost > budget) {
+                batches.add(current);
+                current = new ArrayList<>();
+                used = 0;
+            }
+            current.add(snippet);
+            used += cost;
+        }
+        if (!current.isEmpty()) {
+            batches.add(current);
+        }
+        return batches;
+    }
+
+    /** Rough token count (~4 characters per token for English and source code). */
+    static int estimateTokens(String text) {
+        return text == null ? 0 : (text.length() + 3) / 4;
+    }
+
+    static String buildBatchPrompt(List<CodeSnippet> batch) {
+        StringBuilder prompt = new StringBuilder(SMELL_GUIDE).append(BATCH_OUTPUT_FORMAT);
+        for (CodeSnippet snippet : batch) {
+            prompt.append("\n### Snippet id=").append(snippet.getId()).append('\n')
+                    .append(snippet.getCode())
+                    .append("\n### End snippet id=").append(snippet.getId()).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    static String buildPrompt(String code) {
+        return SMELL_GUIDE + SINGLE_OUTPUT_FORMAT + code;
+    }
+
+    static String buildChunkPrompt(SnippetChunker.Chunk chunk) {
+        StringBuilder prompt = new StringBuilder(SMELL_GUIDE)
+                .append("The code below is part ").append(chunk.index() + 1).append(" of ").append(chunk.count())
+                .append(" of a larger snippet (lines ").append(chunk.firstLine()).append('-').append(chunk.lastLine()).append(").");
+        if (!chunk.context().isEmpty()) {
+            prompt.append(" It is nested inside:\n");
+            chunk.context().forEach(header -> prompt.append(header).append('\n'));
+        } else {
+            prompt.append('\n');
+        }
+        prompt.append("Report only smells visible in this part.\n\n");
+        return prompt.append(SINGLE_OUTPUT_FORMAT).append(chunk.code()).toString();
+    }
+
+    private static final String SMELL_GUIDE = """
 You are an expert in software design and code quality. Analyze the following Java code snippet for known code smells and anti-patterns.
 
 Focus only on:
@@ -128,17 +787,35 @@ A function or component that tries to do too many different things, often throug
 Magic Numbers:
 Hardcoded values used directly in code without explanation, reducing readability and maintainability.
 
-if code smells and anti patterns have slightly then make it as having. 
+if code smells and anti patterns have slightly then make it as having.
 
+""";
+
+    private static final String SINGLE_OUTPUT_FORMAT = """
 Return a response ONLY as a JSON array of objects with these fields:
 - smellType
 - category
 - suggestion
 - refactoredCode
 
-if no code smell or anti patten then print exactly "No" 
+if no code smell or anti patten then print exactly "No"
 
 Code:
-""" + code;
-    }
+""";
+
+    private static final String BATCH_OUTPUT_FORMAT = """
+The input contains several code snippets, each wrapped in "### Snippet id=<id>" and "### End snippet id=<id>" lines.
+Analyze every snippet independently.
+
+Return a response ONLY as a JSON object whose keys are the snippet ids (as strings). The value for each id is either:
+- a JSON array of objects with these fields: smellType, category, suggestion, refactoredCode
+- or exactly the string "No" if that snippet has no code smell or anti pattern
+
+Snippets:
+""";
+
+    private static final int SNIPPET_TAG_TOKENS = 16;
+
+    // Part number, line range and enclosing declarations added to a chunk's prompt.
+    private static final int CHUNK_CONTEXT_TOKENS = 100;
 }
@@ -0,0 +1,335 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SearchIndexStatusDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSearchQueryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSearchResultDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository.Facet;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository.SmellText;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Full-text and smell search over snippets, backed by an inverted index in the database ({@link SearchTerms} keys
+ * per snippet). Snippets are indexed with their ingestion chunk, and their smell types, categories and suggestion
+ * texts once an annotation is committed; a rebuild re-derives the whole index from the tables.
+ */
+@Service
+public class SearchIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SearchIndexService.class);
+
+    // Bounds the postings of one huge snippet; a generated file has few words worth searching beyond this
+    private static final int MAX_TERMS_PER_SNIPPET = 5000;
+
+    @Autowired
+    private SearchIndexRepository searchRepo;
+
+    @Autowired
+    private BrowseRepository browseRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MetricsRegistry metrics;
+
+    @Value("${search.enabled:true}")
+    private boolean enabled;
+
+    @Value("${search.page.max-size:100}")
+    private int maxPageSize;
+
+    // Totals and facets look at this many matches at most, so a query for a common word stays cheap
+    @Value("${search.facet-sample:10000}")
+    private int facetSample;
+
+    @Value("${search.facet-size:20}")
+    private int facetSize;
+
+    @Value("${search.rebuild-page-size:500}")
+    private int rebuildPageSize;
+
+    private final ExecutorService rebuildExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+
+    private final AtomicLong snippetsIndexed = new AtomicLong();
+    private final AtomicLong postingsAdded = new AtomicLong();
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+
+    /**
+     * Indexes freshly inserted snippets. Runs in the caller's transaction, so the postings are committed
+     * together with the snippets.
+     */
+    public void index(List<Long> snippetIds, List<CodeSnippet> snippets) {
+        if (!enabled || snippetIds.isEmpty()) {
+            return;
+        }
+        Map<Long, Set<Long>> terms = new LinkedHashMap<>();
+        for (int i = 0; i < snippetIds.size(); i++) {
+            terms.put(snippetIds.get(i), snippetTerms(snippets.get(i)));
+        }
+        addPostings(terms);
+    }
+
+    // After commit, so the smells are visible; a failure leaves the annotation saved and is repaired by a rebuild.
+    @TransactionalEventListener
+    public void onAnnotationSaved(AnnotationSavedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            tx.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            tx.executeWithoutResult(status -> indexSmells(List.of(event.codeSnippetId())));
+        } catch (RuntimeException e) {
+            log.warn("Could not index the smells of snippet {}", event.codeSnippetId(), e);
+        }
+    }
+
+    void indexSmells(Collection<Long> snippetIds) {
+        Map<Long, List<SmellText>> smells = searchRepo.findSmells(snippetIds);
+        Map<Long, Set<Long>> terms = new LinkedHashMap<>();
+        smells.forEach((snippetId, texts) -> terms.put(snippetId, smellTerms(texts, new HashSet<>())));
+        addPostings(terms);
+    }
+
+    /**
+     * Snippets matching every criterion of the query, in id order. The first page (no {@code after}) also carries
+     * the number of matches and the facet counts, both over the first {@code search.facet-sample} matches.
+     *
+     * @throws IllegalArgumentException if the query has no criterion
+     */
+    public SnippetSearchResultDTO search(SnippetSearchQueryDTO query, Long after, int limit) {
+        List<Long> terms = queryTerms(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search needs a query or a filter");
+        }
+        int size = Math.max(1, Math.min(limit, maxPageSize));
+        SnippetSearchResultDTO result = new SnippetSearchResultDTO();
+
+        // Rarest term first: it drives the scan, the others are only probed. An unknown term matches nothing.
+        Map<Long, Long> docCounts = metrics.timeQuery("search", "findDocCounts", () -> searchRepo.findDocCounts(terms));
+        List<Long> ordered = terms.stream().sorted(Comparator.comparingLong(t -> docCounts.getOrDefault(t, 0L))).toList();
+        if (docCounts.size() < terms.size()) {
+            result.setItems(List.of());
+            if (after == null) {
+                result.setTotal(0L);
+                result.setTotalExact(true);
+                result.setFacets(Map.of());
+            }
+            return result;
+        }
+
+        List<Long> ids = metrics.timeQuery("search", "findMatches",
+                () -> searchRepo.findMatches(ordered, after == null ? 0 : after, size + 1));
+        List<Long> pageIds = ids.size() > size ? ids.subList(0, size) : ids;
+        List<SnippetSummaryDTO> items = metrics.timeQuery("search", "findSnippets", () -> browseRepo.findSnippets(pageIds));
+        result.setItems(items);
+        result.setNextAfter(ids.size() > size ? pageIds.get(size - 1) : null);
+
+        if (after == null) {
+            long total = metrics.timeQuery("search", "countMatches", () -> searchRepo.countMatches(ordered, facetSample + 1));
+            result.setTotal(Math.min(total, facetSample));
+            result.setTotalExact(total <= facetSample);
+            Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+            for (Facet facet : Facet.values()) {
+                facets.put(facetName(facet), metrics.timeQuery("search", "findFacet",
+                        () -> searchRepo.findFacet(facet, ordered, facetSample, facetSize)));
+            }
+            result.setFacets(facets);
+        }
+        return result;
+    }
+
+    /**
+     * Empties the index and re-derives it from the snippet and smell tables page by page in the background.
+     * Snippets inserted meanwhile are indexed by their ingestion, so only the ids existing at the start are walked.
+     *
+     * @return false if a rebuild is already running
+     */
+    public boolean startRebuild() {
+        if (!rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        rebuildExecutor.execute(this::rebuild);
+        return true;
+    }
+
+    public SearchIndexStatusDTO status() {
+        SearchIndexStatusDTO dto = new SearchIndexStatusDTO();
+        dto.setRunning(rebuilding.get());
+        dto.setSnippetsIndexed(snippetsIndexed.get());
+        dto.setPostingsAdded(postingsAdded.get());
+        dto.setStartedAt(startedAt);
+        dto.setFinishedAt(finishedAt);
+        dto.setError(error);
+        return dto;
+    }
+
+    // Runs on the caller's thread; startRebuild() has already claimed the running flag.
+    void rebuild() {
+        snippetsIndexed.set(0);
+        postingsAdded.set(0);
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        try {
+            // Cleared first: a snippet committed in between is then both ingested and walked, never neither
+            searchRepo.clear();
+            long upTo = searchRepo.maxSnippetId();
+            long afterId = 0;
+            while (true) {
+                long after = afterId;
+                List<CodeSnippet> page = tx.execute(status -> {
+                    List<CodeSnippet> snippets = searchRepo.findSources(after, upTo, rebuildPageSize);
+                    if (snippets.isEmpty()) {
+                        return snippets;
+                    }
+                    Map<Long, List<SmellText>> smells = searchRepo.findSmells(snippets.stream().map(CodeSnippet::getId).toList());
+                    Map<Long, Set<Long>> terms = new LinkedHashMap<>();
+                    for (CodeSnippet snippet : snippets) {
+                        terms.put(snippet.getId(), smellTerms(smells.getOrDefault(snippet.getId(), List.of()), snippetTerms(snippet)));
+                    }
+                    addPostings(terms);
+                    return snippets;
+                });
+                if (page == null || page.isEmpty()) {
+                    break;
+                }
+                snippetsIndexed.addAndGet(page.size());
+                afterId = page.get(page.size() - 1).getId();
+            }
+            log.info("Search index rebuilt: {} snippets, {} postings", snippetsIndexed.get(), postingsAdded.get());
+        } catch (RuntimeException e) {
+            error = e.getMessage();
+            log.error("Search index rebuild stopped after {} snippets", snippetsIndexed.get(), e);
+        } finally {
+            finishedAt = Instant.now();
+            rebuilding.set(false);
+        }
+    }
+
+    /** Inserts the postings not indexed yet and counts each new one towards its term's document count. */
+    private void addPostings(Map<Long, Set<Long>> termsBySnippet) {
+        Map<Long, Set<Long>> existing = searchRepo.findTermKeys(termsBySnippet.keySet());
+        List<Object[]> postings = new ArrayList<>();
+        Map<Long, Integer> docCounts = new HashMap<>();
+        termsBySnippet.forEach((snippetId, terms) -> {
+            Set<Long> indexed = existing.getOrDefault(snippetId, Set.of());
+            for (Long term : terms) {
+                if (!indexed.contains(term)) {
+                    postings.add(new Object[]{term, snippetId});
+                    docCounts.merge(term, 1, Integer::sum);
+                }
+            }
+        });
+        if (!postings.isEmpty()) {
+            searchRepo.insertPostings(postings);
+            searchRepo.addDocCounts(docCounts);
+            postingsAdded.addAndGet(postings.size());
+            metrics.counter("search_postings_total", "Postings added to the snippet search index").increment(postings.size());
+        }
+    }
+
+    static Set<Long> snippetTerms(CodeSnippet snippet) {
+        Set<Long> terms = new LinkedHashSet<>();
+        if (snippet.getRepository() != null) {
+            terms.add(SearchTerms.key(SearchTerms.REPOSITORY, SearchTerms.keyword(snippet.getRepository())));
+        }
+        if (snippet.getCodeType() != null) {
+            terms.add(SearchTerms.key(SearchTerms.CODE_TYPE, SearchTerms.keyword(snippet.getCodeType())));
+        }
+        for (String language : SearchTerms.languages(snippet.getLanguages())) {
+            terms.add(SearchTerms.key(SearchTerms.LANGUAGE, language));
+        }
+        SearchTerms.words(snippet.getCodeName(), terms);
+        SearchTerms.words(snippet.getPath(), terms);
+        SearchTerms.words(snippet.getCode(), terms);
+        return cap(terms);
+    }
+
+    static Set<Long> smellTerms(List<SmellText> smells, Set<Long> terms) {
+        for (SmellText smell : smells) {
+            if (smell.smellType() != null) {
+                terms.add(SearchTerms.key(SearchTerms.SMELL_TYPE, SearchTerms.keyword(smell.smellType())));
+                SearchTerms.words(smell.smellType(), terms);
+            }
+            if (smell.category() != null) {
+                terms.add(SearchTerms.key(SearchTerms.CATEGORY, SearchTerms.keyword(smell.category())));
+                SearchTerms.words(smell.category(), terms);
+            }
+            SearchTerms.words(smell.suggestion(), terms);
+        }
+        return terms;
+    }
+
+    static List<Long> queryTerms(SnippetSearchQueryDTO query) {
+        Set<Long> terms = new LinkedHashSet<>(SearchTerms.queryWords(query.getQ()));
+        if (query.getRepository() != null && !query.getRepository().isBlank()) {
+            terms.add(SearchTerms.key(SearchTerms.REPOSITORY, SearchTerms.keyword(query.getRepository())));
+        }
+        if (query.getCodeType() != null && !query.getCodeType().isBlank()) {
+            terms.add(SearchTerms.key(SearchTerms.CODE_TYPE, SearchTerms.keyword(query.getCodeType())));
+        }
+        for (String language : SearchTerms.languages(query.getLanguage())) {
+            terms.add(SearchTerms.key(SearchTerms.LANGUAGE, language));
+        }
+        if (query.getSmellType() != null && !query.getSmellType().isBlank()) {
+            terms.add(SearchTerms.key(SearchTerms.SMELL_TYPE, SearchTerms.keyword(query.getSmellType())));
+        }
+        if (query.getCategory() != null && !query.getCategory().isBlank()) {
+            terms.add(SearchTerms.key(SearchTerms.CATEGORY, SearchTerms.keyword(query.getCategory())));
+        }
+        return new ArrayList<>(terms);
+    }
+
+    private static Set<Long> cap(Set<Long> terms) {
+        if (terms.size() <= MAX_TERMS_PER_SNIPPET) {
+            return terms;
+        }
+        Set<Long> capped = new LinkedHashSet<>();
+        Iterator<Long> iterator = terms.iterator();
+        while (capped.size() < MAX_TERMS_PER_SNIPPET) {
+            capped.add(iterator.next());
+        }
+        return capped;
+    }
+
+    private static String facetName(Facet facet) {
+        return switch (facet) {
+            case REPOSITORY -> "repository";
+            case LANGUAGE -> "language";
+            case CODE_TYPE -> "codeType";
+            case SMELL_TYPE -> "smellType";
+            case CATEGORY -> "category";
+        };
+    }
+
+    @PreDestroy
+    void shutdown() {
+        rebuildExecutor.shutdownNow();
+    }
+}
@@ -0,0 +1,126 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Terms of the snippet search index. A term is a field and a normalized value, stored as a 64-bit key:
+ * {@code w} holds the words of code, names, paths and smell texts, the other fields exact metadata values.
+ * <p>
+ * Documents are indexed with every identifier and its camelCase / snake_case parts, so {@code getUserName} is
+ * found by {@code getUserName}, {@code user} or {@code name}; queries use whole words only.
+ */
+final class SearchTerms {
+
+    static final String WORD = "w";
+    static final String REPOSITORY = "repo";
+    static final String LANGUAGE = "lang";
+    static final String CODE_TYPE = "kind";
+    static final String SMELL_TYPE = "smell";
+    static final String CATEGORY = "category";
+
+    private static final int MIN_WORD_LENGTH = 2;
+    private static final int MAX_WORD_LENGTH = 64;
+
+    private SearchTerms() {
+    }
+
+    /** Adds the keys of the words of {@code text}, including identifier parts. */
+    static void words(String text, Set<Long> into) {
+        if (text == null) {
+            return;
+        }
+        int n = text.length();
+        int i = 0;
+        while (i < n) {
+            char c = text.charAt(i);
+            if (!Character.isLetter(c) && c != '_') {
+                i++;
+                continue;
+            }
+            int start = i;
+            while (i < n && (Character.isLetterOrDigit(text.charAt(i)) || text.charAt(i) == '_')) {
+                i++;
+            }
+            String word = text.substring(start, i);
+            addWord(word, into);
+            parts(word).forEach(part -> addWord(part, into));
+        }
+    }
+
+    /** Keys of the whole words of a query. */
+    static List<Long> queryWords(String query) {
+        List<Long> keys = new ArrayList<>();
+        if (query == null) {
+            return keys;
+        }
+        for (String word : query.split("[^\\p{L}\\p{N}_]+")) {
+            if (!word.isEmpty()) {
+                keys.add(key(WORD, word.toLowerCase(Locale.ROOT)));
+            }
+        }
+        return keys;
+    }
+
+    /** Splits a languages value ("Java, Kotlin", "[\"Python\"]") into its lowercase languages. */
+    static List<String> languages(String languages) {
+        List<String> values = new ArrayList<>();
+        if (languages != null) {
+            for (String language : languages.toLowerCase(Locale.ROOT).split("[\\s,;|/\\[\\]\"']+")) {
+                if (!language.isEmpty()) {
+                    values.add(language);
+                }
+            }
+        }
+        return values;
+    }
+
+    /** Case, surrounding blanks and punctuation runs do not matter: "Feature-Envy " equals "feature envy". */
+    static String keyword(String value) {
+        return value.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /** 64-bit FNV-1a of {@code field:value}. */
+    static long key(String field, String value) {
+        long hash = 0xcbf29ce484222325L;
+        String term = field + ':' + value;
+        for (int i = 0; i < term.length(); i++) {
+            hash ^= term.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    private static void addWord(String word, Set<Long> into) {
+        if (word.length() >= MIN_WORD_LENGTH && word.length() <= MAX_WORD_LENGTH) {
+            into.add(key(WORD, word.toLowerCase(Locale.ROOT)));
+        }
+    }
+
+    // getHTTPResponse_code -> get, HTTP, Response, code
+    private static List<String> parts(String word) {
+        List<String> parts = new ArrayList<>();
+        int start = 0;
+        while (start < word.length() && word.charAt(start) == '_') {
+            start++;
+        }
+        for (int i = start + 1; i <= word.length(); i++) {
+            boolean boundary = i == word.length() || word.charAt(i) == '_';
+            if (!boundary) {
+                char previous = word.charAt(i - 1);
+                char c = word.charAt(i);
+                boundary = Character.isUpperCase(c) && (Character.isLowerCase(previous) || Character.isDigit(previous)
+                        || Character.isUpperCase(previous) && i + 1 < word.length() && Character.isLowerCase(word.charAt(i + 1)));
+            }
+            if (boundary) {
+                if (i > start && word.charAt(start) != '_') {
+                    parts.add(word.substring(start, i));
+                }
+                start = i < word.length() && word.charAt(i) == '_' ? i + 1 : i;
+            }
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,199 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SnippetClusterDTO;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.SimilarityIndexRepository;
+import com.codeAnnotator.codeAnnotator.repository.SimilarityIndexRepository.IndexedSnippet;
+import com.codeAnnotator.codeAnnotator.repository.SimilarityIndexRepository.UnindexedSnippet;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Near-duplicate clustering of snippets with MinHash signatures and LSH buckets.
+ * <p>
+ * Every indexed snippet gets a {@code clusterId}: its own id when it is the first of its kind (the
+ * representative), otherwise the id of the representative whose estimated similarity is at least
+ * {@code similarity.threshold}. Selection only serves representatives, and members reuse the
+ * representative's AI analysis.
+ */
+@Service
+public class SimilarityIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(SimilarityIndexService.class);
+    private static final int MAX_LISTED_MEMBERS = 1000;
+
+    @Autowired
+    private SimilarityIndexRepository indexRepo;
+
+    @Autowired
+    private CodeSnippetBatchRepository batchRepo;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${similarity.enabled:true}")
+    private boolean enabled;
+
+    @Value("${similarity.threshold:0.85}")
+    private double threshold;
+
+    // Snippets shorter than this are never clustered; tiny bodies (getters, one-liners) all look alike once normalized.
+    @Value("${similarity.min-tokens:40}")
+    private int minTokens;
+
+    @Value("${similarity.max-candidates-per-bucket:50}")
+    private int maxCandidatesPerBucket;
+
+    @Value("${similarity.backfill-page-size:500}")
+    private int backfillPageSize;
+
+    private final ExecutorService backfillExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+
+    /**
+     * Fingerprints freshly inserted snippets and assigns their cluster ids. Runs in the caller's
+     * transaction, so the index is committed together with the snippets.
+     *
+     * @return cluster id per snippet id
+     */
+    public Map<Long, Long> index(List<Long> snippetIds, List<String> codes) {
+        Map<Long, Long> clusterIds = new LinkedHashMap<>();
+        if (!enabled || snippetIds.isEmpty()) {
+            return clusterIds;
+        }
+
+        Map<Long, int[]> signatures = new LinkedHashMap<>();
+        Map<Long, long[]> bandKeys = new HashMap<>();
+        for (int i = 0; i < snippetIds.size(); i++) {
+            Long id = snippetIds.get(i);
+            int[] signature = MinHasher.signature(codes.get(i), minTokens);
+            if (signature == null) {
+                clusterIds.put(id, id);
+            } else {
+                signatures.put(id, signature);
+                bandKeys.put(id, MinHasher.bandKeys(signature));
+            }
+        }
+
+        Set<Long> allKeys = new HashSet<>();
+        bandKeys.values().forEach(keys -> Arrays.stream(keys).forEach(allKeys::add));
+        Map<Long, List<Long>> existingByKey = allKeys.isEmpty() ? Map.of()
+                : indexRepo.findSnippetIdsByBandKeys(allKeys, maxCandidatesPerBucket);
+        Set<Long> existingCandidates = new HashSet<>();
+        existingByKey.values().forEach(existingCandidates::addAll);
+        Map<Long, IndexedSnippet> existing = existingCandidates.isEmpty() ? Map.of()
+                : indexRepo.findFingerprints(existingCandidates);
+
+        // Snippets of this same chunk are candidates for each other too.
+        Map<Long, List<Long>> chunkByKey = new HashMap<>();
+        Map<Long, byte[]> fingerprintRows = new LinkedHashMap<>();
+        List<Object[]> bucketRows = new ArrayList<>();
+
+        for (Map.Entry<Long, int[]> entry : signatures.entrySet()) {
+            Long id = entry.getKey();
+            int[] signature = entry.getValue();
+
+            Long bestCluster = null;
+            double bestSimilarity = threshold;
+            Set<Long> seen = new HashSet<>();
+            for (long key : bandKeys.get(id)) {
+                for (Long candidate : existingByKey.getOrDefault(key, List.of())) {
+                    IndexedSnippet indexed = existing.get(candidate);
+                    if (indexed != null && seen.add(candidate)) {
+                        double similarity = MinHasher.similarity(signature, MinHasher.fromBytes(indexed.signature()));
+                        if (similarity >= bestSimilarity) {
+                            bestSimilarity = similarity;
+                            bestCluster = indexed.clusterId();
+                        }
+                    }
+                }
+                for (Long candidate : chunkByKey.getOrDefault(key, List.of())) {
+                    if (seen.add(candidate)) {
+                        double similarity = MinHasher.similarity(signature, signatures.get(candidate));
+                        if (similarity >= bestSimilarity) {
+                            bestSimilarity = similarity;
+                            bestCluster = clusterIds.get(candidate);
+                        }
+                    }
+                }
+            }
+
+            clusterIds.put(id, bestCluster != null ? bestCluster : id);
+            fingerprintRows.put(id, MinHasher.toBytes(signature));
+            for (long key : bandKeys.get(id)) {
+                chunkByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(id);
+                bucketRows.add(new Object[]{key, id});
+            }
+        }
+
+        if (!fingerprintRows.isEmpty()) {
+            indexRepo.insertFingerprints(fingerprintRows);
+            indexRepo.insertBuckets(bucketRows);
+        }
+        batchRepo.updateClusterIds(clusterIds);
+        return clusterIds;
+    }
+
+    public Optional<SnippetClusterDTO> getCluster(Long snippetId) {
+        return indexRepo.findClusterId(snippetId).map(clusterId -> {
+            SnippetClusterDTO dto = new SnippetClusterDTO();
+            dto.setSnippetId(snippetId);
+            dto.setRepresentativeId(clusterId);
+            dto.setSize(Math.max(1, indexRepo.countClusterMembers(clusterId)));
+            List<Long> members = indexRepo.findClusterMembers(clusterId, MAX_LISTED_MEMBERS);
+            dto.setMemberIds(members.isEmpty() ? List.of(snippetId) : members);
+            return dto;
+        });
+    }
+
+    /**
+     * Indexes snippets stored before the similarity index existed, page by page in the background.
+     *
+     * @return false if a backfill is already running
+     */
+    public boolean startBackfill() {
+        if (!backfillRunning.compareAndSet(false, true)) {
+            return false;
+        }
+        backfillExecutor.execute(() -> {
+            TransactionTemplate tx = new TransactionTemplate(transactionManager);
+            long afterId = 0;
+            long indexed = 0;
+            try {
+                while (true) {
+                    List<UnindexedSnippet> page = indexRepo.findUnindexed(afterId, backfillPageSize);
+                    if (page.isEmpty()) {
+                        break;
+                    }
+                    tx.executeWithoutResult(status -> index(
+                            page.stream().map(UnindexedSnippet::id).toList(),
+                            page.stream().map(UnindexedSnippet::code).toList()));
+                    afterId = page.get(page.size() - 1).id();
+                    indexed += page.size();
+                }
+                log.info("Similarity backfill indexed {} snippets", indexed);
+            } catch (RuntimeException e) {
+                log.error("Similarity backfill stopped after {} snippets", indexed, e);
+            } finally {
+                backfillRunning.set(false);
+            }
+        });
+        return true;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        backfillExecutor.shutdownNow();
+    }
+}
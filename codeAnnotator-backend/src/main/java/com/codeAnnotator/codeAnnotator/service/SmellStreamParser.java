@@ -0,0 +1,135 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Incremental parser for the single-snippet answer format: a JSON array of smell objects, or "No".
+ * Text is fed in arbitrary fragments as the model generates it; each {@link SmellAnnotationDTO} is
+ * handed to the consumer as soon as its object closes, without buffering the whole answer.
+ * <p>
+ * Anything before the opening bracket (e.g. a Markdown code fence) and after the closing bracket is ignored.
+ * Not thread-safe; one instance per response.
+ */
+public class SmellStreamParser {
+
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+    private static final int MAX_PREAMBLE = 64;
+
+    private final Consumer<SmellAnnotationDTO> onSmell;
+    private final List<SmellAnnotationDTO> smells = new ArrayList<>();
+    private final StringBuilder preamble = new StringBuilder();
+
+    private JsonParser parser;
+    private ByteArrayFeeder feeder;
+    private int depth;
+    private String field;
+    private SmellAnnotationDTO current;
+    private boolean closed;
+    private boolean failed;
+
+    public SmellStreamParser(Consumer<SmellAnnotationDTO> onSmell) {
+        this.onSmell = onSmell;
+    }
+
+    public void feed(String fragment) {
+        if (closed || failed || fragment.isEmpty()) {
+            return;
+        }
+        if (parser == null) {
+            int bracket = fragment.indexOf('[');
+            if (bracket < 0) {
+                if (preamble.length() < MAX_PREAMBLE) {
+                    preamble.append(fragment, 0, Math.min(fragment.length(), MAX_PREAMBLE - preamble.length()));
+                }
+                return;
+            }
+            fragment = fragment.substring(bracket);
+            try {
+                parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+                feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+            } catch (IOException e) {
+                failed = true;
+                return;
+            }
+        }
+
+        byte[] bytes = fragment.getBytes(StandardCharsets.UTF_8);
+        try {
+            feeder.feedInput(bytes, 0, bytes.length);
+            drain();
+        } catch (IOException e) {
+            failed = true;
+        }
+    }
+
+    /**
+     * Call once the model's output is complete.
+     *
+     * @return every parsed smell; an empty list for a "No" answer; empty if the answer was not a complete array
+     */
+    public Optional<List<SmellAnnotationDTO>> finish() {
+        if (closed) {
+            return Optional.of(List.copyOf(smells));
+        }
+        if (parser == null && !failed && preamble.toString().trim().equalsIgnoreCase("No")) {
+            return Optional.of(List.of());
+        }
+        return Optional.empty();
+    }
+
+    private void drain() throws IOException {
+        JsonToken token;
+        while (!closed && (token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case START_ARRAY, START_OBJECT -> {
+                    if (depth == 1 && token == JsonToken.START_OBJECT) {
+                        current = new SmellAnnotationDTO();
+                    }
+                    depth++;
+                }
+                case END_ARRAY, END_OBJECT -> {
+                    depth--;
+                    if (depth == 1 && current != null) {
+                        smells.add(current);
+                        onSmell.accept(current);
+                        current = null;
+                    } else if (depth == 0) {
+                        closed = true;
+                    }
+                }
+                case FIELD_NAME -> field = parser.currentName();
+                default -> {
+                    if (depth == 2 && current != null && token.isScalarValue()) {
+                        set(current, field, token == JsonToken.VALUE_NULL ? "" : parser.getText());
+                    }
+                }
+            }
+        }
+    }
+
+    private static void set(SmellAnnotationDTO smell, String field, String value) {
+        if (field == null) {
+            return;
+        }
+        switch (field) {
+            case "smellType" -> smell.setSmellType(value);
+            case "category" -> smell.setCategory(value);
+            case "suggestion" -> smell.setSuggestion(value);
+            case "refactoredCode" -> smell.setRefactoredCode(value);
+            default -> {
+                // Fields the prompt didn't ask for are dropped.
+            }
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Syntax;
+
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * Splits code too large for one prompt into chunks along declaration boundaries, and merges the chunks'
+ * analyses back into one answer for the whole snippet.
+ * <p>
+ * Boundaries come from the block depth of each line: a chunk first breaks between top-level declarations,
+ * then between the members of an oversize one, then between the statements of an oversize member, and only
+ * splits at arbitrary lines when a single statement is over budget. Adjacent pieces are packed back together
+ * up to the budget. Line numbers are 1-based lines of the snippet's code.
+ */
+public final class SnippetChunker {
+
+    /**
+     * @param context the headers of the blocks enclosing the chunk (e.g. its class declaration), outermost first;
+     *                empty when the chunk starts at the top level
+     */
+    public record Chunk(int index, int count, int firstLine, int lastLine, List<String> context, String code) {}
+
+    // Smells about a type as a whole: several chunks of one class reporting them is still one finding.
+    private static final Set<String> TYPE_LEVEL_SMELLS = Set.of("god class", "blob", "data class");
+    private static final Pattern PYTHON_DECLARATION = Pattern.compile("^\\s*(async\\s+)?(def|class)\\s+\\w+.*:\\s*(#.*)?$");
+    private static final int MAX_CONTEXT_LINES = 3;
+
+    private SnippetChunker() {
+    }
+
+    /** The whole code as one chunk when it fits {@code maxTokens}, otherwise chunks that each fit where possible. */
+    public static List<Chunk> split(String code, int maxTokens) {
+        String[] lines = (code == null ? "" : code).split("\n", -1);
+        if (OpenAIAgent.estimateTokens(code) <= maxTokens || lines.length == 1) {
+            return List.of(new Chunk(0, 1, 1, lines.length, List.of(), code));
+        }
+
+        int[] depths = CodeMetrics.lineDepths(code, guessSyntax(lines));
+        int[] levels = Arrays.stream(depths).filter(d -> d >= 0).distinct().sorted().toArray();
+        int[] charsUpTo = new int[lines.length + 1];
+        for (int l = 1; l <= lines.length; l++) {
+            charsUpTo[l] = charsUpTo[l - 1] + lines[l - 1].length() + 1;
+        }
+        Splitter splitter = new Splitter(depths, levels, charsUpTo, maxTokens);
+        splitter.segment(1, lines.length, 0);
+
+        List<int[]> packed = new ArrayList<>();
+        for (int[] segment : splitter.segments) {
+            int[] last = packed.isEmpty() ? null : packed.get(packed.size() - 1);
+            if (last != null && splitter.tokens(last[0], segment[1]) <= maxTokens) {
+                last[1] = segment[1];
+            } else {
+                packed.add(segment.clone());
+            }
+        }
+
+        List<Chunk> chunks = new ArrayList<>(packed.size());
+        for (int[] range : packed) {
+            String text = String.join("\n", Arrays.asList(lines).subList(range[0] - 1, range[1]));
+            chunks.add(new Chunk(chunks.size(), packed.size(), range[0], range[1], context(lines, depths, range[0]), text));
+        }
+        return chunks;
+    }
+
+    private static Syntax guessSyntax(String[] lines) {
+        boolean pythonDeclarations = false;
+        for (String line : lines) {
+            String trimmed = line.stripTrailing();
+            if (trimmed.endsWith("{") || trimmed.endsWith(";")) {
+                return Syntax.BRACES;
+            }
+            pythonDeclarations |= PYTHON_DECLARATION.matcher(line).matches();
+        }
+        return pythonDeclarations ? Syntax.INDENTATION : Syntax.BRACES;
+    }
+
+    /** Header lines of the blocks that enclose {@code firstLine}, walking up to shallower lines. */
+    private static List<String> context(String[] lines, int[] depths, int firstLine) {
+        int l = firstLine;
+        while (l < depths.length && depths[l] < 0) {
+            l++;
+        }
+        if (l >= depths.length) {
+            return List.of();
+        }
+        Deque<String> headers = new ArrayDeque<>();
+        int depth = depths[l];
+        for (int k = firstLine - 1; k >= 1 && depth > 0 && headers.size() < MAX_CONTEXT_LINES; k--) {
+            if (depths[k] >= 0 && depths[k] < depth) {
+                headers.addFirst(lines[k - 1].strip());
+                depth = depths[k];
+            }
+        }
+        return List.copyOf(headers);
+    }
+
+    private static final class Splitter {
+        final int[] depths;
+        final int[] levels;
+        final int[] charsUpTo;
+        final int maxTokens;
+        final List<int[]> segments = new ArrayList<>();
+
+        Splitter(int[] depths, int[] levels, int[] charsUpTo, int maxTokens) {
+            this.depths = depths;
+            this.levels = levels;
+            this.charsUpTo = charsUpTo;
+            this.maxTokens = maxTokens;
+        }
+
+        int tokens(int from, int to) {
+            return (charsUpTo[to] - charsUpTo[from - 1] + 3) / 4;
+        }
+
+        void segment(int from, int to, int level) {
+            if (from == to || tokens(from, to) <= maxTokens) {
+                segments.add(new int[]{from, to});
+                return;
+            }
+            if (level >= levels.length) {
+                for (int l = from; l <= to; l++) {
+                    segments.add(new int[]{l, l});
+                }
+                return;
+            }
+
+            int start = from;
+            boolean cut = false;
+            for (int l = from + 1; l <= to; l++) {
+                if (depths[l] >= 0 && depths[l] <= levels[level]) {
+                    // Comments and blank lines just above a declaration belong to it.
+                    int boundary = l;
+                    while (boundary - 1 > start && depths[boundary - 1] < 0) {
+                        boundary--;
+                    }
+                    segment(start, boundary - 1, level + 1);
+                    start = boundary;
+                    cut = true;
+                }
+            }
+            if (cut) {
+                segment(start, to, level + 1);
+            } else {
+                segment(from, to, level + 1);
+            }
+        }
+    }
+
+    /**
+     * Collects the chunks' smells into one answer. Each smell is tagged with its chunk's line span; repeats of a
+     * type-level smell (God Class, Blob, Data Class) become one smell spanning all reporting chunks, and a chunk
+     * reporting the same smell twice counts once. Thread-safe, so chunks can be added as they complete.
+     */
+    public static final class Merger {
+
+        private final Map<String, SmellAnnotationDTO> merged = new LinkedHashMap<>();
+
+        /** Adds one chunk's smells, passing those not already known to {@code onNewSmell}. */
+        public synchronized void add(Chunk chunk, List<SmellAnnotationDTO> smells, Consumer<SmellAnnotationDTO> onNewSmell) {
+            for (SmellAnnotationDTO smell : smells) {
+                String type = smell.getSmellType() == null ? "" : smell.getSmellType().trim().toLowerCase(Locale.ROOT);
+                boolean typeLevel = TYPE_LEVEL_SMELLS.contains(type);
+                String key = typeLevel ? type : type + "@" + chunk.index();
+
+                SmellAnnotationDTO known = merged.get(key);
+                if (known != null) {
+                    known.setStartLine(Math.min(known.getStartLine(), chunk.firstLine()));
+                    known.setEndLine(Math.max(known.getEndLine(), chunk.lastLine()));
+                    continue;
+                }
+                SmellAnnotationDTO located = copy(smell);
+                located.setStartLine(chunk.firstLine());
+                located.setEndLine(chunk.lastLine());
+                merged.put(key, located);
+                onNewSmell.accept(located);
+            }
+        }
+
+        /** All merged smells in source order. */
+        public synchronized List<SmellAnnotationDTO> result() {
+            List<SmellAnnotationDTO> result = new ArrayList<>(merged.values());
+            result.sort(Comparator.comparing(SmellAnnotationDTO::getStartLine)
+                    .thenComparing(smell -> String.valueOf(smell.getSmellType())));
+            return result;
+        }
+
+        private static SmellAnnotationDTO copy(SmellAnnotationDTO smell) {
+            SmellAnnotationDTO copy = new SmellAnnotationDTO();
+            copy.setSmellType(smell.getSmellType());
+            copy.setCategory(smell.getCategory());
+            copy.setSuggestion(smell.getSuggestion());
+            copy.setRefactoredCode(smell.getRefactoredCode());
+            copy.setConfidence(smell.getConfidence());
+            return copy;
+        }
+    }
+}
@@ -0,0 +1,261 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.opencsv.CSVReader;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Asynchronous snippet ingestion. Rows are streamed from the source, written in JDBC batches of
+ * {@code ingestion.batch-size} and committed chunk by chunk, together with their near-duplicate and search index
+ * entries, so one bad row never aborts the job.
+ */
+@Service
+public class SnippetIngestionService {
+
+    private static final Logger log = LoggerFactory.getLogger(SnippetIngestionService.class);
+    private static final int CSV_COLUMNS = 10;
+    private static final int RETAINED_JOBS = 100;
+
+    private final CodeSnippetBatchRepository batchRepo;
+    private final SimilarityIndexService similarityIndex;
+    private final SearchIndexService searchIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final int maxReportedRejects;
+    private final ExecutorService executor;
+    private final MetricsRegistry metrics;
+
+    private final Map<String, IngestionJob> jobs = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, IngestionJob> eldest) {
+            return size() > RETAINED_JOBS;
+        }
+    };
+
+    @Autowired
+    public SnippetIngestionService(CodeSnippetBatchRepository batchRepo,
+                                   SimilarityIndexService similarityIndex,
+                                   SearchIndexService searchIndex,
+                                   PlatformTransactionManager transactionManager,
+                                   MetricsRegistry metrics,
+                                   @Value("${ingestion.batch-size:500}") int batchSize,
+                                   @Value("${ingestion.max-reported-rejects:1000}") int maxReportedRejects,
+                                   @Value("${ingestion.max-concurrent-jobs:2}") int maxConcurrentJobs) {
+        this.batchRepo = batchRepo;
+        this.similarityIndex = similarityIndex;
+        this.searchIndex = searchIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.maxReportedRejects = maxReportedRejects;
+        this.executor = Executors.newFixedThreadPool(maxConcurrentJobs);
+        this.metrics = metrics;
+    }
+
+    /**
+     * Copies the upload to a temporary file (the multipart body is gone once the request ends)
+     * and ingests it in the background.
+     */
+    public IngestionJob startCsv(MultipartFile file, CodeSnippet.CodeType type) throws IOException {
+        Path csv = Files.createTempFile("snippets-", ".csv");
+        file.transferTo(csv);
+
+        return submit(file.getOriginalFilename(), job -> {
+            try {
+                runCsv(job, csv, type);
+            } finally {
+                try {
+                    Files.deleteIfExists(csv);
+                } catch (IOException e) {
+                    log.warn("Could not delete temporary upload {}", csv, e);
+                }
+            }
+        });
+    }
+
+    /** Registers a job for {@code source} so its status can be polled, and runs it on the ingestion executor. */
+    IngestionJob submit(String source, Consumer<IngestionJob> work) {
+        IngestionJob job = register(new IngestionJob(source, maxReportedRejects));
+        executor.execute(() -> work.accept(job));
+        return job;
+    }
+
+    int batchSize() {
+        return batchSize;
+    }
+
+    public Optional<IngestionJob> getJob(String jobId) {
+        synchronized (jobs) {
+            return Optional.ofNullable(jobs.get(jobId));
+        }
+    }
+
+    void runCsv(IngestionJob job, Path csv, CodeSnippet.CodeType type) {
+        job.start();
+        try (Reader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8);
+             CSVReader csvReader = new CSVReader(reader)) {
+            csvReader.readNext(); // skip header row
+
+            List<PendingRow> chunk = new ArrayList<>(batchSize);
+            String[] tokens;
+            long row = 1;
+            while ((tokens = csvReader.readNext()) != null) {
+                row++;
+                job.rowRead();
+                try {
+                    chunk.add(new PendingRow(row, toSnippet(tokens, type)));
+                } catch (IllegalArgumentException e) {
+                    job.reject(row, e.getMessage());
+                    rows("rejected").increment();
+                    continue;
+                }
+                if (chunk.size() >= batchSize) {
+                    writeChunk(job, chunk);
+                    chunk.clear();
+                }
+            }
+            writeChunk(job, chunk);
+            job.complete();
+        } catch (Exception e) {
+            log.error("Ingestion job {} failed", job.getId(), e);
+            job.fail("CSV parsing failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Commits one chunk, together with its near-duplicate and search index entries. If the batch is refused,
+     * the chunk is retried row by row so the offending rows can be reported and the rest still land.
+     */
+    void writeChunk(IngestionJob job, List<PendingRow> chunk) {
+        writeFiles(job, List.of(chunk));
+    }
+
+    /**
+     * Like {@link #writeChunk} for a chunk made of whole files. If the batch is refused, each file is retried in its
+     * own transaction before its rows are tried one by one, so a file is only left partly written when one of its
+     * own rows is rejected.
+     */
+    void writeFiles(IngestionJob job, List<List<PendingRow>> files) {
+        List<PendingRow> chunk = files.stream().flatMap(List::stream).toList();
+        if (chunk.isEmpty()) {
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            if (!tryInsert(job, chunk)) {
+                for (List<PendingRow> file : files) {
+                    if (files.size() == 1 || !tryInsert(job, file)) {
+                        insertRows(job, file);
+                    }
+                }
+            }
+        } finally {
+            metrics.timer("ingestion_chunk_seconds", "Commit time of one ingestion chunk, index entries included")
+                    .recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private boolean tryInsert(IngestionJob job, List<PendingRow> rows) {
+        if (rows.isEmpty()) {
+            return true;
+        }
+        List<CodeSnippet> snippets = rows.stream().map(PendingRow::snippet).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> insertAndIndex(snippets));
+        } catch (DataAccessException e) {
+            return false;
+        }
+        job.inserted(snippets.size());
+        rows("inserted").increment(snippets.size());
+        return true;
+    }
+
+    private void insertRows(IngestionJob job, List<PendingRow> rows) {
+        for (PendingRow pending : rows) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> insertAndIndex(List.of(pending.snippet())));
+                job.inserted(1);
+                rows("inserted").increment();
+            } catch (DataAccessException e) {
+                job.reject(pending.row(), "Insert failed: " + e.getMostSpecificCause().getMessage());
+                rows("rejected").increment();
+            }
+        }
+    }
+
+    // The ingestion rate is rate(ingestion_rows_total[1m]).
+    private MetricsRegistry.Counter rows(String outcome) {
+        return metrics.counter("ingestion_rows_total", "Snippets ingested or rejected, from CSV rows or git checkouts", "outcome", outcome);
+    }
+
+    private void insertAndIndex(List<CodeSnippet> snippets) {
+        List<Long> ids = batchRepo.insertAll(snippets);
+        similarityIndex.index(ids, snippets.stream().map(CodeSnippet::getCode).toList());
+        searchIndex.index(ids, snippets);
+    }
+
+    static CodeSnippet toSnippet(String[] tokens, CodeSnippet.CodeType type) {
+        if (tokens.length < CSV_COLUMNS) {
+            throw new IllegalArgumentException("Expected " + CSV_COLUMNS + " columns but found " + tokens.length);
+        }
+
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setCodeType(tokens[0]);
+        snippet.setCodeName(tokens[1].isBlank() ? null : tokens[1]);
+        snippet.setRepository(tokens[2]);
+        snippet.setCommitHash(tokens[3]);
+        snippet.setPath(tokens[4]);
+        snippet.setStartLine(parseLine(tokens[5], "startLine"));
+        snippet.setEndLine(parseLine(tokens[6], "endLine"));
+        snippet.setLink(tokens[7]);
+        snippet.setCode(tokens[8]);
+        snippet.setLanguages(tokens[9]);
+        snippet.setType(type);
+        return snippet;
+    }
+
+    private static int parseLine(String value, String column) {
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid " + column + ": '" + value + "'");
+        }
+    }
+
+    private IngestionJob register(IngestionJob job) {
+        synchronized (jobs) {
+            jobs.put(job.getId(), job);
+        }
+        return job;
+    }
+
+    @PreDestroy
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    record PendingRow(long row, CodeSnippet snippet) {}
+}
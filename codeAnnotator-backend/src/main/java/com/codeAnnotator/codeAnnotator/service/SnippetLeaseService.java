@@ -0,0 +1,104 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.SnippetLeaseRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Hands out snippets under a time-limited lease so annotators working at the same time, on any
+ * backend instance, get different snippets. Claims are made with {@code SELECT ... FOR UPDATE SKIP LOCKED}
+ * on the database, leases expire after {@code snippets.lease.ttl-minutes} and are released as soon as
+ * the annotator submits, skips or rejects the snippet.
+ */
+@Service
+public class SnippetLeaseService {
+
+    static final String ANONYMOUS = "anonymous";
+    private static final int MAX_CLAIM_ATTEMPTS = 5;
+
+    @Autowired
+    private SnippetLeaseRepository leaseRepo;
+
+    @Value("${snippets.lease.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    /**
+     * Leases the next snippet for this annotator. An annotator who still holds a live lease gets
+     * that snippet back (with the lease extended) rather than a new one. Anonymous callers cannot be told
+     * apart, so instead the anonymous lease on the snippet they are moving away from is released.
+     *
+     * @param excludedId snippet to skip, e.g. the one the annotator is moving away from; may be null
+     */
+    @Transactional
+    public Optional<Long> claimNext(String annotator, Long excludedId) {
+        String owner = annotator == null || annotator.isBlank() ? ANONYMOUS : annotator;
+        long excluded = excludedId == null ? -1L : excludedId;
+        Timestamp now = now();
+        Timestamp expiresAt = new Timestamp(now.getTime() + ttlMinutes * 60_000L);
+
+        if (!ANONYMOUS.equals(owner)) {
+            Optional<Long> held = leaseRepo.findLiveLeaseOf(owner, excluded, now);
+            if (held.isPresent()) {
+                leaseRepo.updateLease(held.get(), owner, expiresAt);
+                return held;
+            }
+        } else if (excludedId != null) {
+            leaseRepo.release(excludedId, ANONYMOUS);
+        }
+
+        List<Long> skipped = new ArrayList<>(List.of(excluded));
+        for (int attempt = 0; attempt < MAX_CLAIM_ATTEMPTS; attempt++) {
+            List<Long> candidate = leaseRepo.lockNextUnleasedId(skipped, now);
+            if (candidate.isEmpty()) {
+                return Optional.empty();
+            }
+            Long snippetId = candidate.get(0);
+            if (tryLease(snippetId, owner, now, expiresAt)) {
+                return Optional.of(snippetId);
+            }
+            // Leased by a transaction that committed after our snapshot, which the next read would still
+            // not see; look again past it.
+            skipped.add(snippetId);
+        }
+        return Optional.empty();
+    }
+
+    private boolean tryLease(Long snippetId, String owner, Timestamp now, Timestamp expiresAt) {
+        List<Timestamp> existing = leaseRepo.lockLeaseExpiry(snippetId);
+        if (existing.isEmpty()) {
+            leaseRepo.insertLease(snippetId, owner, expiresAt);
+            return true;
+        }
+        if (existing.get(0).after(now)) {
+            return false;
+        }
+        leaseRepo.updateLease(snippetId, owner, expiresAt);
+        return true;
+    }
+
+    // Runs inside the annotation's transaction, so the lease disappears exactly when the annotation commits.
+    @EventListener
+    public void onAnnotationSaved(AnnotationSavedEvent event) {
+        leaseRepo.release(event.codeSnippetId());
+    }
+
+    @Scheduled(fixedDelayString = "${snippets.lease.cleanup-interval-ms:60000}")
+    @Transactional
+    public void purgeExpired() {
+        leaseRepo.deleteExpired(now());
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,273 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.StatsConsistencyReportDTO;
+import com.codeAnnotator.codeAnnotator.entity.AgreementTotals;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.AnnotatorStats;
+import com.codeAnnotator.codeAnnotator.entity.SnippetAgreement;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationStatsRepository;
+import com.codeAnnotator.codeAnnotator.service.AnnotationStatsService.Contribution;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Recomputes the statistics aggregates from {@code annotation} and {@code smell_annotation} and reports
+ * where the incrementally maintained tables drifted. Optionally rewrites the aggregates from the
+ * recomputation; that is also how they are built on first start against an existing dataset.
+ * <p>
+ * The recomputation holds per-snippet and per-annotator tallies in memory, so it is a batch job: run it
+ * off-peak, and repair only while no annotations are being written.
+ */
+@Service
+public class StatsConsistencyService {
+
+    private static final Logger log = LoggerFactory.getLogger(StatsConsistencyService.class);
+    private static final int MAX_SAMPLE_IDS = 20;
+    private static final double AGREEMENT_TOLERANCE = 1e-6;
+
+    @Autowired
+    private AnnotationStatsRepository statsRepo;
+
+    @Autowired
+    private AnnotationStatsService statsService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${stats.consistency.auto-repair:false}")
+    private boolean autoRepair;
+
+    @Value("${stats.rebuild-on-startup:true}")
+    private boolean rebuildOnStartup;
+
+    private final AtomicReference<StatsConsistencyReportDTO> lastReport = new AtomicReference<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildIfMissing() {
+        if (rebuildOnStartup && statsRepo.isEmpty() && statsRepo.hasAnnotations()) {
+            log.info("Statistics aggregates are empty; rebuilding them from existing annotations");
+            check(true);
+        }
+    }
+
+    @Scheduled(cron = "${stats.consistency.cron:0 30 3 * * *}")
+    public void scheduledCheck() {
+        StatsConsistencyReportDTO report = check(autoRepair);
+        if (report.hasDrift()) {
+            log.warn("Statistics drift detected: {} snippets, {} smell votes, {} annotators, {} hourly buckets, totals {}{}",
+                    report.getSnippetDrift(), report.getSmellVoteDrift(), report.getAnnotatorDrift(),
+                    report.getHourlyDrift(), report.isTotalsDrift() ? "drifted" : "ok", report.isRepaired() ? " (repaired)" : "");
+        }
+    }
+
+    public Optional<StatsConsistencyReportDTO> lastReport() {
+        return Optional.ofNullable(lastReport.get());
+    }
+
+    /**
+     * Runs the check in one transaction, so on MySQL every scan reads the same snapshot.
+     *
+     * @param repair rewrite the aggregates from the recomputation when they drifted
+     */
+    public StatsConsistencyReportDTO check(boolean repair) {
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+        tx.setReadOnly(!repair);
+        StatsConsistencyReportDTO report = tx.execute(status -> {
+            long started = System.currentTimeMillis();
+            Recomputed expected = recompute();
+            StatsConsistencyReportDTO result = compare(expected);
+            if (repair && result.hasDrift()) {
+                rewrite(expected);
+                result.setRepaired(true);
+            }
+            result.setCheckedAt(Instant.ofEpochMilli(started));
+            result.setDurationMs(System.currentTimeMillis() - started);
+            return result;
+        });
+        lastReport.set(report);
+        return report;
+    }
+
+    private Recomputed recompute() {
+        Recomputed r = new Recomputed();
+        statsRepo.streamAnnotations(rs -> {
+            r.annotations++;
+            long snippetId = rs.getLong(2);
+            String annotator = AnnotationStatsService.annotatorKey(rs.getString(3));
+            Annotation.Status status = Annotation.Status.valueOf(rs.getString(4));
+            Timestamp at = rs.getTimestamp(5);
+
+            AnnotatorStats stats = r.annotators.computeIfAbsent(annotator,
+                    key -> new AnnotatorStats(key, 0, 0, 0, 0, at, at));
+            switch (status) {
+                case SUBMITTED -> stats.setSubmitted(stats.getSubmitted() + 1);
+                case SKIPPED -> stats.setSkipped(stats.getSkipped() + 1);
+                case REJECTED -> stats.setRejected(stats.getRejected() + 1);
+                case CLEAN -> stats.setClean(stats.getClean() + 1);
+            }
+            if (at != null) {
+                if (stats.getFirstAnnotationAt() == null || at.before(stats.getFirstAnnotationAt())) {
+                    stats.setFirstAnnotationAt(at);
+                }
+                if (stats.getLastAnnotationAt() == null || at.after(stats.getLastAnnotationAt())) {
+                    stats.setLastAnnotationAt(at);
+                }
+                r.hourly.merge(new HourKey(annotator, AnnotationStatsService.hourStart(at.getTime()).getTime()), 1L, Long::sum);
+            }
+            if (AnnotationStatsService.isRating(status)) {
+                r.raters.merge(snippetId, 1, Integer::sum);
+            }
+        });
+        statsRepo.streamRatingVotes(rs ->
+                r.votes.computeIfAbsent(rs.getLong(2), id -> new HashMap<>()).merge(rs.getString(3), 1, Integer::sum));
+
+        r.raters.forEach((snippetId, raters) -> {
+            SnippetAgreement agreement = new SnippetAgreement(snippetId, raters, 0, 0, 0);
+            for (int votes : r.votes.getOrDefault(snippetId, Map.of()).values()) {
+                agreement.setSmellTypes(agreement.getSmellTypes() + 1);
+                agreement.setVoteSum(agreement.getVoteSum() + votes);
+                agreement.setVoteSquareSum(agreement.getVoteSquareSum() + (long) votes * votes);
+            }
+            r.agreements.put(snippetId, agreement);
+            r.totals.merge(statsService.stripe(snippetId), Contribution.of(agreement), Contribution::plus);
+        });
+        return r;
+    }
+
+    private StatsConsistencyReportDTO compare(Recomputed expected) {
+        StatsConsistencyReportDTO report = new StatsConsistencyReportDTO();
+        report.setAnnotationsScanned(expected.annotations);
+        report.setSnippetsChecked(expected.agreements.size());
+        Set<Long> drifting = new TreeSet<>();
+
+        Map<Long, SnippetAgreement> stored = new HashMap<>();
+        statsRepo.streamSnippetAgreements(rs -> {
+            SnippetAgreement agreement = AnnotationStatsRepository.snippetAgreement(rs);
+            stored.put(agreement.getSnippetId(), agreement);
+        });
+        for (Long snippetId : union(stored.keySet(), expected.agreements.keySet())) {
+            if (!sameAgreement(stored.get(snippetId), expected.agreements.get(snippetId))) {
+                report.setSnippetDrift(report.getSnippetDrift() + 1);
+                drifting.add(snippetId);
+            }
+        }
+
+        Map<Long, Map<String, Integer>> storedVotes = new HashMap<>();
+        statsRepo.streamVotes(rs ->
+                storedVotes.computeIfAbsent(rs.getLong(1), id -> new HashMap<>()).put(rs.getString(2), rs.getInt(3)));
+        for (Long snippetId : union(storedVotes.keySet(), expected.votes.keySet())) {
+            Map<String, Integer> actual = storedVotes.getOrDefault(snippetId, Map.of());
+            Map<String, Integer> wanted = expected.votes.getOrDefault(snippetId, Map.of());
+            for (String type : union(actual.keySet(), wanted.keySet())) {
+                if (!Objects.equals(actual.get(type), wanted.get(type))) {
+                    report.setSmellVoteDrift(report.getSmellVoteDrift() + 1);
+                    drifting.add(snippetId);
+                }
+            }
+        }
+
+        Map<String, AnnotatorStats> storedAnnotators = new HashMap<>();
+        statsRepo.findAllAnnotatorStats().forEach(stats -> storedAnnotators.put(stats.getAnnotator(), stats));
+        for (String annotator : union(storedAnnotators.keySet(), expected.annotators.keySet())) {
+            if (!sameAnnotator(storedAnnotators.get(annotator), expected.annotators.get(annotator))) {
+                report.setAnnotatorDrift(report.getAnnotatorDrift() + 1);
+            }
+        }
+
+        Map<HourKey, Long> storedHourly = new HashMap<>();
+        statsRepo.streamHourlyCounts(rs -> storedHourly.put(new HourKey(rs.getString(1), rs.getTimestamp(2).getTime()), rs.getLong(3)));
+        for (HourKey key : union(storedHourly.keySet(), expected.hourly.keySet())) {
+            if (!Objects.equals(storedHourly.get(key), expected.hourly.get(key))) {
+                report.setHourlyDrift(report.getHourlyDrift() + 1);
+            }
+        }
+
+        AgreementTotals storedTotals = statsRepo.sumTotals();
+        AgreementTotals expectedTotals = expected.summedTotals();
+        report.setTotalsDrift(storedTotals.getRatedSnippets() != expectedTotals.getRatedSnippets()
+                || storedTotals.getItems() != expectedTotals.getItems()
+                || storedTotals.getPositiveVotes() != expectedTotals.getPositiveVotes()
+                || storedTotals.getItemRatings() != expectedTotals.getItemRatings()
+                || Math.abs(storedTotals.getAgreementSum() - expectedTotals.getAgreementSum()) > AGREEMENT_TOLERANCE);
+        report.setStoredKappa(AnnotationStatsService.toAgreementDto(storedTotals).getFleissKappa());
+        report.setRecomputedKappa(AnnotationStatsService.toAgreementDto(expectedTotals).getFleissKappa());
+
+        report.setSampleDriftingSnippetIds(drifting.stream().limit(MAX_SAMPLE_IDS).toList());
+        return report;
+    }
+
+    private void rewrite(Recomputed expected) {
+        statsRepo.deleteAll();
+        statsRepo.insertSnippetAgreements(new ArrayList<>(expected.agreements.values()));
+
+        List<Object[]> votes = new ArrayList<>();
+        expected.votes.forEach((snippetId, byType) ->
+                byType.forEach((type, count) -> votes.add(new Object[]{snippetId, type, count})));
+        statsRepo.insertVotes(votes);
+
+        statsRepo.insertAnnotatorStats(new ArrayList<>(expected.annotators.values()));
+
+        List<Object[]> hourly = new ArrayList<>();
+        expected.hourly.forEach((key, count) -> hourly.add(new Object[]{key.annotator(), new Timestamp(key.hourStart()), count}));
+        statsRepo.insertHourlyCounts(hourly);
+
+        expected.totals.forEach((stripe, c) ->
+                statsRepo.addToTotals(stripe, c.ratedSnippets(), c.items(), c.agreementSum(), c.positiveVotes(), c.itemRatings()));
+    }
+
+    private static boolean sameAgreement(SnippetAgreement a, SnippetAgreement b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getRaters() == b.getRaters() && a.getSmellTypes() == b.getSmellTypes()
+                && a.getVoteSum() == b.getVoteSum() && a.getVoteSquareSum() == b.getVoteSquareSum();
+    }
+
+    private static boolean sameAnnotator(AnnotatorStats a, AnnotatorStats b) {
+        if (a == null || b == null) {
+            return a == b;
+        }
+        return a.getSubmitted() == b.getSubmitted() && a.getSkipped() == b.getSkipped()
+                && a.getRejected() == b.getRejected() && a.getClean() == b.getClean()
+                && Objects.equals(a.getFirstAnnotationAt(), b.getFirstAnnotationAt())
+                && Objects.equals(a.getLastAnnotationAt(), b.getLastAnnotationAt());
+    }
+
+    private static <T> Set<T> union(Set<T> a, Set<T> b) {
+        Set<T> all = new HashSet<>(a);
+        all.addAll(b);
+        return all;
+    }
+
+    private record HourKey(String annotator, long hourStart) {}
+
+    private static final class Recomputed {
+        long annotations;
+        final Map<Long, Integer> raters = new HashMap<>();
+        final Map<Long, Map<String, Integer>> votes = new HashMap<>();
+        final Map<Long, SnippetAgreement> agreements = new HashMap<>();
+        final Map<String, AnnotatorStats> annotators = new HashMap<>();
+        final Map<HourKey, Long> hourly = new HashMap<>();
+        final Map<Integer, Contribution> totals = new HashMap<>();
+
+        AgreementTotals summedTotals() {
+            Contribution sum = totals.values().stream()
+                    .reduce(new Contribution(0, 0, 0, 0, 0), Contribution::plus);
+            return new AgreementTotals(-1, sum.ratedSnippets(), sum.items(), sum.agreementSum(),
+                    sum.positiveVotes(), sum.itemRatings());
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.codeAnnotator.codeAnnotator.controller;
+
+import com.codeAnnotator.codeAnnotator.DTO.CodeSnippetResponseDTO;
+import com.codeAnnotator.codeAnnotator.config.AsyncConfig;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.service.AnnotationService;
+import com.codeAnnotator.codeAnnotator.service.CodeSnippetService;
+import com.codeAnnotator.codeAnnotator.service.GitIngestionService;
+import com.codeAnnotator.codeAnnotator.service.MetricsRegistry;
+import com.codeAnnotator.codeAnnotator.service.SimilarityIndexService;
+import com.codeAnnotator.codeAnnotator.service.SnippetIngestionService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Load scenario for the async request handling: LLM calls are stuck, yet annotation writes still go through
+ * and excess /next requests are shed with 503 instead of piling up on request threads.
+ */
+@WebMvcTest(controllers = {CodeSnippetController.class, AnnotationController.class})
+@Import({AsyncConfig.class, MetricsRegistry.class})
+@TestPropertySource(properties = {"analysis.executor.threads=2", "analysis.executor.queue-capacity=1"})
+class RequestIsolationTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    @Autowired
+    private ThreadPoolTaskExecutor analysisExecutor;
+
+    @MockitoBean
+    private CodeSnippetService codeSnippetService;
+
+    @MockitoBean
+    private SnippetIngestionService ingestionService;
+
+    @MockitoBean
+    private GitIngestionService gitIngestion;
+
+    @MockitoBean
+    private AnnotationService annotationService;
+
+    @MockitoBean
+    private SimilarityIndexService similarityIndex;
+
+    @Test
+    void annotationWritesAreNotStarvedBySlowAnalysis() throws Exception {
+        CountDownLatch llmReleased = new CountDownLatch(1);
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setId(1L);
+        when(codeSnippetService.findNextSnippet(any())).thenReturn(Optional.of(snippet));
+        when(codeSnippetService.withAiSuggestions(any())).thenAnswer(invocation -> {
+            llmReleased.await(30, TimeUnit.SECONDS);
+            return new CodeSnippetResponseDTO();
+        });
+
+        // two running + one queued analysis saturate the LLM pool
+        List<MvcResult> stuck = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            stuck.add(mvc.perform(get("/snippets/next")).andExpect(request().asyncStarted()).andReturn());
+        }
+        long deadline = System.currentTimeMillis() + 5_000;
+        while ((analysisExecutor.getActiveCount() < 2 || analysisExecutor.getQueueSize() < 1)
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        long start = System.nanoTime();
+        MvcResult write = mvc.perform(post("/annotations")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"codeSnippetId\": 1, \"status\": \"SUBMITTED\", \"annotations\": []}"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mvc.perform(asyncDispatch(write)).andExpect(status().isOk());
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(2_000);
+
+        MvcResult shed = mvc.perform(get("/snippets/next")).andExpect(request().asyncStarted()).andReturn();
+        mvc.perform(asyncDispatch(shed)).andExpect(status().isServiceUnavailable());
+
+        llmReleased.countDown();
+        for (MvcResult result : stuck) {
+            mvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+        }
+    }
+}
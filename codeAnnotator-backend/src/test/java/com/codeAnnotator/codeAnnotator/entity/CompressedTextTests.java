@@ -0,0 +1,85 @@
+package com.codeAnnotator.codeAnnotator.entity;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CompressedTextTests {
+
+    private static final String CODE = """
+            public class OrderService {
+                private final OrderRepository repository;
+
+                public OrderService(OrderRepository repository) {
+                    this.repository = repository;
+                }
+
+                public BigDecimal total(Long orderId) {
+                    Order order = repository.findById(orderId).orElseThrow(() -> new IllegalArgumentException("No order " + orderId));
+                    BigDecimal total = BigDecimal.ZERO;
+                    for (int i = 0; i < order.getLines().size(); i++) {
+                        OrderLine line = order.getLines().get(i);
+                        if (line.getQuantity() > 3) {
+                            total = total.add(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())).multiply(new BigDecimal("0.95")));
+                        } else {
+                            total = total.add(line.getPrice().multiply(BigDecimal.valueOf(line.getQuantity())));
+                        }
+                    }
+                    return total;
+                }
+            }
+            """;
+
+    @Test
+    void roundTripsAndShrinksJavaCode() {
+        String stored = CompressedText.encode(CODE);
+
+        assertThat(CompressedText.isEncoded(stored)).isTrue();
+        assertThat(CompressedText.decode(stored)).isEqualTo(CODE);
+        assertThat(stored.length() * 2).isLessThan(CODE.length());
+    }
+
+    @Test
+    void leavesShortAndLegacyValuesPlain() {
+        assertThat(CompressedText.encode("class S {}")).isEqualTo("class S {}");
+        assertThat(CompressedText.encode(null)).isNull();
+        assertThat(CompressedText.decode(CODE)).isEqualTo(CODE);
+        assertThat(CompressedText.decode(null)).isNull();
+    }
+
+    @Test
+    void encodesPlainTextThatStartsWithTheMarker() {
+        String ambiguous = CompressedText.MARKER + "1 x";
+
+        String stored = CompressedText.encode(ambiguous);
+
+        assertThat(stored).isNotEqualTo(ambiguous);
+        assertThat(CompressedText.decode(stored)).isEqualTo(ambiguous);
+    }
+
+    @Test
+    void readerStreamsTheSameTextAsDecode() throws IOException {
+        String large = CODE.repeat(200) + "// é ü 漢字\n";
+        String stored = CompressedText.encode(large);
+
+        StringWriter out = new StringWriter();
+        try (Reader reader = CompressedText.reader(stored)) {
+            reader.transferTo(out);
+        }
+
+        assertThat(out.toString()).isEqualTo(large);
+    }
+
+    @Test
+    void rejectsUnknownVersions() {
+        String stored = CompressedText.encode(CODE);
+        String future = CompressedText.MARKER + "9" + stored.substring(CompressedText.MARKER.length() + 1);
+
+        assertThatThrownBy(() -> CompressedText.decode(future)).isInstanceOf(IllegalStateException.class);
+    }
+}
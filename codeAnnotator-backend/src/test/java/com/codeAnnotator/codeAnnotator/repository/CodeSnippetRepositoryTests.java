@@ -0,0 +1,67 @@
+package com.codeAnnotator.codeAnnotator.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.sql.Timestamp;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class CodeSnippetRepositoryTests {
+
+    @Autowired
+    private CodeSnippetRepository codeSnippetRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clear() {
+        jdbcTemplate.update("delete from snippet_lease");
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void selectsLeastAnnotatedSnippetWithLowestIdFirst() {
+        long first = insert(3);
+        long second = insert(1);
+        long third = insert(1);
+
+        assertThat(codeSnippetRepo.findUnleasedIdsByLeastAnnotated(now(), PageRequest.of(0, 1))).containsExactly(second);
+        assertThat(codeSnippetRepo.findUnleasedIdsByLeastAnnotated(now(), PageRequest.of(0, 3))).containsExactly(second, third, first);
+    }
+
+    @Test
+    void skipsSnippetsWithALiveLease() {
+        long first = insert(0);
+        long second = insert(0);
+        long third = insert(1);
+        lease(first, now().getTime() + 60_000);
+        lease(second, now().getTime() - 1_000);
+
+        assertThat(codeSnippetRepo.findUnleasedIdsByLeastAnnotated(now(), PageRequest.of(0, 2))).containsExactly(second, third);
+    }
+
+    private void lease(long snippetId, long expiresAtMillis) {
+        jdbcTemplate.update("insert into snippet_lease (snippet_id, annotator, expires_at) values (?, 'alice', ?)",
+                snippetId, new Timestamp(expiresAtMillis));
+    }
+
+    private static Timestamp now() {
+        return new Timestamp(System.currentTimeMillis());
+    }
+
+    private long insert(int annotationCount) {
+        jdbcTemplate.update(
+                "insert into code_snippet (code, type, annotation_count, start_line, end_line) values ('class A {}', 'OPENSOURCE', ?, 1, 1)",
+                annotationCount);
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+}
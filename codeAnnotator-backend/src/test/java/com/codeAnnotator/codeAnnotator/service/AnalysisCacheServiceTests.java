@@ -0,0 +1,109 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.entity.AnalysisResult;
+import com.codeAnnotator.codeAnnotator.repository.AnalysisResultRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class AnalysisCacheServiceTests {
+
+    private OpenAIAgent agent;
+    private AnalysisResultRepository repo;
+    private AnalysisCacheService cache;
+
+    @BeforeEach
+    void setUp() {
+        agent = mock(OpenAIAgent.class);
+        repo = mock(AnalysisResultRepository.class);
+        when(repo.findByCacheKey(anyString())).thenReturn(Optional.empty());
+        when(agent.modelTag()).thenReturn(OpenAIAgent.MODEL);
+        cache = new AnalysisCacheService(agent, repo, 2, 60);
+    }
+
+    @Test
+    void repeatedAnalysisIsServedFromMemory() {
+        when(agent.analyze("int x = 42;", null, false)).thenReturn(answer(List.of(smell("Magic Numbers"))));
+
+        assertThat(cache.analyze("int x = 42;")).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+        assertThat(cache.analyze("int x = 42;   \r\n")).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+
+        verify(agent, times(1)).analyze(anyString(), any(), anyBoolean());
+        verify(repo, times(1)).save(any(AnalysisResult.class));
+        assertThat(cache.stats().getMemoryHits()).isEqualTo(1);
+        assertThat(cache.stats().getMisses()).isEqualTo(1);
+    }
+
+    @Test
+    void persistedAnalysisIsReusedAfterRestart() {
+        AnalysisResult row = new AnalysisResult();
+        row.setCacheKey(AnalysisCacheService.cacheKey("void f() {}", OpenAIAgent.MODEL));
+        row.setResultJson("[{\"smellType\":\"Long Method\",\"category\":\"Code Smell\"}]");
+        when(repo.findByCacheKey(row.getCacheKey())).thenReturn(Optional.of(row));
+
+        assertThat(cache.analyze("void f() {}")).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Long Method");
+
+        verify(agent, never()).analyze(anyString(), any(), anyBoolean());
+        assertThat(cache.stats().getPersistentHits()).isEqualTo(1);
+    }
+
+    @Test
+    void failedAnalysisIsNotCached() {
+        when(agent.analyze("x", null, false)).thenReturn(Optional.empty()).thenReturn(answer(List.of()));
+
+        assertThat(cache.tryAnalyze("x")).isEmpty();
+        assertThat(cache.tryAnalyze("x")).contains(List.of());
+
+        verify(agent, times(2)).analyze("x", null, false);
+        assertThat(cache.stats().getFailures()).isEqualTo(1);
+    }
+
+    @Test
+    void memoryTierIsBounded() {
+        when(agent.analyze(anyString(), any(), anyBoolean())).thenReturn(answer(List.of()));
+
+        cache.analyze("a");
+        cache.analyze("b");
+        cache.analyze("c");
+
+        assertThat(cache.stats().getMemorySize()).isEqualTo(2);
+        assertThat(cache.stats().getEvictions()).isEqualTo(1);
+    }
+
+    @Test
+    void rowsRecordTheAnsweringModelAndKeysFollowTheRouting() {
+        when(agent.analyze("int x = 1;", "Java", true)).thenReturn(Optional.of(new LlmAnswer(List.of(), "gpt-hedge")));
+
+        cache.tryAnalyze("int x = 1;", "Java", true);
+
+        ArgumentCaptor<AnalysisResult> row = ArgumentCaptor.forClass(AnalysisResult.class);
+        verify(repo).save(row.capture());
+        assertThat(row.getValue().getModel()).isEqualTo("gpt-hedge");
+        assertThat(row.getValue().getCacheKey()).isEqualTo(AnalysisCacheService.cacheKey("int x = 1;", OpenAIAgent.MODEL));
+
+        // Another routing must not be served these answers.
+        when(agent.modelTag()).thenReturn(OpenAIAgent.MODEL + ";small=gpt-4.1-mini<=400:java");
+        assertThat(cache.isCached("int x = 1;")).isFalse();
+        verify(repo).findByCacheKey(AnalysisCacheService.cacheKey("int x = 1;", agent.modelTag()));
+    }
+
+    private static Optional<LlmAnswer> answer(List<SmellAnnotationDTO> smells) {
+        return Optional.of(new LlmAnswer(smells, OpenAIAgent.MODEL));
+    }
+
+    private static SmellAnnotationDTO smell(String type) {
+        SmellAnnotationDTO dto = new SmellAnnotationDTO();
+        dto.setSmellType(type);
+        return dto;
+    }
+}
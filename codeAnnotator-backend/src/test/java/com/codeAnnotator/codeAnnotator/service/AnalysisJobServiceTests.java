@@ -0,0 +1,186 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.AnalysisJob;
+import com.codeAnnotator.codeAnnotator.repository.AnalysisJobRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest
+@ActiveProfiles("test")
+class AnalysisJobServiceTests {
+
+    @Autowired
+    private AnalysisJobRepository jobRepo;
+
+    @Autowired
+    private CodeSnippetRepository codeSnippetRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final AnalysisRouter router = mock(AnalysisRouter.class);
+    private final AnalysisCacheService cache = mock(AnalysisCacheService.class);
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("delete from analysis_job");
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void pausedRunResumesFromItsCheckpointAndSkipsCachedAndNearDuplicates() throws InterruptedException {
+        long first = insertSnippet("class A {}", null);
+        insertSnippet("class B {}", null);
+        insertSnippet("class B2 {}", first);      // near-duplicate of A: served with A's analysis
+        insertSnippet("class Cached {}", null);
+        insertSnippet("class Broken {}", null);
+        insertSnippet("class E {}", null);
+
+        AnalysisJobService service = new AnalysisJobService(jobRepo, codeSnippetRepo, router, cache, 2, 2, 0, false, 120_000);
+        List<String> warmed = new CopyOnWriteArrayList<>();
+        when(cache.isCached(anyString())).thenAnswer(call -> call.getArgument(0).equals("class Cached {}"));
+        when(router.warm(anyString(), any(), any())).thenAnswer(call -> {
+            String code = call.getArgument(0);
+            warmed.add(code);
+            if (code.equals("class B {}")) {
+                ReflectionTestUtils.setField(service, "pauseRequested", true);
+            }
+            return code.equals("class Broken {}") ? AnalysisRouter.Warmed.FAILED : AnalysisRouter.Warmed.LLM;
+        });
+
+        AnalysisJob job = new AnalysisJob();
+        job.setModel(OpenAIAgent.MODEL);
+        job.setPromptVersion(OpenAIAgent.PROMPT_VERSION);
+        job.setStatus(AnalysisJob.Status.RUNNING);
+        job = jobRepo.save(job);
+
+        service.run(job);
+
+        assertThat(job.getStatus()).isEqualTo(AnalysisJob.Status.PAUSED);
+        assertThat(warmed).containsExactlyInAnyOrder("class A {}", "class B {}");
+        long checkpoint = job.getCheckpointId();
+
+        ReflectionTestUtils.setField(service, "pauseRequested", false);
+        service.run(jobRepo.findById(job.getId()).orElseThrow());
+
+        AnalysisJob done = jobRepo.findById(job.getId()).orElseThrow();
+        assertThat(done.getCheckpointId()).isGreaterThan(checkpoint);
+        assertThat(done.getStatus()).isEqualTo(AnalysisJob.Status.COMPLETED);
+        assertThat(warmed).containsExactlyInAnyOrder("class A {}", "class B {}", "class Broken {}", "class E {}");
+        assertThat(done.getAnalyzed()).isEqualTo(3);
+        assertThat(done.getAlreadyCached()).isEqualTo(1);
+        assertThat(done.getFailed()).isEqualTo(1);
+        assertThat(service.status()).hasValueSatisfying(status -> assertThat(status.getStatus()).isEqualTo("COMPLETED"));
+    }
+
+    @Test
+    void onlyLlmRequestsArePacedAndLocalDecisionsAreCountedApart() {
+        insertSnippet("class Local1 {}", null);
+        insertSnippet("class Chunked {}", null);
+        insertSnippet("class Local2 {}", null);
+        insertSnippet("class Single {}", null);
+
+        Analyzer local = mock(Analyzer.class);
+        Analyzer llm = mock(Analyzer.class);
+        when(local.analyze(anyString(), any())).thenAnswer(call -> Optional.of(new AnalysisReport(MetricsAnalyzer.NAME, List.of(),
+                call.<String>getArgument(0).startsWith("class Local") ? 1.0 : 0.1)));
+        when(llm.analyzeInBackground(anyString(), any())).thenReturn(Optional.of(new AnalysisReport(LlmAnalyzer.NAME, List.of(), 1.0)));
+        when(cache.requestCount(anyString())).thenAnswer(call -> call.getArgument(0).equals("class Chunked {}") ? 2 : 1);
+        AnalysisRouter localFirst = new AnalysisRouter(local, llm, "local-first", 0.8);
+        // A quota of exactly the three LLM requests: pacing the local decisions too would leave it in debt.
+        AnalysisJobService service = new AnalysisJobService(jobRepo, codeSnippetRepo, localFirst, cache, 2, 10, 3, false, 120_000);
+
+        AnalysisJob job = new AnalysisJob();
+        job.setStatus(AnalysisJob.Status.RUNNING);
+        service.run(jobRepo.save(job));
+
+        AnalysisJob done = jobRepo.findById(job.getId()).orElseThrow();
+        assertThat(done.getDecidedLocally()).isEqualTo(2);
+        assertThat(done.getAnalyzed()).isEqualTo(2);
+        assertThat(done.getFailed()).isZero();
+        verify(cache, never()).requestCount(startsWith("class Local"));
+        Object pacer = ReflectionTestUtils.getField(service, "pacer");
+        assertThat((double) ReflectionTestUtils.getField(pacer, "available")).isCloseTo(0.0, within(0.1));
+    }
+
+    @Test
+    void aRunHeldByAnotherLiveInstanceIsNeitherResumedNorStarted() throws InterruptedException {
+        insertSnippet("class A {}", null);
+        when(cache.modelTag()).thenReturn(OpenAIAgent.MODEL);
+        AnalysisJobService service = new AnalysisJobService(jobRepo, codeSnippetRepo, router, cache, 1, 10, 0, true, 120_000);
+
+        AnalysisJob job = runningJob("other-instance", System.currentTimeMillis());
+        service.resumeInterrupted();
+        service.run(job);
+
+        assertThat(service.start()).isEmpty();
+        verify(router, never()).warm(anyString(), any(), any());
+        AnalysisJob unchanged = jobRepo.findById(job.getId()).orElseThrow();
+        assertThat(unchanged.getOwner()).isEqualTo("other-instance");
+        assertThat(unchanged.getStatus()).isEqualTo(AnalysisJob.Status.RUNNING);
+    }
+
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED) // the takeover is written from a worker thread
+    void aStaleRunIsTakenOverAndItsFormerOwnerStopsWithoutSaving() throws InterruptedException {
+        insertSnippet("class A {}", null);
+        insertSnippet("class B {}", null);
+        when(cache.modelTag()).thenReturn(OpenAIAgent.MODEL);
+        when(router.warm(anyString(), any(), any())).thenAnswer(call -> {
+            // Another instance takes the run over while this one works on the first page.
+            jdbcTemplate.update("update analysis_job set owner = 'successor', heartbeat_at = ?", new Timestamp(System.currentTimeMillis()));
+            return AnalysisRouter.Warmed.LLM;
+        });
+        AnalysisJobService service = new AnalysisJobService(jobRepo, codeSnippetRepo, router, cache, 1, 1, 0, false, 120_000);
+
+        AnalysisJob job = runningJob("crashed-instance", System.currentTimeMillis() - 600_000);
+        service.run(job);
+
+        verify(router).warm(eq("class A {}"), any(), any());
+        verify(router, never()).warm(eq("class B {}"), any(), any());
+        AnalysisJob taken = jobRepo.findById(job.getId()).orElseThrow();
+        assertThat(taken.getOwner()).isEqualTo("successor");
+        assertThat(taken.getCheckpointId()).isZero();
+        assertThat(taken.getAnalyzed()).isZero();
+    }
+
+    private AnalysisJob runningJob(String owner, long heartbeatAtMillis) {
+        AnalysisJob job = new AnalysisJob();
+        job.setModel(OpenAIAgent.MODEL);
+        job.setPromptVersion(OpenAIAgent.PROMPT_VERSION);
+        job.setStatus(AnalysisJob.Status.RUNNING);
+        job.setOwner(owner);
+        job.setHeartbeatAt(new Timestamp(heartbeatAtMillis));
+        return jobRepo.saveAndFlush(job);
+    }
+
+    private long insertSnippet(String code, Long clusterId) {
+        jdbcTemplate.update("insert into code_snippet (code, languages, annotation_count, start_line, end_line, cluster_id) values (?, 'Java', 0, 1, 1, ?)",
+                code, clusterId);
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+}
@@ -0,0 +1,144 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.Pageable;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(AnalysisPrefetchService.class)
+@TestPropertySource(properties = {"analysis.prefetch.enabled=true", "analysis.prefetch.interval-ms=3600000"})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AnalysisPrefetchServiceTests {
+
+    @MockitoBean
+    private AnalysisRouter analysisRouter;
+
+    @Autowired
+    private ApplicationEventPublisher events;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void savedAnnotationRefillsOnlyAfterCommit() {
+        when(analysisRouter.warm(anyString(), any())).thenReturn(true);
+        TransactionTemplate tx = new TransactionTemplate(transactionManager);
+
+        // The snippet is written in the same transaction, so no refill can see it before the commit.
+        tx.executeWithoutResult(status -> {
+            insertSnippet("class A {}");
+            events.publishEvent(event());
+            status.setRollbackOnly();
+        });
+        verify(analysisRouter, after(300).never()).warm(anyString(), any());
+
+        tx.executeWithoutResult(status -> {
+            insertSnippet("class B {}");
+            events.publishEvent(event());
+            verify(analysisRouter, after(300).never()).warm(anyString(), any());
+        });
+        verify(analysisRouter, timeout(5_000)).warm("class B {}", "Java");
+    }
+
+    @Test
+    void windowIsBoundedAndIdsAreQueuedOnce() throws Exception {
+        CodeSnippetRepository repo = mock(CodeSnippetRepository.class);
+        AnalysisRouter router = mock(AnalysisRouter.class);
+        when(repo.findById(anyLong())).thenAnswer(invocation -> Optional.of(snippet(invocation.getArgument(0))));
+        CountDownLatch release = new CountDownLatch(1);
+        Map<String, AtomicInteger> warmCalls = new ConcurrentHashMap<>();
+        when(router.warm(anyString(), any())).thenAnswer(invocation -> {
+            warmCalls.computeIfAbsent(invocation.getArgument(0), code -> new AtomicInteger()).incrementAndGet();
+            return release.await(5, TimeUnit.SECONDS);
+        });
+        // One worker and a queue of one window (2): snippet 1 runs, 2 and 3 wait, 4 is rejected.
+        AnalysisPrefetchService prefetch = new AnalysisPrefetchService(repo, router, true, 2, 1);
+        try {
+            when(repo.findUnleasedIdsByLeastAnnotated(any(), any(Pageable.class))).thenReturn(List.of(1L, 2L));
+            prefetch.refill();
+            verify(router, timeout(5_000)).warm("code-1", "Java");
+            when(repo.findUnleasedIdsByLeastAnnotated(any(), any(Pageable.class))).thenReturn(List.of(3L, 4L));
+            prefetch.refill();
+            prefetch.refill();
+            assertThat(prefetch.stats().getQueueDepth()).isEqualTo(2);
+
+            release.countDown();
+            waitForCompleted(prefetch, 3);
+            assertThat(warmCalls.keySet()).containsExactlyInAnyOrder("code-1", "code-2", "code-3");
+
+            prefetch.refill();
+            waitForCompleted(prefetch, 4);
+            prefetch.refill();
+            Thread.sleep(200);
+
+            assertThat(warmCalls).containsOnlyKeys("code-1", "code-2", "code-3", "code-4");
+            assertThat(warmCalls.values()).allSatisfy(calls -> assertThat(calls.get()).isEqualTo(1));
+            assertThat(prefetch.stats().getWarmedInWindow()).isEqualTo(2);
+        } finally {
+            prefetch.shutdown();
+        }
+    }
+
+    private static void waitForCompleted(AnalysisPrefetchService prefetch, long completed) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (prefetch.stats().getCompleted() < completed && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(prefetch.stats().getCompleted()).isEqualTo(completed);
+    }
+
+    private void insertSnippet(String code) {
+        jdbcTemplate.update("insert into code_snippet (code, languages, type, annotation_count, start_line, end_line) values (?, 'Java', 'OPENSOURCE', 0, 1, 1)", code);
+    }
+
+    private static CodeSnippet snippet(long id) {
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setId(id);
+        snippet.setCode("code-" + id);
+        snippet.setLanguages("Java");
+        return snippet;
+    }
+
+    private static AnnotationSavedEvent event() {
+        return new AnnotationSavedEvent(1L, "alice", "SUBMITTED", List.of(), Instant.now());
+    }
+}
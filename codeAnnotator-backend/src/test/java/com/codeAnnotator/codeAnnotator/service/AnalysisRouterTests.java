@@ -0,0 +1,69 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class AnalysisRouterTests {
+
+    private Analyzer llm;
+
+    @BeforeEach
+    void setUp() {
+        llm = mock(Analyzer.class);
+        when(llm.analyze(any(), any())).thenReturn(Optional.of(new AnalysisReport(LlmAnalyzer.NAME, List.of(smell("God Class")), 1.0)));
+        when(llm.analyze(any(), any(), any())).thenReturn(Optional.of(new AnalysisReport(LlmAnalyzer.NAME, List.of(), 1.0)));
+    }
+
+    @Test
+    void confidentLocalAnswersSkipTheLlm() {
+        AnalysisRouter router = new AnalysisRouter(new MetricsAnalyzer(), llm, "local-first", 0.8);
+
+        List<SmellAnnotationDTO> streamed = new ArrayList<>();
+        assertThat(router.streamAnalyze("int answer() { return 42 + 7 * 3; }", "java", streamed::add)).isPresent();
+        assertThat(streamed).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+
+        verifyNoInteractions(llm);
+        assertThat(router.stats().getLocalDecisions()).isEqualTo(1);
+    }
+
+    @Test
+    void ambiguousOrUnsupportedSnippetsGoToTheLlm() {
+        AnalysisRouter router = new AnalysisRouter(new MetricsAnalyzer(), llm, "local-first", 0.8);
+
+        assertThat(router.analyze("int timeout() { return 30; }", "java").orElseThrow())
+                .extracting(SmellAnnotationDTO::getSmellType).containsExactly("God Class");
+        assertThat(router.analyze("SELECT 1", "SQL")).isPresent();
+
+        verify(llm, times(2)).analyze(any(), any());
+        assertThat(router.stats().getLlmRouted()).isEqualTo(2);
+        assertThat(router.stats().getUnsupportedLanguage()).isEqualTo(1);
+    }
+
+    @Test
+    void modesPinOneSide() {
+        AnalysisRouter llmOnly = new AnalysisRouter(new MetricsAnalyzer(), llm, "llm-only", 0.8);
+        assertThat(llmOnly.analyze("void f() {}", "java").orElseThrow()).hasSize(1);
+
+        AnalysisRouter localOnly = new AnalysisRouter(new MetricsAnalyzer(), llm, "LOCAL_ONLY", 0.8);
+        assertThat(localOnly.analyze("int timeout() { return 30; }", "java").orElseThrow())
+                .extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+        assertThat(localOnly.analyze("SELECT 1", "SQL")).isEmpty();
+
+        verify(llm, times(1)).analyze(any(), any());
+    }
+
+    private static SmellAnnotationDTO smell(String type) {
+        SmellAnnotationDTO dto = new SmellAnnotationDTO();
+        dto.setSmellType(type);
+        return dto;
+    }
+}
@@ -0,0 +1,125 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.ExportFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.entity.Annotation;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationExportRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({AnnotationExportService.class, AnnotationExportRepository.class, AnnotationService.class, AnnotationBatchRepository.class, MetricsRegistry.class})
+class AnnotationExportServiceTests {
+
+    @Autowired
+    private AnnotationExportService exportService;
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    void seed() {
+        long openSource = insertSnippet("OPENSOURCE", "class A {}");
+        long proprietary = insertSnippet("PROPRIETARY", "class B {}");
+        annotationService.saveAnnotations(List.of(
+                request(openSource, "alice", "submitted", "Long Method", "Magic Numbers"),
+                request(openSource, "bob", "clean"),
+                request(proprietary, "alice", "submitted", "God Class")));
+    }
+
+    @Test
+    void jsonlGroupsSmellsUnderTheirAnnotation() throws Exception {
+        List<JsonNode> records = exportJsonl(new ExportFilterDTO());
+
+        assertThat(records).hasSize(3);
+        assertThat(records.get(0).get("smells")).extracting(smell -> smell.get("smellType").asText())
+                .containsExactly("Long Method", "Magic Numbers");
+        assertThat(records.get(0).get("snippet").get("code").asText()).isEqualTo("class A {}");
+        assertThat(records.get(1).get("smells")).isEmpty();
+        assertThat(records.get(1).get("status").asText()).isEqualTo("CLEAN");
+    }
+
+    @Test
+    void filtersByCodeTypeStatusAndAnnotator() throws Exception {
+        ExportFilterDTO filter = new ExportFilterDTO();
+        filter.setAnnotator("alice");
+        filter.setStatus(Annotation.Status.SUBMITTED);
+        assertThat(exportJsonl(filter)).hasSize(2);
+
+        filter.setCodeType(CodeSnippet.CodeType.PROPRIETARY);
+        List<JsonNode> records = exportJsonl(filter);
+        assertThat(records).hasSize(1);
+        assertThat(records.get(0).get("snippet").get("code").asText()).isEqualTo("class B {}");
+    }
+
+    @Test
+    void csvHasOneLinePerSmell() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = exportService.export(new ExportFilterDTO(), AnnotationExportService.Format.CSV, out);
+
+        List<String> lines = out.toString(StandardCharsets.UTF_8).lines().toList();
+        assertThat(written).isEqualTo(4);
+        assertThat(lines).hasSize(5);
+        assertThat(lines.get(0)).startsWith("annotationId,annotator,status");
+    }
+
+    private List<JsonNode> exportJsonl(ExportFilterDTO filter) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        exportService.export(filter, AnnotationExportService.Format.JSONL, out);
+        return out.toString(StandardCharsets.UTF_8).lines()
+                .map(line -> {
+                    try {
+                        return objectMapper.readTree(line);
+                    } catch (Exception e) {
+                        throw new IllegalStateException(e);
+                    }
+                })
+                .toList();
+    }
+
+    private long insertSnippet(String type, String code) {
+        jdbcTemplate.update("insert into code_snippet (code, type, annotation_count, start_line, end_line) values (?, ?, 0, 1, 1)", code, type);
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+
+    private static AnnotationRequestDTO request(Long snippetId, String annotator, String status, String... smellTypes) {
+        AnnotationRequestDTO dto = new AnnotationRequestDTO();
+        dto.setAnnotator(annotator);
+        dto.setCodeSnippetId(snippetId);
+        dto.setStatus(status);
+        dto.setAnnotations(Arrays.stream(smellTypes).map(type -> {
+            SmellAnnotationDTO smell = new SmellAnnotationDTO();
+            smell.setSmellType(type);
+            smell.setCategory("Code Smell");
+            return smell;
+        }).toList());
+        return dto;
+    }
+}
@@ -0,0 +1,98 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationResultDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({AnnotationService.class, AnnotationBatchRepository.class, MetricsRegistry.class})
+class AnnotationServiceTests {
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long snippetA;
+    private long snippetB;
+
+    @BeforeEach
+    void seed() {
+        snippetA = insertSnippet();
+        snippetB = insertSnippet();
+    }
+
+    @Test
+    void saveAnnotationIncrementsCounterInPlace() {
+        annotationService.saveAnnotation(request(snippetA, "submitted", "Long Method"));
+        annotationService.saveAnnotation(request(snippetA, "clean"));
+
+        assertThat(annotationCount(snippetA)).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from smell_annotation", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void saveAnnotationRejectsUnknownSnippet() {
+        assertThatThrownBy(() -> annotationService.saveAnnotation(request(-1L, "submitted")))
+                .hasMessage("CodeSnippet not found");
+    }
+
+    @Test
+    void batchPersistsValidItemsAndReportsInvalidOnes() {
+        List<AnnotationResultDTO> results = annotationService.saveAnnotations(List.of(
+                request(snippetA, "submitted", "Long Method", "Magic Numbers"),
+                request(-1L, "submitted"),
+                request(snippetB, "maybe"),
+                request(snippetA, "skipped"),
+                request(snippetB, "clean")));
+
+        assertThat(results).extracting(AnnotationResultDTO::isSuccess).containsExactly(true, false, false, true, true);
+        assertThat(results.get(1).getError()).isEqualTo("CodeSnippet not found");
+        assertThat(results.get(2).getError()).isEqualTo("Invalid status: maybe");
+        assertThat(results.get(0).getAnnotationId()).isNotNull();
+
+        assertThat(annotationCount(snippetA)).isEqualTo(2);
+        assertThat(annotationCount(snippetB)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject(
+                "select count(*) from smell_annotation where annotation_id = ?", Integer.class, results.get(0).getAnnotationId()))
+                .isEqualTo(2);
+    }
+
+    private long insertSnippet() {
+        jdbcTemplate.update("insert into code_snippet (code, type, annotation_count, start_line, end_line) values ('class A {}', 'OPENSOURCE', 0, 1, 1)");
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+
+    private int annotationCount(long snippetId) {
+        return jdbcTemplate.queryForObject("select annotation_count from code_snippet where id = ?", Integer.class, snippetId);
+    }
+
+    private static AnnotationRequestDTO request(Long snippetId, String status, String... smellTypes) {
+        AnnotationRequestDTO dto = new AnnotationRequestDTO();
+        dto.setAnnotator("alice");
+        dto.setCodeSnippetId(snippetId);
+        dto.setStatus(status);
+        dto.setAnnotations(java.util.Arrays.stream(smellTypes).map(type -> {
+            SmellAnnotationDTO smell = new SmellAnnotationDTO();
+            smell.setSmellType(type);
+            smell.setCategory("Code Smell");
+            return smell;
+        }).toList());
+        return dto;
+    }
+}
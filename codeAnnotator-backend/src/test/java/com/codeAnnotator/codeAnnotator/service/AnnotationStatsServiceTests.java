@@ -0,0 +1,146 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AgreementStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotatorStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.DTO.StatsConsistencyReportDTO;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({AnnotationService.class, AnnotationBatchRepository.class, MetricsRegistry.class, AnnotationStatsService.class,
+        AnnotationStatsRepository.class, StatsConsistencyService.class})
+class AnnotationStatsServiceTests {
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private AnnotationStatsService statsService;
+
+    @Autowired
+    private StatsConsistencyService consistencyService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private long snippetA;
+    private long snippetB;
+
+    @BeforeEach
+    void seed() {
+        snippetA = insertSnippet();
+        snippetB = insertSnippet();
+
+        annotationService.saveAnnotation(request(snippetA, "alice", "submitted", "Long Method", "Magic Numbers"));
+        annotationService.saveAnnotation(request(snippetA, "bob", "submitted", "Long Method"));
+        annotationService.saveAnnotation(request(snippetA, "carol", "clean"));
+        annotationService.saveAnnotations(List.of(
+                request(snippetB, "alice", "submitted", "God Class"),
+                request(snippetB, "bob", "submitted", " God Class "),
+                request(snippetB, "carol", "skipped")));
+    }
+
+    @Test
+    void fleissKappaMatchesDirectComputation() {
+        // Items are (snippet, smell type); rows are {raters, raters who flagged it}.
+        double expectedKappa = fleiss(new int[][]{{3, 2}, {3, 1}, {2, 2}});
+
+        AgreementStatsDTO agreement = statsService.agreement();
+        assertThat(agreement.getRatedSnippets()).isEqualTo(2);
+        assertThat(agreement.getItems()).isEqualTo(3);
+        assertThat(agreement.getFleissKappa()).isCloseTo(expectedKappa, within(1e-9));
+
+        var snippet = statsService.snippetAgreement(snippetA).orElseThrow();
+        assertThat(snippet.getRaters()).isEqualTo(3);
+        assertThat(snippet.getVotes()).containsEntry("Long Method", 2).containsEntry("Magic Numbers", 1);
+        assertThat(snippet.getObservedAgreement()).isCloseTo(1.0 / 3, within(1e-9));
+    }
+
+    @Test
+    void tracksStatusDistributionAndAnnotatorThroughput() {
+        assertThat(statsService.statusDistribution())
+                .containsEntry("SUBMITTED", 4L)
+                .containsEntry("CLEAN", 1L)
+                .containsEntry("SKIPPED", 1L)
+                .containsEntry("REJECTED", 0L);
+
+        AnnotatorStatsDTO carol = statsService.annotatorStats("carol").orElseThrow();
+        assertThat(carol.getClean()).isEqualTo(1);
+        assertThat(carol.getSkipped()).isEqualTo(1);
+        assertThat(carol.getTotal()).isEqualTo(2);
+        assertThat(carol.getLast24Hours()).isEqualTo(2);
+        assertThat(statsService.allAnnotatorStats()).extracting(AnnotatorStatsDTO::getAnnotator)
+                .containsExactly("alice", "bob", "carol");
+    }
+
+    @Test
+    void consistencyCheckReportsAndRepairsDrift() {
+        assertThat(consistencyService.check(false).hasDrift()).isFalse();
+
+        jdbcTemplate.update("update snippet_agreement set raters = 10 where snippet_id = ?", snippetA);
+        jdbcTemplate.update("update annotator_stats set submitted = 0 where annotator = 'bob'");
+
+        StatsConsistencyReportDTO report = consistencyService.check(true);
+        assertThat(report.getSnippetDrift()).isEqualTo(1);
+        assertThat(report.getAnnotatorDrift()).isEqualTo(1);
+        assertThat(report.getSampleDriftingSnippetIds()).containsExactly(snippetA);
+        assertThat(report.isRepaired()).isTrue();
+
+        assertThat(consistencyService.check(false).hasDrift()).isFalse();
+        assertThat(statsService.snippetAgreement(snippetA).orElseThrow().getRaters()).isEqualTo(3);
+    }
+
+    /** Textbook Fleiss' kappa for binary items with a varying number of raters. */
+    private static double fleiss(int[][] items) {
+        double agreement = 0;
+        long positives = 0;
+        long ratings = 0;
+        for (int[] item : items) {
+            int n = item[0];
+            int yes = item[1];
+            int no = n - yes;
+            agreement += (double) (yes * (yes - 1) + no * (no - 1)) / (n * (n - 1));
+            positives += yes;
+            ratings += n;
+        }
+        double observed = agreement / items.length;
+        double p = (double) positives / ratings;
+        double expected = p * p + (1 - p) * (1 - p);
+        return (observed - expected) / (1 - expected);
+    }
+
+    private long insertSnippet() {
+        jdbcTemplate.update("insert into code_snippet (code, type, annotation_count, start_line, end_line) values ('class A {}', 'OPENSOURCE', 0, 1, 1)");
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+
+    private static AnnotationRequestDTO request(Long snippetId, String annotator, String status, String... smellTypes) {
+        AnnotationRequestDTO dto = new AnnotationRequestDTO();
+        dto.setAnnotator(annotator);
+        dto.setCodeSnippetId(snippetId);
+        dto.setStatus(status);
+        dto.setAnnotations(Arrays.stream(smellTypes).map(type -> {
+            SmellAnnotationDTO smell = new SmellAnnotationDTO();
+            smell.setSmellType(type);
+            smell.setCategory("Code Smell");
+            return smell;
+        }).toList());
+        return dto;
+    }
+}
@@ -0,0 +1,114 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationDetailDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationSummaryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.KeysetPageDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetBrowseFilterDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({BrowseService.class, BrowseRepository.class, AnnotationService.class, AnnotationBatchRepository.class, MetricsRegistry.class})
+class BrowseServiceTests {
+
+    @Autowired
+    private BrowseService browseService;
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void pagesThroughFilteredSnippetsByKeyset() {
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            long id = insertSnippet("repo-a", i % 2 == 0 ? "OPENSOURCE" : "PROPRIETARY", i);
+            if (i % 2 == 0 && i >= 2) {
+                expected.add(id);
+            }
+        }
+        insertSnippet("repo-b", "OPENSOURCE", 5);
+
+        SnippetBrowseFilterDTO filter = new SnippetBrowseFilterDTO();
+        filter.setRepository("repo-a");
+        filter.setType(CodeSnippet.CodeType.OPENSOURCE);
+        filter.setMinAnnotations(2);
+
+        List<Long> seen = new ArrayList<>();
+        Long after = null;
+        int pages = 0;
+        do {
+            KeysetPageDTO<SnippetSummaryDTO> page = browseService.snippets(filter, after, 2);
+            page.getItems().forEach(snippet -> seen.add(snippet.getId()));
+            after = page.getNextAfter();
+            pages++;
+        } while (after != null);
+
+        assertThat(seen).isEqualTo(expected);
+        assertThat(pages).isEqualTo(2);
+        assertThat(browseService.snippet(expected.get(0))).get()
+                .satisfies(detail -> assertThat(detail.getCode()).isEqualTo("class S {}"));
+    }
+
+    @Test
+    void listsAnnotationMetadataAndLoadsSuggestionsOnDetail() {
+        long snippet = insertSnippet("repo-a", "OPENSOURCE", 0);
+        annotationService.saveAnnotations(List.of(
+                request(snippet, "alice", "Long Method", "God Class"),
+                request(snippet, "bob", "Long Method")));
+
+        AnnotationBrowseFilterDTO filter = new AnnotationBrowseFilterDTO();
+        filter.setAnnotator("alice");
+        KeysetPageDTO<AnnotationSummaryDTO> page = browseService.annotations(filter, null, 10);
+
+        assertThat(page.getItems()).singleElement()
+                .satisfies(annotation -> assertThat(annotation.getSmellCount()).isEqualTo(2));
+        assertThat(page.getNextAfter()).isNull();
+
+        AnnotationDetailDTO detail = browseService.annotation(page.getItems().get(0).getId()).orElseThrow();
+        assertThat(detail.getSmells()).extracting(SmellAnnotationDTO::getSuggestion)
+                .containsExactly("Fix Long Method", "Fix God Class");
+    }
+
+    private long insertSnippet(String repository, String type, int annotationCount) {
+        jdbcTemplate.update("insert into code_snippet (code, repository, type, annotation_count, start_line, end_line) values ('class S {}', ?, ?, ?, 1, 1)",
+                repository, type, annotationCount);
+        return jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+    }
+
+    private static AnnotationRequestDTO request(Long snippetId, String annotator, String... smellTypes) {
+        AnnotationRequestDTO dto = new AnnotationRequestDTO();
+        dto.setAnnotator(annotator);
+        dto.setCodeSnippetId(snippetId);
+        dto.setStatus("submitted");
+        List<SmellAnnotationDTO> smells = new ArrayList<>();
+        for (String type : smellTypes) {
+            SmellAnnotationDTO smell = new SmellAnnotationDTO();
+            smell.setSmellType(type);
+            smell.setCategory("Code Smell");
+            smell.setSuggestion("Fix " + type);
+            smells.add(smell);
+        }
+        dto.setAnnotations(smells);
+        return dto;
+    }
+}
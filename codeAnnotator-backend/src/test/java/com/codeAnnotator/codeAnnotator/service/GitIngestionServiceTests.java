@@ -0,0 +1,252 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetRepository;
+import com.codeAnnotator.codeAnnotator.repository.RepositoryIngestionRepository;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository;
+import com.codeAnnotator.codeAnnotator.repository.SimilarityIndexRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.spy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({CodeSnippetBatchRepository.class, SimilarityIndexRepository.class, SimilarityIndexService.class,
+        SearchIndexRepository.class, SearchIndexService.class, BrowseRepository.class, MetricsRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class GitIngestionServiceTests {
+
+    private static final String SHOP = """
+            package shop;
+
+            import java.util.List;
+
+            /** Orders. */
+            @Entity
+            public class Shop {
+                private int total;
+
+                @Override
+                public String toString() {
+                    return "Shop";
+                }
+
+                int add(int amount) {
+                    total += amount;
+                    return total;
+                }
+            }
+            """;
+
+    private static final String REPORT = """
+            import os
+
+
+            @cache
+            def load(path):
+                with open(path) as f:
+                    return f.read()
+
+
+            class Report:
+                def __init__(self, rows):
+                    self.rows = rows
+
+                def render(self):
+                    lines = [str(r) for r in self.rows]
+                    return "\\n".join(lines)
+            """;
+
+    @Autowired
+    private CodeSnippetBatchRepository batchRepo;
+
+    @Autowired
+    private SimilarityIndexService similarityIndex;
+
+    @Autowired
+    private SearchIndexService searchIndex;
+
+    @Autowired
+    private CodeSnippetRepository snippetRepo;
+
+    @Autowired
+    private RepositoryIngestionRepository checkpoints;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path repo;
+
+    private SnippetIngestionService ingestion;
+    private GitIngestionService service;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ingestion = new SnippetIngestionService(batchRepo, similarityIndex, searchIndex, transactionManager,
+                new MetricsRegistry(), 2, 10, 1);
+        service = new GitIngestionService(ingestion, checkpoints, snippetRepo, new MetricsRegistry(), 2, 3, 1 << 20, 30_000);
+        git("init", "-q");
+    }
+
+    @AfterEach
+    void clear() {
+        service.shutdown();
+        jdbcTemplate.update("delete from snippet_lsh_bucket");
+        jdbcTemplate.update("delete from snippet_fingerprint");
+        jdbcTemplate.update("delete from search_posting");
+        jdbcTemplate.update("delete from search_term");
+        jdbcTemplate.update("delete from code_snippet");
+        jdbcTemplate.update("delete from repository_ingestion");
+    }
+
+    @Test
+    void extractsClassesAndMethodsWithTheirLineRanges() throws Exception {
+        Files.createDirectories(repo.resolve("src"));
+        Files.writeString(repo.resolve("src/Shop.java"), SHOP);
+        Files.writeString(repo.resolve("report.py"), REPORT);
+        Files.writeString(repo.resolve("README.md"), "# shop\n");
+        String commit = commit("first");
+
+        IngestionJob job = new IngestionJob("test", 10);
+        service.run(job, source(commit));
+
+        assertThat(job.toStatus().getState()).isEqualTo("COMPLETED");
+        var rows = jdbcTemplate.queryForList(
+                "select code_type, code_name, path, start_line, end_line, commit_hash, link, code from code_snippet order by path, start_line");
+        assertThat(rows).extracting(r -> r.get("CODE_TYPE") + " " + r.get("CODE_NAME") + " " + r.get("PATH") + ":"
+                        + r.get("START_LINE") + "-" + r.get("END_LINE"))
+                .containsExactly(
+                        "method load report.py:4-7",
+                        "class Report report.py:10-16",
+                        "method render report.py:14-16",
+                        "class Shop src/Shop.java:6-19",
+                        "method toString src/Shop.java:10-13",
+                        "method add src/Shop.java:15-18");
+        assertThat(rows).allSatisfy(r -> assertThat(r.get("COMMIT_HASH")).isEqualTo(commit));
+        assertThat(rows.get(5).get("LINK")).isEqualTo("https://example.org/shop/blob/" + commit + "/src/Shop.java#L15-L18");
+        assertThat(CompressedText.decode((String) rows.get(5).get("CODE"))).isEqualTo(
+                "    int add(int amount) {\n        total += amount;\n        return total;\n    }");
+        assertThat(checkpoints.findByRepository("shop").orElseThrow().getLastCommit()).isEqualTo(commit);
+    }
+
+    @Test
+    void readsOnlyFilesChangedSinceTheLastIngestedCommit() throws Exception {
+        Files.writeString(repo.resolve("Shop.java"), SHOP);
+        service.run(new IngestionJob("test", 10), source(commit("first")));
+
+        Files.writeString(repo.resolve("Cart.java"), "class Cart {\n    void clear() {\n        items = 0;\n    }\n}\n");
+        String second = commit("second");
+        IngestionJob job = new IngestionJob("test", 10);
+        service.run(job, source(second));
+
+        assertThat(job.toStatus().getRowsInserted()).isEqualTo(2);
+        assertThat(jdbcTemplate.queryForList("select code_name from code_snippet where commit_hash = ?", String.class, second))
+                .containsExactlyInAnyOrder("Cart", "clear");
+        assertThat(jdbcTemplate.queryForObject("select count(*) from code_snippet", Integer.class)).isEqualTo(5);
+
+        service.run(new IngestionJob("test", 10), source(second));
+        assertThat(jdbcTemplate.queryForObject("select count(*) from code_snippet", Integer.class)).isEqualTo(5);
+        assertThat(checkpoints.findByRepository("shop").orElseThrow().getSnippets()).isEqualTo(5);
+    }
+
+    @Test
+    void restartAfterACrashCompletesPartlyWrittenRuns() throws Exception {
+        Files.createDirectories(repo.resolve("src"));
+        Files.writeString(repo.resolve("src/Shop.java"), SHOP);
+        Files.writeString(repo.resolve("report.py"), REPORT);
+        String commit = commit("first");
+
+        // Dies on the second chunk; with a batch size of 2, the first chunk ends inside report.py's three snippets
+        // unless chunks end on file boundaries.
+        SnippetIngestionService crashing = spy(ingestion);
+        AtomicInteger chunks = new AtomicInteger();
+        doAnswer(invocation -> {
+            if (chunks.incrementAndGet() > 1) {
+                throw new IllegalStateException("crash");
+            }
+            return invocation.callRealMethod();
+        }).when(crashing).writeFiles(any(), any());
+        GitIngestionService crashed = new GitIngestionService(crashing, checkpoints, snippetRepo, new MetricsRegistry(), 2, 3, 1 << 20, 30_000);
+        try {
+            IngestionJob job = new IngestionJob("test", 10);
+            crashed.run(job, source(commit));
+            assertThat(job.toStatus().getState()).isEqualTo("FAILED");
+        } finally {
+            crashed.shutdown();
+        }
+        assertThat(jdbcTemplate.queryForList("select code_name from code_snippet", String.class))
+                .containsExactlyInAnyOrder("load", "Report", "render");
+
+        service.run(new IngestionJob("test", 10), source(commit));
+
+        assertThat(jdbcTemplate.queryForList("select code_name from code_snippet", String.class))
+                .containsExactlyInAnyOrder("load", "Report", "render", "Shop", "toString", "add");
+    }
+
+    @Test
+    void refusesACheckoutThatDoesNotMatchTheCommit() throws Exception {
+        Files.writeString(repo.resolve("Shop.java"), SHOP);
+        String first = commit("first");
+        Files.writeString(repo.resolve("Shop.java"), SHOP.replace("total", "sum"));
+
+        assertThatThrownBy(() -> service.start(repo.toString(), null, "shop", CodeSnippet.CodeType.OPENSOURCE, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("uncommitted changes");
+
+        commit("second");
+        assertThatThrownBy(() -> service.start(repo.toString(), first, "shop", CodeSnippet.CodeType.OPENSOURCE, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("checked out");
+    }
+
+    private GitIngestionService.GitSource source(String commit) {
+        return new GitIngestionService.GitSource(new GitCheckout(repo, 30_000), "shop", commit,
+                CodeSnippet.CodeType.OPENSOURCE, "https://example.org/shop/");
+    }
+
+    private String commit(String message) throws Exception {
+        git("add", "-A");
+        git("-c", "user.name=test", "-c", "user.email=test@example.org", "commit", "-q", "-m", message);
+        return git("rev-parse", "HEAD").trim();
+    }
+
+    private String git(String... args) throws Exception {
+        List<String> command = new ArrayList<>(List.of("git", "-C", repo.toString()));
+        command.addAll(List.of(args));
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        String output = new String(process.getInputStream().readAllBytes(), StandardCharsets.UTF_8);
+        assertThat(process.waitFor(30, TimeUnit.SECONDS)).isTrue();
+        assertThat(process.exitValue()).as(output).isZero();
+        return output;
+    }
+}
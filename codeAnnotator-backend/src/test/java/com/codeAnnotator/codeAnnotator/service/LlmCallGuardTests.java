@@ -0,0 +1,123 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import static com.codeAnnotator.codeAnnotator.service.OpenAIAgentTests.envelope;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LlmCallGuardTests {
+
+    private MockWebServer server;
+    private OpenAIConfig config;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        config = new OpenAIConfig();
+        ReflectionTestUtils.setField(config, "apiKey", "test-key");
+        ReflectionTestUtils.setField(config, "apiUrl", server.url("/v1/responses").toString());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    void throttledAndFailedCallsAreRetriedWithBackoff() {
+        ReflectionTestUtils.setField(config, "retryMaxAttempts", 3);
+        ReflectionTestUtils.setField(config, "retryBaseDelayMs", 5L);
+        ReflectionTestUtils.setField(config, "retryMaxDelayMs", 1000L);
+        OpenAIAgent agent = new OpenAIAgent(config);
+
+        server.enqueue(new MockResponse().setResponseCode(429).setHeader("retry-after-ms", "20"));
+        server.enqueue(new MockResponse().setResponseCode(503));
+        server.enqueue(envelope("No"));
+
+        assertThat(agent.tryAnalyzeCode("int x = 1;")).contains(List.of());
+        assertThat(server.getRequestCount()).isEqualTo(3);
+        assertThat(agent.clientStats().getRetries()).isEqualTo(2);
+    }
+
+    @Test
+    void openCircuitFailsFastUntilATrialCallSucceeds() throws Exception {
+        ReflectionTestUtils.setField(config, "breakerFailureThreshold", 2);
+        ReflectionTestUtils.setField(config, "breakerOpenMs", 200L);
+        OpenAIAgent agent = new OpenAIAgent(config);
+
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(new MockResponse().setResponseCode(500));
+        assertThat(agent.tryAnalyzeCode("int x = 1;")).isEmpty();
+        assertThat(agent.tryAnalyzeCode("int x = 1;")).isEmpty();
+        assertThat(agent.clientStats().getCircuitState()).isEqualTo("OPEN");
+
+        long start = System.nanoTime();
+        assertThat(agent.tryAnalyzeCode("int x = 1;")).isEmpty();
+        assertThat(System.nanoTime() - start).isLessThan(TimeUnit.MILLISECONDS.toNanos(100));
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(agent.clientStats().getRejectedCircuitOpen()).isEqualTo(1);
+
+        Thread.sleep(250);
+        server.enqueue(envelope("No"));
+        assertThat(agent.tryAnalyzeCode("int x = 1;")).contains(List.of());
+        assertThat(agent.clientStats().getCircuitState()).isEqualTo("CLOSED");
+    }
+
+    @Test
+    void bulkheadCapsConcurrentCallsToASlowProvider() {
+        ReflectionTestUtils.setField(config, "maxConcurrentCalls", 2);
+        ReflectionTestUtils.setField(config, "rateMaxWaitMs", 5000L);
+        OpenAIAgent agent = new OpenAIAgent(config);
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                Thread.sleep(100);
+                inFlight.decrementAndGet();
+                return envelope("No");
+            }
+        });
+
+        List<CompletableFuture<Boolean>> calls = IntStream.range(0, 6)
+                .mapToObj(i -> CompletableFuture.supplyAsync(() -> agent.tryAnalyzeCode("int x = " + i + ";").isPresent()))
+                .toList();
+
+        assertThat(calls).allMatch(CompletableFuture::join);
+        assertThat(maxInFlight.get()).isEqualTo(2);
+    }
+
+    @Test
+    void tokenBucketSpreadsABurstOverTheMinute() {
+        AtomicLong now = new AtomicLong();
+        LlmCallGuard.TokenBucket bucket = new LlmCallGuard.TokenBucket(60, now::get);
+        long maxWait = TimeUnit.SECONDS.toNanos(5);
+
+        for (int i = 0; i < 60; i++) {
+            assertThat(bucket.reserve(1, maxWait)).isZero();
+        }
+        assertThat(bucket.reserve(1, maxWait)).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(bucket.reserve(5, maxWait)).isEqualTo(-1);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+        assertThat(bucket.reserve(1, maxWait)).isZero();
+    }
+}
@@ -0,0 +1,80 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.CompressionMigrationStatusDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.entity.CompressedText;
+import com.codeAnnotator.codeAnnotator.entity.SmellAnnotation;
+import com.codeAnnotator.codeAnnotator.repository.LobCompressionRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({LobCompressionService.class, LobCompressionRepository.class})
+class LobCompressionServiceTests {
+
+    private static final String CODE = """
+            public int countPositive(List<Integer> values) {
+                int count = 0;
+                for (Integer value : values) {
+                    if (value != null && value > 0) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            """;
+
+    // Too short to gain from deflate once Base64-encoded, so it stays plain.
+    private static final String SUGGESTION = "Replace the loop with a stream: values.stream().filter(Objects::nonNull).filter(v -> v > 0).count()";
+
+    @Autowired
+    private LobCompressionService compression;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Test
+    void compressesLegacyRowsInPlace() {
+        jdbcTemplate.update("insert into code_snippet (code, annotation_count, start_line, end_line) values (?, 0, 1, 9)", CODE);
+        long snippetId = jdbcTemplate.queryForObject("select max(id) from code_snippet", Long.class);
+        jdbcTemplate.update("insert into code_snippet (code, annotation_count, start_line, end_line) values ('class S {}', 0, 1, 1)");
+        jdbcTemplate.update("insert into annotation (annotator, code_snippet_id, start_line, end_line, status) values ('alice', ?, 1, 9, 'submitted')", snippetId);
+        long annotationId = jdbcTemplate.queryForObject("select max(id) from annotation", Long.class);
+        jdbcTemplate.update("insert into smell_annotation (annotation_id, smell_type, suggestion, refactored_code) values (?, 'Long Method', ?, ?)",
+                annotationId, SUGGESTION, CODE);
+        long smellId = jdbcTemplate.queryForObject("select max(id) from smell_annotation", Long.class);
+
+        compression.migrate();
+
+        CompressionMigrationStatusDTO status = compression.status();
+        assertThat(status.isRunning()).isFalse();
+        assertThat(status.getError()).isNull();
+        assertThat(status.getRowsCompressed()).isEqualTo(2);
+        assertThat(status.getCharsAfter()).isLessThan(status.getCharsBefore());
+
+        String storedCode = jdbcTemplate.queryForObject("select code from code_snippet where id = ?", String.class, snippetId);
+        assertThat(CompressedText.isEncoded(storedCode)).isTrue();
+        assertThat(jdbcTemplate.queryForObject("select count(*) from code_snippet where code = 'class S {}'", Integer.class)).isEqualTo(1);
+        assertThat(jdbcTemplate.queryForObject("select suggestion from smell_annotation where id = ?", String.class, smellId)).isEqualTo(SUGGESTION);
+
+        entityManager.clear();
+        assertThat(entityManager.find(CodeSnippet.class, snippetId).getCode()).isEqualTo(CODE);
+        SmellAnnotation smell = entityManager.find(SmellAnnotation.class, smellId);
+        assertThat(smell.getSuggestion()).isEqualTo(SUGGESTION);
+        assertThat(smell.getRefactoredCode()).isEqualTo(CODE);
+
+        compression.migrate();
+        assertThat(compression.status().getRowsScanned()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,146 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Method;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Metrics;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Syntax;
+import com.codeAnnotator.codeAnnotator.service.CodeMetrics.Type;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsAnalyzerTests {
+
+    private static final String SMALL_METHOD = """
+            public int countPositive(List<Integer> values) {
+                int count = 0;
+                for (Integer value : values) {
+                    if (value != null && value > 0) { // 42 in a comment is not a literal
+                        count++;
+                    }
+                }
+                return count;
+            }
+            """;
+
+    private static final String DATA_CLASS = """
+            @Entity
+            public class Customer {
+                @Column(name = "name", length = 120)
+                private String name;
+                private final List<String> tags = new ArrayList<>();
+                private int age;
+
+                public Customer(String name) {
+                    this.name = name;
+                }
+
+                public String getName() {
+                    return name;
+                }
+
+                public void setAge(int age) { this.age = age; }
+
+                public int getAge() {
+                    return age;
+                }
+            }
+            """;
+
+    private static final String PYTHON = """
+            import math
+
+            class Invoice:
+                TAX_RATE = 0.2
+
+                def __init__(self, lines):
+                    self.lines = lines
+
+                def total(self, rounded=False):
+                    amount = 0
+                    for line in self.lines:
+                        if line.quantity > 0 and line.price:
+                            amount += line.quantity * line.price
+                    return math.ceil(amount * 1.5) if rounded else amount
+            """;
+
+    private final MetricsAnalyzer analyzer = new MetricsAnalyzer();
+
+    @Test
+    void measuresJavaMethodStructure() {
+        Metrics metrics = CodeMetrics.measure(SMALL_METHOD, Syntax.BRACES);
+
+        assertThat(metrics.loc()).isEqualTo(9);
+        assertThat(metrics.magicNumbers()).isZero();
+        assertThat(metrics.methods()).hasSize(1);
+        Method method = metrics.methods().get(0);
+        assertThat(method.name()).isEqualTo("countPositive");
+        assertThat(method.complexity()).isEqualTo(4);
+        assertThat(method.maxNesting()).isEqualTo(2);
+        assertThat(method.params()).isEqualTo(1);
+    }
+
+    @Test
+    void measuresTypesFieldsAndAccessors() {
+        Type type = CodeMetrics.measure(DATA_CLASS, Syntax.BRACES).mainType();
+
+        assertThat(type.name()).isEqualTo("Customer");
+        assertThat(type.fields()).isEqualTo(3);
+        assertThat(type.methods()).extracting(Method::name).containsExactly("Customer", "getName", "setAge", "getAge");
+        assertThat(type.accessors()).isEqualTo(3);
+        assertThat(type.behaviorMethods()).isZero();
+    }
+
+    @Test
+    void measuresPython() {
+        Metrics metrics = CodeMetrics.measure(PYTHON, Syntax.INDENTATION);
+
+        Type type = metrics.mainType();
+        assertThat(type.name()).isEqualTo("Invoice");
+        assertThat(type.fields()).isEqualTo(2);
+        Method total = type.methods().stream().filter(m -> m.name().equals("total")).findFirst().orElseThrow();
+        assertThat(total.loc()).isEqualTo(6);
+        assertThat(total.complexity()).isEqualTo(5);
+        assertThat(total.flagParams()).isEqualTo(1);
+        assertThat(total.foreignAccesses()).isEqualTo(4);
+        assertThat(metrics.magicNumbers()).isEqualTo(1);
+    }
+
+    @Test
+    void decidesSimpleCodeLocally() {
+        AnalysisReport clean = analyzer.analyze(SMALL_METHOD, "java").orElseThrow();
+        assertThat(clean.smells()).isEmpty();
+        assertThat(clean.confidence()).isGreaterThanOrEqualTo(0.8);
+
+        AnalysisReport dataClass = analyzer.analyze(DATA_CLASS, "Java").orElseThrow();
+        assertThat(dataClass.smells()).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Data Class");
+        assertThat(dataClass.smells().get(0).getConfidence()).isGreaterThanOrEqualTo(0.8);
+        assertThat(dataClass.confidence()).isGreaterThanOrEqualTo(0.8);
+    }
+
+    @Test
+    void leavesJudgementCallsUndecided() {
+        StringBuilder code = new StringBuilder("void render(Order order, boolean preview, boolean print) {\n");
+        for (int i = 0; i < 25; i++) {
+            code.append("    order.line(").append(i + 3).append(").render(order.customer());\n");
+        }
+        code.append("}\n");
+
+        AnalysisReport report = analyzer.analyze(code.toString(), null).orElseThrow();
+        assertThat(report.smells()).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+        assertThat(report.confidence()).isLessThan(0.8);
+        assertThat(MetricsAnalyzer.verdicts(CodeMetrics.measure(code.toString(), Syntax.BRACES)))
+                .filteredOn(verdict -> verdict.confidence() == MetricsAnalyzer.UNDECIDED)
+                .extracting(MetricsAnalyzer.Verdict::smellType)
+                .containsExactlyInAnyOrder("Long Method", "Feature Envy", "Swiss Army Knife");
+    }
+
+    @Test
+    void unsupportedLanguagesAreNotAnalyzed() {
+        assertThat(analyzer.analyze("SELECT 1", "SQL")).isEmpty();
+        assertThat(CodeMetrics.syntaxOf("[\"Python\"]")).contains(Syntax.INDENTATION);
+        assertThat(CodeMetrics.syntaxOf("Kotlin, Java")).contains(Syntax.BRACES);
+    }
+}
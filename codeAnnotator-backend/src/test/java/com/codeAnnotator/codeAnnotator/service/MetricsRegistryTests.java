@@ -0,0 +1,52 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class MetricsRegistryTests {
+
+    private final MetricsRegistry metrics = new MetricsRegistry();
+
+    @Test
+    void writesPrometheusTextFormat() {
+        MetricsRegistry.Histogram timer = metrics.timer("db_call_seconds", "Repository calls", "service", "snippets", "call", "findById");
+        timer.record(0.003);
+        timer.record(0.2);
+        timer.record(500);
+        metrics.counter("ingestion_rows_total", "Rows", "outcome", "inserted").increment(3);
+        metrics.gauge("llm_client_in_flight", "In flight", () -> 2);
+
+        String scrape = metrics.scrape();
+
+        assertThat(scrape)
+                .contains("# TYPE db_call_seconds histogram\n")
+                .contains("db_call_seconds_bucket{service=\"snippets\",call=\"findById\",le=\"0.0025\"} 0\n")
+                .contains("db_call_seconds_bucket{service=\"snippets\",call=\"findById\",le=\"0.005\"} 1\n")
+                .contains("db_call_seconds_bucket{service=\"snippets\",call=\"findById\",le=\"0.25\"} 2\n")
+                .contains("db_call_seconds_bucket{service=\"snippets\",call=\"findById\",le=\"+Inf\"} 3\n")
+                .contains("db_call_seconds_count{service=\"snippets\",call=\"findById\"} 3\n")
+                .contains("# TYPE ingestion_rows_total counter\ningestion_rows_total{outcome=\"inserted\"} 3\n")
+                .contains("llm_client_in_flight 2\n");
+        assertThat(scrape.indexOf("# HELP db_call_seconds")).isLessThan(scrape.indexOf("# HELP ingestion_rows_total"));
+    }
+
+    @Test
+    void estimatesQuantilesFromBuckets() {
+        MetricsRegistry.Histogram timer = metrics.timer("llm_request_seconds", "OpenAI calls");
+        assertThat(timer.quantile(0.5)).isNaN();
+
+        for (int i = 0; i < 90; i++) {
+            timer.record(0.3);
+        }
+        for (int i = 0; i < 10; i++) {
+            timer.record(7);
+        }
+
+        assertThat(timer.quantile(0.5)).isBetween(0.25, 0.5);
+        assertThat(timer.quantile(0.95)).isBetween(5.0, 10.0);
+        assertThat(timer.sum()).isCloseTo(97.0, within(1e-9));
+        assertThat(metrics.timer("llm_request_seconds", "OpenAI calls")).isSameAs(timer);
+    }
+}
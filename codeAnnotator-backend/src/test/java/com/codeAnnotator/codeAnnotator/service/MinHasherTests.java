@@ -0,0 +1,64 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MinHasherTests {
+
+    private static final String ORIGINAL = """
+            public int countPositive(List<Integer> values) {
+                int count = 0;
+                for (Integer value : values) {
+                    if (value != null && value > 0) {
+                        count++;
+                    }
+                }
+                return count;
+            }
+            """;
+
+    private static final String RENAMED = """
+            public int positives(List<Integer> xs) {   // counts values above zero
+                int n = 0;
+                for (Integer x : xs) { if (x != null && x > 0) { n++; } }
+                return n;
+            }
+            """;
+
+    private static final String DIFFERENT = """
+            private static Map<String, Long> histogram(Stream<String> words) {
+                return words.map(String::toLowerCase)
+                        .filter(word -> !word.isBlank())
+                        .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+            }
+            """;
+
+    @Test
+    void renamedAndReformattedCodeIsSimilar() {
+        int[] a = MinHasher.signature(ORIGINAL, 20);
+        int[] b = MinHasher.signature(RENAMED, 20);
+
+        assertThat(MinHasher.similarity(a, b)).isGreaterThanOrEqualTo(0.85);
+        assertThat(MinHasher.bandKeys(a)).containsAnyOf(MinHasher.bandKeys(b));
+    }
+
+    @Test
+    void unrelatedCodeIsNotSimilar() {
+        int[] a = MinHasher.signature(ORIGINAL, 20);
+        int[] b = MinHasher.signature(DIFFERENT, 20);
+
+        assertThat(MinHasher.similarity(a, b)).isLessThan(0.5);
+    }
+
+    @Test
+    void shortCodeHasNoSignature() {
+        assertThat(MinHasher.signature("int get() { return x; }", 20)).isNull();
+    }
+
+    @Test
+    void signatureSurvivesByteRoundTrip() {
+        int[] signature = MinHasher.signature(ORIGINAL, 20);
+        assertThat(MinHasher.fromBytes(MinHasher.toBytes(signature))).containsExactly(signature);
+    }
+}
@@ -0,0 +1,79 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelRouterTests {
+
+    private static ModelRouter router() {
+        OpenAIConfig config = new OpenAIConfig();
+        ReflectionTestUtils.setField(config, "apiUrl", "http://primary/v1/responses");
+        ReflectionTestUtils.setField(config, "smallModel", "gpt-4.1-mini");
+        ReflectionTestUtils.setField(config, "smallMaxTokens", 400);
+        ReflectionTestUtils.setField(config, "smallLanguages", "Java, Kotlin");
+        ReflectionTestUtils.setField(config, "smallTimeoutMs", 20_000L);
+        ReflectionTestUtils.setField(config, "defaultTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(config, "largeMinTokens", 3000);
+        ReflectionTestUtils.setField(config, "largeTimeoutMs", 120_000L);
+        ReflectionTestUtils.setField(config, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(config, "hedgeUrl", "http://secondary/v1/responses");
+        ReflectionTestUtils.setField(config, "hedgePercentile", 0.9);
+        ReflectionTestUtils.setField(config, "hedgeMinDelayMs", 500L);
+        ReflectionTestUtils.setField(config, "hedgeInitialDelayMs", 8000L);
+        ReflectionTestUtils.setField(config, "hedgeMinSamples", 10);
+        return new ModelRouter(config, new MetricsRegistry());
+    }
+
+    @Test
+    void routesBySizeAndLanguage() {
+        ModelRouter router = router();
+
+        assertThat(router.route(100, "Java").model()).isEqualTo("gpt-4.1-mini");
+        assertThat(router.route(100, null).timeoutMs()).isEqualTo(20_000);
+        assertThat(router.route(100, "Python").tier()).isEqualTo(ModelRouter.Tier.DEFAULT);
+        assertThat(router.route(1000, "kotlin").model()).isEqualTo(OpenAIAgent.MODEL);
+        assertThat(router.route(5000, "Java").tier()).isEqualTo(ModelRouter.Tier.LARGE);
+        assertThat(router.route(5000, "Java").timeoutMs()).isEqualTo(120_000);
+
+        ModelRouter.Route hedge = router.hedgeOf(router.route(100, "Java"));
+        assertThat(hedge.model()).isEqualTo("gpt-4.1-mini");
+        assertThat(hedge.url()).isEqualTo("http://secondary/v1/responses");
+    }
+
+    @Test
+    void hedgeDelayFollowsTheTierPercentileAboveTheFloor() {
+        ModelRouter router = router();
+        assertThat(router.hedgeDelayMs(ModelRouter.Tier.SMALL)).isEqualTo(8000);
+
+        for (int ms = 100; ms <= 2000; ms += 100) {
+            router.recordLatency(ModelRouter.Tier.SMALL, TimeUnit.MILLISECONDS.toNanos(ms));
+        }
+        assertThat(router.hedgeDelayMs(ModelRouter.Tier.SMALL)).isEqualTo(1800);
+        assertThat(router.hedgeDelayMs(ModelRouter.Tier.DEFAULT)).isEqualTo(8000);
+
+        for (int i = 0; i < 600; i++) {
+            router.recordLatency(ModelRouter.Tier.SMALL, TimeUnit.MILLISECONDS.toNanos(50));
+        }
+        assertThat(router.hedgeDelayMs(ModelRouter.Tier.SMALL)).isEqualTo(500);
+
+        router.recordHedge(ModelRouter.Tier.SMALL, ModelRouter.HedgeOutcome.HEDGE_WON);
+        router.recordHedge(ModelRouter.Tier.SMALL, ModelRouter.HedgeOutcome.PRIMARY_WON);
+        assertThat(router.stats().getRoutes().get(0).getHedgeWinRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void modelTagNamesEveryModelThatMayAnswer() {
+        assertThat(router().modelTag()).isEqualTo(OpenAIAgent.MODEL + ";small=gpt-4.1-mini<=400:java,kotlin");
+        assertThat(new ModelRouter(new OpenAIConfig(), new MetricsRegistry()).modelTag()).isEqualTo(OpenAIAgent.MODEL);
+
+        OpenAIConfig hedged = new OpenAIConfig();
+        ReflectionTestUtils.setField(hedged, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(hedged, "hedgeModel", "gpt-hedge");
+        assertThat(new ModelRouter(hedged, new MetricsRegistry()).modelTag()).isEqualTo(OpenAIAgent.MODEL + ";hedge=gpt-hedge");
+    }
+}
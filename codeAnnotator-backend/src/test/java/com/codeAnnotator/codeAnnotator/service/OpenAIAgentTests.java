@@ -0,0 +1,280 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.LlmRouteStatsDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.config.OpenAIConfig;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class OpenAIAgentTests {
+
+    private static final ObjectMapper mapper = new ObjectMapper();
+
+    private MockWebServer server;
+    private OpenAIAgent agent;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new MockWebServer();
+        server.start();
+        agent = new OpenAIAgent(config());
+    }
+
+    private OpenAIConfig config() {
+        OpenAIConfig config = new OpenAIConfig();
+        ReflectionTestUtils.setField(config, "apiKey", "test-key");
+        ReflectionTestUtils.setField(config, "apiUrl", server.url("/v1/responses").toString());
+        ReflectionTestUtils.setField(config, "batchMaxInputTokens", 16000);
+        return config;
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        server.shutdown();
+    }
+
+    @Test
+    void batchResponseIsSplitPerSnippetAndMalformedItemsFallBack() throws Exception {
+        server.enqueue(envelope("""
+                {"1": [{"smellType": "Magic Numbers", "category": "Anti-pattern", "suggestion": "name it", "refactoredCode": ""}],
+                 "2": "No",
+                 "3": "I could not decide"}
+                """));
+        server.enqueue(envelope("""
+                [{"smellType": "Long Method", "category": "Code Smell", "suggestion": "split it", "refactoredCode": ""}]
+                """));
+
+        Map<Long, List<SmellAnnotationDTO>> results = agent.analyzeBatch(List.of(
+                snippet(1L, "int timeout = 3600;"),
+                snippet(2L, "int add(int a, int b) { return a + b; }"),
+                snippet(3L, "void process() { /* 200 lines */ }")));
+
+        assertThat(results.get(1L)).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+        assertThat(results.get(2L)).isEmpty();
+        assertThat(results.get(3L)).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Long Method");
+
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        String batchPrompt = promptOf(server.takeRequest());
+        assertThat(batchPrompt).contains("### Snippet id=1", "### Snippet id=2", "### Snippet id=3");
+        String fallbackPrompt = promptOf(server.takeRequest());
+        assertThat(fallbackPrompt).endsWith("void process() { /* 200 lines */ }").doesNotContain("### Snippet");
+    }
+
+    @Test
+    void failedBatchFallsBackToSingleRequests() {
+        server.enqueue(new MockResponse().setResponseCode(500));
+        server.enqueue(envelope("No"));
+        server.enqueue(envelope("No"));
+
+        Map<Long, List<SmellAnnotationDTO>> results = agent.analyzeBatch(List.of(snippet(1L, "a"), snippet(2L, "b")));
+
+        assertThat(results).containsOnlyKeys(1L, 2L);
+        assertThat(server.getRequestCount()).isEqualTo(3);
+    }
+
+    @Test
+    void snippetsArePackedWithinTokenBudget() {
+        String body = "x".repeat(4000); // ~1000 tokens each
+        List<CodeSnippet> snippets = List.of(snippet(1L, body), snippet(2L, body), snippet(3L, body), snippet(4L, body));
+
+        // the shared instructions take roughly 550 tokens of every budget
+        assertThat(OpenAIAgent.packBatches(snippets, 2000)).hasSize(4);
+        assertThat(OpenAIAgent.packBatches(snippets, 3000)).hasSize(2);
+        assertThat(OpenAIAgent.packBatches(snippets, 100_000)).hasSize(1);
+    }
+
+    @Test
+    void streamingEmitsEachSmellAsItsObjectCloses() throws Exception {
+        String answer = "```json\n[{\"smellType\": \"Magic Numbers\", \"category\": \"Anti-pattern\", \"suggestion\": \"name it\", "
+                + "\"refactoredCode\": \"static final int TIMEOUT = 3600;\"}, {\"smellType\": \"Long Method\", \"category\": \"Code Smell\", "
+                + "\"suggestion\": \"split it\", \"refactoredCode\": \"\"}]\n```";
+        server.enqueue(sse(answer, 7));
+
+        List<String> seen = new ArrayList<>();
+        var result = agent.streamAnalyzeCode("int timeout = 3600;", smell -> seen.add(smell.getSmellType()));
+
+        assertThat(seen).containsExactly("Magic Numbers", "Long Method");
+        assertThat(result).hasValueSatisfying(smells -> assertThat(smells).hasSize(2));
+        assertThat(requestBody(server.takeRequest()).path("stream").asBoolean()).isTrue();
+    }
+
+    @Test
+    void streamingNoAnswerIsAnEmptyAnalysis() {
+        server.enqueue(sse("No", 1));
+
+        assertThat(agent.streamAnalyzeCode("int x;", smell -> {})).hasValue(List.of());
+    }
+
+    @Test
+    void analysesAreTimedByOutcomeWithPromptSizes() {
+        MetricsRegistry metrics = new MetricsRegistry();
+        OpenAIAgent instrumented = new OpenAIAgent(config(), metrics);
+        server.enqueue(envelope("No"));
+        server.enqueue(new MockResponse().setResponseCode(400));
+
+        assertThat(instrumented.tryAnalyzeCode("int x;")).hasValue(List.of());
+        assertThat(instrumented.tryAnalyzeCode("int y;")).isEmpty();
+
+        String scrape = metrics.scrape();
+        assertThat(scrape)
+                .contains("llm_analysis_seconds_count{mode=\"single\",outcome=\"no_smells\"} 1")
+                .contains("llm_analysis_seconds_count{mode=\"single\",outcome=\"failed\"} 1")
+                .contains("llm_request_seconds_count{kind=\"single\",outcome=\"rejected\"} 1")
+                .contains("llm_http_seconds_count{kind=\"single\",status=\"400\"} 1")
+                .contains("llm_prompt_chars_count{kind=\"single\"} 2");
+    }
+
+    @Test
+    void largeSnippetsAreAnalyzedInChunksAndMerged() throws Exception {
+        OpenAIConfig config = new OpenAIConfig();
+        ReflectionTestUtils.setField(config, "apiKey", "test-key");
+        ReflectionTestUtils.setField(config, "apiUrl", server.url("/v1/responses").toString());
+        ReflectionTestUtils.setField(config, "chunkMaxInputTokens", 1200);
+        ReflectionTestUtils.setField(config, "chunkParallelism", 4);
+        OpenAIAgent chunking = new OpenAIAgent(config);
+        List<String> prompts = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    String prompt = promptOf(request);
+                    prompts.add(prompt);
+                    String longMethod = prompt.contains("step5(") ? ", {\"smellType\": \"Long Method\", \"category\": \"Code Smell\"}" : "";
+                    return envelope("[{\"smellType\": \"God Class\", \"category\": \"Anti-pattern\"}" + longMethod + "]");
+                } catch (Exception e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+
+        String code = SnippetChunkerTests.javaClass(12);
+        List<SnippetChunker.Chunk> chunks = chunking.chunk(code);
+        List<String> streamed = new ArrayList<>();
+        var result = chunking.streamAnalyzeCode(code, smell -> streamed.add(smell.getSmellType()));
+
+        assertThat(chunks).hasSizeGreaterThan(2);
+        assertThat(server.getRequestCount()).isEqualTo(chunks.size());
+        assertThat(streamed).containsExactlyInAnyOrder("God Class", "Long Method");
+        SnippetChunker.Chunk withStep5 = chunks.stream().filter(c -> c.code().contains("step5(")).findFirst().orElseThrow();
+        assertThat(result.orElseThrow()).extracting(SmellAnnotationDTO::getSmellType, SmellAnnotationDTO::getStartLine, SmellAnnotationDTO::getEndLine)
+                .containsExactlyInAnyOrder(
+                        tuple("God Class", 1, chunks.get(chunks.size() - 1).lastLine()),
+                        tuple("Long Method", withStep5.firstLine(), withStep5.lastLine()));
+        assertThat(prompts).allSatisfy(prompt -> assertThat(prompt).contains("of a larger snippet"));
+    }
+
+    @Test
+    void slowInteractiveCallsAreHedgedAndTheLoserCancelled() throws Exception {
+        OpenAIConfig config = config();
+        ReflectionTestUtils.setField(config, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(config, "hedgeModel", "gpt-hedge");
+        ReflectionTestUtils.setField(config, "hedgeInitialDelayMs", 200L);
+        ReflectionTestUtils.setField(config, "hedgeMinSamples", 20);
+        OpenAIAgent hedging = new OpenAIAgent(config);
+        List<String> models = Collections.synchronizedList(new ArrayList<>());
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                try {
+                    String model = requestBody(request).path("model").asText();
+                    models.add(model);
+                    MockResponse answer = envelope("[{\"smellType\": \"Magic Numbers\", \"category\": \"Anti-pattern\"}]");
+                    return model.equals("gpt-hedge") ? answer : answer.setHeadersDelay(3, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    return new MockResponse().setResponseCode(500);
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        var result = hedging.analyze("int timeout = 3600;", "Java", true);
+
+        assertThat(result.orElseThrow().smells()).extracting(SmellAnnotationDTO::getSmellType).containsExactly("Magic Numbers");
+        assertThat(result.orElseThrow().model()).isEqualTo("gpt-hedge");
+        assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(2));
+        assertThat(models).containsExactly(OpenAIAgent.MODEL, "gpt-hedge");
+        LlmRouteStatsDTO route = hedging.routingStats().getRoutes().stream()
+                .filter(r -> r.getTier().equals("default")).findFirst().orElseThrow();
+        assertThat(route.getHedged()).isEqualTo(1);
+        assertThat(route.getHedgeWins()).isEqualTo(1);
+        // one sample, end to end from the primary's start, not the hedge's own shorter time
+        assertThat(route.getLatencySamples()).isEqualTo(1);
+        assertThat(route.getP50Ms()).isGreaterThanOrEqualTo(200);
+        // the cancelled request was not retried
+        Thread.sleep(300);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+        assertThat(hedging.clientStats().getRetries()).isZero();
+    }
+
+    @Test
+    void backgroundCallsAreNotHedged() {
+        OpenAIConfig config = config();
+        ReflectionTestUtils.setField(config, "hedgeEnabled", true);
+        ReflectionTestUtils.setField(config, "hedgeInitialDelayMs", 50L);
+        OpenAIAgent hedging = new OpenAIAgent(config);
+        server.enqueue(envelope("No").setHeadersDelay(300, TimeUnit.MILLISECONDS));
+
+        assertThat(hedging.tryAnalyzeCode("int x;", "Java", false)).hasValue(List.of());
+        assertThat(server.getRequestCount()).isEqualTo(1);
+    }
+
+    private static MockResponse sse(String text, int chunkSize) {
+        try {
+            StringBuilder body = new StringBuilder();
+            body.append("event: response.created\ndata: {\"type\":\"response.created\",\"response\":{\"id\":\"r1\"}}\n\n");
+            for (int i = 0; i < text.length(); i += chunkSize) {
+                String delta = text.substring(i, Math.min(text.length(), i + chunkSize));
+                body.append("event: response.output_text.delta\ndata: ")
+                        .append(mapper.writeValueAsString(Map.of("type", "response.output_text.delta", "delta", delta)))
+                        .append("\n\n");
+            }
+            body.append("event: response.completed\ndata: {\"type\":\"response.completed\",\"response\":{\"id\":\"r1\"}}\n\n");
+            return new MockResponse().setBody(body.toString()).setHeader("Content-Type", "text/event-stream");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JsonNode requestBody(RecordedRequest request) throws Exception {
+        return mapper.readTree(request.getBody().readUtf8());
+    }
+
+    static MockResponse envelope(String text) {
+        try {
+            Map<String, Object> body = Map.of("output", List.of(Map.of("content", List.of(Map.of("text", text)))));
+            return new MockResponse().setBody(mapper.writeValueAsString(body)).setHeader("Content-Type", "application/json");
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String promptOf(RecordedRequest request) throws Exception {
+        return mapper.readTree(request.getBody().readUtf8()).path("input").asText();
+    }
+
+    private static CodeSnippet snippet(Long id, String code) {
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setId(id);
+        snippet.setCode(code);
+        return snippet;
+    }
+}
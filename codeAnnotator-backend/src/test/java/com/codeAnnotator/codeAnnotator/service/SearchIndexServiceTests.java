@@ -0,0 +1,148 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.AnnotationRequestDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSearchQueryDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSearchResultDTO;
+import com.codeAnnotator.codeAnnotator.DTO.SnippetSummaryDTO;
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.AnnotationBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({SearchIndexService.class, SearchIndexRepository.class, BrowseRepository.class, CodeSnippetBatchRepository.class,
+        AnnotationService.class, AnnotationBatchRepository.class, MetricsRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SearchIndexServiceTests {
+
+    @Autowired
+    private SearchIndexService searchIndex;
+
+    @Autowired
+    private CodeSnippetBatchRepository batchRepo;
+
+    @Autowired
+    private AnnotationService annotationService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("delete from smell_annotation");
+        jdbcTemplate.update("delete from annotation");
+        jdbcTemplate.update("delete from search_posting");
+        jdbcTemplate.update("delete from search_term");
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void findsIdentifiersMetadataAndSmellsWithFacets() {
+        long shopGetter = ingest("shop", "java", "getUserName", "String getUserName() {\n    return user.name;\n}");
+        ingest("shop", "python", "load_rows", "def load_rows(path):\n    return open(path).readlines()");
+        long bankGetter = ingest("bank", "java", "getUserName", "String getUserName() {\n    return account.getOwner().getUserName();\n}");
+
+        assertThat(ids(search("getUserName", null, null))).containsExactly(shopGetter, bankGetter);
+        assertThat(ids(search("user", "shop", null))).containsExactly(shopGetter);
+        assertThat(ids(search("rows", null, null))).hasSize(1);
+
+        annotationService.saveAnnotations(List.of(request(bankGetter, "Feature Envy", "Couplers",
+                "Move the balance lookup into Account")));
+
+        SnippetSearchResultDTO envy = search(null, "BANK", "feature-envy");
+        assertThat(ids(envy)).containsExactly(bankGetter);
+        assertThat(ids(search("balance", null, null))).containsExactly(bankGetter);
+
+        SnippetSearchResultDTO all = search("getUserName", null, null);
+        assertThat(all.getTotal()).isEqualTo(2);
+        assertThat(all.getTotalExact()).isTrue();
+        assertThat(all.getFacets().get("repository")).isEqualTo(Map.of("bank", 1L, "shop", 1L));
+        assertThat(all.getFacets().get("smellType")).isEqualTo(Map.of("Feature Envy", 1L));
+        assertThat(all.getFacets().get("category")).isEqualTo(Map.of("Couplers", 1L));
+
+        SnippetSearchQueryDTO query = new SnippetSearchQueryDTO();
+        query.setQ("getUserName");
+        SnippetSearchResultDTO first = searchIndex.search(query, null, 1);
+        SnippetSearchResultDTO second = searchIndex.search(query, first.getNextAfter(), 1);
+        assertThat(ids(first)).containsExactly(shopGetter);
+        assertThat(ids(second)).containsExactly(bankGetter);
+        assertThat(second.getNextAfter()).isNull();
+        assertThat(second.getFacets()).isNull();
+
+        assertThat(ids(search("nowhere", null, null))).isEmpty();
+        assertThatThrownBy(() -> searchIndex.search(new SnippetSearchQueryDTO(), null, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rebuildRestoresTheIndexFromTheTables() {
+        long getter = ingest("shop", "java", "getUserName", "String getUserName() {\n    return user.name;\n}");
+        annotationService.saveAnnotations(List.of(request(getter, "Message Chains", "Couplers", "Hide the user")));
+        jdbcTemplate.update("delete from search_posting");
+        jdbcTemplate.update("delete from search_term");
+        assertThat(ids(search("getUserName", null, null))).isEmpty();
+
+        searchIndex.rebuild();
+
+        assertThat(searchIndex.status().getSnippetsIndexed()).isEqualTo(1);
+        assertThat(searchIndex.status().getError()).isNull();
+        assertThat(ids(search("getUserName", null, "message chains"))).containsExactly(getter);
+    }
+
+    private long ingest(String repository, String language, String name, String code) {
+        CodeSnippet snippet = new CodeSnippet();
+        snippet.setCodeType("method");
+        snippet.setCodeName(name);
+        snippet.setRepository(repository);
+        snippet.setPath("src/" + name);
+        snippet.setCode(code);
+        snippet.setLanguages(language);
+        snippet.setType(CodeSnippet.CodeType.OPENSOURCE);
+        List<Long> ids = batchRepo.insertAll(List.of(snippet));
+        searchIndex.index(ids, List.of(snippet));
+        return ids.get(0);
+    }
+
+    private SnippetSearchResultDTO search(String q, String repository, String smellType) {
+        SnippetSearchQueryDTO query = new SnippetSearchQueryDTO();
+        query.setQ(q);
+        query.setRepository(repository);
+        query.setSmellType(smellType);
+        return searchIndex.search(query, null, 10);
+    }
+
+    private static List<Long> ids(SnippetSearchResultDTO result) {
+        return result.getItems().stream().map(SnippetSummaryDTO::getId).toList();
+    }
+
+    private static AnnotationRequestDTO request(Long snippetId, String smellType, String category, String suggestion) {
+        SmellAnnotationDTO smell = new SmellAnnotationDTO();
+        smell.setSmellType(smellType);
+        smell.setCategory(category);
+        smell.setSuggestion(suggestion);
+        AnnotationRequestDTO dto = new AnnotationRequestDTO();
+        dto.setAnnotator("alice");
+        dto.setCodeSnippetId(snippetId);
+        dto.setStatus("submitted");
+        dto.setAnnotations(List.of(smell));
+        return dto;
+    }
+}
@@ -0,0 +1,51 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SmellStreamParserTests {
+
+    @Test
+    void emitsObjectsAsSoonAsTheyCloseEvenWhenSplitMidToken() {
+        List<String> emitted = new ArrayList<>();
+        SmellStreamParser parser = new SmellStreamParser(smell -> emitted.add(smell.getSmellType()));
+
+        parser.feed("[{\"smellType\": \"Lo");
+        parser.feed("ng Method\", \"category\": \"Code Smell\", \"extra\": {\"nested\": [1, 2]}}");
+        assertThat(emitted).containsExactly("Long Method");
+
+        parser.feed(", {\"smellType\": \"Data Class\", \"suggestion\": \"caf\u00e9 \\u00e9\"}");
+        assertThat(emitted).containsExactly("Long Method", "Data Class");
+
+        parser.feed("]");
+        assertThat(parser.finish()).hasValueSatisfying(smells -> {
+            assertThat(smells).extracting(SmellAnnotationDTO::getCategory).containsExactly("Code Smell", null);
+            assertThat(smells.get(1).getSuggestion()).isEqualTo("café é");
+        });
+    }
+
+    @Test
+    void noAnswerIsAnEmptyAnalysis() {
+        SmellStreamParser parser = new SmellStreamParser(smell -> {});
+        parser.feed("N");
+        parser.feed("o\n");
+
+        assertThat(parser.finish()).hasValue(List.of());
+    }
+
+    @Test
+    void truncatedOrMalformedAnswerFails() {
+        SmellStreamParser truncated = new SmellStreamParser(smell -> {});
+        truncated.feed("[{\"smellType\": \"Blob\"}, {\"smellType\"");
+        assertThat(truncated.finish()).isEmpty();
+
+        SmellStreamParser prose = new SmellStreamParser(smell -> {});
+        prose.feed("I could not analyze this snippet.");
+        assertThat(prose.finish()).isEmpty();
+    }
+}
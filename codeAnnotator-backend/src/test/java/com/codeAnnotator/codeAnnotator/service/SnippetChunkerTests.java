@@ -0,0 +1,98 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.DTO.SmellAnnotationDTO;
+import com.codeAnnotator.codeAnnotator.service.SnippetChunker.Chunk;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SnippetChunkerTests {
+
+    @Test
+    void smallCodeIsOneChunk() {
+        List<Chunk> chunks = SnippetChunker.split("int x;\nint y;", 100);
+
+        assertThat(chunks).singleElement().satisfies(chunk -> {
+            assertThat(chunk.firstLine()).isEqualTo(1);
+            assertThat(chunk.lastLine()).isEqualTo(2);
+        });
+    }
+
+    @Test
+    void largeClassIsSplitBetweenMethodsWithItsHeaderAsContext() {
+        String code = javaClass(8);
+        List<Chunk> chunks = SnippetChunker.split(code, 450);
+
+        assertThat(chunks).hasSizeGreaterThan(2);
+        int expectedFirst = 1;
+        for (Chunk chunk : chunks) {
+            assertThat(chunk.firstLine()).isEqualTo(expectedFirst);
+            assertThat(OpenAIAgent.estimateTokens(chunk.code())).isLessThanOrEqualTo(450);
+            expectedFirst = chunk.lastLine() + 1;
+            if (chunk.index() > 0) {
+                assertThat(chunk.code().strip()).startsWith("// step");
+                assertThat(chunk.context()).containsExactly("public class Big {");
+            }
+        }
+        assertThat(expectedFirst - 1).isEqualTo(code.split("\n", -1).length);
+    }
+
+    @Test
+    void pythonIsSplitBetweenFunctions() {
+        StringBuilder code = new StringBuilder();
+        for (int f = 0; f < 6; f++) {
+            code.append("def step").append(f).append("(values):\n");
+            for (int i = 0; i < 15; i++) {
+                code.append("    values.append(values[").append(i).append("] + values[-1])\n");
+            }
+            code.append('\n');
+        }
+
+        List<Chunk> chunks = SnippetChunker.split(code.toString(), 300);
+
+        assertThat(chunks).hasSizeGreaterThan(1);
+        assertThat(chunks).allSatisfy(chunk -> assertThat(chunk.code().strip()).startsWith("def step"));
+    }
+
+    @Test
+    void mergeLocatesSmellsAndCollapsesTypeLevelRepeats() {
+        Chunk first = new Chunk(0, 2, 1, 40, List.of(), "");
+        Chunk second = new Chunk(1, 2, 41, 90, List.of("class Big {"), "");
+        SnippetChunker.Merger merger = new SnippetChunker.Merger();
+        List<String> streamed = new ArrayList<>();
+
+        merger.add(second, List.of(smell("God Class"), smell("Magic Numbers"), smell("Magic Numbers")), s -> streamed.add(s.getSmellType()));
+        merger.add(first, List.of(smell("god class "), smell("Magic Numbers")), s -> streamed.add(s.getSmellType()));
+
+        assertThat(streamed).containsExactly("God Class", "Magic Numbers", "Magic Numbers");
+        assertThat(merger.result()).extracting(SmellAnnotationDTO::getSmellType, SmellAnnotationDTO::getStartLine, SmellAnnotationDTO::getEndLine)
+                .containsExactly(
+                        tuple("God Class", 1, 90),
+                        tuple("Magic Numbers", 1, 40),
+                        tuple("Magic Numbers", 41, 90));
+    }
+
+    static String javaClass(int methods) {
+        StringBuilder code = new StringBuilder("package demo;\n\nimport java.util.List;\n\npublic class Big {\n");
+        for (int m = 0; m < methods; m++) {
+            code.append("\n    // step ").append(m).append('\n');
+            code.append("    public int step").append(m).append("(List<Integer> values) {\n");
+            code.append("        int total = 0;\n");
+            for (int i = 0; i < 12; i++) {
+                code.append("        total += values.get(").append(i).append(") * ").append(m + 3).append(";\n");
+            }
+            code.append("        return total;\n    }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    private static SmellAnnotationDTO smell(String type) {
+        SmellAnnotationDTO dto = new SmellAnnotationDTO();
+        dto.setSmellType(type);
+        return dto;
+    }
+}
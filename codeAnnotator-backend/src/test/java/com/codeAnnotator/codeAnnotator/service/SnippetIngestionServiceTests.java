@@ -0,0 +1,110 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.entity.CodeSnippet;
+import com.codeAnnotator.codeAnnotator.repository.BrowseRepository;
+import com.codeAnnotator.codeAnnotator.repository.CodeSnippetBatchRepository;
+import com.codeAnnotator.codeAnnotator.repository.SearchIndexRepository;
+import com.codeAnnotator.codeAnnotator.repository.SimilarityIndexRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import({CodeSnippetBatchRepository.class, SimilarityIndexRepository.class, SimilarityIndexService.class,
+        SearchIndexRepository.class, SearchIndexService.class, BrowseRepository.class, MetricsRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SnippetIngestionServiceTests {
+
+    @Autowired
+    private CodeSnippetBatchRepository batchRepo;
+
+    @Autowired
+    private SimilarityIndexService similarityIndex;
+
+    @Autowired
+    private SearchIndexService searchIndex;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path tempDir;
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("delete from snippet_lsh_bucket");
+        jdbcTemplate.update("delete from snippet_fingerprint");
+        jdbcTemplate.update("delete from search_posting");
+        jdbcTemplate.update("delete from search_term");
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void ingestsValidRowsInBatchesAndReportsRejects() throws Exception {
+        StringBuilder csv = new StringBuilder("codeType,codeName,repository,commitHash,path,startLine,endLine,link,code,languages\n");
+        for (int i = 0; i < 7; i++) {
+            csv.append("method,m").append(i).append(",repo,abc,Foo.java,1,3,http://x,\"void m() {\n}\",java\n");
+        }
+        csv.append("method,short,row\n");
+        csv.append("method,bad,repo,abc,Foo.java,one,3,http://x,void m() {},java\n");
+
+        Path file = Files.writeString(tempDir.resolve("snippets.csv"), csv);
+        SnippetIngestionService service = new SnippetIngestionService(batchRepo, similarityIndex, searchIndex, transactionManager, new MetricsRegistry(), 3, 10, 1);
+        IngestionJob job = new IngestionJob("snippets.csv", 10);
+
+        service.runCsv(job, file, CodeSnippet.CodeType.OPENSOURCE);
+
+        var status = job.toStatus();
+        assertThat(status.getState()).isEqualTo("COMPLETED");
+        assertThat(status.getRowsRead()).isEqualTo(9);
+        assertThat(status.getRowsInserted()).isEqualTo(7);
+        assertThat(status.getRowsRejected()).isEqualTo(2);
+        assertThat(status.getRejects()).extracting("row").containsExactly(9L, 10L);
+        assertThat(jdbcTemplate.queryForObject("select count(*) from code_snippet where type = 'OPENSOURCE'", Integer.class))
+                .isEqualTo(7);
+    }
+
+    @Test
+    void clustersNearDuplicatesAcrossChunks() throws Exception {
+        String original = "int total(int[] values) { int sum = 0; for (int i = 0; i < values.length; i++) { if (values[i] > 0) { sum += values[i]; } } return sum; }";
+        String renamed = "int  sumAll(int[] xs) {\n  int acc = 0;\n  for (int k = 0; k < xs.length; k++) {\n    if (xs[k] > 0) { acc += xs[k]; }\n  }\n  return acc;\n}";
+        String different = "String describe(Map<String, List<Integer>> byName) { StringBuilder out = new StringBuilder(); byName.forEach((name, list) -> out.append(name).append('=').append(list.size()).append(';')); return out.toString(); }";
+
+        StringBuilder csv = new StringBuilder("codeType,codeName,repository,commitHash,path,startLine,endLine,link,code,languages\n");
+        for (String code : new String[]{original, different, renamed}) {
+            csv.append("method,m,repo,abc,Foo.java,1,3,http://x,\"").append(code).append("\",java\n");
+        }
+
+        Path file = Files.writeString(tempDir.resolve("dupes.csv"), csv);
+        SnippetIngestionService service = new SnippetIngestionService(batchRepo, similarityIndex, searchIndex, transactionManager, new MetricsRegistry(), 2, 10, 1);
+        service.runCsv(new IngestionJob("dupes.csv", 10), file, CodeSnippet.CodeType.OPENSOURCE);
+
+        var rows = jdbcTemplate.queryForList("select id, cluster_id from code_snippet order by id");
+        assertThat(rows).hasSize(3);
+        Object originalId = rows.get(0).get("ID");
+        assertThat(rows.get(0).get("CLUSTER_ID")).isEqualTo(originalId);
+        assertThat(rows.get(1).get("CLUSTER_ID")).isEqualTo(rows.get(1).get("ID"));
+        assertThat(rows.get(2).get("CLUSTER_ID")).isEqualTo(originalId);
+
+        var cluster = similarityIndex.getCluster(((Number) rows.get(2).get("ID")).longValue()).orElseThrow();
+        assertThat(cluster.getRepresentativeId()).isEqualTo(((Number) originalId).longValue());
+        assertThat(cluster.getSize()).isEqualTo(2);
+    }
+}
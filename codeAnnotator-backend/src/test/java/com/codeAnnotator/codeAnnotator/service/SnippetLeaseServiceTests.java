@@ -0,0 +1,147 @@
+package com.codeAnnotator.codeAnnotator.service;
+
+import com.codeAnnotator.codeAnnotator.event.AnnotationSavedEvent;
+import com.codeAnnotator.codeAnnotator.repository.SnippetLeaseRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.AdditionalAnswers;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.*;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+@DataJpaTest
+@ActiveProfiles("test")
+@Import(SnippetLeaseService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SnippetLeaseServiceTests {
+
+    @Autowired
+    private SnippetLeaseService leaseService;
+
+    @Autowired
+    private SnippetLeaseRepository leaseRepo;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @BeforeEach
+    void seed() {
+        for (int i = 0; i < 10; i++) {
+            jdbcTemplate.update("insert into code_snippet (code, type, annotation_count, start_line, end_line) values ('class A {}', 'OPENSOURCE', 0, 1, 1)");
+        }
+    }
+
+    @AfterEach
+    void clear() {
+        jdbcTemplate.update("delete from snippet_lease");
+        jdbcTemplate.update("delete from code_snippet");
+    }
+
+    @Test
+    void concurrentAnnotatorsReceiveDifferentSnippets() {
+        Long alice = leaseService.claimNext("alice", null).orElseThrow();
+        Long bob = leaseService.claimNext("bob", null).orElseThrow();
+
+        assertThat(alice).isNotEqualTo(bob);
+        assertThat(leaseService.claimNext("alice", null)).contains(alice);
+    }
+
+    @Test
+    void parallelClaimsNeverOverlap() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Optional<Long>>> claims = new ArrayList<>();
+            for (int i = 0; i < 10; i++) {
+                String annotator = "annotator-" + i;
+                claims.add(pool.submit(() -> leaseService.claimNext(annotator, null)));
+            }
+            Set<Long> claimed = new HashSet<>();
+            for (Future<Optional<Long>> claim : claims) {
+                claim.get(10, TimeUnit.SECONDS).ifPresent(id -> assertThat(claimed.add(id)).isTrue());
+            }
+            assertThat(claimed).isNotEmpty();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void savedAnnotationReleasesLease() {
+        Long alice = leaseService.claimNext("alice", null).orElseThrow();
+
+        new TransactionTemplate(transactionManager).executeWithoutResult(status ->
+                leaseService.onAnnotationSaved(new AnnotationSavedEvent(alice, "alice", "SKIPPED", List.of(), Instant.now())));
+
+        assertThat(leaseService.claimNext("bob", null)).contains(alice);
+    }
+
+    @Test
+    void expiredLeaseCanBeReclaimed() {
+        Long alice = leaseService.claimNext("alice", null).orElseThrow();
+        jdbcTemplate.update("update snippet_lease set expires_at = ? where snippet_id = ?",
+                new Timestamp(System.currentTimeMillis() - 1_000), alice);
+
+        assertThat(leaseService.claimNext("bob", null)).contains(alice);
+    }
+
+    @Test
+    void leaseCommittedAfterTheSnapshotIsSteppedOver() {
+        List<Long> ids = jdbcTemplate.queryForList("select id from code_snippet order by id", Long.class);
+        Long taken = leaseService.claimNext("bob", null).orElseThrow();
+        assertThat(taken).isEqualTo(ids.get(0));
+
+        // MySQL's snapshot read inside "for update" misses leases committed after the snapshot; an expiry
+        // check far in the future makes H2 miss bob's lease the same way.
+        SnippetLeaseRepository snapshotRepo = mock(SnippetLeaseRepository.class, AdditionalAnswers.delegatesTo(leaseRepo));
+        Timestamp snapshot = new Timestamp(System.currentTimeMillis() + 3_600_000L);
+        doAnswer(invocation -> leaseRepo.lockNextUnleasedId(invocation.getArgument(0), snapshot))
+                .when(snapshotRepo).lockNextUnleasedId(any(), any());
+        ReflectionTestUtils.setField(leaseService, "leaseRepo", snapshotRepo);
+        try {
+            assertThat(leaseService.claimNext("alice", null)).contains(ids.get(1));
+        } finally {
+            ReflectionTestUtils.setField(leaseService, "leaseRepo", leaseRepo);
+        }
+    }
+
+    @Test
+    void anonymousCallerMovingOnReleasesThePreviousSnippet() {
+        Long first = leaseService.claimNext(null, null).orElseThrow();
+        Long second = leaseService.claimNext(null, first).orElseThrow();
+
+        assertThat(second).isNotEqualTo(first);
+        assertThat(leaseService.claimNext("bob", null)).contains(first);
+    }
+
+    @Test
+    void excludedSnippetIsSkipped() {
+        Long first = jdbcTemplate.queryForObject("select min(id) from code_snippet", Long.class);
+
+        assertThat(leaseService.claimNext("alice", first).orElseThrow()).isNotEqualTo(first);
+    }
+}
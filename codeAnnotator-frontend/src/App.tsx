@@ -100,7 +100,7 @@ function App() {
     } finally {
       setLoading(false);
     }
-  }, []);
+  }, [currentSnippet?.id]);
 
   const loadInitialSnippetFromAPI = useCallback(async () => {
     console.log('loadInitialSnippetFromAPI called');
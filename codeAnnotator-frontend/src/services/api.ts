@@ -9,6 +9,7 @@ export interface ApiCodeSnippet {
   languages: string;
   type: string;
   aiComment?: string | null;
+  aiUnavailable?: boolean;
   aiSuggestions?: {
     smellType: string;
     category: string;
@@ -36,10 +37,25 @@ export interface AnnotationRequestDTO {
   annotations: SmellAnnotationDTO[];
 }
 
+// Snippets are leased to the caller; a stable per-browser owner lets a reload get its leased snippet back
+// instead of leasing (and hiding) another one.
+const LEASE_OWNER_KEY = 'codeAnnotator.leaseOwner';
+
+const leaseOwner = (): string => {
+  let owner = localStorage.getItem(LEASE_OWNER_KEY);
+  if (!owner) {
+    owner = `browser-${crypto.randomUUID()}`;
+    localStorage.setItem(LEASE_OWNER_KEY, owner);
+  }
+  return owner;
+};
+
 export const fetchNextSnippet = async (): Promise<ApiCodeSnippet> => {
   try {
     console.log('Fetching snippet from:', `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}`);
-    const response = await axios.get(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}`);
+    const response = await axios.get(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}`, {
+      params: { annotator: leaseOwner() }
+    });
     console.log('API Response:', response.data);
     return response.data;
   } catch (error) {
@@ -52,7 +68,9 @@ export const fetchNextSnippet = async (): Promise<ApiCodeSnippet> => {
 export const fetchNextSnippetWithID = async (id: number): Promise<ApiCodeSnippet> => {
     try {
       console.log('Fetching snippet from:', `${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}/${id}`);
-      const response = await axios.get(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}/${id}`);
+      const response = await axios.get(`${API_CONFIG.BASE_URL}${API_CONFIG.ENDPOINTS.NEXT_SNIPPET}/${id}`, {
+        params: { annotator: leaseOwner() }
+      });
       console.log('API Response:', response.data);
       return response.data;
     } catch (error) {